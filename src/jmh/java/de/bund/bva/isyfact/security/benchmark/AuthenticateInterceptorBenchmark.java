@@ -0,0 +1,123 @@
+package de.bund.bva.isyfact.security.benchmark;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import de.bund.bva.isyfact.security.oauth2.client.Authentifizierungsmanager;
+import de.bund.bva.isyfact.security.oauth2.client.annotation.Authenticate;
+import de.bund.bva.isyfact.security.oauth2.client.annotation.AuthenticateInterceptor;
+import de.bund.bva.isyfact.util.logging.MdcHelper;
+
+/**
+ * Measures the overhead of the {@link AuthenticateInterceptor} on a proxied method.
+ * <p>
+ * The {@link Authentifizierungsmanager} sets a prepared authentication, as it does for a cached token, so that only
+ * the interceptor, the creation of the correlation ID and the proxy are measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthenticateInterceptorBenchmark {
+
+    /** Whether a correlation ID is already set, so that the interceptor does not create one. */
+    @Param({"false", "true"})
+    private boolean korrelationsIdVorhanden;
+
+    private Service service;
+
+    @Setup
+    public void setup() {
+        JwtAuthenticationToken authentication = new JwtAuthenticationToken(
+                SyntheticRolePrivileges.createJwt(Collections.singletonList(SyntheticRolePrivileges.role(0))));
+
+        ProxyFactory proxyFactory = new ProxyFactory(new Service());
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvisor(new AuthenticateInterceptor(new CachedTokenAuthentifizierungsmanager(authentication)));
+        service = (Service) proxyFactory.getProxy();
+
+        if (korrelationsIdVorhanden) {
+            MdcHelper.pushKorrelationsId("6f1b1b8e-8f5c-4a4e-9b0a-2f3c5d7e9a1b");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        MdcHelper.entferneKorrelationsIds();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Benchmark
+    public String invoke() {
+        return service.call("request");
+    }
+
+    /**
+     * Service whose method is intercepted.
+     */
+    public static class Service {
+
+        @Authenticate("benchmark-client")
+        public String call(String request) {
+            return request;
+        }
+    }
+
+    /**
+     * Sets a prepared authentication instead of requesting a token.
+     */
+    private static final class CachedTokenAuthentifizierungsmanager implements Authentifizierungsmanager {
+
+        private final JwtAuthenticationToken authentication;
+
+        private CachedTokenAuthentifizierungsmanager(JwtAuthenticationToken authentication) {
+            this.authentication = authentication;
+        }
+
+        @Override
+        public void authentifiziere(String oauth2ClientRegistrationId) {
+            SecurityContextHolder.getContext().setAuthentication(authentication);
+        }
+
+        @Override
+        public void authentifiziereClient(String issuerLocation, String clientId, String clientSecret) {
+            SecurityContextHolder.getContext().setAuthentication(authentication);
+        }
+
+        @Override
+        public void authentifiziereClient(String issuerLocation, String clientId, String clientSecret, String bhknz) {
+            SecurityContextHolder.getContext().setAuthentication(authentication);
+        }
+
+        @Override
+        public void authentifiziereSystem(String issuerLocation, String clientId, String clientSecret, String username,
+                                          String password) {
+            SecurityContextHolder.getContext().setAuthentication(authentication);
+        }
+
+        @Override
+        public void authentifiziereSystem(String issuerLocation, String clientId, String clientSecret, String username,
+                                          String password, String bhknz) {
+            SecurityContextHolder.getContext().setAuthentication(authentication);
+        }
+    }
+
+}
@@ -0,0 +1,204 @@
+package de.bund.bva.isyfact.security.benchmark;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import de.bund.bva.isyfact.security.IsySecurityTestConfiguration;
+import de.bund.bva.isyfact.security.oauth2.client.Authentifizierungsmanager;
+import de.bund.bva.isyfact.security.oauth2.client.annotation.Authenticate;
+import de.bund.bva.isyfact.security.test.oidcprovider.EmbeddedOidcProviderMock;
+
+/**
+ * Measures the client-side cost of an authentication against an embedded OIDC provider, i.e. without an external
+ * {@code IAM-Service}.
+ * <p>
+ * The benchmark starts the {@link EmbeddedOidcProviderMock} and an application context with the auto-configuration
+ * of isy-security, and calls {@code @Authenticate} methods, {@code authentifiziereClient} and
+ * {@code authentifiziereSystem} from several threads ({@code -t}). The tokens are valid for an hour, so that with
+ * {@link #tokenCache} enabled nearly all calls are served from the cache. Tokens of the configured client registration
+ * used by {@code @Authenticate} are always cached. The secondary result {@code tokenRequests} is the number of
+ * requests to the token endpoint per iteration.
+ * <p>
+ * Virtual threads are used with {@code -jvmArgsAppend -Djmh.executor=VIRTUAL}, which requires Java 21.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(8)
+@Fork(1)
+public class AuthentifizierungBenchmark {
+
+    private static final String HOST = "localhost";
+
+    /** Port of the embedded OIDC provider, differs from the port used by the tests. */
+    private static final int PORT = 9096;
+
+    private static final String ISSUER_PATH = "/auth/realms/benchmark";
+
+    private static final int TOKEN_LIFESPAN = 3600;
+
+    private static final String CC_CLIENT_ID = "client-credentials-benchmark-client";
+
+    private static final String CC_CLIENT_SECRET = "supersecretpassword";
+
+    private static final String ROPC_CLIENT_ID = "resource-owner-password-credentials-benchmark-client";
+
+    private static final String ROPC_CLIENT_SECRET = "hypersecretpassword";
+
+    private static final String USERNAME = "benchmark-user";
+
+    private static final String PASSWORD = "pw1234";
+
+    /** Requests to the token endpoint of the embedded OIDC provider. */
+    private static final LongAdder TOKEN_REQUESTS = new LongAdder();
+
+    /** Whether access tokens of programmatically created client registrations are cached. */
+    @Param({"true", "false"})
+    private boolean tokenCache;
+
+    private EmbeddedOidcProviderMock oidcProvider;
+
+    private ConfigurableApplicationContext context;
+
+    private AuthenticateService authenticateService;
+
+    private Authentifizierungsmanager authentifizierungsmanager;
+
+    private String issuer;
+
+    @Setup
+    public void setup() {
+        oidcProvider = new EmbeddedOidcProviderMock(HOST, PORT, ISSUER_PATH, TOKEN_LIFESPAN);
+        oidcProvider.beforeAll(null);
+        oidcProvider.addClient(CC_CLIENT_ID, CC_CLIENT_SECRET, Collections.singleton("Rolle_A"));
+        oidcProvider.addUser(ROPC_CLIENT_ID, ROPC_CLIENT_SECRET, USERNAME, PASSWORD, Optional.empty(), Collections.singleton("Rolle_A"));
+        oidcProvider.getOidcServer().addMockServiceRequestListener((request, response) -> {
+            if (request.getUrl().endsWith("/token")) {
+                TOKEN_REQUESTS.increment();
+            }
+        });
+        issuer = oidcProvider.getIssuer().toString();
+
+        Map<String, Object> properties = new HashMap<>();
+        // the client registrations are only configured in servlet applications, the server itself is not used
+        properties.put("server.port", 0);
+        properties.put("logging.level.root", "WARN");
+        properties.put("spring.security.oauth2.client.provider.benchmark.issuer-uri", issuer);
+        properties.put("spring.security.oauth2.client.registration.cc-client.client-id", CC_CLIENT_ID);
+        properties.put("spring.security.oauth2.client.registration.cc-client.client-secret", CC_CLIENT_SECRET);
+        properties.put("spring.security.oauth2.client.registration.cc-client.authorization-grant-type", "client_credentials");
+        properties.put("spring.security.oauth2.client.registration.cc-client.provider", "benchmark");
+        properties.put("isy.security.oauth2.client.token-cache.max-size", tokenCache ? 100 : 0);
+        properties.put("isy.security.oauth2.client.token-cache.password-grant-enabled", tokenCache);
+
+        context = new SpringApplicationBuilder(IsySecurityTestConfiguration.class, BenchmarkConfiguration.class)
+                .web(WebApplicationType.SERVLET)
+                .bannerMode(Banner.Mode.OFF)
+                .properties(properties)
+                .run();
+        authenticateService = context.getBean(AuthenticateService.class);
+        authentifizierungsmanager = context.getBean(Authentifizierungsmanager.class);
+        TOKEN_REQUESTS.reset();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+        oidcProvider.afterAll(null);
+    }
+
+    @Benchmark
+    public Authentication authenticate(TokenEndpoint tokenEndpoint) {
+        return authenticateService.call();
+    }
+
+    @Benchmark
+    public Authentication authentifiziereClient(TokenEndpoint tokenEndpoint) {
+        authentifizierungsmanager.authentifiziereClient(issuer, CC_CLIENT_ID, CC_CLIENT_SECRET);
+        return clearAuthentication();
+    }
+
+    @Benchmark
+    public Authentication authentifiziereSystem(TokenEndpoint tokenEndpoint) {
+        authentifizierungsmanager.authentifiziereSystem(issuer, ROPC_CLIENT_ID, ROPC_CLIENT_SECRET, USERNAME, PASSWORD);
+        return clearAuthentication();
+    }
+
+    private static Authentication clearAuthentication() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+
+    /**
+     * Reports the requests to the token endpoint per iteration. The requests are counted for all threads, the first
+     * thread that finishes an iteration takes the count, so that the sum of all threads is the total.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class TokenEndpoint {
+
+        public long tokenRequests;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            tokenRequests = 0;
+        }
+
+        @TearDown(Level.Iteration)
+        public void collect() {
+            tokenRequests = TOKEN_REQUESTS.sumThenReset();
+        }
+    }
+
+    /**
+     * Service whose method authenticates with the configured client registration.
+     */
+    public static class AuthenticateService {
+
+        @Authenticate("cc-client")
+        public Authentication call() {
+            return SecurityContextHolder.getContext().getAuthentication();
+        }
+    }
+
+    @Configuration
+    static class BenchmarkConfiguration {
+
+        @Bean
+        public AuthenticateService authenticateService() {
+            return new AuthenticateService();
+        }
+    }
+
+}
@@ -0,0 +1,98 @@
+package de.bund.bva.isyfact.security.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import de.bund.bva.isyfact.security.authentication.RolePrivilegeGrantedAuthoritiesConverter;
+import de.bund.bva.isyfact.security.core.IsyOAuth2Berechtigungsmanager;
+import de.bund.bva.isyfact.security.xmlparser.RolePrivilegesMapper;
+
+/**
+ * Measures the privilege checks of the {@link IsyOAuth2Berechtigungsmanager}.
+ * <p>
+ * The state is per thread, because the authentication is held in the thread-local {@code SecurityContext}.
+ * {@link #hatRechtNeueAuthentifizierung()} alternates between two authentications, so that each check is the first
+ * one for its authentication, as it is for the first check of a request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BerechtigungsmanagerBenchmark {
+
+    /** Number of roles of the mapping. */
+    private static final int ROLE_COUNT = 1000;
+
+    /** Number of roles of a token. */
+    @Param({"1", "10", "200"})
+    private int rolesPerToken;
+
+    private IsyOAuth2Berechtigungsmanager berechtigungsmanager;
+
+    private JwtAuthenticationToken[] authentications;
+
+    private int authenticationIndex;
+
+    private String recht;
+
+    @Setup
+    public void setup() {
+        RolePrivilegesMapper rolePrivilegesMapper = SyntheticRolePrivileges.createMapper(ROLE_COUNT);
+        RolePrivilegeGrantedAuthoritiesConverter converter = new RolePrivilegeGrantedAuthoritiesConverter(rolePrivilegesMapper);
+        converter.setRolesClaimName(SyntheticRolePrivileges.ROLES_CLAIM_NAME);
+
+        List<List<String>> roleCombinations = SyntheticRolePrivileges.createRoleCombinations(2, ROLE_COUNT, rolesPerToken);
+        authentications = roleCombinations.stream()
+                .map(roles -> {
+                    Jwt jwt = SyntheticRolePrivileges.createJwt(roles);
+                    return new JwtAuthenticationToken(jwt, converter.convert(jwt));
+                })
+                .toArray(JwtAuthenticationToken[]::new);
+
+        recht = RolePrivilegeGrantedAuthoritiesConverter.AUTHORITY_PREFIX
+                + rolePrivilegesMapper.getPrivilegesByRoles(roleCombinations.get(0)).iterator().next();
+        berechtigungsmanager = new IsyOAuth2Berechtigungsmanager(SyntheticRolePrivileges.ROLES_CLAIM_NAME);
+        SecurityContextHolder.getContext().setAuthentication(authentications[0]);
+    }
+
+    @TearDown
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Benchmark
+    public boolean hatRecht() {
+        return berechtigungsmanager.hatRecht(recht);
+    }
+
+    @Benchmark
+    public void pruefeRecht() {
+        berechtigungsmanager.pruefeRecht(recht);
+    }
+
+    @Benchmark
+    public boolean hatRechtNeueAuthentifizierung() {
+        authenticationIndex ^= 1;
+        SecurityContextHolder.getContext().setAuthentication(authentications[authenticationIndex]);
+        return berechtigungsmanager.hatRecht(recht);
+    }
+
+}
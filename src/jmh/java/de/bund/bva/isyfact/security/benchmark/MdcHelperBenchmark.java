@@ -0,0 +1,64 @@
+package de.bund.bva.isyfact.security.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.bund.bva.isyfact.util.logging.MdcHelper;
+
+/**
+ * Measures adding and removing correlation IDs with the {@link MdcHelper}, with and without the thread-local stack.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MdcHelperBenchmark {
+
+    private static final String KORRELATIONS_ID = "6f1b1b8e-8f5c-4a4e-9b0a-2f3c5d7e9a1b";
+
+    private static final String VERSCHACHTELTE_KORRELATIONS_ID = "0c7d9e2f-3a4b-4c5d-8e6f-7a8b9c0d1e2f";
+
+    /** Whether the thread-local stack of correlation IDs is used. */
+    @Param({"false", "true"})
+    private boolean stapel;
+
+    @Setup
+    public void setup() {
+        MdcHelper.setzeKorrelationsIdStapel(stapel);
+    }
+
+    @TearDown
+    public void tearDown() {
+        MdcHelper.entferneKorrelationsIds();
+        MdcHelper.setzeKorrelationsIdStapel(false);
+    }
+
+    @Benchmark
+    public String pushUndEntferne() {
+        MdcHelper.pushKorrelationsId(KORRELATIONS_ID);
+        return MdcHelper.entferneKorrelationsId();
+    }
+
+    @Benchmark
+    public String pushUndEntferneVerschachtelt() {
+        MdcHelper.pushKorrelationsId(KORRELATIONS_ID);
+        MdcHelper.pushKorrelationsId(VERSCHACHTELTE_KORRELATIONS_ID);
+        MdcHelper.entferneKorrelationsId();
+        return MdcHelper.entferneKorrelationsId();
+    }
+
+}
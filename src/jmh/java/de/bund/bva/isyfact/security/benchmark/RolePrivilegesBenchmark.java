@@ -0,0 +1,103 @@
+package de.bund.bva.isyfact.security.benchmark;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import de.bund.bva.isyfact.security.authentication.RolePrivilegeGrantedAuthoritiesConverter;
+import de.bund.bva.isyfact.security.xmlparser.RolePrivilegesMapper;
+
+/**
+ * Measures the mapping of the roles of a token to privileges and granted authorities.
+ * <p>
+ * {@link #convert()} converts the same role combination again and again, as it happens for the tokens of a few clients.
+ * {@link #convertDistinctRoleCombinations(Combinations)} cycles through more role combinations than the converter
+ * caches, as it happens for the tokens of many users.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RolePrivilegesBenchmark {
+
+    /** Number of distinct role combinations, larger than the cache of the converter. */
+    private static final int DISTINCT_ROLE_COMBINATIONS = 1024;
+
+    /** Number of roles of the mapping. */
+    @Param({"10", "100", "1000", "10000"})
+    private int roleCount;
+
+    /** Number of roles of a token. */
+    @Param({"1", "10", "200"})
+    private int rolesPerToken;
+
+    private RolePrivilegesMapper rolePrivilegesMapper;
+
+    private RolePrivilegeGrantedAuthoritiesConverter converter;
+
+    private List<String> roles;
+
+    private Jwt jwt;
+
+    private Jwt[] distinctJwts;
+
+    @Setup
+    public void setup() {
+        rolePrivilegesMapper = SyntheticRolePrivileges.createMapper(roleCount);
+        converter = new RolePrivilegeGrantedAuthoritiesConverter(rolePrivilegesMapper);
+        converter.setRolesClaimName(SyntheticRolePrivileges.ROLES_CLAIM_NAME);
+
+        List<List<String>> roleCombinations = SyntheticRolePrivileges.createRoleCombinations(DISTINCT_ROLE_COMBINATIONS,
+                roleCount, rolesPerToken);
+        roles = roleCombinations.get(0);
+        jwt = SyntheticRolePrivileges.createJwt(roles);
+        distinctJwts = roleCombinations.stream().map(SyntheticRolePrivileges::createJwt).toArray(Jwt[]::new);
+    }
+
+    @Benchmark
+    public Set<String> getPrivilegesByRoles() {
+        return rolePrivilegesMapper.getPrivilegesByRoles(roles);
+    }
+
+    @Benchmark
+    public Collection<GrantedAuthority> convert() {
+        return converter.convert(jwt);
+    }
+
+    @Benchmark
+    public Collection<GrantedAuthority> convertDistinctRoleCombinations(Combinations combinations) {
+        return converter.convert(distinctJwts[combinations.next()]);
+    }
+
+    /**
+     * Index of the next role combination of a benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class Combinations {
+
+        private int index;
+
+        int next() {
+            index = (index + 1) % DISTINCT_ROLE_COMBINATIONS;
+            return index;
+        }
+    }
+
+}
@@ -0,0 +1,118 @@
+package de.bund.bva.isyfact.security.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import de.bund.bva.isyfact.security.xmlparser.RolePrivilegesMapper;
+
+/**
+ * Creates synthetic role privileges mappings and tokens for the benchmarks.
+ * <p>
+ * A mapping with {@code n} roles defines {@code n} privileges {@code Recht_0 ... Recht_n-1}. Every role
+ * {@code Rolle_i} is mapped to {@value #PRIVILEGES_PER_ROLE} of them, so that the roles of a token share some
+ * privileges, as they usually do.
+ */
+final class SyntheticRolePrivileges {
+
+    /** Name of the roles claim of the created tokens. */
+    static final String ROLES_CLAIM_NAME = "roles";
+
+    /** Number of privileges each role is mapped to. */
+    static final int PRIVILEGES_PER_ROLE = 10;
+
+    /** Seed of the random role selection, so that all runs use the same tokens. */
+    private static final long SEED = 4711;
+
+    private SyntheticRolePrivileges() {
+    }
+
+    /**
+     * Writes a {@code rollenrechte.xml} with the given number of roles to a temporary file and loads it.
+     *
+     * @param roleCount number of roles of the mapping
+     * @return the mapper holding the mapping
+     */
+    static RolePrivilegesMapper createMapper(int roleCount) {
+        StringBuilder xml = new StringBuilder()
+                .append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<tns:Anwendung AnwendungsId=\"Benchmark\" xmlns:tns=\"http://www.example.org/RollenRechteSchema\">\n");
+        for (int i = 0; i < roleCount; i++) {
+            xml.append("    <tns:rechte><tns:rechtId Id=\"").append(privilege(i)).append("\"/></tns:rechte>\n");
+        }
+        for (int i = 0; i < roleCount; i++) {
+            xml.append("    <tns:rollen RolleId=\"").append(role(i)).append("\">\n");
+            for (int k = 0; k < PRIVILEGES_PER_ROLE; k++) {
+                xml.append("        <tns:rechtId Id=\"").append(privilege((i + k * 37) % roleCount)).append("\"/>\n");
+            }
+            xml.append("    </tns:rollen>\n");
+        }
+        xml.append("</tns:Anwendung>\n");
+
+        try {
+            Path file = Files.createTempFile("rollenrechte-" + roleCount + "-", ".xml");
+            file.toFile().deleteOnExit();
+            Files.write(file, xml.toString().getBytes(StandardCharsets.UTF_8));
+            return new RolePrivilegesMapper(new FileSystemResource(file));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Creates role combinations with randomly selected roles of a mapping.
+     *
+     * @param count         number of role combinations
+     * @param roleCount     number of roles of the mapping
+     * @param rolesPerToken number of roles per combination, limited to the number of roles of the mapping
+     * @return the role combinations
+     */
+    static List<List<String>> createRoleCombinations(int count, int roleCount, int rolesPerToken) {
+        Random random = new Random(SEED);
+        List<List<String>> roleCombinations = new ArrayList<>(count);
+        for (int c = 0; c < count; c++) {
+            List<String> roles = new ArrayList<>();
+            int first = random.nextInt(roleCount);
+            for (int i = 0; i < Math.min(rolesPerToken, roleCount); i++) {
+                roles.add(role((first + i * (roleCount / Math.min(rolesPerToken, roleCount))) % roleCount));
+            }
+            roleCombinations.add(roles);
+        }
+        return roleCombinations;
+    }
+
+    /**
+     * Creates a token carrying the given roles.
+     *
+     * @param roles the roles of the token
+     * @return the token
+     */
+    static Jwt createJwt(List<String> roles) {
+        Instant now = Instant.now();
+        return Jwt.withTokenValue("benchmark")
+                .header("alg", "none")
+                .subject("benchmark")
+                .issuedAt(now)
+                .expiresAt(now.plusSeconds(3600))
+                .claim(ROLES_CLAIM_NAME, roles)
+                .build();
+    }
+
+    static String role(int i) {
+        return "Rolle_" + i;
+    }
+
+    static String privilege(int i) {
+        return "Recht_" + i;
+    }
+
+}
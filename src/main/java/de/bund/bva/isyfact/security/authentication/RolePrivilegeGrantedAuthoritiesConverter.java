@@ -1,24 +1,40 @@
 package de.bund.bva.isyfact.security.authentication;
 
+import de.bund.bva.isyfact.security.cache.ExpiringCache;
+import de.bund.bva.isyfact.security.jfr.RoleMappingEvent;
+import de.bund.bva.isyfact.security.xmlparser.RolePrivilegesIndex;
 import de.bund.bva.isyfact.security.xmlparser.RolePrivilegesMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.convert.converter.Converter;
+import org.springframework.lang.Nullable;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
 /**
  * Based on {@link org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter} but with additional
  * mapping from roles to privileges and a custom authority prefix to indicate the mapped privileges.
+ * <p>
+ * The granted authorities of a role combination are cached as a shared, immutable collection, which consists of one
+ * {@link SimpleGrantedAuthority} per privilege that is created once for the current role privileges mapping.
+ * <p>
+ * Each conversion is recorded as {@link RoleMappingEvent} in JFR.
  */
 public class RolePrivilegeGrantedAuthoritiesConverter implements Converter<Jwt, Collection<GrantedAuthority>> {
 
@@ -34,6 +50,14 @@ public class RolePrivilegeGrantedAuthoritiesConverter implements Converter<Jwt,
      * Well known authorities claim names to check in order if no {@link #authoritiesClaimName} is set.
      */
     private static final Collection<String> WELL_KNOWN_AUTHORITIES_CLAIM_NAMES = Arrays.asList("scope", "scp");
+    /**
+     * Maximum number of cached role combinations. Beyond that, the combinations that were cached first are evicted.
+     */
+    private static final int MAX_CACHED_ROLE_COMBINATIONS = 256;
+    /**
+     * Time after which the authorities of a role combination are created again, so that rarely used combinations expire.
+     */
+    private static final Duration ROLE_COMBINATION_TIME_TO_LIVE = Duration.ofHours(1);
     /**
      * Mapper from roles to privileges.
      */
@@ -42,18 +66,34 @@ public class RolePrivilegeGrantedAuthoritiesConverter implements Converter<Jwt,
      * The claim name to check for authorities.
      */
     private String authoritiesClaimName;
+    /**
+     * Granted authorities for the index of the role privileges mapping they were created for.
+     */
+    private volatile AuthorityCache authorityCache;
 
     public RolePrivilegeGrantedAuthoritiesConverter(RolePrivilegesMapper rolePrivilegesMapper) {
         this.rolePrivilegesMapper = rolePrivilegesMapper;
+        this.authorityCache = new AuthorityCache(rolePrivilegesMapper.getRolePrivilegesIndex());
     }
 
     public Collection<GrantedAuthority> convert(Jwt jwt) {
+        RoleMappingEvent event = RoleMappingEvent.start();
+        Object rolesClaim = getRolesClaim(jwt);
+        if (rolesClaim instanceof Collection) {
+            Collection<String> roles = (Collection<String>) rolesClaim;
+            List<GrantedAuthority> authorities = getAuthorityCache().getAuthorities(roles, event);
+            event.finish(roles.size(), authorities.size());
+            return authorities;
+        }
+
+        Collection<String> roles = getAuthorities(rolesClaim);
         Collection<GrantedAuthority> grantedAuthorities = new ArrayList<>();
 
-        for (String authority : getAuthorities(jwt)) {
+        for (String authority : roles) {
             grantedAuthorities.add(new SimpleGrantedAuthority(AUTHORITY_PREFIX + authority));
         }
 
+        event.finish(roles.size(), grantedAuthorities.size());
         return grantedAuthorities;
     }
 
@@ -62,24 +102,22 @@ public class RolePrivilegeGrantedAuthoritiesConverter implements Converter<Jwt,
         this.authoritiesClaimName = authoritiesClaimName;
     }
 
-    private Collection<String> getAuthorities(Jwt jwt) {
+    @Nullable
+    private Object getRolesClaim(Jwt jwt) {
         String claimName = getRolesClaimName(jwt);
         if (claimName == null) {
             LOG.trace("Returning no authorities since could not find any claims that might contain roles");
-            return Collections.emptyList();
+            return null;
         }
         if (LOG.isTraceEnabled()) {
             LOG.trace("Looking for roles in claim {}", claimName);
         }
-        Object rolesClaim = jwt.getClaim(claimName);
-        if (rolesClaim instanceof String) {
-            if (StringUtils.hasText((String) rolesClaim)) {
-                return Arrays.asList(((String) rolesClaim).split(" "));
-            }
-            return Collections.emptyList();
-        }
-        if (rolesClaim instanceof Collection) {
-            return mapToPrivileges((Collection<String>) rolesClaim);
+        return jwt.getClaim(claimName);
+    }
+
+    private Collection<String> getAuthorities(@Nullable Object rolesClaim) {
+        if (rolesClaim instanceof String && StringUtils.hasText((String) rolesClaim)) {
+            return Arrays.asList(((String) rolesClaim).split(" "));
         }
         return Collections.emptyList();
     }
@@ -96,8 +134,70 @@ public class RolePrivilegeGrantedAuthoritiesConverter implements Converter<Jwt,
         return null;
     }
 
-    private Set<String> mapToPrivileges(Collection<String> roles) {
-        return rolePrivilegesMapper.getPrivilegesByRoles(roles);
+    private AuthorityCache getAuthorityCache() {
+        AuthorityCache cache = authorityCache;
+        RolePrivilegesIndex rolePrivilegesIndex = rolePrivilegesMapper.getRolePrivilegesIndex();
+        if (cache.rolePrivilegesIndex != rolePrivilegesIndex) {
+            // the role privileges mapping has changed, the cached authorities are no longer valid
+            cache = new AuthorityCache(rolePrivilegesIndex);
+            authorityCache = cache;
+        }
+        return cache;
+    }
+
+    /**
+     * Granted authorities that were created for one index of the role privileges mapping.
+     */
+    private static final class AuthorityCache {
+
+        /** The index the authorities were created for. */
+        private final RolePrivilegesIndex rolePrivilegesIndex;
+
+        /** One granted authority per privilege of the mapping. */
+        private final Map<String, GrantedAuthority> authoritiesByPrivilege = new HashMap<>();
+
+        /**
+         * Granted authorities by role combination. The roles are cached as they appear in the claim, so that a hit does not
+         * need a copy of the claim, and sorted without duplicates, so that the same combination shares the authorities.
+         */
+        private final ExpiringCache<List<String>, List<GrantedAuthority>> authoritiesByRoles =
+                new ExpiringCache<>(MAX_CACHED_ROLE_COMBINATIONS);
+
+        private AuthorityCache(RolePrivilegesIndex rolePrivilegesIndex) {
+            this.rolePrivilegesIndex = rolePrivilegesIndex;
+            for (String privilege : rolePrivilegesIndex.getAllPrivileges()) {
+                authoritiesByPrivilege.put(privilege, new SimpleGrantedAuthority(AUTHORITY_PREFIX + privilege));
+            }
+        }
+
+        private List<GrantedAuthority> getAuthorities(Collection<String> roles, RoleMappingEvent event) {
+            List<String> roleList = roles instanceof List ? (List<String>) roles : new ArrayList<>(roles);
+            List<GrantedAuthority> authorities = authoritiesByRoles.get(roleList);
+            event.setCacheHit(authorities != null);
+            if (authorities != null) {
+                return authorities;
+            }
+
+            Set<String> roleSet = new HashSet<>(roles);
+            List<String> sortedRoles = roleSet.stream().filter(Objects::nonNull).sorted().toList();
+            Instant expiresAt = Instant.now().plus(ROLE_COMBINATION_TIME_TO_LIVE);
+            authorities = authoritiesByRoles.computeIfAbsent(sortedRoles,
+                    key -> toAuthorities(rolePrivilegesIndex.getPrivilegesByRoles(roleSet)), expiresAt);
+            if (!roleList.equals(sortedRoles)) {
+                // the claim may change after the conversion, so the key must be a copy
+                authoritiesByRoles.put(Collections.unmodifiableList(new ArrayList<>(roleList)), authorities, expiresAt);
+            }
+            return authorities;
+        }
+
+        private List<GrantedAuthority> toAuthorities(Set<String> privileges) {
+            GrantedAuthority[] authorities = new GrantedAuthority[privileges.size()];
+            int i = 0;
+            for (String privilege : privileges) {
+                authorities[i++] = authoritiesByPrivilege.get(privilege);
+            }
+            return List.of(authorities);
+        }
     }
 
 }
@@ -1,12 +1,16 @@
 package de.bund.bva.isyfact.security.autoconfigure;
 
+import java.time.Clock;
+import java.time.Duration;
 import java.util.List;
 
 import org.springframework.aop.Advisor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.security.oauth2.client.ClientsConfiguredCondition;
 import org.springframework.boot.autoconfigure.security.oauth2.client.OAuth2ClientProperties;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -24,18 +28,32 @@ import org.springframework.security.oauth2.client.OAuth2AuthorizedClientManager;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClientProvider;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClientProviderBuilder;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.endpoint.DefaultClientCredentialsTokenResponseClient;
+import org.springframework.security.oauth2.client.endpoint.OAuth2ClientCredentialsGrantRequest;
 import org.springframework.security.oauth2.client.registration.ClientRegistration;
 import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.web.client.RestOperations;
 
 import de.bund.bva.isyfact.security.config.IsyOAuth2ClientConfigurationProperties;
+import de.bund.bva.isyfact.security.metrics.InstrumentedAccessTokenResponseClient;
+import de.bund.bva.isyfact.security.metrics.IsySecurityMetrics;
 import de.bund.bva.isyfact.security.oauth2.client.Authentifizierungsmanager;
 import de.bund.bva.isyfact.security.oauth2.client.IsyOAuth2Authentifizierungsmanager;
+import de.bund.bva.isyfact.security.oauth2.client.IsyOAuth2ReactiveAuthentifizierungsmanager;
+import de.bund.bva.isyfact.security.oauth2.client.ReactiveAuthentifizierungsmanager;
 import de.bund.bva.isyfact.security.oauth2.client.annotation.AuthenticateInterceptor;
+import de.bund.bva.isyfact.security.oauth2.client.authentication.AuthorizedClientRefresher;
 import de.bund.bva.isyfact.security.oauth2.client.authentication.ClientCredentialsAuthorizedClientAuthenticationProvider;
 import de.bund.bva.isyfact.security.oauth2.client.authentication.ClientCredentialsClientRegistrationAuthenticationProvider;
+import de.bund.bva.isyfact.security.oauth2.client.authentication.IsyOAuth2ReactiveAuthenticationManager;
 import de.bund.bva.isyfact.security.oauth2.client.authentication.PasswordClientRegistrationAuthenticationProvider;
 import de.bund.bva.isyfact.security.oauth2.client.authentication.util.BhknzHeaderConverterBuilder;
+import de.bund.bva.isyfact.security.oauth2.client.http.TokenEndpointTransport;
+import de.bund.bva.isyfact.security.oauth2.client.http.TokenEndpointWebClients;
+import de.bund.bva.isyfact.security.oauth2.client.registration.ProviderConfigurationCache;
+import de.bund.bva.isyfact.util.logging.KorrelationsIdGenerator;
+import io.micrometer.observation.ObservationRegistry;
 
 /**
  * Autoconfiguration for beans related to OAuth 2.0 client authentication.
@@ -64,20 +82,53 @@ public class IsyOAuth2ClientAutoConfiguration {
         return new BhknzHeaderConverterBuilder(isyOAuth2ClientConfigurationProperties);
     }
 
+    // pooled HTTP transport shared by all clients sending requests to the token endpoint
+    @Bean
+    @ConditionalOnMissingBean
+    public TokenEndpointTransport tokenEndpointTransport(IsyOAuth2ClientConfigurationProperties isyOAuth2ClientConfigurationProperties) {
+        return new TokenEndpointTransport(isyOAuth2ClientConfigurationProperties.getHttp());
+    }
+
     // does not have a dependency on ClientRegistrations and should always be created
     @Bean
     @ConditionalOnMissingBean
     public ClientCredentialsClientRegistrationAuthenticationProvider clientCredentialsClientRegistrationAuthenticationProvider(
-            JwtAuthenticationConverter jwtAuthenticationConverter) {
-        return new ClientCredentialsClientRegistrationAuthenticationProvider(jwtAuthenticationConverter);
+            JwtAuthenticationConverter jwtAuthenticationConverter,
+            IsyOAuth2ClientConfigurationProperties isyOAuth2ClientConfigurationProperties,
+            TokenEndpointTransport tokenEndpointTransport,
+            ObjectProvider<IsySecurityMetrics> metrics,
+            ObjectProvider<ObservationRegistry> observationRegistry) {
+        IsyOAuth2ClientConfigurationProperties.TokenCacheProperties tokenCache = isyOAuth2ClientConfigurationProperties.getTokenCache();
+        ClientCredentialsClientRegistrationAuthenticationProvider authenticationProvider =
+                new ClientCredentialsClientRegistrationAuthenticationProvider(jwtAuthenticationConverter, tokenCache.getMaxSize(),
+                        tokenCache.getClockSkew());
+        authenticationProvider.setRestOperations(tokenEndpointTransport.getRestOperations());
+        authenticationProvider.setRequestCoalescingTimeout(tokenCache.getRequestCoalescingTimeout());
+        metrics.ifAvailable(authenticationProvider::setMetrics);
+        observationRegistry.ifAvailable(authenticationProvider::setObservationRegistry);
+        return authenticationProvider;
     }
 
     // does not have a dependency on ClientRegistrations and should always be created
     @Bean
     public PasswordClientRegistrationAuthenticationProvider passwordClientRegistrationAuthenticationProvider(
             JwtAuthenticationConverter jwtAuthenticationConverter,
-            @Lazy BhknzHeaderConverterBuilder bhknzHeaderConverterBuilder) {
-        return new PasswordClientRegistrationAuthenticationProvider(jwtAuthenticationConverter, bhknzHeaderConverterBuilder);
+            @Lazy BhknzHeaderConverterBuilder bhknzHeaderConverterBuilder,
+            IsyOAuth2ClientConfigurationProperties isyOAuth2ClientConfigurationProperties,
+            TokenEndpointTransport tokenEndpointTransport,
+            ObjectProvider<IsySecurityMetrics> metrics,
+            ObjectProvider<ObservationRegistry> observationRegistry) {
+        IsyOAuth2ClientConfigurationProperties.TokenCacheProperties tokenCache = isyOAuth2ClientConfigurationProperties.getTokenCache();
+        int cacheMaxSize = tokenCache.isPasswordGrantEnabled() ? tokenCache.getMaxSize() : 0;
+        PasswordClientRegistrationAuthenticationProvider authenticationProvider =
+                new PasswordClientRegistrationAuthenticationProvider(jwtAuthenticationConverter, bhknzHeaderConverterBuilder,
+                        cacheMaxSize, tokenCache.getClockSkew());
+        authenticationProvider.setRestOperations(tokenEndpointTransport.getRestOperations());
+        authenticationProvider.setRequestCoalescingTimeout(tokenCache.getRequestCoalescingTimeout());
+        authenticationProvider.setMaxPooledBhknz(isyOAuth2ClientConfigurationProperties.getMaxPooledBhknz());
+        metrics.ifAvailable(authenticationProvider::setMetrics);
+        observationRegistry.ifAvailable(authenticationProvider::setObservationRegistry);
+        return authenticationProvider;
     }
 
     @Bean
@@ -86,13 +137,76 @@ public class IsyOAuth2ClientAutoConfiguration {
         return new ProviderManager(authenticationProvider);
     }
 
+    // caches the discovered issuer configuration for programmatically created client registrations
+    @Bean
+    @ConditionalOnMissingBean
+    public ProviderConfigurationCache providerConfigurationCache(
+            IsyOAuth2ClientConfigurationProperties isyOAuth2ClientConfigurationProperties,
+            ObjectProvider<IsySecurityMetrics> metrics,
+            ObjectProvider<ObservationRegistry> observationRegistry) {
+        IsyOAuth2ClientConfigurationProperties.DiscoveryCacheProperties discoveryCache =
+                isyOAuth2ClientConfigurationProperties.getDiscoveryCache();
+        ProviderConfigurationCache providerConfigurationCache =
+                new ProviderConfigurationCache(discoveryCache.getTimeToLive(), discoveryCache.getMaxSize());
+        metrics.ifAvailable(providerConfigurationCache::setMetrics);
+        observationRegistry.ifAvailable(providerConfigurationCache::setObservationRegistry);
+        return providerConfigurationCache;
+    }
+
     @Bean
     @ConditionalOnMissingBean
     public Authentifizierungsmanager authentifizierungsmanager(
             ProviderManager providerManager,
             IsyOAuth2ClientConfigurationProperties isyOAuth2ClientConfigurationProperties,
-            @Nullable ClientRegistrationRepository clientRegistrationRepository) {
-        return new IsyOAuth2Authentifizierungsmanager(providerManager, isyOAuth2ClientConfigurationProperties, clientRegistrationRepository);
+            @Nullable ClientRegistrationRepository clientRegistrationRepository,
+            ProviderConfigurationCache providerConfigurationCache,
+            ObjectProvider<IsySecurityMetrics> metrics,
+            ObjectProvider<ObservationRegistry> observationRegistry) {
+        IsyOAuth2Authentifizierungsmanager authentifizierungsmanager = new IsyOAuth2Authentifizierungsmanager(providerManager,
+                isyOAuth2ClientConfigurationProperties, clientRegistrationRepository, providerConfigurationCache);
+        metrics.ifAvailable(authentifizierungsmanager::setMetrics);
+        observationRegistry.ifAvailable(authentifizierungsmanager::setObservationRegistry);
+        return authentifizierungsmanager;
+    }
+
+    /**
+     * Beans for non-blocking authentication, only created if Spring WebFlux and Reactor are available.
+     */
+    @Configuration
+    @ConditionalOnClass(name = { "org.springframework.web.reactive.function.client.WebClient", "reactor.core.publisher.Mono" })
+    public static class ReactiveBeans {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public IsyOAuth2ReactiveAuthenticationManager isyOAuth2ReactiveAuthenticationManager(
+                JwtAuthenticationConverter jwtAuthenticationConverter,
+                @Lazy BhknzHeaderConverterBuilder bhknzHeaderConverterBuilder,
+                IsyOAuth2ClientConfigurationProperties isyOAuth2ClientConfigurationProperties,
+                TokenEndpointTransport tokenEndpointTransport,
+                ObjectProvider<IsySecurityMetrics> metrics,
+                ObjectProvider<ObservationRegistry> observationRegistry) {
+            IsyOAuth2ClientConfigurationProperties.TokenCacheProperties tokenCache = isyOAuth2ClientConfigurationProperties.getTokenCache();
+            int passwordCacheMaxSize = tokenCache.isPasswordGrantEnabled() ? tokenCache.getMaxSize() : 0;
+            IsyOAuth2ReactiveAuthenticationManager authenticationManager = new IsyOAuth2ReactiveAuthenticationManager(
+                    jwtAuthenticationConverter, bhknzHeaderConverterBuilder, tokenCache.getMaxSize(), passwordCacheMaxSize,
+                    tokenCache.getClockSkew());
+            authenticationManager.setWebClient(TokenEndpointWebClients.createWebClient(tokenEndpointTransport));
+            authenticationManager.setMaxPooledBhknz(isyOAuth2ClientConfigurationProperties.getMaxPooledBhknz());
+            metrics.ifAvailable(authenticationManager::setMetrics);
+            observationRegistry.ifAvailable(authenticationManager::setObservationRegistry);
+            return authenticationManager;
+        }
+
+        @Bean
+        @ConditionalOnMissingBean
+        public ReactiveAuthentifizierungsmanager reactiveAuthentifizierungsmanager(
+                IsyOAuth2ReactiveAuthenticationManager isyOAuth2ReactiveAuthenticationManager,
+                IsyOAuth2ClientConfigurationProperties isyOAuth2ClientConfigurationProperties,
+                @Nullable ClientRegistrationRepository clientRegistrationRepository,
+                ProviderConfigurationCache providerConfigurationCache) {
+            return new IsyOAuth2ReactiveAuthentifizierungsmanager(isyOAuth2ReactiveAuthenticationManager,
+                    isyOAuth2ClientConfigurationProperties, clientRegistrationRepository, providerConfigurationCache);
+        }
     }
 
     /**
@@ -114,29 +228,93 @@ public class IsyOAuth2ClientAutoConfiguration {
          */
         @Bean(ISY_AUTHORIZED_CLIENT_MANAGER_BEAN)
         public OAuth2AuthorizedClientManager oAuth2AuthorizedClientManager(
-                ClientRegistrationRepository clientRegistrationRepository, OAuth2AuthorizedClientService authorizedClientService) {
-            OAuth2AuthorizedClientProvider authorizedClientProvider = OAuth2AuthorizedClientProviderBuilder.builder()
-                    .clientCredentials()
-                    .build();
-
+                ClientRegistrationRepository clientRegistrationRepository, OAuth2AuthorizedClientService authorizedClientService,
+                TokenEndpointTransport tokenEndpointTransport,
+                IsyOAuth2ClientConfigurationProperties isyOAuth2ClientConfigurationProperties,
+                ObjectProvider<IsySecurityMetrics> metrics,
+                ObjectProvider<ObservationRegistry> observationRegistry) {
             AuthorizedClientServiceOAuth2AuthorizedClientManager authorizedClientManager =
                     new AuthorizedClientServiceOAuth2AuthorizedClientManager(clientRegistrationRepository, authorizedClientService);
-            authorizedClientManager.setAuthorizedClientProvider(authorizedClientProvider);
+            authorizedClientManager.setAuthorizedClientProvider(
+                    clientCredentialsAuthorizedClientProvider(tokenEndpointTransport.getRestOperations(),
+                            isyOAuth2ClientConfigurationProperties.getTokenCache().getClockSkew(),
+                            metrics.getIfAvailable(() -> IsySecurityMetrics.NOOP),
+                            observationRegistry.getIfAvailable(() -> ObservationRegistry.NOOP)));
 
             return authorizedClientManager;
         }
 
+        /**
+         * Requests the tokens of the configured client registrations at startup and renews them before they expire.
+         * Only created if enabled with {@code isy.security.oauth2.client.token-refresh.enabled}.
+         */
+        @Bean
+        @ConditionalOnMissingBean
+        @ConditionalOnProperty(prefix = "isy.security.oauth2.client.token-refresh", name = "enabled", havingValue = "true")
+        public AuthorizedClientRefresher authorizedClientRefresher(
+                ClientRegistrationRepository clientRegistrationRepository, OAuth2AuthorizedClientService authorizedClientService,
+                TokenEndpointTransport tokenEndpointTransport,
+                PasswordClientRegistrationAuthenticationProvider passwordClientRegistrationAuthenticationProvider,
+                IsyOAuth2ClientConfigurationProperties isyOAuth2ClientConfigurationProperties,
+                ObjectProvider<IsySecurityMetrics> metrics,
+                ObjectProvider<ObservationRegistry> observationRegistry) {
+            return new AuthorizedClientRefresher(clientRegistrationRepository, authorizedClientService,
+                    clientCredentialsAuthorizedClientProvider(tokenEndpointTransport.getRestOperations(),
+                            isyOAuth2ClientConfigurationProperties.getTokenCache().getClockSkew(),
+                            metrics.getIfAvailable(() -> IsySecurityMetrics.NOOP),
+                            observationRegistry.getIfAvailable(() -> ObservationRegistry.NOOP)),
+                    passwordClientRegistrationAuthenticationProvider, isyOAuth2ClientConfigurationProperties);
+        }
+
         @Bean
         public ClientCredentialsAuthorizedClientAuthenticationProvider clientCredentialsAuthorizedClientAuthenticationProvider(
                 @Qualifier(ISY_AUTHORIZED_CLIENT_MANAGER_BEAN) OAuth2AuthorizedClientManager oAuth2AuthorizedClientManager,
-                JwtAuthenticationConverter jwtAuthenticationConverter) {
-            return new ClientCredentialsAuthorizedClientAuthenticationProvider(oAuth2AuthorizedClientManager, jwtAuthenticationConverter);
+                OAuth2AuthorizedClientService authorizedClientService,
+                JwtAuthenticationConverter jwtAuthenticationConverter,
+                IsyOAuth2ClientConfigurationProperties isyOAuth2ClientConfigurationProperties,
+                ObjectProvider<IsySecurityMetrics> metrics,
+                ObjectProvider<ObservationRegistry> observationRegistry) {
+            // the same clock skew as the provider of the manager, so that both consider the same tokens as expired
+            ClientCredentialsAuthorizedClientAuthenticationProvider authenticationProvider =
+                    new ClientCredentialsAuthorizedClientAuthenticationProvider(oAuth2AuthorizedClientManager, jwtAuthenticationConverter,
+                            isyOAuth2ClientConfigurationProperties.getTokenCache().getClockSkew(), Clock.systemUTC());
+            // the isy authorized client manager stores the authorized clients in this service
+            authenticationProvider.setAuthorizedClientService(authorizedClientService);
+            authenticationProvider.setRequestCoalescingTimeout(
+                    isyOAuth2ClientConfigurationProperties.getTokenCache().getRequestCoalescingTimeout());
+            metrics.ifAvailable(authenticationProvider::setMetrics);
+            observationRegistry.ifAvailable(authenticationProvider::setObservationRegistry);
+            return authenticationProvider;
+        }
+
+        private static OAuth2AuthorizedClientProvider clientCredentialsAuthorizedClientProvider(RestOperations tokenRestOperations,
+                                                                                                Duration clockSkew,
+                                                                                                IsySecurityMetrics metrics,
+                                                                                                ObservationRegistry observationRegistry) {
+            DefaultClientCredentialsTokenResponseClient accessTokenResponseClient = new DefaultClientCredentialsTokenResponseClient();
+            accessTokenResponseClient.setRestOperations(tokenRestOperations);
+            InstrumentedAccessTokenResponseClient<OAuth2ClientCredentialsGrantRequest> instrumentedResponseClient =
+                    new InstrumentedAccessTokenResponseClient<>(accessTokenResponseClient, () -> metrics, () -> observationRegistry);
+            return OAuth2AuthorizedClientProviderBuilder.builder()
+                    .clientCredentials(clientCredentialsGrantBuilder -> clientCredentialsGrantBuilder
+                            .accessTokenResponseClient(instrumentedResponseClient)
+                            .clockSkew(clockSkew))
+                    .build();
         }
 
         @Bean(AUTHENTICATE_INTERCEPTOR_BEAN)
         @ConditionalOnMissingBean(name = AUTHENTICATE_INTERCEPTOR_BEAN)
-        public Advisor authenticateInterceptor(Authentifizierungsmanager authentifizierungsmanager) {
-            return new AuthenticateInterceptor(authentifizierungsmanager);
+        public Advisor authenticateInterceptor(Authentifizierungsmanager authentifizierungsmanager,
+                                               IsyOAuth2ClientConfigurationProperties isyOAuth2ClientConfigurationProperties,
+                                               ObjectProvider<KorrelationsIdGenerator> korrelationsIdGenerator,
+                                               ObjectProvider<ReactiveAuthentifizierungsmanager> reactiveAuthentifizierungsmanager) {
+            AuthenticateInterceptor authenticateInterceptor = new AuthenticateInterceptor(authentifizierungsmanager);
+            korrelationsIdGenerator.ifAvailable(authenticateInterceptor::setKorrelationsIdGenerator);
+            // reactive methods are only authenticated non-blocking on request, so adding WebFlux does not change their behavior
+            if (isyOAuth2ClientConfigurationProperties.isReactiveAuthenticateEnabled()) {
+                reactiveAuthentifizierungsmanager.ifAvailable(authenticateInterceptor::setReactiveAuthentifizierungsmanager);
+            }
+            return authenticateInterceptor;
         }
     }
 
@@ -1,25 +1,38 @@
 package de.bund.bva.isyfact.security.autoconfigure;
 
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.oauth2.client.OAuth2ClientProperties;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
 import org.springframework.lang.Nullable;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.core.GrantedAuthorityDefaults;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
 
 import de.bund.bva.isyfact.security.authentication.RolePrivilegeGrantedAuthoritiesConverter;
+import de.bund.bva.isyfact.security.config.IsyOAuth2ClientConfigurationProperties;
 import de.bund.bva.isyfact.security.config.IsySecurityConfigurationProperties;
 import de.bund.bva.isyfact.security.core.Berechtigungsmanager;
 import de.bund.bva.isyfact.security.core.IsyOAuth2Berechtigungsmanager;
 import de.bund.bva.isyfact.security.core.IsyOAuth2Security;
 import de.bund.bva.isyfact.security.core.Security;
+import de.bund.bva.isyfact.security.metrics.IsySecurityMetrics;
+import de.bund.bva.isyfact.security.metrics.MicrometerIsySecurityMetrics;
 import de.bund.bva.isyfact.security.oauth2.client.Authentifizierungsmanager;
+import de.bund.bva.isyfact.security.warmup.IsySecurityWarmup;
+import de.bund.bva.isyfact.security.warmup.IsySecurityWarmupHealthIndicator;
 import de.bund.bva.isyfact.security.xmlparser.RolePrivilegesMapper;
+import de.bund.bva.isyfact.security.xmlparser.RolePrivilegesMappingWatcher;
 
 /**
  * Main autoconfiguration for isy-security that creates all beans required for role privileges mapping and JWT conversion.
@@ -41,6 +54,14 @@ public class IsySecurityAutoConfiguration {
         return new RolePrivilegesMapper(isySecurityProperties.getRolePrivilegesMappingFile());
     }
 
+    @Bean
+    @ConditionalOnProperty(prefix = "isy.security.role-privileges-mapping-reload", name = "enabled", havingValue = "true")
+    public RolePrivilegesMappingWatcher rolePrivilegesMappingWatcher(RolePrivilegesMapper rolePrivilegesMapper,
+                                                                     IsySecurityConfigurationProperties isySecurityProperties) {
+        return new RolePrivilegesMappingWatcher(rolePrivilegesMapper,
+                isySecurityProperties.getRolePrivilegesMappingReload().getPollInterval());
+    }
+
     /**
      * Instead of a the {@link org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter}
      * we configure a custom {@link RolePrivilegeGrantedAuthoritiesConverter} that maps authorities to privileges and searches for them
@@ -66,8 +87,11 @@ public class IsySecurityAutoConfiguration {
     }
 
     @Bean
-    public Berechtigungsmanager berechtigungsmanager(IsySecurityConfigurationProperties isySecurityProperties) {
-        return new IsyOAuth2Berechtigungsmanager(isySecurityProperties.getRolesClaimName());
+    public Berechtigungsmanager berechtigungsmanager(IsySecurityConfigurationProperties isySecurityProperties,
+                                                     ObjectProvider<IsySecurityMetrics> metrics) {
+        IsyOAuth2Berechtigungsmanager berechtigungsmanager = new IsyOAuth2Berechtigungsmanager(isySecurityProperties.getRolesClaimName());
+        metrics.ifAvailable(berechtigungsmanager::setMetrics);
+        return berechtigungsmanager;
     }
 
     @Bean
@@ -78,4 +102,53 @@ public class IsySecurityAutoConfiguration {
         return new IsyOAuth2Security(rolePrivilegesMapper, berechtigungsmanager, authentifizierungsmanager);
     }
 
+    /**
+     * Loads tokens, JWK sets and the role/privilege mapping after the start of the application.
+     * Only created if enabled with {@code isy.security.warmup.enabled}.
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "isy.security.warmup", name = "enabled", havingValue = "true")
+    public IsySecurityWarmup isySecurityWarmup(RolePrivilegesMapper rolePrivilegesMapper,
+                                               JwtAuthenticationConverter jwtAuthenticationConverter,
+                                               IsySecurityConfigurationProperties isySecurityProperties,
+                                               ObjectProvider<JwtDecoder> jwtDecoders,
+                                               ObjectProvider<Authentifizierungsmanager> authentifizierungsmanager,
+                                               ObjectProvider<OAuth2ClientProperties> oAuth2ClientProperties,
+                                               ObjectProvider<IsyOAuth2ClientConfigurationProperties> isyOAuth2ClientProperties) {
+        return new IsySecurityWarmup(rolePrivilegesMapper, jwtAuthenticationConverter, isySecurityProperties,
+                jwtDecoders.orderedStream().collect(Collectors.toList()), authentifizierungsmanager.getIfAvailable(),
+                oAuth2ClientProperties.getIfAvailable(), isyOAuth2ClientProperties.getIfAvailable());
+    }
+
+    /**
+     * Health indicator for the warm-up, only created if Spring Boot Actuator is available.
+     */
+    @Configuration
+    @ConditionalOnClass(name = "org.springframework.boot.actuate.health.HealthIndicator")
+    @ConditionalOnProperty(prefix = "isy.security.warmup", name = "enabled", havingValue = "true")
+    public static class WarmupHealthBeans {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public IsySecurityWarmupHealthIndicator isySecurityWarmupHealthIndicator(IsySecurityWarmup isySecurityWarmup) {
+            return new IsySecurityWarmupHealthIndicator(isySecurityWarmup);
+        }
+    }
+
+    /**
+     * Metrics of the authentication and authorization, only created if Micrometer is available.
+     * The {@link MicrometerIsySecurityMetrics} are bound to the {@code MeterRegistry} by Spring Boot Actuator.
+     */
+    @Configuration
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.binder.MeterBinder")
+    public static class MetricsBeans {
+
+        @Bean
+        @ConditionalOnMissingBean(IsySecurityMetrics.class)
+        public MicrometerIsySecurityMetrics isySecurityMetrics() {
+            return new MicrometerIsySecurityMetrics();
+        }
+    }
+
 }
@@ -0,0 +1,73 @@
+package de.bund.bva.isyfact.security.cache;
+
+import java.lang.ref.WeakReference;
+import java.util.function.Function;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.util.Assert;
+
+/**
+ * Value derived from an {@link Authentication} that is resolved once per authentication and thread.
+ * <p>
+ * Each thread holds the value of the authentication it accessed last. As long as the same authentication is passed
+ * (e.g. during a request), {@link #get(Authentication)} returns the held value, for another authentication the value is
+ * resolved again. The authentication is only weakly referenced, so that it is not retained by pooled threads after the
+ * request. {@link #clear()} removes the value of the current thread, e.g. once the thread is no longer authenticated.
+ *
+ * @param <T> the type of the value
+ */
+public class AuthenticationScopedValue<T> {
+
+    /** The value of the authentication that was last accessed by the current thread. */
+    private final ThreadLocal<Entry<T>> entries = new ThreadLocal<>();
+
+    /** Resolves the value of an authentication. */
+    private final Function<? super Authentication, ? extends T> resolver;
+
+    public AuthenticationScopedValue(Function<? super Authentication, ? extends T> resolver) {
+        Assert.notNull(resolver, "resolver cannot be null");
+        this.resolver = resolver;
+    }
+
+    /**
+     * Returns the value of the given authentication, which is resolved if the current thread last accessed another
+     * authentication.
+     *
+     * @param authentication the authentication
+     * @return the value of the authentication
+     */
+    public T get(Authentication authentication) {
+        Assert.notNull(authentication, "authentication cannot be null");
+        Entry<T> entry = entries.get();
+        if (entry == null || entry.authentication.get() != authentication) {
+            entry = new Entry<>(authentication, resolver.apply(authentication));
+            entries.set(entry);
+        }
+        return entry.value;
+    }
+
+    /**
+     * Removes the value held by the current thread.
+     */
+    public void clear() {
+        entries.remove();
+    }
+
+    /**
+     * Value of a weakly referenced authentication.
+     */
+    private static final class Entry<T> {
+
+        /** The authentication the value belongs to. */
+        private final WeakReference<Authentication> authentication;
+
+        /** The value of the authentication. */
+        private final T value;
+
+        private Entry(Authentication authentication, T value) {
+            this.authentication = new WeakReference<>(authentication);
+            this.value = value;
+        }
+    }
+
+}
@@ -0,0 +1,207 @@
+package de.bund.bva.isyfact.security.cache;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Simple thread-safe, size-bounded in-memory cache whose entries expire at an individual point in time.
+ * <p>
+ * The cache is intended for small data sets with a high hit rate (e.g. issuer metadata or access tokens).
+ * Expired entries are removed lazily on access. If the maximum size is exceeded, expired entries are purged first,
+ * followed by the entries that are closest to their expiry.
+ * A maximum size of {@code 0} disables the cache, i.e. {@link #put(Object, Object, Instant)} has no effect.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the cached values
+ */
+public class ExpiringCache<K, V> {
+
+    /** The cached entries. */
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+
+    /** Maximum number of entries held by the cache. */
+    private final int maxSize;
+
+    /** Clock used to determine whether an entry has expired. */
+    private final Clock clock;
+
+    /** Number of successful lookups. */
+    private final LongAdder hitCount = new LongAdder();
+
+    /** Number of lookups that did not return a value. */
+    private final LongAdder missCount = new LongAdder();
+
+    public ExpiringCache(int maxSize) {
+        this(maxSize, Clock.systemUTC());
+    }
+
+    public ExpiringCache(int maxSize, Clock clock) {
+        Assert.isTrue(maxSize >= 0, "maxSize cannot be negative");
+        Assert.notNull(clock, "clock cannot be null");
+        this.maxSize = maxSize;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the value cached for the given key.
+     *
+     * @param key the key of the entry
+     * @return the cached value or {@code null} if there is no entry or the entry has expired
+     */
+    @Nullable
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            missCount.increment();
+            return null;
+        }
+        if (entry.isExpired(clock.instant())) {
+            entries.remove(key, entry);
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+        return entry.value;
+    }
+
+    /**
+     * Caches the value for the given key until the given point in time.
+     * Values that have already expired are not cached.
+     *
+     * @param key       the key of the entry
+     * @param value     the value to cache
+     * @param expiresAt the point in time at which the entry expires
+     */
+    public void put(K key, V value, Instant expiresAt) {
+        if (maxSize == 0 || !expiresAt.isAfter(clock.instant())) {
+            return;
+        }
+        entries.put(key, new Entry<>(value, expiresAt));
+        if (entries.size() > maxSize) {
+            evict(null);
+        }
+    }
+
+    /**
+     * Returns the value cached for the given key or, if there is no valid entry, computes the value and caches it until the
+     * given point in time. The value is computed at most once for concurrent calls with the same key. If the maximum size
+     * is exceeded, other entries are evicted, but not the computed one.
+     *
+     * @param key             the key of the entry
+     * @param mappingFunction computes the value if there is no valid entry
+     * @param expiresAt       the point in time at which the computed entry expires
+     * @return the cached or computed value
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction, Instant expiresAt) {
+        Instant now = clock.instant();
+        Entry<V> entry = entries.get(key);
+        if (entry != null && !entry.isExpired(now)) {
+            hitCount.increment();
+            return entry.value;
+        }
+        missCount.increment();
+        if (maxSize == 0 || !expiresAt.isAfter(now)) {
+            return mappingFunction.apply(key);
+        }
+        entry = entries.compute(key, (k, existing) -> existing != null && !existing.isExpired(now)
+                ? existing
+                : new Entry<>(mappingFunction.apply(k), expiresAt));
+        if (entries.size() > maxSize) {
+            evict(key);
+        }
+        return entry.value;
+    }
+
+    /**
+     * Removes the entry for the given key.
+     *
+     * @param key the key of the entry
+     */
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * Returns the number of entries, including entries that have expired but were not yet removed.
+     *
+     * @return the current number of entries
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Removes expired entries and, if the maximum size is still exceeded, the entries that are closest to their expiry.
+     *
+     * @param retainedKey the key of an entry that must not be evicted, {@code null} if any entry can be evicted
+     */
+    private void evict(@Nullable K retainedKey) {
+        Instant now = clock.instant();
+        entries.entrySet().removeIf(e -> e.getValue().isExpired(now));
+
+        while (entries.size() > maxSize) {
+            Map.Entry<K, Entry<V>> eldest = null;
+            for (Map.Entry<K, Entry<V>> e : entries.entrySet()) {
+                if (Objects.equals(e.getKey(), retainedKey)) {
+                    continue;
+                }
+                if (eldest == null || e.getValue().expiresAt.isBefore(eldest.getValue().expiresAt)) {
+                    eldest = e;
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            entries.remove(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    /**
+     * A cached value along with its expiry.
+     */
+    private static final class Entry<V> {
+
+        /** The cached value. */
+        private final V value;
+
+        /** The point in time at which the entry expires. */
+        private final Instant expiresAt;
+
+        private Entry(V value, Instant expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(Instant now) {
+            return !now.isBefore(expiresAt);
+        }
+    }
+
+}
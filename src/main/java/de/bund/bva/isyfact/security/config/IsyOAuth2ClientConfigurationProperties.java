@@ -1,6 +1,9 @@
 package de.bund.bva.isyfact.security.config;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.springframework.beans.factory.InitializingBean;
@@ -16,6 +19,9 @@ import org.springframework.validation.annotation.Validated;
 @Validated
 public class IsyOAuth2ClientConfigurationProperties implements InitializingBean {
 
+    /** Default maximum number of different BHKNZ for which the token response clients are reused. */
+    public static final int DEFAULT_MAX_POOLED_BHKNZ = 64;
+
     /** Spring's OAuth 2.0 client properties for validating registration IDs. */
     @Nullable
     private final OAuth2ClientProperties springOAuth2ClientProperties;
@@ -32,6 +38,24 @@ public class IsyOAuth2ClientConfigurationProperties implements InitializingBean
     /** Organisational Unit used in conjunction with bhknz to form the value for bhknzHeaderName. */
     private String defaultCertificateOu;
 
+    /** Maximum number of different BHKNZ for which the token response clients are reused. */
+    private int maxPooledBhknz = DEFAULT_MAX_POOLED_BHKNZ;
+
+    /** Whether methods annotated with {@code @Authenticate} that return a {@code Mono} or {@code Flux} are authenticated non-blocking. */
+    private boolean reactiveAuthenticateEnabled = false;
+
+    /** Cache for the provider configuration of issuers used for programmatically created client registrations. */
+    private final DiscoveryCacheProperties discoveryCache = new DiscoveryCacheProperties();
+
+    /** Cache for access tokens obtained with programmatically created client registrations. */
+    private final TokenCacheProperties tokenCache = new TokenCacheProperties();
+
+    /** HTTP transport used for requests to the token endpoint. */
+    private final HttpProperties http = new HttpProperties();
+
+    /** Background refresh of the tokens of configured client registrations. */
+    private final TokenRefreshProperties tokenRefresh = new TokenRefreshProperties();
+
     public IsyOAuth2ClientConfigurationProperties(@Nullable OAuth2ClientProperties springOAuth2ClientProperties) {
         this.springOAuth2ClientProperties = springOAuth2ClientProperties;
     }
@@ -56,6 +80,38 @@ public class IsyOAuth2ClientConfigurationProperties implements InitializingBean
         this.defaultCertificateOu = defaultCertificateOu;
     }
 
+    public int getMaxPooledBhknz() {
+        return maxPooledBhknz;
+    }
+
+    public void setMaxPooledBhknz(int maxPooledBhknz) {
+        this.maxPooledBhknz = maxPooledBhknz;
+    }
+
+    public boolean isReactiveAuthenticateEnabled() {
+        return reactiveAuthenticateEnabled;
+    }
+
+    public void setReactiveAuthenticateEnabled(boolean reactiveAuthenticateEnabled) {
+        this.reactiveAuthenticateEnabled = reactiveAuthenticateEnabled;
+    }
+
+    public DiscoveryCacheProperties getDiscoveryCache() {
+        return discoveryCache;
+    }
+
+    public TokenCacheProperties getTokenCache() {
+        return tokenCache;
+    }
+
+    public HttpProperties getHttp() {
+        return http;
+    }
+
+    public TokenRefreshProperties getTokenRefresh() {
+        return tokenRefresh;
+    }
+
     @Override
     public void afterPropertiesSet() {
         if (springOAuth2ClientProperties != null) {
@@ -122,4 +178,262 @@ public class IsyOAuth2ClientConfigurationProperties implements InitializingBean
 
     }
 
+    /**
+     * Properties of the cache for the discovered provider configuration of issuers.
+     */
+    public static class DiscoveryCacheProperties {
+
+        /** How long the discovered configuration of an issuer is reused. A duration of zero disables the cache. */
+        private Duration timeToLive = Duration.ofHours(1);
+
+        /** Maximum number of issuers whose configuration is cached. */
+        private int maxSize = 50;
+
+        public Duration getTimeToLive() {
+            return timeToLive;
+        }
+
+        public void setTimeToLive(Duration timeToLive) {
+            this.timeToLive = timeToLive;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+    }
+
+    /**
+     * Properties of the cache for access tokens obtained with programmatically created client registrations.
+     */
+    public static class TokenCacheProperties {
+
+        /** Maximum number of cached access tokens. A size of zero disables the cache. */
+        private int maxSize = 100;
+
+        /** Time before the expiry of an access token at which it is no longer taken from the cache. */
+        private Duration clockSkew = Duration.ofSeconds(60);
+
+        /**
+         * Whether tokens obtained with the Resource Owner Password Credentials flow are cached as well.
+         * Disabled by default because the resource owner's password has to be kept (as a digest) in the cache key.
+         */
+        private boolean passwordGrantEnabled = false;
+
+        /**
+         * Time that concurrent requests for the same client wait for the token request of another thread,
+         * instead of sending their own request to the token endpoint. A timeout of zero disables the coalescing.
+         */
+        private Duration requestCoalescingTimeout = Duration.ofSeconds(30);
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public Duration getClockSkew() {
+            return clockSkew;
+        }
+
+        public void setClockSkew(Duration clockSkew) {
+            this.clockSkew = clockSkew;
+        }
+
+        public boolean isPasswordGrantEnabled() {
+            return passwordGrantEnabled;
+        }
+
+        public void setPasswordGrantEnabled(boolean passwordGrantEnabled) {
+            this.passwordGrantEnabled = passwordGrantEnabled;
+        }
+
+        public Duration getRequestCoalescingTimeout() {
+            return requestCoalescingTimeout;
+        }
+
+        public void setRequestCoalescingTimeout(Duration requestCoalescingTimeout) {
+            this.requestCoalescingTimeout = requestCoalescingTimeout;
+        }
+
+    }
+
+    /**
+     * Properties of the HTTP transport used for requests to the token endpoint.
+     */
+    public static class HttpProperties {
+
+        /** Maximum number of pooled connections. */
+        private int maxConnections = 50;
+
+        /** Maximum number of pooled connections per route (i.e. per IAM service). */
+        private int maxConnectionsPerRoute = 20;
+
+        /** Time after which idle connections are evicted from the pool. */
+        private Duration idleTimeout = Duration.ofSeconds(30);
+
+        /** Time of inactivity after which a pooled connection is checked for being stale before it is reused. */
+        private Duration validateAfterInactivity = Duration.ofSeconds(2);
+
+        /** Timeout for establishing a connection. */
+        private Duration connectTimeout = Duration.ofSeconds(5);
+
+        /** Timeout for reading the response. */
+        private Duration readTimeout = Duration.ofSeconds(10);
+
+        /** Whether HTTP/2 is used. Requests are then multiplexed over a single connection by the JDK HTTP client. */
+        private boolean http2Enabled = false;
+
+        public int getMaxConnections() {
+            return maxConnections;
+        }
+
+        public void setMaxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+        }
+
+        public int getMaxConnectionsPerRoute() {
+            return maxConnectionsPerRoute;
+        }
+
+        public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+            this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+        }
+
+        public Duration getIdleTimeout() {
+            return idleTimeout;
+        }
+
+        public void setIdleTimeout(Duration idleTimeout) {
+            this.idleTimeout = idleTimeout;
+        }
+
+        public Duration getValidateAfterInactivity() {
+            return validateAfterInactivity;
+        }
+
+        public void setValidateAfterInactivity(Duration validateAfterInactivity) {
+            this.validateAfterInactivity = validateAfterInactivity;
+        }
+
+        public Duration getConnectTimeout() {
+            return connectTimeout;
+        }
+
+        public void setConnectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+        }
+
+        public Duration getReadTimeout() {
+            return readTimeout;
+        }
+
+        public void setReadTimeout(Duration readTimeout) {
+            this.readTimeout = readTimeout;
+        }
+
+        public boolean isHttp2Enabled() {
+            return http2Enabled;
+        }
+
+        public void setHttp2Enabled(boolean http2Enabled) {
+            this.http2Enabled = http2Enabled;
+        }
+
+    }
+
+    /**
+     * Properties of the background refresh of the tokens of configured client registrations.
+     */
+    public static class TokenRefreshProperties {
+
+        /** Whether tokens of configured client registrations are requested at startup and renewed before they expire. */
+        private boolean enabled = false;
+
+        /**
+         * Time before the expiry of an access token at which it is renewed. It should be greater than the clock skew of the
+         * token cache, so that tokens are renewed before callers consider them expired. Tokens are not renewed before half of
+         * their lifetime has passed.
+         */
+        private Duration leadTime = Duration.ofMinutes(2);
+
+        /** Maximum random time by which a renewal is brought forward, so that renewals of several instances are spread. */
+        private Duration jitter = Duration.ofSeconds(10);
+
+        /** Delay before the first retry of a failed renewal. The delay is doubled with every further failure. */
+        private Duration initialBackoff = Duration.ofSeconds(5);
+
+        /** Maximum delay between retries of a failed renewal. */
+        private Duration maxBackoff = Duration.ofMinutes(5);
+
+        /** Number of threads that renew tokens. */
+        private int poolSize = 1;
+
+        /** Registration IDs whose tokens are renewed. If empty, the tokens of all configured client registrations are renewed. */
+        private List<String> registrationIds = new ArrayList<>();
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getLeadTime() {
+            return leadTime;
+        }
+
+        public void setLeadTime(Duration leadTime) {
+            this.leadTime = leadTime;
+        }
+
+        public Duration getJitter() {
+            return jitter;
+        }
+
+        public void setJitter(Duration jitter) {
+            this.jitter = jitter;
+        }
+
+        public Duration getInitialBackoff() {
+            return initialBackoff;
+        }
+
+        public void setInitialBackoff(Duration initialBackoff) {
+            this.initialBackoff = initialBackoff;
+        }
+
+        public Duration getMaxBackoff() {
+            return maxBackoff;
+        }
+
+        public void setMaxBackoff(Duration maxBackoff) {
+            this.maxBackoff = maxBackoff;
+        }
+
+        public int getPoolSize() {
+            return poolSize;
+        }
+
+        public void setPoolSize(int poolSize) {
+            this.poolSize = poolSize;
+        }
+
+        public List<String> getRegistrationIds() {
+            return registrationIds;
+        }
+
+        public void setRegistrationIds(List<String> registrationIds) {
+            this.registrationIds = registrationIds;
+        }
+
+    }
+
 }
@@ -1,5 +1,9 @@
 package de.bund.bva.isyfact.security.config;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 import org.springframework.validation.annotation.Validated;
@@ -13,6 +17,12 @@ public class IsySecurityConfigurationProperties {
     /** Path to the XML file containing the role/privilege mappings. */
     private Resource rolePrivilegesMappingFile = new ClassPathResource("/resources/sicherheit/rollenrechte.xml");
 
+    /** Reloading of the role/privilege mappings at runtime. */
+    private final RolePrivilegesMappingReloadProperties rolePrivilegesMappingReload = new RolePrivilegesMappingReloadProperties();
+
+    /** Warm-up after the start of the application. */
+    private final WarmupProperties warmup = new WarmupProperties();
+
     public String getRolesClaimName() {
         return rolesClaimName;
     }
@@ -29,4 +39,73 @@ public class IsySecurityConfigurationProperties {
         this.rolePrivilegesMappingFile = rolePrivilegesMappingFile;
     }
 
+    public RolePrivilegesMappingReloadProperties getRolePrivilegesMappingReload() {
+        return rolePrivilegesMappingReload;
+    }
+
+    public WarmupProperties getWarmup() {
+        return warmup;
+    }
+
+    /**
+     * Properties for reloading the role/privilege mappings at runtime.
+     */
+    public static class RolePrivilegesMappingReloadProperties {
+
+        /** Whether the role/privilege mapping file is reloaded when it changes. */
+        private boolean enabled = false;
+
+        /** Interval in which the file is checked for changes, if it is not located in the file system (e.g. in a JAR). */
+        private Duration pollInterval = Duration.ofSeconds(30);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getPollInterval() {
+            return pollInterval;
+        }
+
+        public void setPollInterval(Duration pollInterval) {
+            this.pollInterval = pollInterval;
+        }
+
+    }
+
+    /**
+     * Properties for the warm-up after the start of the application.
+     */
+    public static class WarmupProperties {
+
+        /** Whether tokens, JWK sets and the role/privilege mapping are loaded after the start of the application. */
+        private boolean enabled = false;
+
+        /**
+         * Registration IDs of the OAuth 2.0 clients whose tokens are requested. If empty, tokens are requested for all
+         * configured client registrations with the Client Credentials flow or with configured resource owner credentials.
+         */
+        private List<String> registrationIds = new ArrayList<>();
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public List<String> getRegistrationIds() {
+            return registrationIds;
+        }
+
+        public void setRegistrationIds(List<String> registrationIds) {
+            this.registrationIds = registrationIds;
+        }
+
+    }
+
 }
@@ -0,0 +1,39 @@
+package de.bund.bva.isyfact.security.context;
+
+import io.micrometer.context.ThreadLocalAccessor;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * {@link ThreadLocalAccessor} for the authentication in the {@link SecurityContextHolder}, used by Micrometer Context
+ * Propagation (e.g. for Reactor's automatic context propagation). It is registered via {@link java.util.ServiceLoader}.
+ * <p>
+ * Like {@link IsyContextPropagation}, a new {@link org.springframework.security.core.context.SecurityContext} is created
+ * when the authentication is set, so that the propagated context is not shared between threads.
+ */
+public class AuthenticationThreadLocalAccessor implements ThreadLocalAccessor<Authentication> {
+
+    /** Key of the authentication in a Reactor context or context snapshot. */
+    public static final String KEY = "isy.security.authentication";
+
+    @Override
+    public Object key() {
+        return KEY;
+    }
+
+    @Override
+    public Authentication getValue() {
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    @Override
+    public void setValue(Authentication authentication) {
+        IsyContextPropagation.setAuthentication(authentication);
+    }
+
+    @Override
+    public void setValue() {
+        SecurityContextHolder.clearContext();
+    }
+
+}
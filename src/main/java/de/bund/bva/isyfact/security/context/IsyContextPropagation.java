@@ -0,0 +1,147 @@
+package de.bund.bva.isyfact.security.context;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
+import org.slf4j.MDC;
+import org.springframework.lang.Nullable;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.Assert;
+
+import de.bund.bva.isyfact.util.logging.MdcHelper;
+
+/**
+ * Propagates the authenticated principal of the {@link SecurityContextHolder} and the correlation ID of the MDC
+ * (see {@link MdcHelper}) to work that is handed off to other threads, e.g. executors or virtual threads.
+ * <p>
+ * Both are captured when a task is wrapped and set for the duration of the task in the executing thread. Afterwards,
+ * the previous state of the executing thread is restored. The task gets its own {@link SecurityContext} with the
+ * captured authentication, so that changing the authentication in the task does not affect the calling thread.
+ * <p>
+ * A Spring {@link org.springframework.core.task.TaskDecorator} can be defined as {@code IsyContextPropagation::wrap}.
+ */
+public final class IsyContextPropagation {
+
+    private IsyContextPropagation() {
+    }
+
+    /**
+     * Wraps the task, so that it runs with the authentication and correlation ID of the current thread.
+     *
+     * @param task the task to wrap
+     * @return the wrapped task
+     */
+    public static Runnable wrap(Runnable task) {
+        Assert.notNull(task, "task cannot be null");
+        Snapshot snapshot = Snapshot.capture();
+        return () -> {
+            Snapshot previous = snapshot.apply();
+            try {
+                task.run();
+            } finally {
+                previous.apply();
+            }
+        };
+    }
+
+    /**
+     * Wraps the task, so that it runs with the authentication and correlation ID of the current thread.
+     *
+     * @param task the task to wrap
+     * @param <T>  the result type of the task
+     * @return the wrapped task
+     */
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        Assert.notNull(task, "task cannot be null");
+        Snapshot snapshot = Snapshot.capture();
+        return () -> {
+            Snapshot previous = snapshot.apply();
+            try {
+                return task.call();
+            } finally {
+                previous.apply();
+            }
+        };
+    }
+
+    /**
+     * Decorates the executor, so that each task runs with the authentication and correlation ID of the thread that
+     * submitted it.
+     *
+     * @param executor the executor to decorate
+     * @return the decorated executor
+     */
+    public static Executor wrap(Executor executor) {
+        Assert.notNull(executor, "executor cannot be null");
+        return task -> executor.execute(wrap(task));
+    }
+
+    /**
+     * Decorates the thread factory, so that each thread runs with the authentication and correlation ID of the thread
+     * that created it. This is mainly useful for threads that run a single task, e.g. virtual threads.
+     *
+     * @param threadFactory the thread factory to decorate
+     * @return the decorated thread factory
+     */
+    public static ThreadFactory wrap(ThreadFactory threadFactory) {
+        Assert.notNull(threadFactory, "threadFactory cannot be null");
+        return task -> threadFactory.newThread(wrap(task));
+    }
+
+    static void setAuthentication(@Nullable Authentication authentication) {
+        if (authentication == null) {
+            SecurityContextHolder.clearContext();
+        } else {
+            SecurityContext securityContext = SecurityContextHolder.createEmptyContext();
+            securityContext.setAuthentication(authentication);
+            SecurityContextHolder.setContext(securityContext);
+        }
+    }
+
+    static void setKorrelationsId(@Nullable String korrelationsId) {
+        if (korrelationsId == null) {
+            MDC.remove(MdcHelper.MDC_KORRELATIONS_ID);
+        } else {
+            MDC.put(MdcHelper.MDC_KORRELATIONS_ID, korrelationsId);
+        }
+    }
+
+    /**
+     * Authentication and correlation ID of a thread.
+     */
+    private static final class Snapshot {
+
+        /** The authentication, {@code null} if not authenticated. */
+        @Nullable
+        private final Authentication authentication;
+
+        /** The correlation ID, {@code null} if not set. */
+        @Nullable
+        private final String korrelationsId;
+
+        private Snapshot(@Nullable Authentication authentication, @Nullable String korrelationsId) {
+            this.authentication = authentication;
+            this.korrelationsId = korrelationsId;
+        }
+
+        private static Snapshot capture() {
+            return new Snapshot(SecurityContextHolder.getContext().getAuthentication(), MDC.get(MdcHelper.MDC_KORRELATIONS_ID));
+        }
+
+        /**
+         * Sets the authentication and correlation ID in the current thread.
+         *
+         * @return the previous state of the current thread
+         */
+        private Snapshot apply() {
+            Snapshot previous = capture();
+            setAuthentication(authentication);
+            setKorrelationsId(korrelationsId);
+            return previous;
+        }
+    }
+
+}
@@ -0,0 +1,37 @@
+package de.bund.bva.isyfact.security.context;
+
+import io.micrometer.context.ThreadLocalAccessor;
+import org.slf4j.MDC;
+
+import de.bund.bva.isyfact.util.logging.MdcHelper;
+
+/**
+ * {@link ThreadLocalAccessor} for the correlation ID in the MDC (see {@link MdcHelper}), used by Micrometer Context
+ * Propagation (e.g. for Reactor's automatic context propagation). It is registered via {@link java.util.ServiceLoader}.
+ */
+public class KorrelationsIdThreadLocalAccessor implements ThreadLocalAccessor<String> {
+
+    /** Key of the correlation ID in a Reactor context or context snapshot. */
+    public static final String KEY = "isy.logging.korrelationsId";
+
+    @Override
+    public Object key() {
+        return KEY;
+    }
+
+    @Override
+    public String getValue() {
+        return MDC.get(MdcHelper.MDC_KORRELATIONS_ID);
+    }
+
+    @Override
+    public void setValue(String korrelationsId) {
+        IsyContextPropagation.setKorrelationsId(korrelationsId);
+    }
+
+    @Override
+    public void setValue() {
+        MDC.remove(MdcHelper.MDC_KORRELATIONS_ID);
+    }
+
+}
@@ -0,0 +1,48 @@
+package de.bund.bva.isyfact.security.context;
+
+import java.util.function.Function;
+
+import org.slf4j.MDC;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextHolder;
+import reactor.util.context.Context;
+
+import de.bund.bva.isyfact.util.logging.MdcHelper;
+
+/**
+ * Bridge from the thread-local authentication and correlation ID to the Reactor {@link Context}.
+ * <p>
+ * The function returned by {@link #captureCurrentContext()} is used with {@code contextWrite} at the end of a Reactor
+ * pipeline. It writes the authentication of the calling thread into the {@link ReactiveSecurityContextHolder}, as well
+ * as the authentication and correlation ID under the keys of {@link AuthenticationThreadLocalAccessor} and
+ * {@link KorrelationsIdThreadLocalAccessor}. With Reactor's automatic context propagation
+ * ({@code Hooks.enableAutomaticContextPropagation()}), they are set as thread locals in the operators of the pipeline.
+ */
+public final class ReactorContextPropagation {
+
+    private ReactorContextPropagation() {
+    }
+
+    /**
+     * Captures the authentication and correlation ID of the current thread.
+     *
+     * @return a function that writes them into a Reactor context
+     */
+    public static Function<Context, Context> captureCurrentContext() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String korrelationsId = MDC.get(MdcHelper.MDC_KORRELATIONS_ID);
+        return context -> {
+            Context result = context;
+            if (authentication != null) {
+                result = result.put(AuthenticationThreadLocalAccessor.KEY, authentication)
+                        .putAll(ReactiveSecurityContextHolder.withAuthentication(authentication).readOnly());
+            }
+            if (korrelationsId != null) {
+                result = result.put(KorrelationsIdThreadLocalAccessor.KEY, korrelationsId);
+            }
+            return result;
+        };
+    }
+
+}
@@ -1,5 +1,6 @@
 package de.bund.bva.isyfact.security.core;
 
+import java.util.Collection;
 import java.util.Set;
 
 import org.springframework.lang.Nullable;
@@ -16,7 +17,7 @@ public interface Berechtigungsmanager {
     /**
      * Returns the privileges that have been granted to the currently authenticated principal.
      *
-     * @return the set of granted privileges
+     * @return the unmodifiable set of granted privileges
      */
     Set<String> getRechte();
 
@@ -28,6 +29,38 @@ public interface Berechtigungsmanager {
      */
     boolean hatRecht(String recht);
 
+    /**
+     * Returns whether all of the given privileges have been granted to the currently authenticated principal.
+     *
+     * @param rechte the privileges that should be checked
+     * @return {@code true} if all privileges have been granted or no privilege is given, otherwise {@code false}
+     */
+    default boolean hatAlleRechte(Collection<String> rechte) {
+        Set<String> granted = getRechte();
+        for (String recht : rechte) {
+            if (!granted.contains(recht)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether at least one of the given privileges has been granted to the currently authenticated principal.
+     *
+     * @param rechte the privileges that should be checked
+     * @return {@code true} if at least one of the privileges has been granted, otherwise {@code false}
+     */
+    default boolean hatEinesDerRechte(Collection<String> rechte) {
+        Set<String> granted = getRechte();
+        for (String recht : rechte) {
+            if (granted.contains(recht)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Checks that the given privilege has been granted to the currently authenticated principal.
      *
@@ -39,7 +72,7 @@ public interface Berechtigungsmanager {
     /**
      * Returns all roles that have been assigned to the currently authenticated principal.
      *
-     * @return the set of all roles
+     * @return the unmodifiable set of all roles, empty if the principal is not an OAuth 2.0 token
      */
     Set<String> getRollen();
 
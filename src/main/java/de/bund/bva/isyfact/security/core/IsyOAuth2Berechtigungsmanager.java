@@ -1,27 +1,35 @@
 package de.bund.bva.isyfact.security.core;
 
-import de.bund.bva.isyfact.security.oauth2.util.IsySecurityTokenUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
 import org.springframework.security.oauth2.server.resource.authentication.AbstractOAuth2TokenAuthenticationToken;
 import org.springframework.util.Assert;
 
+import de.bund.bva.isyfact.security.cache.AuthenticationScopedValue;
+import de.bund.bva.isyfact.security.jfr.PrivilegeDeniedEvent;
+import de.bund.bva.isyfact.security.metrics.IsySecurityMetrics;
+
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
  * Default implementation of the {@link Berechtigungsmanager} that should suffice for most use cases.
  * <p>
  * It provides access to the privileges of the currently authenticated principal, as well as the roles stored in the {@link #rolesClaimName}
  * if the principal is an OAuth 2.0 token.
+ * <p>
+ * The privileges and roles are determined once per authentication and thread: as long as the same authentication is set
+ * in the {@link SecurityContextHolder}, repeated checks (e.g. several calls of {@link #pruefeRecht(String)} during a request)
+ * are answered from the cached sets of privileges and roles (see {@link AuthenticationScopedValue}).
+ * <p>
+ * The decisions of {@link #pruefeRecht(String)} are reported to the {@link IsySecurityMetrics} (see {@link #setMetrics(IsySecurityMetrics)}),
+ * denied privileges are also recorded as {@link PrivilegeDeniedEvent} in JFR.
  */
 public class IsyOAuth2Berechtigungsmanager implements Berechtigungsmanager {
 
@@ -35,29 +43,54 @@ public class IsyOAuth2Berechtigungsmanager implements Berechtigungsmanager {
      */
     private final String rolesClaimName;
 
+    /**
+     * Privileges of the authentication that was last checked by the current thread.
+     */
+    private final AuthenticationScopedValue<Set<String>> rechte =
+            new AuthenticationScopedValue<>(authentication -> toRechte(authentication.getAuthorities()));
+
+    /**
+     * Roles of the authentication that was last checked by the current thread.
+     */
+    private final AuthenticationScopedValue<Set<String>> rollen = new AuthenticationScopedValue<>(this::toRollen);
+
+    /**
+     * Metrics the decisions of {@link #pruefeRecht(String)} are reported to.
+     */
+    private IsySecurityMetrics metrics = IsySecurityMetrics.NOOP;
+
     public IsyOAuth2Berechtigungsmanager(String rolesClaimName) {
         this.rolesClaimName = rolesClaimName;
     }
 
+    /**
+     * Sets the metrics the decisions of {@link #pruefeRecht(String)} are reported to.
+     *
+     * @param metrics the metrics
+     */
+    public void setMetrics(IsySecurityMetrics metrics) {
+        Assert.notNull(metrics, "metrics cannot be null");
+        this.metrics = metrics;
+    }
+
     public Set<String> getRollen() {
-        Object tokenRoles = null;
-        try {
-            tokenRoles = IsySecurityTokenUtil.getTokenAttribute(rolesClaimName);
-        } catch (OAuth2AuthenticationException ex) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (!(authentication instanceof AbstractOAuth2TokenAuthenticationToken)) {
             LOG.debug("Current authenticated principal is not an OAuth token. Returned roles will be empty");
-        }
-        if (tokenRoles instanceof Collection) {
-            return new HashSet<>((Collection<String>) tokenRoles);
-        } else {
+            rollen.clear();
             return Collections.emptySet();
         }
+        return rollen.get(authentication);
     }
 
     public Set<String> getRechte() {
-        Collection<? extends GrantedAuthority> privileges = SecurityContextHolder.getContext().getAuthentication().getAuthorities();
-        return privileges.stream()
-                .map(GrantedAuthority::getAuthority)
-                .collect(Collectors.toSet());
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null) {
+            LOG.debug("There is no authenticated principal. Returned privileges will be empty");
+            rechte.clear();
+            return Collections.emptySet();
+        }
+        return rechte.get(authentication);
     }
 
     public boolean hatRecht(String recht) {
@@ -67,11 +100,20 @@ public class IsyOAuth2Berechtigungsmanager implements Berechtigungsmanager {
 
     public void pruefeRecht(String recht) throws AccessDeniedException {
         Assert.notNull(recht, "recht cannot be null");
-        if (!hatRecht(recht)) {
+        boolean granted = hatRecht(recht);
+        metrics.recordAuthorizationDecision(recht, granted);
+        if (!granted) {
+            PrivilegeDeniedEvent.emit(recht);
             throw new AccessDeniedException(String.format("Berechtigung %s nicht vorhanden!", recht));
         }
     }
 
+    @Override
+    public boolean hatAlleRechte(Collection<String> rechte) {
+        Assert.notNull(rechte, "rechte cannot be null");
+        return getRechte().containsAll(rechte);
+    }
+
     @Deprecated
     public Object getTokenAttribute(String key) {
         Authentication currentAuthentication = SecurityContextHolder.getContext().getAuthentication();
@@ -82,4 +124,19 @@ public class IsyOAuth2Berechtigungsmanager implements Berechtigungsmanager {
         }
     }
 
+    private Set<String> toRollen(Authentication authentication) {
+        Object tokenRoles = ((AbstractOAuth2TokenAuthenticationToken<?>) authentication).getTokenAttributes().get(rolesClaimName);
+        return tokenRoles instanceof Collection
+                ? Collections.unmodifiableSet(new HashSet<>((Collection<String>) tokenRoles))
+                : Collections.emptySet();
+    }
+
+    private static Set<String> toRechte(Collection<? extends GrantedAuthority> authorities) {
+        Set<String> rechte = new HashSet<>(authorities.size() * 2);
+        for (GrantedAuthority authority : authorities) {
+            rechte.add(authority.getAuthority());
+        }
+        return Collections.unmodifiableSet(rechte);
+    }
+
 }
@@ -0,0 +1,71 @@
+package de.bund.bva.isyfact.security.jfr;
+
+import org.springframework.lang.Nullable;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for the decoding and validation of an access token, including the retrieval of the JWK set of the issuer
+ * on first use.
+ */
+@Name(JwtDecodeEvent.NAME)
+@Label("JWT Decode")
+@Category({"IsyFact", "Security"})
+@Description("Decoding and validation of an access token")
+@StackTrace(false)
+public final class JwtDecodeEvent extends Event {
+
+    /** Name of the event. */
+    public static final String NAME = "de.bund.bva.isyfact.security.JwtDecode";
+
+    @Label("Registration")
+    @Description("Registration ID of the client")
+    private String registration;
+
+    @Label("Grant Type")
+    private String grantType;
+
+    @Label("Outcome")
+    private String outcome;
+
+    @Label("Error")
+    @Description("OAuth 2.0 error code or exception class if the decoding or validation failed")
+    private String error;
+
+    /**
+     * Starts the event for the decoding of an access token.
+     *
+     * @param registration the registration ID of the client
+     * @param grantType    the authorization grant type
+     * @return the started event
+     */
+    public static JwtDecodeEvent start(String registration, String grantType) {
+        JwtDecodeEvent event = new JwtDecodeEvent();
+        if (event.isEnabled()) {
+            event.registration = registration;
+            event.grantType = grantType;
+            event.begin();
+        }
+        return event;
+    }
+
+    /**
+     * Finishes the event and commits it if it exceeds the configured threshold.
+     *
+     * @param error the exception if the decoding or validation failed, otherwise {@code null}
+     */
+    public void finish(@Nullable Throwable error) {
+        end();
+        if (shouldCommit()) {
+            outcome = error == null ? TokenAcquisitionEvent.OUTCOME_SUCCESS : TokenAcquisitionEvent.OUTCOME_ERROR;
+            this.error = error == null ? null : TokenAcquisitionEvent.errorCode(error);
+            commit();
+        }
+    }
+
+}
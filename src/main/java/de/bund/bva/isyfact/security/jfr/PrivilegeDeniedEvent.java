@@ -0,0 +1,38 @@
+package de.bund.bva.isyfact.security.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for a privilege that was denied by {@link de.bund.bva.isyfact.security.core.Berechtigungsmanager#pruefeRecht(String)}.
+ * The stack trace identifies the checking code.
+ */
+@Name(PrivilegeDeniedEvent.NAME)
+@Label("Privilege Denied")
+@Category({"IsyFact", "Security"})
+@Description("Privilege denied by the Berechtigungsmanager")
+public final class PrivilegeDeniedEvent extends Event {
+
+    /** Name of the event. */
+    public static final String NAME = "de.bund.bva.isyfact.security.PrivilegeDenied";
+
+    @Label("Privilege")
+    private String privilege;
+
+    /**
+     * Commits the event for a denied privilege if the event is enabled.
+     *
+     * @param privilege the denied privilege
+     */
+    public static void emit(String privilege) {
+        PrivilegeDeniedEvent event = new PrivilegeDeniedEvent();
+        if (event.isEnabled()) {
+            event.privilege = privilege;
+            event.commit();
+        }
+    }
+
+}
@@ -0,0 +1,66 @@
+package de.bund.bva.isyfact.security.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for the mapping of the roles of an access token to privileges by the
+ * {@link de.bund.bva.isyfact.security.authentication.RolePrivilegeGrantedAuthoritiesConverter}.
+ */
+@Name(RoleMappingEvent.NAME)
+@Label("Role Mapping")
+@Category({"IsyFact", "Security"})
+@Description("Mapping of the roles of an access token to privileges")
+@StackTrace(false)
+public final class RoleMappingEvent extends Event {
+
+    /** Name of the event. */
+    public static final String NAME = "de.bund.bva.isyfact.security.RoleMapping";
+
+    @Label("Roles")
+    @Description("Number of roles in the access token")
+    private int roles;
+
+    @Label("Privileges")
+    @Description("Number of privileges the roles are mapped to")
+    private int privileges;
+
+    @Label("Cache Hit")
+    @Description("Whether the privileges of the role combination were cached")
+    private boolean cacheHit;
+
+    /**
+     * Starts the event for the mapping of roles.
+     *
+     * @return the started event
+     */
+    public static RoleMappingEvent start() {
+        RoleMappingEvent event = new RoleMappingEvent();
+        event.begin();
+        return event;
+    }
+
+    public void setCacheHit(boolean cacheHit) {
+        this.cacheHit = cacheHit;
+    }
+
+    /**
+     * Finishes the event and commits it if it exceeds the configured threshold.
+     *
+     * @param roles      the number of roles
+     * @param privileges the number of privileges
+     */
+    public void finish(int roles, int privileges) {
+        end();
+        if (shouldCommit()) {
+            this.roles = roles;
+            this.privileges = privileges;
+            commit();
+        }
+    }
+
+}
@@ -0,0 +1,130 @@
+package de.bund.bva.isyfact.security.jfr;
+
+import org.springframework.lang.Nullable;
+
+import de.bund.bva.isyfact.security.metrics.IsySecurityMetrics;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for the acquisition of an access token with the {@link de.bund.bva.isyfact.security.oauth2.client.Authentifizierungsmanager},
+ * from the call of the Authentifizierungsmanager until the authentication is set in the security context.
+ * <p>
+ * The event is a cache hit if the authentication provider took the token from its cache of authorized clients
+ * (see {@link #cacheHit()}). Acquisitions that sent a token request or waited for the token request of another thread,
+ * e.g. of a concurrent caller or the background refresh, are no cache hits.
+ */
+@Name(TokenAcquisitionEvent.NAME)
+@Label("Token Acquisition")
+@Category({"IsyFact", "Security"})
+@Description("Acquisition of an access token with the Authentifizierungsmanager")
+@StackTrace(false)
+public final class TokenAcquisitionEvent extends Event {
+
+    /** Name of the event. */
+    public static final String NAME = "de.bund.bva.isyfact.security.TokenAcquisition";
+
+    /** Outcome of a successful acquisition. */
+    public static final String OUTCOME_SUCCESS = "SUCCESS";
+
+    /** Outcome of a failed acquisition. */
+    public static final String OUTCOME_ERROR = "ERROR";
+
+    /** The acquisition in progress on the current thread. */
+    private static final ThreadLocal<TokenAcquisitionEvent> CURRENT = new ThreadLocal<>();
+
+    @Label("Registration")
+    @Description("Registration ID of the client")
+    private String registration;
+
+    @Label("Grant Type")
+    private String grantType;
+
+    @Label("Cache Hit")
+    @Description("Whether the token was acquired without a request to the token endpoint")
+    private boolean cacheHit;
+
+    @Label("Outcome")
+    private String outcome;
+
+    @Label("Error")
+    @Description("OAuth 2.0 error code or exception class if the acquisition failed")
+    private String error;
+
+    /** The acquisition that was in progress on the current thread when this one started. */
+    private transient TokenAcquisitionEvent previous;
+
+    /** Whether the event was started, i.e. was enabled at the start of the acquisition. */
+    private transient boolean started;
+
+    private TokenAcquisitionEvent() {
+    }
+
+    /**
+     * Starts the event for an acquisition on the current thread. The event must be finished with {@link #finish(Throwable)}
+     * on the same thread.
+     *
+     * @param registration the registration ID of the client
+     * @param grantType    the authorization grant type
+     * @return the started event
+     */
+    public static TokenAcquisitionEvent start(String registration, String grantType) {
+        TokenAcquisitionEvent event = new TokenAcquisitionEvent();
+        if (event.isEnabled()) {
+            event.registration = registration;
+            event.grantType = grantType;
+            event.previous = CURRENT.get();
+            event.started = true;
+            CURRENT.set(event);
+            event.begin();
+        }
+        return event;
+    }
+
+    /**
+     * Notes that the acquisition in progress on the current thread, if any, took the token from the cache of authorized
+     * clients.
+     */
+    public static void cacheHit() {
+        TokenAcquisitionEvent event = CURRENT.get();
+        if (event != null) {
+            event.cacheHit = true;
+        }
+    }
+
+    /**
+     * Finishes the event and commits it if it exceeds the configured threshold.
+     *
+     * @param error the exception if the acquisition failed, otherwise {@code null}
+     */
+    public void finish(@Nullable Throwable error) {
+        if (!started) {
+            return;
+        }
+        end();
+        if (previous != null) {
+            CURRENT.set(previous);
+        } else {
+            CURRENT.remove();
+        }
+        previous = null;
+        if (shouldCommit()) {
+            outcome = error == null ? OUTCOME_SUCCESS : OUTCOME_ERROR;
+            this.error = error == null ? null : errorCode(error);
+            commit();
+        }
+    }
+
+    /**
+     * Returns the OAuth 2.0 error code of the exception or, if it does not carry one, the name of its class.
+     */
+    static String errorCode(Throwable error) {
+        String errorCode = IsySecurityMetrics.getOAuth2ErrorCode(error);
+        return errorCode != null ? errorCode : error.getClass().getName();
+    }
+
+}
@@ -0,0 +1,71 @@
+package de.bund.bva.isyfact.security.jfr;
+
+import org.springframework.lang.Nullable;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for a request to the token endpoint of the IAM service.
+ */
+@Name(TokenRequestEvent.NAME)
+@Label("Token Request")
+@Category({"IsyFact", "Security"})
+@Description("Request to the token endpoint of the IAM service")
+@StackTrace(false)
+public final class TokenRequestEvent extends Event {
+
+    /** Name of the event. */
+    public static final String NAME = "de.bund.bva.isyfact.security.TokenRequest";
+
+    @Label("Registration")
+    @Description("Registration ID of the client")
+    private String registration;
+
+    @Label("Grant Type")
+    @Description("Authorization grant type of the request, e.g. refresh_token")
+    private String grantType;
+
+    @Label("Outcome")
+    private String outcome;
+
+    @Label("Error")
+    @Description("OAuth 2.0 error code or exception class if the request failed")
+    private String error;
+
+    /**
+     * Starts the event for a request to the token endpoint.
+     *
+     * @param registration the registration ID of the client
+     * @param grantType    the authorization grant type of the request
+     * @return the started event
+     */
+    public static TokenRequestEvent start(String registration, String grantType) {
+        TokenRequestEvent event = new TokenRequestEvent();
+        if (event.isEnabled()) {
+            event.registration = registration;
+            event.grantType = grantType;
+            event.begin();
+        }
+        return event;
+    }
+
+    /**
+     * Finishes the event and commits it if it exceeds the configured threshold.
+     *
+     * @param error the exception if the request failed, otherwise {@code null}
+     */
+    public void finish(@Nullable Throwable error) {
+        end();
+        if (shouldCommit()) {
+            outcome = error == null ? TokenAcquisitionEvent.OUTCOME_SUCCESS : TokenAcquisitionEvent.OUTCOME_ERROR;
+            this.error = error == null ? null : TokenAcquisitionEvent.errorCode(error);
+            commit();
+        }
+    }
+
+}
@@ -0,0 +1,73 @@
+package de.bund.bva.isyfact.security.metrics;
+
+import java.util.function.Supplier;
+
+import org.springframework.security.oauth2.client.endpoint.AbstractOAuth2AuthorizationGrantRequest;
+import org.springframework.security.oauth2.client.endpoint.OAuth2AccessTokenResponseClient;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AccessTokenResponse;
+import org.springframework.util.Assert;
+
+import de.bund.bva.isyfact.security.jfr.TokenRequestEvent;
+import de.bund.bva.isyfact.security.observation.IsySecurityObservations;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
+/**
+ * {@link OAuth2AccessTokenResponseClient} that reports the duration and the outcome of each request to the token endpoint
+ * to {@link IsySecurityMetrics}, observes it as {@link de.bund.bva.isyfact.security.observation.IsySecurityObservationDocumentation#TOKEN_REQUEST}
+ * and records it as {@link TokenRequestEvent} in JFR.
+ * <p>
+ * The metrics and the observation registry are obtained for each request, so that they can be set on the owner of the client
+ * after the client was created.
+ *
+ * @param <T> the type of the grant request
+ */
+public class InstrumentedAccessTokenResponseClient<T extends AbstractOAuth2AuthorizationGrantRequest>
+        implements OAuth2AccessTokenResponseClient<T> {
+
+    /** The client that sends the requests. */
+    private final OAuth2AccessTokenResponseClient<T> delegate;
+
+    /** Supplies the metrics the requests are reported to. */
+    private final Supplier<IsySecurityMetrics> metrics;
+
+    /** Supplies the registry the requests are observed with. */
+    private final Supplier<ObservationRegistry> observationRegistry;
+
+    public InstrumentedAccessTokenResponseClient(OAuth2AccessTokenResponseClient<T> delegate, Supplier<IsySecurityMetrics> metrics) {
+        this(delegate, metrics, () -> ObservationRegistry.NOOP);
+    }
+
+    public InstrumentedAccessTokenResponseClient(OAuth2AccessTokenResponseClient<T> delegate, Supplier<IsySecurityMetrics> metrics,
+                                                 Supplier<ObservationRegistry> observationRegistry) {
+        Assert.notNull(delegate, "delegate cannot be null");
+        Assert.notNull(metrics, "metrics cannot be null");
+        Assert.notNull(observationRegistry, "observationRegistry cannot be null");
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.observationRegistry = observationRegistry;
+    }
+
+    @Override
+    public OAuth2AccessTokenResponse getTokenResponse(T authorizationGrantRequest) {
+        String registrationId = authorizationGrantRequest.getClientRegistration().getRegistrationId();
+        String grantType = authorizationGrantRequest.getGrantType().getValue();
+        Observation observation = IsySecurityObservations.tokenRequest(observationRegistry.get(), registrationId, grantType).start();
+        TokenRequestEvent event = TokenRequestEvent.start(registrationId, grantType);
+        long start = System.nanoTime();
+        try (Observation.Scope scope = observation.openScope()) {
+            OAuth2AccessTokenResponse tokenResponse = delegate.getTokenResponse(authorizationGrantRequest);
+            metrics.get().recordTokenRequest(registrationId, grantType, System.nanoTime() - start, null);
+            event.finish(null);
+            return tokenResponse;
+        } catch (RuntimeException e) {
+            metrics.get().recordTokenRequest(registrationId, grantType, System.nanoTime() - start, e);
+            observation.error(e);
+            event.finish(e);
+            throw e;
+        } finally {
+            observation.stop();
+        }
+    }
+
+}
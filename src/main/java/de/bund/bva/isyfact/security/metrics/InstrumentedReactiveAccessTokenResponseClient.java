@@ -0,0 +1,71 @@
+package de.bund.bva.isyfact.security.metrics;
+
+import java.util.function.Supplier;
+
+import org.springframework.security.oauth2.client.endpoint.AbstractOAuth2AuthorizationGrantRequest;
+import org.springframework.security.oauth2.client.endpoint.ReactiveOAuth2AccessTokenResponseClient;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AccessTokenResponse;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Mono;
+
+import de.bund.bva.isyfact.security.jfr.TokenRequestEvent;
+import de.bund.bva.isyfact.security.observation.IsySecurityObservations;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
+/**
+ * Non-blocking counterpart of {@link InstrumentedAccessTokenResponseClient}. It reports the duration and the outcome of each
+ * request to the token endpoint to {@link IsySecurityMetrics}, observes it as
+ * {@link de.bund.bva.isyfact.security.observation.IsySecurityObservationDocumentation#TOKEN_REQUEST} and records it as
+ * {@link TokenRequestEvent} in JFR.
+ * <p>
+ * The request is measured from the subscription until the response or the error is signalled.
+ *
+ * @param <T> the type of the grant request
+ */
+public class InstrumentedReactiveAccessTokenResponseClient<T extends AbstractOAuth2AuthorizationGrantRequest>
+        implements ReactiveOAuth2AccessTokenResponseClient<T> {
+
+    /** The client that sends the requests. */
+    private final ReactiveOAuth2AccessTokenResponseClient<T> delegate;
+
+    /** Supplies the metrics the requests are reported to. */
+    private final Supplier<IsySecurityMetrics> metrics;
+
+    /** Supplies the registry the requests are observed with. */
+    private final Supplier<ObservationRegistry> observationRegistry;
+
+    public InstrumentedReactiveAccessTokenResponseClient(ReactiveOAuth2AccessTokenResponseClient<T> delegate,
+                                                         Supplier<IsySecurityMetrics> metrics,
+                                                         Supplier<ObservationRegistry> observationRegistry) {
+        Assert.notNull(delegate, "delegate cannot be null");
+        Assert.notNull(metrics, "metrics cannot be null");
+        Assert.notNull(observationRegistry, "observationRegistry cannot be null");
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.observationRegistry = observationRegistry;
+    }
+
+    @Override
+    public Mono<OAuth2AccessTokenResponse> getTokenResponse(T authorizationGrantRequest) {
+        String registrationId = authorizationGrantRequest.getClientRegistration().getRegistrationId();
+        String grantType = authorizationGrantRequest.getGrantType().getValue();
+        return Mono.defer(() -> {
+            Observation observation = IsySecurityObservations.tokenRequest(observationRegistry.get(), registrationId, grantType).start();
+            TokenRequestEvent event = TokenRequestEvent.start(registrationId, grantType);
+            long start = System.nanoTime();
+            return delegate.getTokenResponse(authorizationGrantRequest)
+                    .doOnSuccess(tokenResponse -> {
+                        metrics.get().recordTokenRequest(registrationId, grantType, System.nanoTime() - start, null);
+                        event.finish(null);
+                    })
+                    .doOnError(e -> {
+                        metrics.get().recordTokenRequest(registrationId, grantType, System.nanoTime() - start, e);
+                        observation.error(e);
+                        event.finish(e);
+                    })
+                    .doFinally(signalType -> observation.stop());
+        });
+    }
+
+}
@@ -0,0 +1,114 @@
+package de.bund.bva.isyfact.security.metrics;
+
+import org.springframework.lang.Nullable;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2AuthorizationException;
+
+import de.bund.bva.isyfact.security.cache.ExpiringCache;
+
+/**
+ * Receives measurements of the authentication and authorization of isy-security, e.g. to publish them as metrics.
+ * <p>
+ * The phases of an authentication are reported separately: the discovery of the provider configuration, the request to the
+ * token endpoint, the decoding of the JWT and the conversion of its roles to authorities. The registration ID and the grant type
+ * identify the client, they are low-cardinality values in contrast to client IDs or usernames, which are never reported.
+ * <p>
+ * All methods do nothing by default, so that implementations only override the measurements they are interested in.
+ * Implementations must be thread-safe and must not throw exceptions.
+ */
+public interface IsySecurityMetrics {
+
+    /** Metrics that discard all measurements, used if no other metrics are configured. */
+    IsySecurityMetrics NOOP = new IsySecurityMetrics() {
+    };
+
+    /**
+     * Reports an authentication with the {@link de.bund.bva.isyfact.security.oauth2.client.Authentifizierungsmanager},
+     * including all phases.
+     *
+     * @param registrationId the registration ID of the client
+     * @param grantType      the authorization grant type, e.g. {@code client_credentials}
+     * @param durationNanos  the duration in nanoseconds
+     * @param error          the exception if the authentication failed, otherwise {@code null}
+     */
+    default void recordAuthentication(String registrationId, String grantType, long durationNanos, @Nullable Throwable error) {
+    }
+
+    /**
+     * Reports the discovery of the provider configuration of an issuer.
+     *
+     * @param issuerLocation the issuer location
+     * @param durationNanos  the duration in nanoseconds
+     * @param error          the exception if the discovery failed, otherwise {@code null}
+     */
+    default void recordDiscovery(String issuerLocation, long durationNanos, @Nullable Throwable error) {
+    }
+
+    /**
+     * Reports a request to the token endpoint.
+     *
+     * @param registrationId the registration ID of the client
+     * @param grantType      the authorization grant type of the request, e.g. {@code refresh_token}
+     * @param durationNanos  the duration in nanoseconds
+     * @param error          the exception if the request failed, otherwise {@code null}
+     */
+    default void recordTokenRequest(String registrationId, String grantType, long durationNanos, @Nullable Throwable error) {
+    }
+
+    /**
+     * Reports the decoding and validation of an access token.
+     *
+     * @param registrationId the registration ID of the client
+     * @param grantType      the authorization grant type
+     * @param durationNanos  the duration in nanoseconds
+     */
+    default void recordJwtDecode(String registrationId, String grantType, long durationNanos) {
+    }
+
+    /**
+     * Reports the conversion of a decoded access token to an authentication, i.e. the mapping of roles to privileges.
+     *
+     * @param registrationId the registration ID of the client
+     * @param grantType      the authorization grant type
+     * @param durationNanos  the duration in nanoseconds
+     */
+    default void recordAuthorityConversion(String registrationId, String grantType, long durationNanos) {
+    }
+
+    /**
+     * Reports the check of a privilege with {@link de.bund.bva.isyfact.security.core.Berechtigungsmanager#pruefeRecht(String)}.
+     *
+     * @param recht   the privilege
+     * @param granted whether the privilege was granted
+     */
+    default void recordAuthorizationDecision(String recht, boolean granted) {
+    }
+
+    /**
+     * Registers a cache whose hits, misses and size are reported.
+     *
+     * @param name  the name of the cache
+     * @param cache the cache
+     */
+    default void registerCache(String name, ExpiringCache<?, ?> cache) {
+    }
+
+    /**
+     * Returns the OAuth 2.0 error code of the exception, e.g. {@code invalid_client}
+     * (see {@link org.springframework.security.oauth2.core.OAuth2ErrorCodes}).
+     *
+     * @param error the exception
+     * @return the error code or {@code null} if the exception does not carry an OAuth 2.0 error
+     */
+    @Nullable
+    static String getOAuth2ErrorCode(Throwable error) {
+        if (error instanceof OAuth2AuthorizationException) {
+            return ((OAuth2AuthorizationException) error).getError().getErrorCode();
+        }
+        if (error instanceof OAuth2AuthenticationException) {
+            return ((OAuth2AuthenticationException) error).getError().getErrorCode();
+        }
+        return null;
+    }
+
+}
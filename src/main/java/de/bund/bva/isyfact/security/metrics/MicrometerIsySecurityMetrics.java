@@ -0,0 +1,289 @@
+package de.bund.bva.isyfact.security.metrics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.springframework.lang.Nullable;
+
+import de.bund.bva.isyfact.security.cache.ExpiringCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Publishes the measurements of isy-security as Micrometer meters.
+ * <p>
+ * The following meters are registered:
+ * <ul>
+ *     <li>{@value #AUTHENTICATION}, {@value #TOKEN_REQUESTS}: timers tagged with {@value #TAG_REGISTRATION},
+ *     {@value #TAG_GRANT_TYPE} and {@value #TAG_OUTCOME},</li>
+ *     <li>{@value #JWT_DECODE}, {@value #AUTHORITY_CONVERSION}: timers tagged with {@value #TAG_REGISTRATION}
+ *     and {@value #TAG_GRANT_TYPE},</li>
+ *     <li>{@value #DISCOVERY}: timer tagged with {@value #TAG_ISSUER} and {@value #TAG_OUTCOME},</li>
+ *     <li>{@value #TOKEN_ERRORS}: counter of failed token requests tagged with {@value #TAG_REGISTRATION},
+ *     {@value #TAG_GRANT_TYPE} and {@value #TAG_ERROR}, the error code of the IAM service
+ *     (see {@link org.springframework.security.oauth2.core.OAuth2ErrorCodes}),</li>
+ *     <li>{@value #AUTHORIZATION_DECISIONS}: counter of privilege checks tagged with {@value #TAG_PRIVILEGE}
+ *     and {@value #TAG_DECISION},</li>
+ *     <li>{@value #CACHE_GETS}, {@value #CACHE_SIZE}: hits, misses and size of the caches, tagged with {@value #TAG_CACHE}
+ *     and, for the hits and misses, {@value #TAG_RESULT}.</li>
+ * </ul>
+ * Measurements are discarded until the metrics are bound to a {@link MeterRegistry}. Caches that are registered before
+ * are bound together with the metrics.
+ */
+public class MicrometerIsySecurityMetrics implements IsySecurityMetrics, MeterBinder {
+
+    /** Timer for authentications with the Authentifizierungsmanager. */
+    public static final String AUTHENTICATION = "isy.security.authentication";
+
+    /** Timer for the discovery of provider configurations. */
+    public static final String DISCOVERY = "isy.security.discovery";
+
+    /** Timer for requests to the token endpoint. */
+    public static final String TOKEN_REQUESTS = "isy.security.token.requests";
+
+    /** Counter for failed requests to the token endpoint. */
+    public static final String TOKEN_ERRORS = "isy.security.token.errors";
+
+    /** Timer for decoding and validating access tokens. */
+    public static final String JWT_DECODE = "isy.security.jwt.decode";
+
+    /** Timer for the conversion of access tokens to authentications. */
+    public static final String AUTHORITY_CONVERSION = "isy.security.authority.conversion";
+
+    /** Counter for privilege checks. */
+    public static final String AUTHORIZATION_DECISIONS = "isy.security.authorization.decisions";
+
+    /** Function counter for hits and misses of caches. */
+    public static final String CACHE_GETS = "isy.security.cache.gets";
+
+    /** Gauge for the number of entries of caches. */
+    public static final String CACHE_SIZE = "isy.security.cache.size";
+
+    /** Tag for the registration ID. */
+    public static final String TAG_REGISTRATION = "registration";
+
+    /** Tag for the authorization grant type. */
+    public static final String TAG_GRANT_TYPE = "grant.type";
+
+    /** Tag for the outcome, {@value #OUTCOME_SUCCESS} or {@value #OUTCOME_ERROR}. */
+    public static final String TAG_OUTCOME = "outcome";
+
+    /** Tag for the error code. */
+    public static final String TAG_ERROR = "error";
+
+    /** Tag for the issuer location. */
+    public static final String TAG_ISSUER = "issuer";
+
+    /** Tag for the privilege. */
+    public static final String TAG_PRIVILEGE = "privilege";
+
+    /** Tag for the decision, {@value #DECISION_GRANTED} or {@value #DECISION_DENIED}. */
+    public static final String TAG_DECISION = "decision";
+
+    /** Tag for the name of the cache. */
+    public static final String TAG_CACHE = "cache";
+
+    /** Tag for the result of a cache access, {@code hit} or {@code miss}. */
+    public static final String TAG_RESULT = "result";
+
+    public static final String OUTCOME_SUCCESS = "SUCCESS";
+
+    public static final String OUTCOME_ERROR = "ERROR";
+
+    public static final String DECISION_GRANTED = "granted";
+
+    public static final String DECISION_DENIED = "denied";
+
+    /** Error code of exceptions that do not carry an OAuth 2.0 error. */
+    public static final String ERROR_UNKNOWN = "unknown";
+
+    /** The registry the meters are registered with, {@code null} until the metrics are bound. */
+    @Nullable
+    private volatile MeterRegistry registry;
+
+    /** Registered caches, by name. */
+    private final Map<String, ExpiringCache<?, ?>> caches = new ConcurrentHashMap<>();
+
+    /** Counters for granted privileges, by privilege, to avoid the lookup in the registry for each check. */
+    private final Map<String, Counter> grantedCounters = new ConcurrentHashMap<>();
+
+    /** Counters for denied privileges, by privilege. */
+    private final Map<String, Counter> deniedCounters = new ConcurrentHashMap<>();
+
+    /** Timers for authentications, by registration ID, grant type and outcome. */
+    private final Map<List<String>, Timer> authenticationTimers = new ConcurrentHashMap<>();
+
+    /** Timers for discoveries, by issuer location and outcome. */
+    private final Map<List<String>, Timer> discoveryTimers = new ConcurrentHashMap<>();
+
+    /** Timers for token requests, by registration ID, grant type and outcome. */
+    private final Map<List<String>, Timer> tokenRequestTimers = new ConcurrentHashMap<>();
+
+    /** Counters for failed token requests, by registration ID, grant type and error code. */
+    private final Map<List<String>, Counter> tokenErrorCounters = new ConcurrentHashMap<>();
+
+    /** Timers for decoding access tokens, by registration ID and grant type. */
+    private final Map<List<String>, Timer> jwtDecodeTimers = new ConcurrentHashMap<>();
+
+    /** Timers for the conversion of access tokens, by registration ID and grant type. */
+    private final Map<List<String>, Timer> authorityConversionTimers = new ConcurrentHashMap<>();
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+        grantedCounters.clear();
+        deniedCounters.clear();
+        authenticationTimers.clear();
+        discoveryTimers.clear();
+        tokenRequestTimers.clear();
+        tokenErrorCounters.clear();
+        jwtDecodeTimers.clear();
+        authorityConversionTimers.clear();
+        caches.forEach((name, cache) -> bindCache(registry, name, cache));
+    }
+
+    @Override
+    public void recordAuthentication(String registrationId, String grantType, long durationNanos, @Nullable Throwable error) {
+        MeterRegistry registry = this.registry;
+        if (registry != null) {
+            getMeter(authenticationTimers, List.of(registrationId, grantType, outcome(error)), tags -> Timer.builder(AUTHENTICATION)
+                    .description("Authentifizierungen mit dem Authentifizierungsmanager")
+                    .tag(TAG_REGISTRATION, tags.get(0))
+                    .tag(TAG_GRANT_TYPE, tags.get(1))
+                    .tag(TAG_OUTCOME, tags.get(2))
+                    .register(registry))
+                    .record(durationNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void recordDiscovery(String issuerLocation, long durationNanos, @Nullable Throwable error) {
+        MeterRegistry registry = this.registry;
+        if (registry != null) {
+            getMeter(discoveryTimers, List.of(issuerLocation, outcome(error)), tags -> Timer.builder(DISCOVERY)
+                    .description("Abrufe der Provider-Konfiguration eines Issuers")
+                    .tag(TAG_ISSUER, tags.get(0))
+                    .tag(TAG_OUTCOME, tags.get(1))
+                    .register(registry))
+                    .record(durationNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void recordTokenRequest(String registrationId, String grantType, long durationNanos, @Nullable Throwable error) {
+        MeterRegistry registry = this.registry;
+        if (registry != null) {
+            getMeter(tokenRequestTimers, List.of(registrationId, grantType, outcome(error)), tags -> Timer.builder(TOKEN_REQUESTS)
+                    .description("Anfragen an den Token-Endpunkt")
+                    .tag(TAG_REGISTRATION, tags.get(0))
+                    .tag(TAG_GRANT_TYPE, tags.get(1))
+                    .tag(TAG_OUTCOME, tags.get(2))
+                    .register(registry))
+                    .record(durationNanos, TimeUnit.NANOSECONDS);
+            if (error != null) {
+                getMeter(tokenErrorCounters, List.of(registrationId, grantType, errorCode(error)), tags -> Counter.builder(TOKEN_ERRORS)
+                        .description("Fehlgeschlagene Anfragen an den Token-Endpunkt")
+                        .tag(TAG_REGISTRATION, tags.get(0))
+                        .tag(TAG_GRANT_TYPE, tags.get(1))
+                        .tag(TAG_ERROR, tags.get(2))
+                        .register(registry))
+                        .increment();
+            }
+        }
+    }
+
+    @Override
+    public void recordJwtDecode(String registrationId, String grantType, long durationNanos) {
+        MeterRegistry registry = this.registry;
+        if (registry != null) {
+            getMeter(jwtDecodeTimers, List.of(registrationId, grantType), tags -> Timer.builder(JWT_DECODE)
+                    .description("Dekodierung und Validierung von Access-Tokens")
+                    .tag(TAG_REGISTRATION, tags.get(0))
+                    .tag(TAG_GRANT_TYPE, tags.get(1))
+                    .register(registry))
+                    .record(durationNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void recordAuthorityConversion(String registrationId, String grantType, long durationNanos) {
+        MeterRegistry registry = this.registry;
+        if (registry != null) {
+            getMeter(authorityConversionTimers, List.of(registrationId, grantType), tags -> Timer.builder(AUTHORITY_CONVERSION)
+                    .description("Abbildung der Rollen eines Access-Tokens auf Rechte")
+                    .tag(TAG_REGISTRATION, tags.get(0))
+                    .tag(TAG_GRANT_TYPE, tags.get(1))
+                    .register(registry))
+                    .record(durationNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void recordAuthorizationDecision(String recht, boolean granted) {
+        MeterRegistry registry = this.registry;
+        if (registry != null) {
+            Map<String, Counter> counters = granted ? grantedCounters : deniedCounters;
+            Counter counter = counters.get(recht);
+            if (counter == null) {
+                counter = counters.computeIfAbsent(recht, key -> Counter.builder(AUTHORIZATION_DECISIONS)
+                        .description("Prüfungen von Rechten")
+                        .tag(TAG_PRIVILEGE, key)
+                        .tag(TAG_DECISION, granted ? DECISION_GRANTED : DECISION_DENIED)
+                        .register(registry));
+            }
+            counter.increment();
+        }
+    }
+
+    @Override
+    public void registerCache(String name, ExpiringCache<?, ?> cache) {
+        caches.put(name, cache);
+        MeterRegistry registry = this.registry;
+        if (registry != null) {
+            bindCache(registry, name, cache);
+        }
+    }
+
+    private static void bindCache(MeterRegistry registry, String name, ExpiringCache<?, ?> cache) {
+        FunctionCounter.builder(CACHE_GETS, cache, ExpiringCache::getHitCount)
+                .description("Zugriffe auf den Cache")
+                .tag(TAG_CACHE, name)
+                .tag(TAG_RESULT, "hit")
+                .register(registry);
+        FunctionCounter.builder(CACHE_GETS, cache, ExpiringCache::getMissCount)
+                .description("Zugriffe auf den Cache")
+                .tag(TAG_CACHE, name)
+                .tag(TAG_RESULT, "miss")
+                .register(registry);
+        Gauge.builder(CACHE_SIZE, cache, ExpiringCache::size)
+                .description("Anzahl der Einträge im Cache")
+                .tag(TAG_CACHE, name)
+                .register(registry);
+    }
+
+    /**
+     * Returns the meter for the given tag values, which is only registered on first use to avoid the lookup in the registry
+     * for each measurement.
+     */
+    private static <M> M getMeter(Map<List<String>, M> meters, List<String> tags, Function<List<String>, M> register) {
+        M meter = meters.get(tags);
+        return meter != null ? meter : meters.computeIfAbsent(tags, register);
+    }
+
+    private static String outcome(@Nullable Throwable error) {
+        return error == null ? OUTCOME_SUCCESS : OUTCOME_ERROR;
+    }
+
+    private static String errorCode(Throwable error) {
+        String errorCode = IsySecurityMetrics.getOAuth2ErrorCode(error);
+        return errorCode != null ? errorCode : ERROR_UNKNOWN;
+    }
+
+}
@@ -9,15 +9,21 @@ import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.client.registration.ClientRegistration;
 import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
-import org.springframework.security.oauth2.client.registration.ClientRegistrations;
 import org.springframework.security.oauth2.core.AuthorizationGrantType;
 import org.springframework.util.Assert;
 
 import de.bund.bva.isyfact.security.config.IsyOAuth2ClientConfigurationProperties;
 import de.bund.bva.isyfact.security.config.IsyOAuth2ClientConfigurationProperties.AdditionalRegistrationProperties;
+import de.bund.bva.isyfact.security.jfr.TokenAcquisitionEvent;
+import de.bund.bva.isyfact.security.metrics.IsySecurityMetrics;
+import de.bund.bva.isyfact.security.observation.IsySecurityObservations;
+import de.bund.bva.isyfact.security.oauth2.client.authentication.token.AbstractClientRegistrationAuthenticationToken;
 import de.bund.bva.isyfact.security.oauth2.client.authentication.token.ClientCredentialsClientRegistrationAuthenticationToken;
 import de.bund.bva.isyfact.security.oauth2.client.authentication.token.ClientCredentialsRegistrationIdAuthenticationToken;
 import de.bund.bva.isyfact.security.oauth2.client.authentication.token.PasswordClientRegistrationAuthenticationToken;
+import de.bund.bva.isyfact.security.oauth2.client.registration.ProviderConfigurationCache;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 
 /**
  * Default implementation of the {@link Authentifizierungsmanager} that should suffice for most use cases.
@@ -30,6 +36,11 @@ import de.bund.bva.isyfact.security.oauth2.client.authentication.token.PasswordC
  * The other {@code authentifiziereClient}/{@code authentifiziereSystem} methods construct the necessary
  * Client Registration with the provided credentials and issuer location and thus do not depend on any to be
  * configured in the application properties.
+ * The provider configuration of the issuers used by these methods is cached in a {@link ProviderConfigurationCache}.
+ * <p>
+ * The duration of each authentication is reported to the {@link IsySecurityMetrics} (see {@link #setMetrics(IsySecurityMetrics)})
+ * and each authentication is observed with the {@link ObservationRegistry} (see {@link #setObservationRegistry(ObservationRegistry)})
+ * and recorded as {@link TokenAcquisitionEvent} in JFR.
  */
 public class IsyOAuth2Authentifizierungsmanager implements Authentifizierungsmanager {
 
@@ -52,12 +63,31 @@ public class IsyOAuth2Authentifizierungsmanager implements Authentifizierungsman
      */
     private final ClientRegistrationRepository clientRegistrationRepository;
 
+    /** Cache for the provider configuration of the issuers used to create Client Registrations programmatically. */
+    private final ProviderConfigurationCache providerConfigurationCache;
+
+    /** Metrics the authentications are reported to. */
+    private IsySecurityMetrics metrics = IsySecurityMetrics.NOOP;
+
+    /** Registry the authentications are observed with. */
+    private ObservationRegistry observationRegistry = ObservationRegistry.NOOP;
+
     public IsyOAuth2Authentifizierungsmanager(ProviderManager providerManager,
                                               IsyOAuth2ClientConfigurationProperties isyOAuth2ClientProps,
                                               @Nullable ClientRegistrationRepository clientRegistrationRepository) {
+        this(providerManager, isyOAuth2ClientProps, clientRegistrationRepository,
+                new ProviderConfigurationCache(isyOAuth2ClientProps.getDiscoveryCache().getTimeToLive(),
+                        isyOAuth2ClientProps.getDiscoveryCache().getMaxSize()));
+    }
+
+    public IsyOAuth2Authentifizierungsmanager(ProviderManager providerManager,
+                                              IsyOAuth2ClientConfigurationProperties isyOAuth2ClientProps,
+                                              @Nullable ClientRegistrationRepository clientRegistrationRepository,
+                                              ProviderConfigurationCache providerConfigurationCache) {
         this.providerManager = providerManager;
         this.isyOAuth2ClientProps = isyOAuth2ClientProps;
         this.clientRegistrationRepository = clientRegistrationRepository;
+        this.providerConfigurationCache = providerConfigurationCache;
     }
 
     @Override
@@ -77,7 +107,7 @@ public class IsyOAuth2Authentifizierungsmanager implements Authentifizierungsman
         Assert.notNull(clientId, "clientId cannot be null");
         Assert.notNull(clientSecret, "clientSecret cannot be null");
 
-        ClientRegistration clientRegistration = ClientRegistrations.fromIssuerLocation(issuerLocation)
+        ClientRegistration clientRegistration = providerConfigurationCache.fromIssuerLocation(issuerLocation)
                 .clientId(clientId)
                 .clientSecret(clientSecret)
                 .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
@@ -101,7 +131,7 @@ public class IsyOAuth2Authentifizierungsmanager implements Authentifizierungsman
         Assert.notNull(username, "username cannot be null");
         Assert.notNull(password, "password cannot be null");
 
-        ClientRegistration clientRegistration = ClientRegistrations.fromIssuerLocation(issuerLocation)
+        ClientRegistration clientRegistration = providerConfigurationCache.fromIssuerLocation(issuerLocation)
                 .clientId(clientId)
                 .clientSecret(clientSecret)
                 .authorizationGrantType(AuthorizationGrantType.PASSWORD)
@@ -111,6 +141,26 @@ public class IsyOAuth2Authentifizierungsmanager implements Authentifizierungsman
         authenticateAndChangeAuthenticatedPrincipal(unauthenticatedToken);
     }
 
+    /**
+     * Sets the metrics the authentications are reported to.
+     *
+     * @param metrics the metrics
+     */
+    public void setMetrics(IsySecurityMetrics metrics) {
+        Assert.notNull(metrics, "metrics cannot be null");
+        this.metrics = metrics;
+    }
+
+    /**
+     * Sets the registry the authentications are observed with.
+     *
+     * @param observationRegistry the registry
+     */
+    public void setObservationRegistry(ObservationRegistry observationRegistry) {
+        Assert.notNull(observationRegistry, "observationRegistry cannot be null");
+        this.observationRegistry = observationRegistry;
+    }
+
     /**
      * Creates an appropriate authentication token for the authorization grant type configured for the registration ID.
      *
@@ -162,8 +212,48 @@ public class IsyOAuth2Authentifizierungsmanager implements Authentifizierungsman
      *         if no provider supports the authentication request or the authentication failed
      */
     private void authenticateAndChangeAuthenticatedPrincipal(Authentication unauthenticatedToken) throws AuthenticationException {
-        Authentication authentication = providerManager.authenticate(unauthenticatedToken);
+        String registrationId = getRegistrationId(unauthenticatedToken);
+        String grantType = getGrantType(unauthenticatedToken);
+        Observation observation = IsySecurityObservations.authentication(observationRegistry, registrationId, grantType).start();
+        TokenAcquisitionEvent event = TokenAcquisitionEvent.start(registrationId, grantType);
+        long start = System.nanoTime();
+        Authentication authentication;
+        try (Observation.Scope scope = observation.openScope()) {
+            authentication = providerManager.authenticate(unauthenticatedToken);
+        } catch (RuntimeException e) {
+            metrics.recordAuthentication(registrationId, grantType, System.nanoTime() - start, e);
+            observation.error(e);
+            event.finish(e);
+            throw e;
+        } finally {
+            observation.stop();
+        }
+        metrics.recordAuthentication(registrationId, grantType, System.nanoTime() - start, null);
         SecurityContextHolder.getContext().setAuthentication(authentication);
+        event.finish(null);
+    }
+
+    /**
+     * Returns the registration ID of the given authentication request, used for metrics and observations.
+     */
+    private static String getRegistrationId(Authentication unauthenticatedToken) {
+        if (unauthenticatedToken instanceof AbstractClientRegistrationAuthenticationToken) {
+            return ((AbstractClientRegistrationAuthenticationToken) unauthenticatedToken).getClientRegistration().getRegistrationId();
+        } else if (unauthenticatedToken instanceof ClientCredentialsRegistrationIdAuthenticationToken) {
+            return ((ClientCredentialsRegistrationIdAuthenticationToken) unauthenticatedToken).getRegistrationId();
+        }
+        return unauthenticatedToken.getName();
+    }
+
+    /**
+     * Returns the authorization grant type of the given authentication request, used for metrics and observations.
+     */
+    private static String getGrantType(Authentication unauthenticatedToken) {
+        if (unauthenticatedToken instanceof AbstractClientRegistrationAuthenticationToken) {
+            return ((AbstractClientRegistrationAuthenticationToken) unauthenticatedToken).getClientRegistration()
+                    .getAuthorizationGrantType().getValue();
+        }
+        return AuthorizationGrantType.CLIENT_CREDENTIALS.getValue();
     }
 
 }
@@ -0,0 +1,159 @@
+package de.bund.bva.isyfact.security.oauth2.client;
+
+import org.springframework.lang.Nullable;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.ProviderNotFoundException;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import de.bund.bva.isyfact.security.config.IsyOAuth2ClientConfigurationProperties;
+import de.bund.bva.isyfact.security.config.IsyOAuth2ClientConfigurationProperties.AdditionalRegistrationProperties;
+import de.bund.bva.isyfact.security.oauth2.client.authentication.token.ClientCredentialsClientRegistrationAuthenticationToken;
+import de.bund.bva.isyfact.security.oauth2.client.authentication.token.PasswordClientRegistrationAuthenticationToken;
+import de.bund.bva.isyfact.security.oauth2.client.registration.ProviderConfigurationCache;
+
+/**
+ * Default implementation of the {@link ReactiveAuthentifizierungsmanager}.
+ * <p>
+ * It creates the same authentication requests as the {@link IsyOAuth2Authentifizierungsmanager} and passes them to a
+ * {@link ReactiveAuthenticationManager}, by default an
+ * {@link de.bund.bva.isyfact.security.oauth2.client.authentication.IsyOAuth2ReactiveAuthenticationManager}.
+ * Client registrations configured in the application properties are always authenticated with the Client Registration,
+ * including the Client Credentials flow, so that the token request does not block.
+ * <p>
+ * The provider configuration of the issuers used by {@code authentifiziereClient}/{@code authentifiziereSystem} is cached
+ * in a {@link ProviderConfigurationCache}. Only if it is not cached yet, the discovery request is made on the
+ * bounded elastic scheduler, since the discovery of Spring Security blocks.
+ */
+public class IsyOAuth2ReactiveAuthentifizierungsmanager implements ReactiveAuthentifizierungsmanager {
+
+    /** Authentication manager that authenticates the created authentication requests. */
+    private final ReactiveAuthenticationManager reactiveAuthenticationManager;
+
+    /** Global isy-security Configuration properties. */
+    private final IsyOAuth2ClientConfigurationProperties isyOAuth2ClientProps;
+
+    /**
+     * Repository containing the OAuth 2.0 client registrations.
+     * Might be {@code null} if there are no configured client registrations in the application.
+     */
+    @Nullable
+    private final ClientRegistrationRepository clientRegistrationRepository;
+
+    /** Cache for the provider configuration of the issuers used to create Client Registrations programmatically. */
+    private final ProviderConfigurationCache providerConfigurationCache;
+
+    public IsyOAuth2ReactiveAuthentifizierungsmanager(ReactiveAuthenticationManager reactiveAuthenticationManager,
+                                                      IsyOAuth2ClientConfigurationProperties isyOAuth2ClientProps,
+                                                      @Nullable ClientRegistrationRepository clientRegistrationRepository,
+                                                      ProviderConfigurationCache providerConfigurationCache) {
+        this.reactiveAuthenticationManager = reactiveAuthenticationManager;
+        this.isyOAuth2ClientProps = isyOAuth2ClientProps;
+        this.clientRegistrationRepository = clientRegistrationRepository;
+        this.providerConfigurationCache = providerConfigurationCache;
+    }
+
+    @Override
+    public Mono<Authentication> authentifiziere(String oauth2ClientRegistrationId) {
+        return Mono.fromSupplier(() -> getAuthenticationTokenForRegistrationId(oauth2ClientRegistrationId))
+                .flatMap(this::authenticate);
+    }
+
+    @Override
+    public Mono<Authentication> authentifiziereClient(String issuerLocation, String clientId, String clientSecret,
+                                                      @Nullable String bhknz) {
+        Assert.notNull(issuerLocation, "issuerLocation cannot be null");
+        Assert.notNull(clientId, "clientId cannot be null");
+        Assert.notNull(clientSecret, "clientSecret cannot be null");
+
+        return fromIssuerLocation(issuerLocation)
+                .map(builder -> builder
+                        .clientId(clientId)
+                        .clientSecret(clientSecret)
+                        .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                        .build())
+                .flatMap(clientRegistration -> authenticate(new ClientCredentialsClientRegistrationAuthenticationToken(clientRegistration, bhknz)));
+    }
+
+    @Override
+    public Mono<Authentication> authentifiziereSystem(String issuerLocation, String clientId, String clientSecret, String username,
+                                                      String password, @Nullable String bhknz) {
+        Assert.notNull(issuerLocation, "issuerLocation cannot be null");
+        Assert.notNull(clientId, "clientId cannot be null");
+        Assert.notNull(clientSecret, "clientSecret cannot be null");
+        Assert.notNull(username, "username cannot be null");
+        Assert.notNull(password, "password cannot be null");
+
+        return fromIssuerLocation(issuerLocation)
+                .map(builder -> builder
+                        .clientId(clientId)
+                        .clientSecret(clientSecret)
+                        .authorizationGrantType(AuthorizationGrantType.PASSWORD)
+                        .build())
+                .flatMap(clientRegistration -> authenticate(
+                        new PasswordClientRegistrationAuthenticationToken(clientRegistration, username, password, bhknz)));
+    }
+
+    /**
+     * Returns a builder initialized with the provider configuration of the issuer. The configuration is discovered on the
+     * bounded elastic scheduler if it is not cached.
+     */
+    private Mono<ClientRegistration.Builder> fromIssuerLocation(String issuerLocation) {
+        return Mono.defer(() -> {
+            ClientRegistration.Builder builder = providerConfigurationCache.getIfPresent(issuerLocation);
+            if (builder != null) {
+                return Mono.just(builder);
+            }
+            return Mono.fromCallable(() -> providerConfigurationCache.fromIssuerLocation(issuerLocation))
+                    .subscribeOn(Schedulers.boundedElastic());
+        });
+    }
+
+    /**
+     * Creates an appropriate authentication token for the authorization grant type configured for the registration ID.
+     *
+     * @param oauth2ClientRegistrationId
+     *         registration ID to create the token for
+     * @return an unauthenticated token that can be passed to the authentication manager
+     */
+    private Authentication getAuthenticationTokenForRegistrationId(String oauth2ClientRegistrationId) {
+        ClientRegistration clientRegistration = null;
+        if (clientRegistrationRepository != null) {
+            clientRegistration = clientRegistrationRepository.findByRegistrationId(oauth2ClientRegistrationId);
+        }
+        Assert.notNull(clientRegistration, "Could not find ClientRegistration with id '" + oauth2ClientRegistrationId + "'");
+
+        // load additional props for this registration ID, can be null
+        AdditionalRegistrationProperties props = isyOAuth2ClientProps.getRegistration().get(clientRegistration.getRegistrationId());
+        String bhknz = props != null ? props.getBhknz() : null;
+
+        AuthorizationGrantType grantType = clientRegistration.getAuthorizationGrantType();
+        if (AuthorizationGrantType.CLIENT_CREDENTIALS.equals(grantType)) {
+            return new ClientCredentialsClientRegistrationAuthenticationToken(clientRegistration, bhknz);
+        } else if (AuthorizationGrantType.PASSWORD.equals(grantType)) {
+            // ROPC requires the username and password to be set in the additional properties
+            if (props != null && props.getUsername() != null && props.getPassword() != null) {
+                return new PasswordClientRegistrationAuthenticationToken(clientRegistration, props.getUsername(), props.getPassword(), bhknz);
+            } else {
+                throw new BadCredentialsException(
+                        String.format("No configured credentials (username, password) found for client with registrationId: %s.",
+                                clientRegistration.getRegistrationId()));
+            }
+        } else {
+            throw new IllegalArgumentException("The AuthorizationGrantType '" + grantType.getValue() + "' is not supported.");
+        }
+    }
+
+    private Mono<Authentication> authenticate(Authentication unauthenticatedToken) {
+        return reactiveAuthenticationManager.authenticate(unauthenticatedToken)
+                .switchIfEmpty(Mono.error(() -> new ProviderNotFoundException(
+                        "No AuthenticationProvider found for " + unauthenticatedToken.getClass().getName())));
+    }
+
+}
@@ -0,0 +1,89 @@
+package de.bund.bva.isyfact.security.oauth2.client;
+
+import org.springframework.lang.Nullable;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import de.bund.bva.isyfact.security.config.IsyOAuth2ClientConfigurationProperties;
+
+/**
+ * Non-blocking counterpart of the {@link Authentifizierungsmanager} for reactive applications, e.g. on Netty event loops.
+ * <p>
+ * Instead of updating the {@link SecurityContext} of the current thread, the methods return the authentication as a
+ * {@link Mono}. Nothing is requested before the Mono is subscribed to. To make the authentication available via the
+ * {@link ReactiveSecurityContextHolder}, use {@link #withAuthentifizierung(Mono)} with {@code contextWrite}.
+ * <p>
+ * Authentication errors are signalled as {@link AuthenticationException} through the returned Mono.
+ */
+public interface ReactiveAuthentifizierungsmanager {
+
+    /**
+     * Authorizes the client for the given {@code oauth2ClientRegistrationId} via its configured OAuth 2.0 Flow.
+     * The supported flows and properties are the same as in {@link Authentifizierungsmanager#authentifiziere(String)}.
+     * Additional properties for the Resource Owner Password Credentials Flow will be resolved via the matching
+     * registration in {@link IsyOAuth2ClientConfigurationProperties#registration}.
+     *
+     * @param oauth2ClientRegistrationId
+     *         registration ID of the OAuth 2.0 Client to authorize
+     * @return the authentication of the client
+     */
+    Mono<Authentication> authentifiziere(String oauth2ClientRegistrationId);
+
+    /**
+     * Creates and authorizes a client with the given credentials via the OAuth 2.0 Client Credentials Flow.
+     *
+     * @param issuerLocation
+     *         Issuer used to query the discovery endpoints and set the token endpoint for authentication
+     * @param clientId
+     *         Client ID of the OAuth 2.0 Client of the intermediary to authorize the authentication request itself
+     * @param clientSecret
+     *         Client secret of the OAuth 2.0 Client of the intermediary to authorize the authentication request itself
+     * @param bhknz
+     *         the BHKNZ to send as part of the authorization request (optional)
+     * @return the authentication of the client
+     * @see Authentifizierungsmanager#authentifiziereClient(String, String, String, String)
+     */
+    Mono<Authentication> authentifiziereClient(String issuerLocation, String clientId, String clientSecret, @Nullable String bhknz);
+
+    /**
+     * Creates and authorizes a client with the given credentials via the OAuth 2.0 Resource Owner Password Credentials Flow.
+     *
+     * @param issuerLocation
+     *         Issuer used to query the discovery endpoints and set the token endpoint for authentication
+     * @param clientId
+     *         Client ID of the OAuth 2.0 Client of the intermediary to authorize the authentication request itself
+     * @param clientSecret
+     *         Client secret of the OAuth 2.0 Client of the intermediary to authorize the authentication request itself
+     * @param username
+     *         the resource owner's username
+     * @param password
+     *         the resource owner's password
+     * @param bhknz
+     *         the BHKNZ to send as part of the authorization request (optional)
+     * @return the authentication of the resource owner
+     * @see Authentifizierungsmanager#authentifiziereSystem(String, String, String, String, String, String)
+     */
+    Mono<Authentication> authentifiziereSystem(String issuerLocation, String clientId, String clientSecret, String username,
+                                               String password, @Nullable String bhknz);
+
+    /**
+     * Creates a Reactor {@link Context} that provides the given authentication via the {@link ReactiveSecurityContextHolder}.
+     * The authentication is requested for each subscription of the pipeline, which is cheap as long as the token is cached.
+     * <pre>{@code
+     * pipeline.contextWrite(ReactiveAuthentifizierungsmanager.withAuthentifizierung(manager.authentifiziere("client")))
+     * }</pre>
+     *
+     * @param authentication
+     *         the authentication, e.g. returned by {@link #authentifiziere(String)}
+     * @return the context to write into a pipeline
+     */
+    static Context withAuthentifizierung(Mono<Authentication> authentication) {
+        return ReactiveSecurityContextHolder.withSecurityContext(authentication.map(SecurityContextImpl::new));
+    }
+
+}
@@ -1,7 +1,10 @@
 package de.bund.bva.isyfact.security.oauth2.client.annotation;
 
 import de.bund.bva.isyfact.security.oauth2.client.Authentifizierungsmanager;
+import de.bund.bva.isyfact.security.oauth2.client.ReactiveAuthentifizierungsmanager;
+import de.bund.bva.isyfact.util.logging.KorrelationsIdGenerator;
 import de.bund.bva.isyfact.util.logging.MdcHelper;
+import de.bund.bva.isyfact.util.logging.ZufallsKorrelationsIdGenerator;
 import org.aopalliance.aop.Advice;
 import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
@@ -10,6 +13,7 @@ import org.springframework.aop.PointcutAdvisor;
 import org.springframework.aop.support.AopUtils;
 import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
 import org.springframework.context.support.EmbeddedValueResolutionSupport;
+import org.springframework.core.MethodClassKey;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.security.authorization.method.AuthorizationInterceptorsOrder;
@@ -17,18 +21,28 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.util.Assert;
 
 import java.lang.reflect.Method;
-import java.util.UUID;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * MethodInterceptor that authenticates an OAuth 2.0 client and sets the authenticated principal in the Security Context.
  * The registration ID of the OAuth 2.0 client to authenticate is read from the parameter on the {@link Authenticate} annotation.
- * In addition, a correlation ID will be created (if not exists) for logging purposes.
+ * In addition, a correlation ID will be created (if not exists) for logging purposes. By default, it is created by a
+ * {@link ZufallsKorrelationsIdGenerator}, which can be replaced via {@link #setKorrelationsIdGenerator(KorrelationsIdGenerator)}.
  * <p>
  * This form of authentication is intended for access layers that rely on internal user authentication.
  * For example: Workflow, TimerTask, etc.
  * <p>
  * This class also implements the necessary Pointcut Advisor and should use {@link org.springframework.aop.Advisor}
  * as the return type of the factory method.
+ * <p>
+ * The annotation is detected and its registration ID resolved once per method and target class, further invocations
+ * use the cached registration ID.
+ * <p>
+ * If a {@link ReactiveAuthentifizierungsmanager} is set, methods returning a {@code Mono} or {@code Flux} are not
+ * authenticated in the calling thread. Instead, the authentication is written into the Reactor context of the returned
+ * publisher and requested without blocking on subscription. The autoconfiguration only sets it if
+ * {@code isy.security.oauth2.client.reactive-authenticate-enabled} is {@code true}.
  */
 public class AuthenticateInterceptor extends EmbeddedValueResolutionSupport implements MethodInterceptor, PointcutAdvisor, Ordered {
 
@@ -36,10 +50,22 @@ public class AuthenticateInterceptor extends EmbeddedValueResolutionSupport impl
      * The manager used for authenticating the OAuth 2.0 client.
      */
     private final Authentifizierungsmanager authentifizierungsmanager;
+    /**
+     * Resolved registration IDs of the OAuth 2.0 clients by invoked method and target class.
+     */
+    private final Map<MethodClassKey, String> oauth2ClientRegistrationIdCache = new ConcurrentHashMap<>();
     /**
      * Make sure the interceptor runs before Spring annotations like @Secured.
      */
     private int order = AuthorizationInterceptorsOrder.FIRST.getOrder();
+    /**
+     * Creates the correlation ID if none exists.
+     */
+    private KorrelationsIdGenerator korrelationsIdGenerator = new ZufallsKorrelationsIdGenerator();
+    /**
+     * Handles methods returning a {@code Mono} or {@code Flux}, {@code null} if no reactive manager is set.
+     */
+    private ReactiveAuthenticateInterceptor reactiveAuthenticateInterceptor;
 
     public AuthenticateInterceptor(Authentifizierungsmanager authentifizierungsmanager) {
         this.authentifizierungsmanager = authentifizierungsmanager;
@@ -47,11 +73,15 @@ public class AuthenticateInterceptor extends EmbeddedValueResolutionSupport impl
 
     @Override
     public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (reactiveAuthenticateInterceptor != null && reactiveAuthenticateInterceptor.supports(invocation.getMethod())) {
+            return reactiveAuthenticateInterceptor.invoke(invocation, getOAuth2ClientRegistrationId(invocation), korrelationsIdGenerator);
+        }
+
         boolean correlationIdCreated = false;
         try {
             String correlationId = MdcHelper.liesKorrelationsId();
             if (correlationId == null || correlationId.isEmpty()) {
-                correlationId = UUID.randomUUID().toString();
+                correlationId = korrelationsIdGenerator.erzeugeKorrelationsId();
                 MdcHelper.pushKorrelationsId(correlationId);
                 correlationIdCreated = true;
             }
@@ -72,18 +102,34 @@ public class AuthenticateInterceptor extends EmbeddedValueResolutionSupport impl
      * @param invocation the method invocation
      */
     private void authenticateOAuth2Client(MethodInvocation invocation) {
-        Class<?> targetClass = (invocation.getThis() != null ? AopUtils.getTargetClass(invocation.getThis()) : null);
-
-        Authenticate ann = detectAuthAnnotation(invocation.getMethod(), targetClass);
-        Assert.notNull(ann, String.format("The annotation %s is missing on the method %s.",
-                Authenticate.class.getSimpleName(), invocation.getMethod()));
-
-        // resolve property placeholders in the annotation value (if present)
-        String oauth2ClientRegistrationId = resolveEmbeddedValue(ann.oauth2ClientRegistrationId());
-
         // authenticates the client and sets the authenticated principal
         // will throw an exception if the ID does not exist or there's an error during authentication
-        authentifizierungsmanager.authentifiziere(oauth2ClientRegistrationId);
+        authentifizierungsmanager.authentifiziere(getOAuth2ClientRegistrationId(invocation));
+    }
+
+    /**
+     * Returns the registration ID of the OAuth 2.0 client from the annotation of the invoked method.
+     *
+     * @param invocation the method invocation
+     * @return the registration ID with resolved property placeholders
+     */
+    private String getOAuth2ClientRegistrationId(MethodInvocation invocation) {
+        Class<?> targetClass = (invocation.getThis() != null ? AopUtils.getTargetClass(invocation.getThis()) : null);
+        MethodClassKey cacheKey = new MethodClassKey(invocation.getMethod(), targetClass);
+
+        String oauth2ClientRegistrationId = oauth2ClientRegistrationIdCache.get(cacheKey);
+        if (oauth2ClientRegistrationId == null) {
+            Authenticate ann = detectAuthAnnotation(invocation.getMethod(), targetClass);
+            Assert.notNull(ann, String.format("The annotation %s is missing on the method %s.",
+                    Authenticate.class.getSimpleName(), invocation.getMethod()));
+
+            // resolve property placeholders in the annotation value (if present)
+            oauth2ClientRegistrationId = resolveEmbeddedValue(ann.oauth2ClientRegistrationId());
+            if (oauth2ClientRegistrationId != null) {
+                oauth2ClientRegistrationIdCache.put(cacheKey, oauth2ClientRegistrationId);
+            }
+        }
+        return oauth2ClientRegistrationId;
     }
 
     /**
@@ -123,6 +169,21 @@ public class AuthenticateInterceptor extends EmbeddedValueResolutionSupport impl
         this.order = order;
     }
 
+    public void setKorrelationsIdGenerator(KorrelationsIdGenerator korrelationsIdGenerator) {
+        Assert.notNull(korrelationsIdGenerator, "korrelationsIdGenerator cannot be null");
+        this.korrelationsIdGenerator = korrelationsIdGenerator;
+    }
+
+    /**
+     * Sets the manager used to authenticate methods returning a {@code Mono} or {@code Flux}.
+     *
+     * @param reactiveAuthentifizierungsmanager the reactive manager
+     */
+    public void setReactiveAuthentifizierungsmanager(ReactiveAuthentifizierungsmanager reactiveAuthentifizierungsmanager) {
+        Assert.notNull(reactiveAuthentifizierungsmanager, "reactiveAuthentifizierungsmanager cannot be null");
+        this.reactiveAuthenticateInterceptor = new ReactiveAuthenticateInterceptor(reactiveAuthentifizierungsmanager);
+    }
+
     @Override
     public Pointcut getPointcut() {
         // Authenticate is only allowed on methods and does not support inheritance
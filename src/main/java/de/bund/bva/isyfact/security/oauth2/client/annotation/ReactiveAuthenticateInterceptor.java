@@ -0,0 +1,79 @@
+package de.bund.bva.isyfact.security.oauth2.client.annotation;
+
+import java.lang.reflect.Method;
+import java.util.function.Function;
+
+import org.aopalliance.intercept.MethodInvocation;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import de.bund.bva.isyfact.security.context.KorrelationsIdThreadLocalAccessor;
+import de.bund.bva.isyfact.security.oauth2.client.ReactiveAuthentifizierungsmanager;
+import de.bund.bva.isyfact.util.logging.KorrelationsIdGenerator;
+import de.bund.bva.isyfact.util.logging.MdcHelper;
+
+/**
+ * Reactive variant of the {@link AuthenticateInterceptor} for methods annotated with {@link Authenticate} that return a
+ * {@link Mono} or {@link Flux}. It is used by the {@link AuthenticateInterceptor} once a {@link ReactiveAuthentifizierungsmanager}
+ * has been set.
+ * <p>
+ * The method is invoked without authentication, since it only assembles the pipeline. The authentication is written into the
+ * Reactor context of the returned publisher, so that it is requested on subscription without blocking and is available
+ * via the {@link org.springframework.security.core.context.ReactiveSecurityContextHolder} in the pipeline. If the context
+ * does not contain a correlation ID, the one of the calling thread or a new one is added under
+ * {@link KorrelationsIdThreadLocalAccessor#KEY}.
+ */
+class ReactiveAuthenticateInterceptor {
+
+    /** The manager used for authenticating the OAuth 2.0 client. */
+    private final ReactiveAuthentifizierungsmanager reactiveAuthentifizierungsmanager;
+
+    ReactiveAuthenticateInterceptor(ReactiveAuthentifizierungsmanager reactiveAuthentifizierungsmanager) {
+        this.reactiveAuthentifizierungsmanager = reactiveAuthentifizierungsmanager;
+    }
+
+    /**
+     * Checks whether the method returns a publisher that is handled by this interceptor.
+     *
+     * @param method the invoked method
+     * @return {@code true} if the method returns a {@link Mono} or {@link Flux}
+     */
+    boolean supports(Method method) {
+        Class<?> returnType = method.getReturnType();
+        return Mono.class.isAssignableFrom(returnType) || Flux.class.isAssignableFrom(returnType);
+    }
+
+    /**
+     * Invokes the method and adds the authentication of the OAuth 2.0 client to the context of the returned publisher.
+     *
+     * @param invocation                 the method invocation
+     * @param oauth2ClientRegistrationId registration ID of the OAuth 2.0 client to authenticate
+     * @param korrelationsIdGenerator    creates the correlation ID if none exists
+     * @return the publisher returned by the method
+     */
+    Object invoke(MethodInvocation invocation, String oauth2ClientRegistrationId, KorrelationsIdGenerator korrelationsIdGenerator)
+            throws Throwable {
+        Object result = invocation.proceed();
+        if (result == null) {
+            return null;
+        }
+
+        String korrelationsId = MdcHelper.liesKorrelationsId();
+        Function<Context, Context> contextWriter = context -> {
+            Context authenticatedContext = context.putAll(ReactiveAuthentifizierungsmanager.withAuthentifizierung(
+                    reactiveAuthentifizierungsmanager.authentifiziere(oauth2ClientRegistrationId)).readOnly());
+            if (authenticatedContext.hasKey(KorrelationsIdThreadLocalAccessor.KEY)) {
+                return authenticatedContext;
+            }
+            return authenticatedContext.put(KorrelationsIdThreadLocalAccessor.KEY,
+                    korrelationsId != null && !korrelationsId.isEmpty() ? korrelationsId : korrelationsIdGenerator.erzeugeKorrelationsId());
+        };
+
+        if (result instanceof Mono) {
+            return ((Mono<?>) result).contextWrite(contextWriter);
+        }
+        return ((Flux<?>) result).contextWrite(contextWriter);
+    }
+
+}
@@ -0,0 +1,128 @@
+package de.bund.bva.isyfact.security.oauth2.client.authentication;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Objects;
+
+import org.springframework.lang.Nullable;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+
+/**
+ * Cache key for {@link OAuth2AuthorizedClient}s of programmatically created Client Registrations.
+ * <p>
+ * Secrets (client secret and resource owner password) are part of the key, so that a cached client is never returned for
+ * different credentials. They are only stored as a SHA-256 digest and never in clear text.
+ */
+final class AuthorizedClientKey {
+
+    /** Issuer (or token endpoint, if there is no issuer) of the Client Registration. */
+    private final String issuer;
+
+    /** Client ID of the Client Registration. */
+    private final String clientId;
+
+    /** Username of the resource owner (optional). */
+    @Nullable
+    private final String username;
+
+    /** The BHKNZ sent as part of the authentication request (optional). */
+    @Nullable
+    private final String bhknz;
+
+    /** Digest of the client secret and the resource owner password. */
+    private final String credentialsDigest;
+
+    private AuthorizedClientKey(String issuer, String clientId, @Nullable String username, @Nullable String bhknz,
+                                String credentialsDigest) {
+        this.issuer = issuer;
+        this.clientId = clientId;
+        this.username = username;
+        this.bhknz = bhknz;
+        this.credentialsDigest = credentialsDigest;
+    }
+
+    /**
+     * Creates the key for a client that authenticates with its own credentials (Client Credentials flow).
+     *
+     * @param clientRegistration the Client Registration
+     * @param bhknz              the BHKNZ sent as part of the authentication request (optional)
+     * @return the cache key
+     */
+    static AuthorizedClientKey of(ClientRegistration clientRegistration, @Nullable String bhknz) {
+        return of(clientRegistration, null, null, bhknz);
+    }
+
+    /**
+     * Creates the key for a client that authenticates on behalf of a resource owner (Resource Owner Password Credentials flow).
+     *
+     * @param clientRegistration the Client Registration
+     * @param username           the username of the resource owner
+     * @param password           the password of the resource owner
+     * @param bhknz              the BHKNZ sent as part of the authentication request (optional)
+     * @return the cache key
+     */
+    static AuthorizedClientKey of(ClientRegistration clientRegistration, @Nullable String username, @Nullable String password,
+                                  @Nullable String bhknz) {
+        ClientRegistration.ProviderDetails providerDetails = clientRegistration.getProviderDetails();
+        String issuer = providerDetails.getIssuerUri() != null ? providerDetails.getIssuerUri() : providerDetails.getTokenUri();
+
+        return new AuthorizedClientKey(issuer, clientRegistration.getClientId(), username, bhknz,
+                digest(clientRegistration.getClientSecret(), password));
+    }
+
+    /**
+     * Creates a SHA-256 digest of the given values, so that secrets like tokens can be used in cache keys without keeping
+     * them in clear text.
+     *
+     * @param values the values, may contain {@code null}
+     * @return the Base64 encoded digest
+     */
+    static String digest(@Nullable String... values) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            for (String value : values) {
+                update(messageDigest, value);
+            }
+            return Base64.getEncoder().encodeToString(messageDigest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void update(MessageDigest messageDigest, @Nullable String value) {
+        if (value == null) {
+            messageDigest.update((byte) 0);
+        } else {
+            // 0xFF terminates the value because it can't be part of a UTF-8 encoded string
+            messageDigest.update((byte) 1);
+            messageDigest.update(value.getBytes(StandardCharsets.UTF_8));
+            messageDigest.update((byte) 0xFF);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        AuthorizedClientKey that = (AuthorizedClientKey) o;
+        return issuer.equals(that.issuer)
+                && clientId.equals(that.clientId)
+                && Objects.equals(username, that.username)
+                && Objects.equals(bhknz, that.bhknz)
+                && credentialsDigest.equals(that.credentialsDigest);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(issuer, clientId, username, bhknz, credentialsDigest);
+    }
+
+}
@@ -0,0 +1,338 @@
+package de.bund.bva.isyfact.security.oauth2.client.authentication;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.lang.Nullable;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.client.OAuth2AuthorizationContext;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientProvider;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.util.Assert;
+
+import de.bund.bva.isyfact.security.config.IsyOAuth2ClientConfigurationProperties;
+import de.bund.bva.isyfact.security.config.IsyOAuth2ClientConfigurationProperties.AdditionalRegistrationProperties;
+import de.bund.bva.isyfact.security.config.IsyOAuth2ClientConfigurationProperties.TokenRefreshProperties;
+import de.bund.bva.isyfact.security.oauth2.client.authentication.token.ClientCredentialsRegistrationIdAuthenticationToken;
+import de.bund.bva.isyfact.security.oauth2.client.authentication.token.PasswordClientRegistrationAuthenticationToken;
+
+/**
+ * Requests the tokens of configured client registrations at startup and renews them in the background before they expire,
+ * so that callers of {@link de.bund.bva.isyfact.security.oauth2.client.Authentifizierungsmanager#authentifiziere(String)}
+ * find a valid token in the cache.
+ * <p>
+ * Tokens of the Client Credentials flow are stored in the {@link OAuth2AuthorizedClientService} used by the
+ * {@link ClientCredentialsAuthorizedClientAuthenticationProvider}. Tokens of the Resource Owner Password Credentials flow are
+ * renewed in the cache of the {@link PasswordClientRegistrationAuthenticationProvider}, so they are only renewed if the
+ * password grant cache is enabled.
+ * <p>
+ * A token is renewed the configured lead time before it expires, but not before half of its lifetime has passed, and brought
+ * forward by a random jitter. Failed renewals are retried with exponential backoff. The renewals run on a small dedicated
+ * executor with daemon threads.
+ */
+public class AuthorizedClientRefresher implements SmartLifecycle {
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(AuthorizedClientRefresher.class);
+
+    /** Prefix of the names of the threads that renew tokens. */
+    private static final String THREAD_NAME_PREFIX = "isy-security-token-refresh-";
+
+    /** Minimum delay between two renewals of the same token. */
+    private static final Duration MIN_REFRESH_DELAY = Duration.ofSeconds(1);
+
+    /** Repository containing the configured OAuth 2.0 client registrations. */
+    private final ClientRegistrationRepository clientRegistrationRepository;
+
+    /** Service that stores the authorized clients of the Client Credentials flow. */
+    private final OAuth2AuthorizedClientService authorizedClientService;
+
+    /** Provider that requests tokens with the Client Credentials flow. */
+    private final OAuth2AuthorizedClientProvider clientCredentialsClientProvider;
+
+    /** Provider that caches tokens of the Resource Owner Password Credentials flow. */
+    private final PasswordClientRegistrationAuthenticationProvider passwordAuthenticationProvider;
+
+    /** Global isy-security Configuration properties. */
+    private final IsyOAuth2ClientConfigurationProperties isyOAuth2ClientProps;
+
+    /** Time before the expiry of an access token at which it is renewed. */
+    private final Duration leadTime;
+
+    /** Maximum random time by which a renewal is brought forward or a retry is delayed. */
+    private final Duration jitter;
+
+    /** Delay before the first retry of a failed renewal. */
+    private final Duration initialBackoff;
+
+    /** Maximum delay between retries of a failed renewal. */
+    private final Duration maxBackoff;
+
+    /** Number of threads that renew tokens. */
+    private final int poolSize;
+
+    /** Executor that renews the tokens. */
+    @Nullable
+    private ScheduledExecutorService refreshExecutor;
+
+    public AuthorizedClientRefresher(ClientRegistrationRepository clientRegistrationRepository,
+                                     OAuth2AuthorizedClientService authorizedClientService,
+                                     OAuth2AuthorizedClientProvider clientCredentialsClientProvider,
+                                     PasswordClientRegistrationAuthenticationProvider passwordAuthenticationProvider,
+                                     IsyOAuth2ClientConfigurationProperties isyOAuth2ClientProps) {
+        TokenRefreshProperties tokenRefresh = isyOAuth2ClientProps.getTokenRefresh();
+        Assert.notNull(tokenRefresh.getLeadTime(), "leadTime cannot be null");
+        Assert.isTrue(!tokenRefresh.getLeadTime().isNegative(), "leadTime must be >= 0");
+        Assert.isTrue(tokenRefresh.getJitter() != null && !tokenRefresh.getJitter().isNegative(), "jitter must be >= 0");
+        Assert.isTrue(tokenRefresh.getInitialBackoff() != null && !tokenRefresh.getInitialBackoff().isNegative()
+                && !tokenRefresh.getInitialBackoff().isZero(), "initialBackoff must be positive");
+        Assert.isTrue(tokenRefresh.getMaxBackoff() != null && tokenRefresh.getMaxBackoff().compareTo(tokenRefresh.getInitialBackoff()) >= 0,
+                "maxBackoff must be >= initialBackoff");
+        Assert.isTrue(tokenRefresh.getPoolSize() > 0, "poolSize must be > 0");
+        this.clientRegistrationRepository = clientRegistrationRepository;
+        this.authorizedClientService = authorizedClientService;
+        this.clientCredentialsClientProvider = clientCredentialsClientProvider;
+        this.passwordAuthenticationProvider = passwordAuthenticationProvider;
+        this.isyOAuth2ClientProps = isyOAuth2ClientProps;
+        this.leadTime = tokenRefresh.getLeadTime();
+        this.jitter = tokenRefresh.getJitter();
+        this.initialBackoff = tokenRefresh.getInitialBackoff();
+        this.maxBackoff = tokenRefresh.getMaxBackoff();
+        this.poolSize = tokenRefresh.getPoolSize();
+    }
+
+    @Override
+    public synchronized void start() {
+        if (isRunning()) {
+            return;
+        }
+
+        List<RefreshTask> refreshTasks = new ArrayList<>();
+        for (String registrationId : getRegistrationIds()) {
+            RefreshTask refreshTask = createRefreshTask(registrationId);
+            if (refreshTask != null) {
+                refreshTasks.add(refreshTask);
+            }
+        }
+        if (refreshTasks.isEmpty()) {
+            LOG.info("Es wurden keine Client Registrations gefunden, deren Tokens im Hintergrund erneuert werden können.");
+            return;
+        }
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        refreshExecutor = executor;
+
+        // the first tokens are requested right away, spread by the jitter
+        refreshTasks.forEach(refreshTask -> schedule(refreshTask, randomJitter()));
+        LOG.info("Die Tokens der Client Registrations {} werden im Hintergrund erneuert.",
+                refreshTasks.stream().map(refreshTask -> refreshTask.registrationId).collect(Collectors.toList()));
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+            refreshExecutor = null;
+        }
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return refreshExecutor != null;
+    }
+
+    /**
+     * Calculates the delay until the given access token is renewed.
+     *
+     * @param accessToken the current access token
+     * @param now         the current time
+     * @return the delay or {@code null} if the token does not expire
+     */
+    @Nullable
+    Duration getRefreshDelay(OAuth2AccessToken accessToken, Instant now) {
+        Instant expiresAt = accessToken.getExpiresAt();
+        if (expiresAt == null) {
+            return null;
+        }
+
+        Instant issuedAt = accessToken.getIssuedAt() != null ? accessToken.getIssuedAt() : now;
+        Instant refreshAt = expiresAt.minus(leadTime);
+        // tokens with a short lifetime compared to the lead time are not renewed before half of their lifetime has passed
+        Instant halfLifetime = issuedAt.plus(Duration.between(issuedAt, expiresAt).dividedBy(2));
+        if (refreshAt.isBefore(halfLifetime)) {
+            refreshAt = halfLifetime;
+        }
+
+        Duration delay = Duration.between(now, refreshAt).minus(randomJitter());
+        return delay.compareTo(MIN_REFRESH_DELAY) < 0 ? MIN_REFRESH_DELAY : delay;
+    }
+
+    /**
+     * Calculates the delay until a failed renewal is retried.
+     *
+     * @param failures the number of consecutive failed renewals, at least {@code 1}
+     * @return the delay, doubled with every failure up to the maximum backoff
+     */
+    Duration getBackoffDelay(int failures) {
+        Duration backoff = initialBackoff;
+        for (int i = 1; i < failures && backoff.compareTo(maxBackoff) < 0; i++) {
+            backoff = backoff.multipliedBy(2);
+        }
+        if (backoff.compareTo(maxBackoff) > 0) {
+            backoff = maxBackoff;
+        }
+        return backoff.plus(randomJitter());
+    }
+
+    private List<String> getRegistrationIds() {
+        List<String> registrationIds = isyOAuth2ClientProps.getTokenRefresh().getRegistrationIds();
+        if (!registrationIds.isEmpty()) {
+            return registrationIds;
+        }
+
+        List<String> allRegistrationIds = new ArrayList<>();
+        if (clientRegistrationRepository instanceof Iterable) {
+            for (Object clientRegistration : (Iterable<?>) clientRegistrationRepository) {
+                allRegistrationIds.add(((ClientRegistration) clientRegistration).getRegistrationId());
+            }
+        }
+        return allRegistrationIds;
+    }
+
+    /**
+     * Creates the task that renews the token of the client registration.
+     *
+     * @return the task or {@code null} if the token of the client registration can't be renewed
+     */
+    @Nullable
+    private RefreshTask createRefreshTask(String registrationId) {
+        ClientRegistration clientRegistration = clientRegistrationRepository.findByRegistrationId(registrationId);
+        if (clientRegistration == null) {
+            LOG.warn("Die Client Registration {} existiert nicht, ihr Token wird nicht im Hintergrund erneuert.", registrationId);
+            return null;
+        }
+
+        // load additional props for this registration ID, can be null
+        AdditionalRegistrationProperties props = isyOAuth2ClientProps.getRegistration().get(registrationId);
+        String bhknz = props != null ? props.getBhknz() : null;
+
+        AuthorizationGrantType grantType = clientRegistration.getAuthorizationGrantType();
+        if (AuthorizationGrantType.CLIENT_CREDENTIALS.equals(grantType)) {
+            // same principal as used by the authorized client manager, so that the renewed client replaces the stored one
+            Authentication principal = new ClientCredentialsRegistrationIdAuthenticationToken(registrationId, bhknz);
+            return new RefreshTask(registrationId, () -> renewClientCredentialsAuthorizedClient(clientRegistration, principal));
+        } else if (AuthorizationGrantType.PASSWORD.equals(grantType)) {
+            if (props == null || props.getUsername() == null || props.getPassword() == null) {
+                LOG.warn("Für die Client Registration {} sind keine Zugangsdaten konfiguriert, ihr Token wird nicht im Hintergrund erneuert.",
+                        registrationId);
+                return null;
+            }
+            PasswordClientRegistrationAuthenticationToken token =
+                    new PasswordClientRegistrationAuthenticationToken(clientRegistration, props.getUsername(), props.getPassword(), bhknz);
+            return new RefreshTask(registrationId, () -> passwordAuthenticationProvider.renewAuthorizedClient(token));
+        } else {
+            LOG.warn("Der Grant Type {} der Client Registration {} wird nicht unterstützt, ihr Token wird nicht im Hintergrund erneuert.",
+                    grantType.getValue(), registrationId);
+            return null;
+        }
+    }
+
+    private OAuth2AuthorizedClient renewClientCredentialsAuthorizedClient(ClientRegistration clientRegistration, Authentication principal) {
+        // without an authorized client in the context, the provider always requests a new token
+        OAuth2AuthorizationContext authorizationContext = OAuth2AuthorizationContext.withClientRegistration(clientRegistration)
+                .principal(principal)
+                .build();
+
+        OAuth2AuthorizedClient authorizedClient = clientCredentialsClientProvider.authorize(authorizationContext);
+        Assert.state(authorizedClient != null, "clientRegistration.authorizationGrantType must be AuthorizationGrantType.CLIENT_CREDENTIALS");
+        authorizedClientService.saveAuthorizedClient(authorizedClient, principal);
+        return authorizedClient;
+    }
+
+    private synchronized void schedule(RefreshTask refreshTask, Duration delay) {
+        if (refreshExecutor == null) {
+            return;
+        }
+        try {
+            refreshExecutor.schedule(refreshTask, delay.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // the refresher has been stopped
+        }
+    }
+
+    private Duration randomJitter() {
+        return jitter.isZero() ? Duration.ZERO : Duration.ofMillis(ThreadLocalRandom.current().nextLong(jitter.toMillis() + 1));
+    }
+
+    /**
+     * Renews the token of a single client registration and schedules its next renewal.
+     */
+    private final class RefreshTask implements Runnable {
+
+        /** Registration ID of the client registration. */
+        private final String registrationId;
+
+        /** Renews the token, returns {@code null} if the token is not cached. */
+        private final Supplier<OAuth2AuthorizedClient> renewal;
+
+        /** Number of consecutive failed renewals. */
+        private int failures;
+
+        private RefreshTask(String registrationId, Supplier<OAuth2AuthorizedClient> renewal) {
+            this.registrationId = registrationId;
+            this.renewal = renewal;
+        }
+
+        @Override
+        public void run() {
+            Duration delay;
+            try {
+                OAuth2AuthorizedClient authorizedClient = renewal.get();
+                failures = 0;
+                if (authorizedClient == null) {
+                    LOG.info("Das Token der Client Registration {} wird nicht zwischengespeichert und daher nicht im Hintergrund erneuert.",
+                            registrationId);
+                    return;
+                }
+                delay = getRefreshDelay(authorizedClient.getAccessToken(), Instant.now());
+                if (delay == null) {
+                    LOG.info("Das Token der Client Registration {} läuft nicht ab und wird daher nicht erneut abgerufen.", registrationId);
+                    return;
+                }
+                LOG.debug("Das Token der Client Registration {} wurde erneuert, die nächste Erneuerung erfolgt in {}.", registrationId, delay);
+            } catch (RuntimeException e) {
+                failures++;
+                delay = getBackoffDelay(failures);
+                LOG.warn("Das Token der Client Registration {} konnte nicht erneuert werden, nächster Versuch in {}.", registrationId, delay, e);
+            }
+            schedule(this, delay);
+        }
+    }
+
+}
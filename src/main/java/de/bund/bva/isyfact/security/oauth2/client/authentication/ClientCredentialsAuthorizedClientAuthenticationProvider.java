@@ -1,5 +1,9 @@
 package de.bund.bva.isyfact.security.oauth2.client.authentication;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
 import org.springframework.lang.Nullable;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
@@ -7,27 +11,61 @@ import org.springframework.security.oauth2.client.ClientAuthorizationException;
 import org.springframework.security.oauth2.client.OAuth2AuthorizeRequest;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
 import org.springframework.security.oauth2.core.OAuth2Error;
 import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.util.Assert;
 
+import de.bund.bva.isyfact.security.jfr.TokenAcquisitionEvent;
 import de.bund.bva.isyfact.security.oauth2.client.authentication.token.ClientCredentialsRegistrationIdAuthenticationToken;
 
 /**
  * Authentication Provider to obtain an {@link Authentication} with the OAuth2 Client Credentials flow
  * using a Client Registration ID configured in the application properties.
  * <p>
- * Authentications are cached using the {@link OAuth2AuthorizedClientManager}.
+ * Authentications are cached using the {@link OAuth2AuthorizedClientManager}. If the {@link OAuth2AuthorizedClientService} of the
+ * manager is set (see {@link #setAuthorizedClientService(OAuth2AuthorizedClientService)}), a valid authorized client is taken
+ * directly from it. Otherwise, concurrent requests for the same registration ID are coalesced, so that only one token request
+ * is sent to the token endpoint (see {@link #setRequestCoalescingTimeout(Duration)}).
  */
 public class ClientCredentialsAuthorizedClientAuthenticationProvider extends IsyOAuth2AuthenticationProvider {
 
     /** Manager for authorized clients. */
     private final OAuth2AuthorizedClientManager authorizedClientManager;
 
+    /** Service the manager stores the authorized clients in, {@code null} if unknown. */
+    @Nullable
+    private OAuth2AuthorizedClientService authorizedClientService;
+
+    /** Time before the expiry of an access token at which the stored authorized client is no longer used. */
+    private final Duration clockSkew;
+
+    /** Token requests in flight, by registration ID. */
+    private InFlightTokenRequests<String> inFlightTokenRequests = new InFlightTokenRequests<>(InFlightTokenRequests.DEFAULT_TIMEOUT);
+
     public ClientCredentialsAuthorizedClientAuthenticationProvider(OAuth2AuthorizedClientManager authorizedClientManager,
                                                                    JwtAuthenticationConverter jwtAuthenticationConverter) {
-        super(jwtAuthenticationConverter);
+        this(authorizedClientManager, jwtAuthenticationConverter,
+                ClientCredentialsClientRegistrationAuthenticationProvider.DEFAULT_CLOCK_SKEW, Clock.systemUTC());
+    }
+
+    /**
+     * @param authorizedClientManager    manager for authorized clients
+     * @param jwtAuthenticationConverter converter to create a JwtAuthenticationToken from a JWT
+     * @param clockSkew                  time before the expiry of an access token at which the stored authorized client is
+     *                                   no longer used, should match the clock skew of the manager's provider
+     * @param clock                      clock used to determine whether access tokens have expired
+     */
+    public ClientCredentialsAuthorizedClientAuthenticationProvider(OAuth2AuthorizedClientManager authorizedClientManager,
+                                                                   JwtAuthenticationConverter jwtAuthenticationConverter,
+                                                                   Duration clockSkew, Clock clock) {
+        super(jwtAuthenticationConverter, DEFAULT_AUTHENTICATION_CACHE_MAX_SIZE, clock);
+        Assert.notNull(clockSkew, "clockSkew cannot be null");
+        Assert.isTrue(!clockSkew.isNegative(), "clockSkew must be >= 0");
         this.authorizedClientManager = authorizedClientManager;
+        this.clockSkew = clockSkew;
     }
 
     @Override
@@ -44,7 +82,13 @@ public class ClientCredentialsAuthorizedClientAuthenticationProvider extends Isy
                 .principal(token)
                 .build();
 
-        OAuth2AuthorizedClient authorizedClient = authorizedClientManager.authorize(authorizeRequest);
+        // the manager keys authorized clients by registration ID and the constant principal of the token
+        OAuth2AuthorizedClient authorizedClient = loadValidAuthorizedClient(registrationId, token.getName());
+        if (authorizedClient == null) {
+            authorizedClient = inFlightTokenRequests.execute(registrationId, () -> authorizedClientManager.authorize(authorizeRequest));
+        } else {
+            TokenAcquisitionEvent.cacheHit();
+        }
         if (authorizedClient == null) {
             throw new ClientAuthorizationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_GRANT), registrationId,
                     "clientRegistration.authorizationGrantType must be AuthorizationGrantType.CLIENT_CREDENTIALS");
@@ -53,6 +97,53 @@ public class ClientCredentialsAuthorizedClientAuthenticationProvider extends Isy
         return createJwtAuthentication(authorizedClient);
     }
 
+    /**
+     * Returns the authorized client of the Client Credentials flow stored for the registration ID and principal, if its
+     * access token is still valid. Like the {@link OAuth2AuthorizedClientManager}, tokens expiring within the clock skew
+     * are considered expired.
+     */
+    @Nullable
+    private OAuth2AuthorizedClient loadValidAuthorizedClient(String registrationId, String principalName) {
+        if (authorizedClientService == null) {
+            return null;
+        }
+        OAuth2AuthorizedClient authorizedClient = authorizedClientService.loadAuthorizedClient(registrationId, principalName);
+        if (authorizedClient == null
+                || !AuthorizationGrantType.CLIENT_CREDENTIALS.equals(authorizedClient.getClientRegistration().getAuthorizationGrantType())) {
+            return null;
+        }
+        Instant expiresAt = authorizedClient.getAccessToken().getExpiresAt();
+        if (expiresAt == null || !getClock().instant().isBefore(expiresAt.minus(clockSkew))) {
+            return null;
+        }
+        return authorizedClient;
+    }
+
+    /**
+     * Sets the service the {@link OAuth2AuthorizedClientManager} stores the authorized clients in. Valid authorized clients
+     * are then taken from it without calling the manager.
+     *
+     * @param authorizedClientService the service of the manager
+     */
+    public void setAuthorizedClientService(OAuth2AuthorizedClientService authorizedClientService) {
+        Assert.notNull(authorizedClientService, "authorizedClientService cannot be null");
+        this.authorizedClientService = authorizedClientService;
+    }
+
+    /**
+     * Sets the time that concurrent requests for the same registration ID wait for the token request of another thread.
+     *
+     * @param requestCoalescingTimeout the timeout, {@code 0} disables the coalescing of token requests
+     */
+    public void setRequestCoalescingTimeout(Duration requestCoalescingTimeout) {
+        this.inFlightTokenRequests = new InFlightTokenRequests<>(requestCoalescingTimeout);
+    }
+
+    @Override
+    protected String getMetricsName() {
+        return "client-credentials-registration-id";
+    }
+
     @Override
     public boolean supports(Class<?> authentication) {
         return ClientCredentialsRegistrationIdAuthenticationToken.class.isAssignableFrom(authentication);
@@ -1,5 +1,9 @@
 package de.bund.bva.isyfact.security.oauth2.client.authentication;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
 import org.springframework.lang.Nullable;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
@@ -8,30 +12,87 @@ import org.springframework.security.oauth2.client.OAuth2AuthorizationContext;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClientProvider;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClientProviderBuilder;
+import org.springframework.security.oauth2.client.endpoint.DefaultClientCredentialsTokenResponseClient;
+import org.springframework.security.oauth2.client.endpoint.OAuth2ClientCredentialsGrantRequest;
 import org.springframework.security.oauth2.client.registration.ClientRegistration;
 import org.springframework.security.oauth2.core.OAuth2Error;
 import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.util.Assert;
+import org.springframework.web.client.RestOperations;
 
+import de.bund.bva.isyfact.security.cache.ExpiringCache;
+import de.bund.bva.isyfact.security.jfr.TokenAcquisitionEvent;
+import de.bund.bva.isyfact.security.metrics.InstrumentedAccessTokenResponseClient;
+import de.bund.bva.isyfact.security.metrics.IsySecurityMetrics;
 import de.bund.bva.isyfact.security.oauth2.client.authentication.token.ClientCredentialsClientRegistrationAuthenticationToken;
 
 /**
  * Authentication Provider to obtain an {@link Authentication} with the OAuth2 Client Credentials flow
  * using an externally created Client Registration object.
+ * <p>
+ * Authorized clients are cached per issuer, client ID, client secret and BHKNZ until their access token is about to expire
+ * (i.e. expires within the configured clock skew). Concurrent requests for the same key are coalesced, so that only one
+ * token request is sent to the token endpoint (see {@link #setRequestCoalescingTimeout(Duration)}).
  */
 public class ClientCredentialsClientRegistrationAuthenticationProvider extends IsyOAuth2AuthenticationProvider {
 
+    /** Default clock skew used when checking the expiry of cached access tokens. */
+    public static final Duration DEFAULT_CLOCK_SKEW = Duration.ofSeconds(60);
+
     /**
      * AuthorizedClientProvider for the client credentials.
      * Unlike in {@link ClientCredentialsAuthorizedClientAuthenticationProvider} we can't use the AuthorizedClientManager because
      * the client registrations are created programmatically from given runtime-parameters.
      */
-    private final OAuth2AuthorizedClientProvider clientProvider = OAuth2AuthorizedClientProviderBuilder.builder()
-            .clientCredentials()
-            .build();
+    private OAuth2AuthorizedClientProvider clientProvider = createClientProvider(null);
+
+    /** Cache for authorized clients whose access token is still valid. */
+    private final ExpiringCache<AuthorizedClientKey, OAuth2AuthorizedClient> authorizedClientCache;
+
+    /** Time before the expiry of an access token at which it is no longer taken from the cache. */
+    private final Duration clockSkew;
 
+    /** Token requests in flight, by cache key. */
+    private InFlightTokenRequests<AuthorizedClientKey> inFlightTokenRequests =
+            new InFlightTokenRequests<>(InFlightTokenRequests.DEFAULT_TIMEOUT);
+
+    /**
+     * Creates a provider that does not cache authorized clients.
+     *
+     * @param jwtAuthenticationConverter converter to create a JwtAuthenticationToken from a JWT
+     */
     public ClientCredentialsClientRegistrationAuthenticationProvider(JwtAuthenticationConverter jwtAuthenticationConverter) {
-        super(jwtAuthenticationConverter);
+        this(jwtAuthenticationConverter, 0, DEFAULT_CLOCK_SKEW);
+    }
+
+    /**
+     * Creates a provider that caches authorized clients.
+     *
+     * @param jwtAuthenticationConverter converter to create a JwtAuthenticationToken from a JWT
+     * @param cacheMaxSize               maximum number of cached authorized clients, {@code 0} disables the cache
+     * @param clockSkew                  time before the expiry of an access token at which it is no longer taken from the cache
+     */
+    public ClientCredentialsClientRegistrationAuthenticationProvider(JwtAuthenticationConverter jwtAuthenticationConverter,
+                                                                     int cacheMaxSize, Duration clockSkew) {
+        this(jwtAuthenticationConverter, cacheMaxSize, clockSkew, Clock.systemUTC());
+    }
+
+    /**
+     * Creates a provider that caches authorized clients.
+     *
+     * @param jwtAuthenticationConverter converter to create a JwtAuthenticationToken from a JWT
+     * @param cacheMaxSize               maximum number of cached authorized clients, {@code 0} disables the cache
+     * @param clockSkew                  time before the expiry of an access token at which it is no longer taken from the cache
+     * @param clock                      clock used to determine whether cached access tokens have expired
+     */
+    public ClientCredentialsClientRegistrationAuthenticationProvider(JwtAuthenticationConverter jwtAuthenticationConverter,
+                                                                     int cacheMaxSize, Duration clockSkew, Clock clock) {
+        super(jwtAuthenticationConverter, cacheMaxSize, clock);
+        Assert.notNull(clockSkew, "clockSkew cannot be null");
+        Assert.isTrue(!clockSkew.isNegative(), "clockSkew must be >= 0");
+        this.authorizedClientCache = new ExpiringCache<>(cacheMaxSize, clock);
+        this.clockSkew = clockSkew;
     }
 
     @Override
@@ -44,26 +105,102 @@ public class ClientCredentialsClientRegistrationAuthenticationProvider extends I
         ClientCredentialsClientRegistrationAuthenticationToken token = (ClientCredentialsClientRegistrationAuthenticationToken) authentication;
 
         ClientRegistration clientRegistration = token.getClientRegistration();
+        AuthorizedClientKey cacheKey = AuthorizedClientKey.of(clientRegistration, token.getBhknz());
+
+        OAuth2AuthorizedClient authorizedClient = authorizedClientCache.get(cacheKey);
+        if (authorizedClient == null) {
+            authorizedClient = inFlightTokenRequests.execute(cacheKey, () -> {
+                // another thread may have obtained the token in the meantime
+                OAuth2AuthorizedClient cachedClient = authorizedClientCache.get(cacheKey);
+                if (cachedClient != null) {
+                    return cachedClient;
+                }
+                OAuth2AuthorizedClient obtainedClient = obtainAuthorizedClient(clientRegistration, authentication);
+                cacheAuthorizedClient(cacheKey, obtainedClient);
+                return obtainedClient;
+            });
+        } else {
+            TokenAcquisitionEvent.cacheHit();
+        }
+
+        return createJwtAuthentication(authorizedClient);
+    }
+
+    /**
+     * Sets the {@link RestOperations} used for requests to the token endpoint.
+     *
+     * @param restOperations the RestOperations, configured to handle OAuth 2.0 token responses
+     */
+    public void setRestOperations(RestOperations restOperations) {
+        Assert.notNull(restOperations, "restOperations cannot be null");
+        this.clientProvider = createClientProvider(restOperations);
+    }
 
+    /**
+     * Sets the time that concurrent requests for the same client wait for the token request of another thread.
+     *
+     * @param requestCoalescingTimeout the timeout, {@code 0} disables the coalescing of token requests
+     */
+    public void setRequestCoalescingTimeout(Duration requestCoalescingTimeout) {
+        this.inFlightTokenRequests = new InFlightTokenRequests<>(requestCoalescingTimeout);
+    }
+
+    @Override
+    public void setMetrics(IsySecurityMetrics metrics) {
+        super.setMetrics(metrics);
+        metrics.registerCache(getMetricsName() + ".authorized-clients", authorizedClientCache);
+    }
+
+    @Override
+    protected String getMetricsName() {
+        return "client-credentials";
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return ClientCredentialsClientRegistrationAuthenticationToken.class.isAssignableFrom(authentication);
+    }
+
+    private OAuth2AuthorizedClient obtainAuthorizedClient(ClientRegistration clientRegistration, Authentication principal) {
         OAuth2AuthorizationContext authorizationContext = OAuth2AuthorizationContext.withClientRegistration(clientRegistration)
-                .principal(authentication)
+                .principal(principal)
                 .build();
 
         OAuth2AuthorizedClient authorizedClient = clientProvider.authorize(authorizationContext);
         /* The authorized client could theoretically be null if a valid token already exists,
-           but since the OAuth2AuthorizationContext does not use authorized clients and the
+           but since cached clients are never passed to the OAuth2AuthorizationContext and the
            OAuth2AuthorizationContext is only configured for a single grant type this can currently not be the case. */
         if (authorizedClient == null) {
             throw new ClientAuthorizationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_GRANT),
                     "clientRegistration.authorizationGrantType must be AuthorizationGrantType.CLIENT_CREDENTIALS");
         }
+        return authorizedClient;
+    }
 
-        return createJwtAuthentication(authorizedClient);
+    /**
+     * Creates the provider for the client credentials, whose token requests are reported to the metrics.
+     *
+     * @param restOperations the RestOperations used for requests to the token endpoint, {@code null} for the default
+     */
+    private OAuth2AuthorizedClientProvider createClientProvider(@Nullable RestOperations restOperations) {
+        DefaultClientCredentialsTokenResponseClient accessTokenResponseClient = new DefaultClientCredentialsTokenResponseClient();
+        if (restOperations != null) {
+            accessTokenResponseClient.setRestOperations(restOperations);
+        }
+        InstrumentedAccessTokenResponseClient<OAuth2ClientCredentialsGrantRequest> instrumentedResponseClient =
+                new InstrumentedAccessTokenResponseClient<>(accessTokenResponseClient, this::getMetrics, this::getObservationRegistry);
+        return OAuth2AuthorizedClientProviderBuilder.builder()
+                .clientCredentials(clientCredentialsGrantBuilder -> clientCredentialsGrantBuilder
+                        .accessTokenResponseClient(instrumentedResponseClient))
+                .build();
     }
 
-    @Override
-    public boolean supports(Class<?> authentication) {
-        return ClientCredentialsClientRegistrationAuthenticationToken.class.isAssignableFrom(authentication);
+    private void cacheAuthorizedClient(AuthorizedClientKey cacheKey, OAuth2AuthorizedClient authorizedClient) {
+        Instant expiresAt = authorizedClient.getAccessToken().getExpiresAt();
+        // tokens without expiry are not cached because it can't be determined when they have to be renewed
+        if (expiresAt != null) {
+            authorizedClientCache.put(cacheKey, authorizedClient, expiresAt.minus(clockSkew));
+        }
     }
 
 }
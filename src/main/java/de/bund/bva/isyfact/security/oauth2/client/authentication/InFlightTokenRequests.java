@@ -0,0 +1,96 @@
+package de.bund.bva.isyfact.security.oauth2.client.authentication;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.util.Assert;
+
+/**
+ * Coalesces concurrent token requests for the same key (single flight).
+ * <p>
+ * The first thread that requests a token for a key performs the request. Threads that request a token for the same key
+ * while it is in flight wait for its result instead of sending their own request to the token endpoint, e.g. after a
+ * restart or when a cached token has expired. If the request fails, its exception is thrown in all waiting threads.
+ * Waiting threads give up after the configured timeout with an {@link AuthenticationServiceException}.
+ *
+ * @param <K> the type of the key
+ */
+final class InFlightTokenRequests<K> {
+
+    /** Default time that threads wait for a token request of another thread. */
+    static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
+
+    /** The token requests in flight by key. */
+    private final Map<K, CompletableFuture<OAuth2AuthorizedClient>> requests = new ConcurrentHashMap<>();
+
+    /** Time that threads wait for a token request of another thread, {@code 0} disables the coalescing. */
+    private final Duration timeout;
+
+    /**
+     * @param timeout time that threads wait for a token request of another thread, {@code 0} disables the coalescing
+     */
+    InFlightTokenRequests(Duration timeout) {
+        Assert.notNull(timeout, "timeout cannot be null");
+        Assert.isTrue(!timeout.isNegative(), "timeout must be >= 0");
+        this.timeout = timeout;
+    }
+
+    /**
+     * Performs the token request or waits for the request of another thread with the same key.
+     *
+     * @param key     the key of the request
+     * @param request the token request
+     * @return the result of the token request
+     */
+    OAuth2AuthorizedClient execute(K key, Supplier<OAuth2AuthorizedClient> request) {
+        if (timeout.isZero()) {
+            return request.get();
+        }
+
+        CompletableFuture<OAuth2AuthorizedClient> future = new CompletableFuture<>();
+        CompletableFuture<OAuth2AuthorizedClient> inFlight = requests.putIfAbsent(key, future);
+        if (inFlight != null) {
+            return await(inFlight);
+        }
+
+        try {
+            OAuth2AuthorizedClient authorizedClient = request.get();
+            future.complete(authorizedClient);
+            return authorizedClient;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            requests.remove(key, future);
+        }
+    }
+
+    private OAuth2AuthorizedClient await(CompletableFuture<OAuth2AuthorizedClient> inFlight) {
+        try {
+            return inFlight.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new AuthenticationServiceException("The token request failed.", cause);
+        } catch (TimeoutException e) {
+            throw new AuthenticationServiceException("Timed out after " + timeout + " waiting for a concurrent token request.", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AuthenticationServiceException("Interrupted while waiting for a concurrent token request.", e);
+        }
+    }
+
+}
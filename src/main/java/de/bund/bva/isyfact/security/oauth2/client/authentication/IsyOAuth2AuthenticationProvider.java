@@ -1,5 +1,10 @@
 package de.bund.bva.isyfact.security.oauth2.client.authentication;
 
+import java.time.Clock;
+import java.time.Instant;
+
+import org.springframework.context.ApplicationListener;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
@@ -9,12 +14,37 @@ import org.springframework.security.oauth2.core.OAuth2AccessToken;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtDecoderFactory;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.util.Assert;
+
+import de.bund.bva.isyfact.security.cache.ExpiringCache;
+import de.bund.bva.isyfact.security.jfr.JwtDecodeEvent;
+import de.bund.bva.isyfact.security.metrics.IsySecurityMetrics;
+import de.bund.bva.isyfact.security.observation.IsySecurityObservations;
+import de.bund.bva.isyfact.security.xmlparser.RolePrivilegesMappingReloadedEvent;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 
 /**
  * Base class for an AuthenticationProvider that creates a {@link org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken}
  * from an {@link OAuth2AuthorizedClient}.
+ * <p>
+ * The created authentications are cached per access token until the token expires, so that the signature of a token
+ * that is handed out repeatedly (e.g. by a cache for authorized clients) is only verified once. The cache is cleared
+ * when the role privileges mapping has been reloaded, because the cached authorities were derived from it.
+ * Each caller receives its own copy of a cached authentication, so that changes by one caller (e.g. of the details)
+ * do not affect the others.
+ * <p>
+ * The decoding of the JWT and the conversion to an authentication are reported to the {@link IsySecurityMetrics}
+ * (see {@link #setMetrics(IsySecurityMetrics)}). The requests to the token endpoint and the decoding of the JWT, which loads the
+ * JWK set of the issuer on first use, are observed with the {@link ObservationRegistry} (see {@link #setObservationRegistry(ObservationRegistry)}).
+ * The decoding of the JWT is also recorded as {@link JwtDecodeEvent} in JFR.
  */
-public abstract class IsyOAuth2AuthenticationProvider implements AuthenticationProvider {
+public abstract class IsyOAuth2AuthenticationProvider
+        implements AuthenticationProvider, ApplicationListener<RolePrivilegesMappingReloadedEvent> {
+
+    /** Default maximum number of cached authentications. */
+    public static final int DEFAULT_AUTHENTICATION_CACHE_MAX_SIZE = 100;
 
     /** Converter to create a JwtAuthenticationToken from a JWT. */
     protected final JwtAuthenticationConverter jwtAuthenticationConverter;
@@ -22,16 +52,152 @@ public abstract class IsyOAuth2AuthenticationProvider implements AuthenticationP
     /** Factory for decoding and validating the returned JWT. */
     private final JwtDecoderFactory<ClientRegistration> jwtDecoderFactory = new OidcIdTokenDecoderFactory();
 
+    /** Authentications created from access tokens, by digest of the token value. */
+    private final ExpiringCache<String, AbstractAuthenticationToken> authenticationCache;
+
+    /** Metrics the phases of an authentication are reported to. */
+    private volatile IsySecurityMetrics metrics = IsySecurityMetrics.NOOP;
+
+    /** Registry the requests to the IAM service are observed with. */
+    private volatile ObservationRegistry observationRegistry = ObservationRegistry.NOOP;
+
+    /** Clock used to determine whether cached authentications and tokens have expired. */
+    private final Clock clock;
+
     public IsyOAuth2AuthenticationProvider(JwtAuthenticationConverter jwtAuthenticationConverter) {
+        this(jwtAuthenticationConverter, DEFAULT_AUTHENTICATION_CACHE_MAX_SIZE);
+    }
+
+    /**
+     * @param jwtAuthenticationConverter  converter to create a JwtAuthenticationToken from a JWT
+     * @param authenticationCacheMaxSize  maximum number of cached authentications, {@code 0} disables the cache
+     */
+    public IsyOAuth2AuthenticationProvider(JwtAuthenticationConverter jwtAuthenticationConverter, int authenticationCacheMaxSize) {
+        this(jwtAuthenticationConverter, authenticationCacheMaxSize, Clock.systemUTC());
+    }
+
+    /**
+     * @param jwtAuthenticationConverter  converter to create a JwtAuthenticationToken from a JWT
+     * @param authenticationCacheMaxSize  maximum number of cached authentications, {@code 0} disables the cache
+     * @param clock                       clock used to determine whether cached authentications and tokens have expired
+     */
+    protected IsyOAuth2AuthenticationProvider(JwtAuthenticationConverter jwtAuthenticationConverter, int authenticationCacheMaxSize,
+                                              Clock clock) {
+        Assert.notNull(clock, "clock cannot be null");
         this.jwtAuthenticationConverter = jwtAuthenticationConverter;
+        this.authenticationCache = new ExpiringCache<>(authenticationCacheMaxSize, clock);
+        this.clock = clock;
     }
 
     protected Authentication createJwtAuthentication(OAuth2AuthorizedClient authorizedClient) {
         OAuth2AccessToken accessToken = authorizedClient.getAccessToken();
+        // the token is only kept as a digest, so that the cache does not hold it in clear text
+        String cacheKey = AuthorizedClientKey.digest(accessToken.getTokenValue());
+        AbstractAuthenticationToken authentication = authenticationCache.get(cacheKey);
+        if (authentication != null) {
+            return copyOf(authentication);
+        }
+
         ClientRegistration clientRegistration = authorizedClient.getClientRegistration();
-        Jwt jwt = jwtDecoderFactory.createDecoder(clientRegistration).decode(accessToken.getTokenValue());
+        String registrationId = clientRegistration.getRegistrationId();
+        String grantType = clientRegistration.getAuthorizationGrantType().getValue();
+        JwtDecodeEvent event = JwtDecodeEvent.start(registrationId, grantType);
+        long start = System.nanoTime();
+        Jwt jwt;
+        RuntimeException error = null;
+        try {
+            jwt = IsySecurityObservations.jwtDecode(observationRegistry, registrationId, grantType)
+                    .observe(() -> jwtDecoderFactory.createDecoder(clientRegistration).decode(accessToken.getTokenValue()));
+        } catch (RuntimeException e) {
+            error = e;
+            throw e;
+        } finally {
+            event.finish(error);
+        }
+        long decoded = System.nanoTime();
+        metrics.recordJwtDecode(registrationId, grantType, decoded - start);
+        authentication = jwtAuthenticationConverter.convert(jwt);
+        metrics.recordAuthorityConversion(registrationId, grantType, System.nanoTime() - decoded);
+
+        Instant expiresAt = jwt.getExpiresAt();
+        if (authentication instanceof JwtAuthenticationToken && expiresAt != null) {
+            authenticationCache.put(cacheKey, authentication, expiresAt);
+            return copyOf(authentication);
+        }
+        return authentication;
+    }
+
+    /**
+     * Returns a copy of a cached authentication. Only {@link JwtAuthenticationToken}s are cached, whose JWT and
+     * authorities are immutable and can be shared by the copies.
+     *
+     * @param authentication the cached authentication
+     * @return an authenticated copy without details
+     */
+    static AbstractAuthenticationToken copyOf(AbstractAuthenticationToken authentication) {
+        JwtAuthenticationToken jwtAuthentication = (JwtAuthenticationToken) authentication;
+        return new JwtAuthenticationToken(jwtAuthentication.getToken(), jwtAuthentication.getAuthorities(), jwtAuthentication.getName());
+    }
+
+    /**
+     * Sets the metrics the phases of an authentication are reported to and registers the caches of this provider.
+     *
+     * @param metrics the metrics
+     */
+    public void setMetrics(IsySecurityMetrics metrics) {
+        Assert.notNull(metrics, "metrics cannot be null");
+        this.metrics = metrics;
+        metrics.registerCache(getMetricsName() + ".authentications", authenticationCache);
+    }
+
+    /**
+     * Returns the clock used to determine whether cached authentications and tokens have expired.
+     */
+    protected Clock getClock() {
+        return clock;
+    }
+
+    /**
+     * Returns the metrics the phases of an authentication are reported to.
+     */
+    protected IsySecurityMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the registry the requests to the token endpoint and the decoding of JWTs are observed with.
+     *
+     * @param observationRegistry the registry
+     */
+    public void setObservationRegistry(ObservationRegistry observationRegistry) {
+        Assert.notNull(observationRegistry, "observationRegistry cannot be null");
+        this.observationRegistry = observationRegistry;
+    }
+
+    /**
+     * Returns the registry the requests to the token endpoint and the decoding of JWTs are observed with.
+     */
+    protected ObservationRegistry getObservationRegistry() {
+        return observationRegistry;
+    }
+
+    /**
+     * Returns the name that identifies this provider in the metrics, e.g. as prefix of the names of its caches.
+     */
+    protected String getMetricsName() {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * Removes all cached authentications, e.g. after the mapping of roles to privileges has changed.
+     */
+    public void invalidateAuthenticationCache() {
+        authenticationCache.invalidateAll();
+    }
 
-        return jwtAuthenticationConverter.convert(jwt);
+    @Override
+    public void onApplicationEvent(RolePrivilegesMappingReloadedEvent event) {
+        invalidateAuthenticationCache();
     }
 
 }
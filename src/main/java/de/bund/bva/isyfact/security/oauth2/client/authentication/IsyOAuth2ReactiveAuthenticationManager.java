@@ -0,0 +1,364 @@
+package de.bund.bva.isyfact.security.oauth2.client.authentication;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Supplier;
+
+import org.springframework.context.ApplicationListener;
+import org.springframework.lang.Nullable;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.client.ClientAuthorizationException;
+import org.springframework.security.oauth2.client.OAuth2AuthorizationContext;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.ReactiveOAuth2AuthorizedClientProvider;
+import org.springframework.security.oauth2.client.ReactiveOAuth2AuthorizedClientProviderBuilder;
+import org.springframework.security.oauth2.client.endpoint.WebClientReactiveClientCredentialsTokenResponseClient;
+import org.springframework.security.oauth2.client.endpoint.WebClientReactivePasswordTokenResponseClient;
+import org.springframework.security.oauth2.client.oidc.authentication.ReactiveOidcIdTokenDecoderFactory;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoderFactory;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.util.Assert;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import de.bund.bva.isyfact.security.cache.ExpiringCache;
+import de.bund.bva.isyfact.security.config.IsyOAuth2ClientConfigurationProperties;
+import de.bund.bva.isyfact.security.jfr.JwtDecodeEvent;
+import de.bund.bva.isyfact.security.metrics.InstrumentedReactiveAccessTokenResponseClient;
+import de.bund.bva.isyfact.security.metrics.IsySecurityMetrics;
+import de.bund.bva.isyfact.security.oauth2.client.authentication.token.ClientCredentialsClientRegistrationAuthenticationToken;
+import de.bund.bva.isyfact.security.oauth2.client.authentication.token.PasswordClientRegistrationAuthenticationToken;
+import de.bund.bva.isyfact.security.oauth2.client.authentication.util.BhknzHeaderConverterBuilder;
+import de.bund.bva.isyfact.security.observation.IsySecurityObservations;
+import de.bund.bva.isyfact.security.xmlparser.RolePrivilegesMappingReloadedEvent;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
+/**
+ * Non-blocking counterpart of {@link ClientCredentialsClientRegistrationAuthenticationProvider} and
+ * {@link PasswordClientRegistrationAuthenticationProvider}. It obtains an {@link Authentication} with the OAuth2 Client
+ * Credentials or Resource Owner Password Credentials flow using an externally created Client Registration object.
+ * <p>
+ * Access tokens are requested with {@link WebClient}-based token response clients and validated with a reactive JWT decoder,
+ * so no thread is blocked while waiting for the IdP. Like the blocking providers, authorized clients are cached per issuer,
+ * client ID, secrets, username and BHKNZ until their access token is about to expire, and the created authentications are
+ * cached per access token. Unlike {@link PasswordClientRegistrationAuthenticationProvider}, expired tokens of the password
+ * grant are not renewed with a refresh token, but requested again.
+ * <p>
+ * Like the blocking providers, the requests to the token endpoint and the decoding of the JWT are reported to the
+ * {@link IsySecurityMetrics} (see {@link #setMetrics(IsySecurityMetrics)}) and observed with the {@link ObservationRegistry}
+ * (see {@link #setObservationRegistry(ObservationRegistry)}).
+ * <p>
+ * Unsupported authentication requests are answered with an empty {@link Mono}.
+ */
+public class IsyOAuth2ReactiveAuthenticationManager
+        implements ReactiveAuthenticationManager, ApplicationListener<RolePrivilegesMappingReloadedEvent> {
+
+    /** Converter to create a JwtAuthenticationToken from a JWT. */
+    private final JwtAuthenticationConverter jwtAuthenticationConverter;
+
+    /** Builder for the BHKNZ header converter. */
+    private final BhknzHeaderConverterBuilder bhknzHeaderConverterBuilder;
+
+    /** Factory for decoding and validating the returned JWT without blocking. */
+    private final ReactiveJwtDecoderFactory<ClientRegistration> jwtDecoderFactory = new ReactiveOidcIdTokenDecoderFactory();
+
+    /** Cache for authorized clients of the Client Credentials flow whose access token is still valid. */
+    private final ExpiringCache<AuthorizedClientKey, OAuth2AuthorizedClient> clientCredentialsCache;
+
+    /** Cache for authorized clients of the Resource Owner Password Credentials flow whose access token is still valid. */
+    private final ExpiringCache<AuthorizedClientKey, OAuth2AuthorizedClient> passwordCache;
+
+    /** Authentications created from access tokens, by digest of the token value. */
+    private final ExpiringCache<String, AbstractAuthenticationToken> authenticationCache;
+
+    /** Time before the expiry of an access token at which it is no longer taken from the cache. */
+    private final Duration clockSkew;
+
+    /** Metrics the requests to the token endpoint and the decoding of JWTs are reported to. */
+    private IsySecurityMetrics metrics = IsySecurityMetrics.NOOP;
+
+    /** Registry the requests to the token endpoint and the decoding of JWTs are observed with. */
+    private ObservationRegistry observationRegistry = ObservationRegistry.NOOP;
+
+    /** WebClient used for requests to the token endpoint, if {@code null} the default of Spring Security is used. */
+    @Nullable
+    private WebClient webClient;
+
+    /** Authorized client providers for requests without BHKNZ. */
+    private ClientProviders defaultClientProviders;
+
+    /** Authorized client providers per BHKNZ, bounded by the maximum number of different BHKNZ. */
+    private volatile ExpiringCache<String, ClientProviders> bhknzClientProviders =
+            new ExpiringCache<>(IsyOAuth2ClientConfigurationProperties.DEFAULT_MAX_POOLED_BHKNZ);
+
+    /**
+     * Creates a manager that does not cache authorized clients.
+     *
+     * @param jwtAuthenticationConverter  converter to create a JwtAuthenticationToken from a JWT
+     * @param bhknzHeaderConverterBuilder builder for the BHKNZ header converter
+     */
+    public IsyOAuth2ReactiveAuthenticationManager(JwtAuthenticationConverter jwtAuthenticationConverter,
+                                                  BhknzHeaderConverterBuilder bhknzHeaderConverterBuilder) {
+        this(jwtAuthenticationConverter, bhknzHeaderConverterBuilder, 0, 0,
+                ClientCredentialsClientRegistrationAuthenticationProvider.DEFAULT_CLOCK_SKEW);
+    }
+
+    /**
+     * Creates a manager that caches authorized clients.
+     *
+     * @param jwtAuthenticationConverter    converter to create a JwtAuthenticationToken from a JWT
+     * @param bhknzHeaderConverterBuilder   builder for the BHKNZ header converter
+     * @param clientCredentialsCacheMaxSize maximum number of cached authorized clients of the Client Credentials flow,
+     *                                      {@code 0} disables the cache
+     * @param passwordCacheMaxSize          maximum number of cached authorized clients of the Resource Owner Password
+     *                                      Credentials flow, {@code 0} disables the cache
+     * @param clockSkew                     time before the expiry of an access token at which it is no longer taken from the cache
+     */
+    public IsyOAuth2ReactiveAuthenticationManager(JwtAuthenticationConverter jwtAuthenticationConverter,
+                                                  BhknzHeaderConverterBuilder bhknzHeaderConverterBuilder,
+                                                  int clientCredentialsCacheMaxSize, int passwordCacheMaxSize, Duration clockSkew) {
+        Assert.notNull(jwtAuthenticationConverter, "jwtAuthenticationConverter cannot be null");
+        Assert.notNull(clockSkew, "clockSkew cannot be null");
+        Assert.isTrue(!clockSkew.isNegative(), "clockSkew must be >= 0");
+        this.jwtAuthenticationConverter = jwtAuthenticationConverter;
+        this.bhknzHeaderConverterBuilder = bhknzHeaderConverterBuilder;
+        this.clientCredentialsCache = new ExpiringCache<>(clientCredentialsCacheMaxSize);
+        this.passwordCache = new ExpiringCache<>(passwordCacheMaxSize);
+        this.authenticationCache = new ExpiringCache<>(IsyOAuth2AuthenticationProvider.DEFAULT_AUTHENTICATION_CACHE_MAX_SIZE);
+        this.clockSkew = clockSkew;
+        this.defaultClientProviders = new ClientProviders(null);
+    }
+
+    @Override
+    public Mono<Authentication> authenticate(Authentication authentication) {
+        if (authentication instanceof ClientCredentialsClientRegistrationAuthenticationToken) {
+            ClientCredentialsClientRegistrationAuthenticationToken token =
+                    (ClientCredentialsClientRegistrationAuthenticationToken) authentication;
+            ClientRegistration clientRegistration = token.getClientRegistration();
+            OAuth2AuthorizationContext authorizationContext = OAuth2AuthorizationContext.withClientRegistration(clientRegistration)
+                    .principal(token)
+                    .build();
+
+            AuthorizedClientKey cacheKey = clientCredentialsCache.getMaxSize() > 0
+                    ? AuthorizedClientKey.of(clientRegistration, token.getBhknz())
+                    : null;
+            return authorize(clientCredentialsCache, cacheKey,
+                    () -> defaultClientProviders.clientCredentialsClientProvider.authorize(authorizationContext), clientRegistration)
+                    .flatMap(this::createJwtAuthentication);
+        }
+
+        if (authentication instanceof PasswordClientRegistrationAuthenticationToken) {
+            PasswordClientRegistrationAuthenticationToken token = (PasswordClientRegistrationAuthenticationToken) authentication;
+            ClientRegistration clientRegistration = token.getClientRegistration();
+            Assert.hasText(token.getUsername(), "username cannot be empty for client: " + clientRegistration.getRegistrationId());
+            Assert.hasText(token.getPassword(), "password cannot be empty for client: " + clientRegistration.getRegistrationId());
+            OAuth2AuthorizationContext authorizationContext = OAuth2AuthorizationContext.withClientRegistration(clientRegistration)
+                    .principal(token)
+                    .attribute(OAuth2AuthorizationContext.USERNAME_ATTRIBUTE_NAME, token.getUsername())
+                    .attribute(OAuth2AuthorizationContext.PASSWORD_ATTRIBUTE_NAME, token.getPassword())
+                    .build();
+
+            AuthorizedClientKey cacheKey = passwordCache.getMaxSize() > 0
+                    ? AuthorizedClientKey.of(clientRegistration, token.getUsername(), token.getPassword(), token.getBhknz())
+                    : null;
+            return authorize(passwordCache, cacheKey,
+                    () -> getClientProviders(token.getBhknz()).passwordClientProvider.authorize(authorizationContext), clientRegistration)
+                    .flatMap(this::createJwtAuthentication);
+        }
+
+        return Mono.empty();
+    }
+
+    /**
+     * Sets the {@link WebClient} used for requests to the token endpoint.
+     *
+     * @param webClient the WebClient, configured to handle OAuth 2.0 token responses
+     */
+    public void setWebClient(WebClient webClient) {
+        Assert.notNull(webClient, "webClient cannot be null");
+        this.webClient = webClient;
+        this.defaultClientProviders = new ClientProviders(null);
+        this.bhknzClientProviders.invalidateAll();
+    }
+
+    /**
+     * Sets the metrics the requests to the token endpoint and the decoding of JWTs are reported to and registers the caches
+     * of this manager.
+     *
+     * @param metrics the metrics
+     */
+    public void setMetrics(IsySecurityMetrics metrics) {
+        Assert.notNull(metrics, "metrics cannot be null");
+        this.metrics = metrics;
+        metrics.registerCache("reactive.client-credentials.authorized-clients", clientCredentialsCache);
+        metrics.registerCache("reactive.password.authorized-clients", passwordCache);
+        metrics.registerCache("reactive.authentications", authenticationCache);
+    }
+
+    /**
+     * Sets the registry the requests to the token endpoint and the decoding of JWTs are observed with.
+     *
+     * @param observationRegistry the registry
+     */
+    public void setObservationRegistry(ObservationRegistry observationRegistry) {
+        Assert.notNull(observationRegistry, "observationRegistry cannot be null");
+        this.observationRegistry = observationRegistry;
+    }
+
+    /**
+     * Sets the maximum number of different BHKNZ for which the authorized client providers are reused. For further BHKNZ,
+     * the providers that were created first are discarded. The default is
+     * {@value IsyOAuth2ClientConfigurationProperties#DEFAULT_MAX_POOLED_BHKNZ}.
+     *
+     * @param maxPooledBhknz the maximum number of different BHKNZ, {@code 0} disables the reuse for requests with BHKNZ
+     */
+    public void setMaxPooledBhknz(int maxPooledBhknz) {
+        Assert.isTrue(maxPooledBhknz >= 0, "maxPooledBhknz must be >= 0");
+        this.bhknzClientProviders = new ExpiringCache<>(maxPooledBhknz);
+    }
+
+    /**
+     * Removes all cached authentications, e.g. after the mapping of roles to privileges has changed.
+     */
+    public void invalidateAuthenticationCache() {
+        authenticationCache.invalidateAll();
+    }
+
+    @Override
+    public void onApplicationEvent(RolePrivilegesMappingReloadedEvent event) {
+        invalidateAuthenticationCache();
+    }
+
+    /**
+     * Returns the cached authorized client for the key or requests a new one and caches it.
+     *
+     * @param cache              the cache of the flow
+     * @param cacheKey           the cache key, {@code null} if caching is disabled
+     * @param authorizeRequest   creates the request of a new authorized client
+     * @param clientRegistration the Client Registration
+     * @return the authorized client
+     */
+    private Mono<OAuth2AuthorizedClient> authorize(ExpiringCache<AuthorizedClientKey, OAuth2AuthorizedClient> cache,
+                                                   @Nullable AuthorizedClientKey cacheKey,
+                                                   Supplier<Mono<OAuth2AuthorizedClient>> authorizeRequest,
+                                                   ClientRegistration clientRegistration) {
+        return Mono.defer(() -> {
+            OAuth2AuthorizedClient cachedClient = cacheKey != null ? cache.get(cacheKey) : null;
+            if (cachedClient != null) {
+                return Mono.just(cachedClient);
+            }
+            return authorizeRequest.get()
+                    .switchIfEmpty(Mono.error(() -> new ClientAuthorizationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_GRANT),
+                            clientRegistration.getRegistrationId(), "clientRegistration.authorizationGrantType must be "
+                            + "AuthorizationGrantType.CLIENT_CREDENTIALS or AuthorizationGrantType.PASSWORD")))
+                    .doOnNext(authorizedClient -> {
+                        Instant expiresAt = authorizedClient.getAccessToken().getExpiresAt();
+                        // tokens without expiry are not cached because it can't be determined when they have to be renewed
+                        if (cacheKey != null && expiresAt != null) {
+                            cache.put(cacheKey, authorizedClient, expiresAt.minus(clockSkew));
+                        }
+                    });
+        });
+    }
+
+    private Mono<Authentication> createJwtAuthentication(OAuth2AuthorizedClient authorizedClient) {
+        OAuth2AccessToken accessToken = authorizedClient.getAccessToken();
+        // the token is only kept as a digest, so that the cache does not hold it in clear text
+        String cacheKey = AuthorizedClientKey.digest(accessToken.getTokenValue());
+        AbstractAuthenticationToken cachedAuthentication = authenticationCache.get(cacheKey);
+        if (cachedAuthentication != null) {
+            return Mono.just(IsyOAuth2AuthenticationProvider.copyOf(cachedAuthentication));
+        }
+
+        ClientRegistration clientRegistration = authorizedClient.getClientRegistration();
+        String registrationId = clientRegistration.getRegistrationId();
+        String grantType = clientRegistration.getAuthorizationGrantType().getValue();
+        return Mono.defer(() -> {
+                    Observation observation = IsySecurityObservations.jwtDecode(observationRegistry, registrationId, grantType).start();
+                    JwtDecodeEvent event = JwtDecodeEvent.start(registrationId, grantType);
+                    long start = System.nanoTime();
+                    return jwtDecoderFactory.createDecoder(clientRegistration)
+                            .decode(accessToken.getTokenValue())
+                            .doOnSuccess(jwt -> {
+                                metrics.recordJwtDecode(registrationId, grantType, System.nanoTime() - start);
+                                event.finish(null);
+                            })
+                            .doOnError(e -> {
+                                observation.error(e);
+                                event.finish(e);
+                            })
+                            .doFinally(signalType -> observation.stop());
+                })
+                .flatMap(jwt -> {
+                    long decoded = System.nanoTime();
+                    AbstractAuthenticationToken authentication = jwtAuthenticationConverter.convert(jwt);
+                    metrics.recordAuthorityConversion(registrationId, grantType, System.nanoTime() - decoded);
+                    if (authentication == null) {
+                        return Mono.empty();
+                    }
+                    Instant expiresAt = jwt.getExpiresAt();
+                    if (authentication instanceof JwtAuthenticationToken && expiresAt != null) {
+                        authenticationCache.put(cacheKey, authentication, expiresAt);
+                        return Mono.just(IsyOAuth2AuthenticationProvider.copyOf(authentication));
+                    }
+                    return Mono.just(authentication);
+                });
+    }
+
+    /**
+     * Returns the authorized client providers for the given BHKNZ. Providers are shared between requests with the same BHKNZ,
+     * up to the maximum number of different BHKNZ. Beyond that, the providers that were created first are discarded.
+     */
+    private ClientProviders getClientProviders(@Nullable String bhknz) {
+        if (bhknz == null) {
+            return defaultClientProviders;
+        }
+        return bhknzClientProviders.computeIfAbsent(bhknz, ClientProviders::new,
+                Instant.now().plus(PasswordClientRegistrationAuthenticationProvider.POOLED_BHKNZ_TIME_TO_LIVE));
+    }
+
+    /**
+     * The authorized client providers (and their token response clients) for requests with the same BHKNZ.
+     * As in {@link PasswordClientRegistrationAuthenticationProvider}, the BHKNZ header is only sent with the password grant.
+     */
+    private final class ClientProviders {
+
+        /** Provider for the Client Credentials flow. */
+        private final ReactiveOAuth2AuthorizedClientProvider clientCredentialsClientProvider;
+
+        /** Provider for the Resource Owner Password Credentials flow. */
+        private final ReactiveOAuth2AuthorizedClientProvider passwordClientProvider;
+
+        private ClientProviders(@Nullable String bhknz) {
+            WebClientReactiveClientCredentialsTokenResponseClient clientCredentialsResponseClient =
+                    new WebClientReactiveClientCredentialsTokenResponseClient();
+            WebClientReactivePasswordTokenResponseClient passwordResponseClient = new WebClientReactivePasswordTokenResponseClient();
+            if (webClient != null) {
+                clientCredentialsResponseClient.setWebClient(webClient);
+                passwordResponseClient.setWebClient(webClient);
+            }
+            if (bhknz != null) {
+                passwordResponseClient.addHeadersConverter(bhknzHeaderConverterBuilder.buildWith(bhknz));
+            }
+
+            // the metrics and the registry are obtained per request, so that they can be set after the providers were created
+            this.clientCredentialsClientProvider = ReactiveOAuth2AuthorizedClientProviderBuilder.builder()
+                    .clientCredentials(builder -> builder.accessTokenResponseClient(new InstrumentedReactiveAccessTokenResponseClient<>(
+                            clientCredentialsResponseClient, () -> metrics, () -> observationRegistry)))
+                    .build();
+            this.passwordClientProvider = ReactiveOAuth2AuthorizedClientProviderBuilder.builder()
+                    .password(builder -> builder.accessTokenResponseClient(new InstrumentedReactiveAccessTokenResponseClient<>(
+                            passwordResponseClient, () -> metrics, () -> observationRegistry)))
+                    .build();
+        }
+    }
+
+}
@@ -1,5 +1,11 @@
 package de.bund.bva.isyfact.security.oauth2.client.authentication;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.lang.Nullable;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
@@ -9,31 +15,124 @@ import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClientProvider;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClientProviderBuilder;
 import org.springframework.security.oauth2.client.endpoint.DefaultPasswordTokenResponseClient;
+import org.springframework.security.oauth2.client.endpoint.DefaultRefreshTokenTokenResponseClient;
 import org.springframework.security.oauth2.client.endpoint.OAuth2AccessTokenResponseClient;
 import org.springframework.security.oauth2.client.endpoint.OAuth2PasswordGrantRequest;
 import org.springframework.security.oauth2.client.endpoint.OAuth2PasswordGrantRequestEntityConverter;
+import org.springframework.security.oauth2.client.endpoint.OAuth2RefreshTokenGrantRequest;
+import org.springframework.security.oauth2.client.endpoint.OAuth2RefreshTokenGrantRequestEntityConverter;
 import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2AuthorizationException;
 import org.springframework.security.oauth2.core.OAuth2Error;
 import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AccessTokenResponse;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
 import org.springframework.util.Assert;
+import org.springframework.web.client.RestOperations;
 
+import de.bund.bva.isyfact.security.cache.ExpiringCache;
+import de.bund.bva.isyfact.security.config.IsyOAuth2ClientConfigurationProperties;
+import de.bund.bva.isyfact.security.jfr.TokenAcquisitionEvent;
+import de.bund.bva.isyfact.security.metrics.InstrumentedAccessTokenResponseClient;
+import de.bund.bva.isyfact.security.metrics.IsySecurityMetrics;
 import de.bund.bva.isyfact.security.oauth2.client.authentication.token.PasswordClientRegistrationAuthenticationToken;
 import de.bund.bva.isyfact.security.oauth2.client.authentication.util.BhknzHeaderConverterBuilder;
 
 /**
  * Authentication Provider to obtain an {@link Authentication} with the OAuth2 Resource Owner Password Credentials flow
  * using an externally created Client Registration object.
+ * <p>
+ * If enabled, authorized clients are cached per issuer, client ID, username and BHKNZ (client secret and password are only
+ * part of the key as a digest). When the cached access token is about to expire, it is renewed with the refresh token.
+ * If there is no refresh token or the refresh fails, a new token is requested with the password grant.
+ * If caching is enabled, concurrent requests for the same key are coalesced, so that only one token request is sent to the
+ * token endpoint (see {@link #setRequestCoalescingTimeout(Duration)}).
+ * <p>
+ * The token response clients are reused per BHKNZ, up to a configurable number of different BHKNZ
+ * (see {@link #setMaxPooledBhknz(int)}). Beyond that, the clients that were created first are discarded.
  */
 public class PasswordClientRegistrationAuthenticationProvider extends IsyOAuth2AuthenticationProvider {
 
+    /** Time after which the authorized client providers of a BHKNZ are created again. */
+    static final Duration POOLED_BHKNZ_TIME_TO_LIVE = Duration.ofHours(1);
+
+    /** Logger. */
+    private static final Logger LOG = LoggerFactory.getLogger(PasswordClientRegistrationAuthenticationProvider.class);
+
     /** Builder for the BHKNZ header converter. */
     protected final BhknzHeaderConverterBuilder bhknzHeaderConverterBuilder;
 
+    /** Cache for authorized clients whose access token or refresh token is still valid. */
+    private final ExpiringCache<AuthorizedClientKey, OAuth2AuthorizedClient> authorizedClientCache;
+
+    /** Time before the expiry of a token at which it is considered expired. */
+    private final Duration clockSkew;
+
+    /** Token requests in flight, by cache key. */
+    private InFlightTokenRequests<AuthorizedClientKey> inFlightTokenRequests =
+            new InFlightTokenRequests<>(InFlightTokenRequests.DEFAULT_TIMEOUT);
+
+    /** RestOperations used for requests to the token endpoint, if {@code null} the default of Spring Security is used. */
+    @Nullable
+    private RestOperations restOperations;
+
+    /** Authorized client providers for requests without BHKNZ. */
+    private ClientProviders defaultClientProviders;
+
+    /** Authorized client providers per BHKNZ, bounded by the maximum number of different BHKNZ. */
+    private volatile ExpiringCache<String, ClientProviders> bhknzClientProviders;
+
+    /** Whether it was logged that {@link #maxPooledBhknz} has been reached. */
+    private volatile boolean maxPooledBhknzLogged;
+
+    /**
+     * Creates a provider that does not cache authorized clients.
+     *
+     * @param jwtAuthenticationConverter  converter to create a JwtAuthenticationToken from a JWT
+     * @param bhknzHeaderConverterBuilder builder for the BHKNZ header converter
+     */
     public PasswordClientRegistrationAuthenticationProvider(JwtAuthenticationConverter jwtAuthenticationConverter,
                                                             BhknzHeaderConverterBuilder bhknzHeaderConverterBuilder) {
-        super(jwtAuthenticationConverter);
+        this(jwtAuthenticationConverter, bhknzHeaderConverterBuilder, 0,
+                ClientCredentialsClientRegistrationAuthenticationProvider.DEFAULT_CLOCK_SKEW);
+    }
+
+    /**
+     * Creates a provider that caches authorized clients.
+     *
+     * @param jwtAuthenticationConverter  converter to create a JwtAuthenticationToken from a JWT
+     * @param bhknzHeaderConverterBuilder builder for the BHKNZ header converter
+     * @param cacheMaxSize                maximum number of cached authorized clients, {@code 0} disables the cache
+     * @param clockSkew                   time before the expiry of a token at which it is considered expired
+     */
+    public PasswordClientRegistrationAuthenticationProvider(JwtAuthenticationConverter jwtAuthenticationConverter,
+                                                            BhknzHeaderConverterBuilder bhknzHeaderConverterBuilder,
+                                                            int cacheMaxSize, Duration clockSkew) {
+        this(jwtAuthenticationConverter, bhknzHeaderConverterBuilder, cacheMaxSize, clockSkew, Clock.systemUTC());
+    }
+
+    /**
+     * Creates a provider that caches authorized clients.
+     *
+     * @param jwtAuthenticationConverter  converter to create a JwtAuthenticationToken from a JWT
+     * @param bhknzHeaderConverterBuilder builder for the BHKNZ header converter
+     * @param cacheMaxSize                maximum number of cached authorized clients, {@code 0} disables the cache
+     * @param clockSkew                   time before the expiry of a token at which it is considered expired
+     * @param clock                       clock used to determine whether tokens have expired
+     */
+    public PasswordClientRegistrationAuthenticationProvider(JwtAuthenticationConverter jwtAuthenticationConverter,
+                                                            BhknzHeaderConverterBuilder bhknzHeaderConverterBuilder,
+                                                            int cacheMaxSize, Duration clockSkew, Clock clock) {
+        super(jwtAuthenticationConverter, cacheMaxSize, clock);
+        Assert.notNull(clockSkew, "clockSkew cannot be null");
+        Assert.isTrue(!clockSkew.isNegative(), "clockSkew must be >= 0");
         this.bhknzHeaderConverterBuilder = bhknzHeaderConverterBuilder;
+        this.authorizedClientCache = new ExpiringCache<>(cacheMaxSize, clock);
+        this.bhknzClientProviders = new ExpiringCache<>(IsyOAuth2ClientConfigurationProperties.DEFAULT_MAX_POOLED_BHKNZ, clock);
+        this.clockSkew = clockSkew;
+        this.defaultClientProviders = new ClientProviders(null);
     }
 
     @Override
@@ -48,19 +147,103 @@ public class PasswordClientRegistrationAuthenticationProvider extends IsyOAuth2A
            instead of letting the AuthorizedClientManager handle it because we have to modify
            the AccessTokenResponseClient before each request in order to set the BHKNZ header. */
         ClientRegistration clientRegistration = token.getClientRegistration();
+        AuthorizedClientKey cacheKey = authorizedClientCache.getMaxSize() > 0
+                ? AuthorizedClientKey.of(clientRegistration, token.getUsername(), token.getPassword(), token.getBhknz())
+                : null;
 
-        OAuth2AuthorizedClient authorizedClient = obtainAuthorizedClient(clientRegistration, token, token.getUsername(), token.getPassword(), token.getBhknz());
-        /* The authorized client could theoretically be null if a valid token already exists or a refresh token
-           is configured, but since the OAuth2AuthorizationContext does not use authorized clients and the
-           OAuth2AuthorizationContext is only configured for a single grant type this can currently not be the case. */
-        if (authorizedClient == null) {
-            throw new ClientAuthorizationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_GRANT), clientRegistration.getRegistrationId(),
-                    "clientRegistration.authorizationGrantType must be AuthorizationGrantType.PASSWORD");
+        OAuth2AuthorizedClient authorizedClient;
+        if (cacheKey == null) {
+            authorizedClient = requestAuthorizedClient(clientRegistration, token);
+        } else {
+            authorizedClient = getValidCachedAuthorizedClient(cacheKey);
+            if (authorizedClient == null) {
+                authorizedClient = inFlightTokenRequests.execute(cacheKey, () -> {
+                    // another thread may have obtained or refreshed the token in the meantime
+                    OAuth2AuthorizedClient cachedClient = getCachedAuthorizedClient(cacheKey, token);
+                    if (cachedClient != null) {
+                        return cachedClient;
+                    }
+                    OAuth2AuthorizedClient requestedClient = requestAuthorizedClient(clientRegistration, token);
+                    cacheAuthorizedClient(cacheKey, requestedClient);
+                    return requestedClient;
+                });
+            } else {
+                TokenAcquisitionEvent.cacheHit();
+            }
         }
 
         return createJwtAuthentication(authorizedClient);
     }
 
+    /**
+     * Renews the cached authorized client for the given authentication request, even if its access token is still valid.
+     * The token is renewed with the refresh token if possible, otherwise a new token is requested with the password grant.
+     * Used by the {@link AuthorizedClientRefresher} to renew tokens before they expire.
+     *
+     * @param token the authentication request whose authorized client is renewed
+     * @return the renewed authorized client, or {@code null} if caching is disabled
+     */
+    @Nullable
+    OAuth2AuthorizedClient renewAuthorizedClient(PasswordClientRegistrationAuthenticationToken token) {
+        if (authorizedClientCache.getMaxSize() == 0) {
+            return null;
+        }
+
+        ClientRegistration clientRegistration = token.getClientRegistration();
+        AuthorizedClientKey cacheKey =
+                AuthorizedClientKey.of(clientRegistration, token.getUsername(), token.getPassword(), token.getBhknz());
+
+        return inFlightTokenRequests.execute(cacheKey, () -> {
+            OAuth2AuthorizedClient renewedClient = null;
+            OAuth2AuthorizedClient cachedClient = authorizedClientCache.get(cacheKey);
+            if (cachedClient != null && cachedClient.getRefreshToken() != null) {
+                try {
+                    renewedClient = getClientProviders(token.getBhknz()).refresh(cachedClient);
+                } catch (OAuth2AuthorizationException e) {
+                    // e.g. the refresh token has expired or was revoked, fall back to the password grant
+                }
+            }
+            if (renewedClient == null) {
+                renewedClient = requestAuthorizedClient(clientRegistration, token);
+            }
+            cacheAuthorizedClient(cacheKey, renewedClient);
+            return renewedClient;
+        });
+    }
+
+    /**
+     * Sets the time that concurrent requests for the same resource owner wait for the token request of another thread.
+     * Token requests are only coalesced if caching is enabled.
+     *
+     * @param requestCoalescingTimeout the timeout, {@code 0} disables the coalescing of token requests
+     */
+    public void setRequestCoalescingTimeout(Duration requestCoalescingTimeout) {
+        this.inFlightTokenRequests = new InFlightTokenRequests<>(requestCoalescingTimeout);
+    }
+
+    /**
+     * Sets the {@link RestOperations} used for requests to the token endpoint.
+     *
+     * @param restOperations the RestOperations, configured to handle OAuth 2.0 token responses
+     */
+    public void setRestOperations(RestOperations restOperations) {
+        Assert.notNull(restOperations, "restOperations cannot be null");
+        this.restOperations = restOperations;
+        this.defaultClientProviders = new ClientProviders(null);
+        this.bhknzClientProviders.invalidateAll();
+    }
+
+    @Override
+    public void setMetrics(IsySecurityMetrics metrics) {
+        super.setMetrics(metrics);
+        metrics.registerCache(getMetricsName() + ".authorized-clients", authorizedClientCache);
+    }
+
+    @Override
+    protected String getMetricsName() {
+        return "password";
+    }
+
     @Override
     public boolean supports(Class<?> authentication) {
         return PasswordClientRegistrationAuthenticationToken.class.isAssignableFrom(authentication);
@@ -77,26 +260,199 @@ public class PasswordClientRegistrationAuthenticationProvider extends IsyOAuth2A
                 .attribute(OAuth2AuthorizationContext.PASSWORD_ATTRIBUTE_NAME, password)
                 .build();
 
-        OAuth2AccessTokenResponseClient<OAuth2PasswordGrantRequest> responseClient = createPasswordTokenResponseClient(bhknz);
-        OAuth2AuthorizedClientProvider clientProvider = OAuth2AuthorizedClientProviderBuilder.builder()
-                .password(passwordGrantBuilder -> passwordGrantBuilder.accessTokenResponseClient(responseClient))
+        return getClientProviders(bhknz).passwordClientProvider.authorize(authorizationContext);
+    }
+
+    private OAuth2AuthorizedClient requestAuthorizedClient(ClientRegistration clientRegistration,
+                                                           PasswordClientRegistrationAuthenticationToken token) {
+        OAuth2AuthorizedClient authorizedClient =
+                obtainAuthorizedClient(clientRegistration, token, token.getUsername(), token.getPassword(), token.getBhknz());
+        /* The authorized client could theoretically be null if a valid token already exists or a refresh token
+           is configured, but since the OAuth2AuthorizationContext does not use authorized clients and the
+           OAuth2AuthorizationContext is only configured for a single grant type this can currently not be the case. */
+        if (authorizedClient == null) {
+            throw new ClientAuthorizationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_GRANT), clientRegistration.getRegistrationId(),
+                    "clientRegistration.authorizationGrantType must be AuthorizationGrantType.PASSWORD");
+        }
+        return authorizedClient;
+    }
+
+    /**
+     * Returns the cached authorized client for the given key, if its access token has not expired.
+     *
+     * @return an authorized client with a valid access token or {@code null}
+     */
+    @Nullable
+    private OAuth2AuthorizedClient getValidCachedAuthorizedClient(AuthorizedClientKey cacheKey) {
+        OAuth2AuthorizedClient cachedClient = authorizedClientCache.get(cacheKey);
+        return cachedClient != null && !hasTokenExpired(cachedClient.getAccessToken()) ? cachedClient : null;
+    }
+
+    /**
+     * Returns the cached authorized client for the given key. If its access token has expired, it is renewed with the refresh token.
+     *
+     * @return an authorized client with a valid access token or {@code null} if a new token has to be requested with the password grant
+     */
+    @Nullable
+    private OAuth2AuthorizedClient getCachedAuthorizedClient(AuthorizedClientKey cacheKey, PasswordClientRegistrationAuthenticationToken token) {
+        OAuth2AuthorizedClient cachedClient = authorizedClientCache.get(cacheKey);
+        if (cachedClient == null || !hasTokenExpired(cachedClient.getAccessToken())) {
+            return cachedClient;
+        }
+        // the cached entry is only kept beyond the expiry of the access token if there is a refresh token
+        authorizedClientCache.invalidate(cacheKey);
+
+        OAuth2AuthorizedClient refreshedClient;
+        try {
+            refreshedClient = refreshAuthorizedClient(cachedClient, token, token.getBhknz());
+        } catch (OAuth2AuthorizationException e) {
+            // e.g. the refresh token has expired or was revoked, fall back to the password grant
+            return null;
+        }
+        if (refreshedClient != null) {
+            cacheAuthorizedClient(cacheKey, refreshedClient);
+        }
+        return refreshedClient;
+    }
+
+    @Nullable
+    private OAuth2AuthorizedClient refreshAuthorizedClient(OAuth2AuthorizedClient authorizedClient, Authentication principal,
+                                                           @Nullable String bhknz) {
+        OAuth2AuthorizationContext authorizationContext = OAuth2AuthorizationContext.withAuthorizedClient(authorizedClient)
+                .principal(principal)
                 .build();
-        return clientProvider.authorize(authorizationContext);
+
+        return getClientProviders(bhknz).refreshTokenClientProvider.authorize(authorizationContext);
+    }
+
+    private void cacheAuthorizedClient(AuthorizedClientKey cacheKey, OAuth2AuthorizedClient authorizedClient) {
+        Instant expiresAt;
+        if (authorizedClient.getRefreshToken() != null) {
+            // keep the client as long as the refresh token can be used, if the expiry is unknown the refresh is simply attempted
+            Instant refreshTokenExpiresAt = authorizedClient.getRefreshToken().getExpiresAt();
+            expiresAt = refreshTokenExpiresAt != null ? refreshTokenExpiresAt.minus(clockSkew) : Instant.MAX;
+        } else if (authorizedClient.getAccessToken().getExpiresAt() != null) {
+            expiresAt = authorizedClient.getAccessToken().getExpiresAt().minus(clockSkew);
+        } else {
+            // tokens without expiry are not cached because it can't be determined when they have to be renewed
+            return;
+        }
+        authorizedClientCache.put(cacheKey, authorizedClient, expiresAt);
     }
 
-    private OAuth2AccessTokenResponseClient<OAuth2PasswordGrantRequest> createPasswordTokenResponseClient(@Nullable String bhknz) {
-        // we need to create a new client every time because each request has a unique interceptor
-        DefaultPasswordTokenResponseClient passwordTokenResponseClient = new DefaultPasswordTokenResponseClient();
+    private boolean hasTokenExpired(OAuth2AccessToken accessToken) {
+        Instant expiresAt = accessToken.getExpiresAt();
+        return expiresAt == null || !getClock().instant().isBefore(expiresAt.minus(clockSkew));
+    }
+
+    /**
+     * Sets the maximum number of different BHKNZ for which the token response clients are reused. For further BHKNZ, the
+     * clients that were created first are discarded. The default is
+     * {@value IsyOAuth2ClientConfigurationProperties#DEFAULT_MAX_POOLED_BHKNZ}.
+     *
+     * @param maxPooledBhknz the maximum number of different BHKNZ, {@code 0} disables the reuse for requests with BHKNZ
+     */
+    public void setMaxPooledBhknz(int maxPooledBhknz) {
+        Assert.isTrue(maxPooledBhknz >= 0, "maxPooledBhknz must be >= 0");
+        this.bhknzClientProviders = new ExpiringCache<>(maxPooledBhknz, getClock());
+    }
+
+    /**
+     * Returns the authorized client providers for the given BHKNZ. Providers are shared between requests with the same BHKNZ,
+     * up to the maximum number of different BHKNZ. Beyond that, the providers that were created first are discarded.
+     */
+    private ClientProviders getClientProviders(@Nullable String bhknz) {
+        if (bhknz == null) {
+            return defaultClientProviders;
+        }
+
+        ExpiringCache<String, ClientProviders> pool = bhknzClientProviders;
+        if (!maxPooledBhknzLogged && pool.size() >= pool.getMaxSize()) {
+            maxPooledBhknzLogged = true;
+            LOG.warn("Die maximale Anzahl von {} BHKNZ mit wiederverwendeten Token-Clients ist erreicht, "
+                    + "für weitere BHKNZ werden die zuerst erzeugten Token-Clients verworfen.", pool.getMaxSize());
+        }
+        return pool.computeIfAbsent(bhknz, ClientProviders::new, getClock().instant().plus(POOLED_BHKNZ_TIME_TO_LIVE));
+    }
+
+    /**
+     * The authorized client providers (and their token response clients) for requests with the same BHKNZ.
+     * The BHKNZ header is set by a headers converter that is configured once, so the providers are thread-safe and can be shared.
+     */
+    private final class ClientProviders {
+
+        /** Provider for the Resource Owner Password Credentials flow. */
+        private final OAuth2AuthorizedClientProvider passwordClientProvider;
+
+        /** Provider to renew access tokens with a refresh token. */
+        private final OAuth2AuthorizedClientProvider refreshTokenClientProvider;
+
+        /** Token response client of the {@link #refreshTokenClientProvider}, used to renew access tokens that have not expired. */
+        private final OAuth2AccessTokenResponseClient<OAuth2RefreshTokenGrantRequest> refreshTokenResponseClient;
 
-        if (bhknz != null) {
-            // add a headers converter to the default request entity converter which sets the bhknz header
-            passwordTokenResponseClient.setRequestEntityConverter(passwordGrantRequest -> {
+        private ClientProviders(@Nullable String bhknz) {
+            OAuth2AccessTokenResponseClient<OAuth2PasswordGrantRequest> passwordResponseClient = createPasswordTokenResponseClient(bhknz);
+            this.passwordClientProvider = OAuth2AuthorizedClientProviderBuilder.builder()
+                    .password(passwordGrantBuilder -> passwordGrantBuilder.accessTokenResponseClient(passwordResponseClient))
+                    .build();
+
+            this.refreshTokenResponseClient = createRefreshTokenResponseClient(bhknz);
+            this.refreshTokenClientProvider = OAuth2AuthorizedClientProviderBuilder.builder()
+                    .refreshToken(refreshTokenGrantBuilder -> refreshTokenGrantBuilder
+                            .accessTokenResponseClient(refreshTokenResponseClient)
+                            .clockSkew(clockSkew)
+                            .clock(getClock()))
+                    .build();
+        }
+
+        /**
+         * Renews the access token of the authorized client with its refresh token, regardless of the expiry of the access token.
+         */
+        private OAuth2AuthorizedClient refresh(OAuth2AuthorizedClient authorizedClient) {
+            OAuth2AccessTokenResponse tokenResponse = refreshTokenResponseClient.getTokenResponse(new OAuth2RefreshTokenGrantRequest(
+                    authorizedClient.getClientRegistration(), authorizedClient.getAccessToken(), authorizedClient.getRefreshToken()));
+            // the IAM service may keep the refresh token, in which case the response does not contain a new one
+            OAuth2RefreshToken refreshToken = tokenResponse.getRefreshToken() != null
+                    ? tokenResponse.getRefreshToken()
+                    : authorizedClient.getRefreshToken();
+            return new OAuth2AuthorizedClient(authorizedClient.getClientRegistration(), authorizedClient.getPrincipalName(),
+                    tokenResponse.getAccessToken(), refreshToken);
+        }
+
+        private OAuth2AccessTokenResponseClient<OAuth2PasswordGrantRequest> createPasswordTokenResponseClient(@Nullable String bhknz) {
+            DefaultPasswordTokenResponseClient passwordTokenResponseClient = new DefaultPasswordTokenResponseClient();
+            if (restOperations != null) {
+                passwordTokenResponseClient.setRestOperations(restOperations);
+            }
+
+            if (bhknz != null) {
+                // add a headers converter to the default request entity converter which sets the bhknz header
                 OAuth2PasswordGrantRequestEntityConverter converter = new OAuth2PasswordGrantRequestEntityConverter();
                 converter.addHeadersConverter(bhknzHeaderConverterBuilder.buildWith(bhknz));
-                return converter.convert(passwordGrantRequest);
-            });
+                passwordTokenResponseClient.setRequestEntityConverter(converter);
+            }
+
+            return new InstrumentedAccessTokenResponseClient<>(passwordTokenResponseClient,
+                    PasswordClientRegistrationAuthenticationProvider.this::getMetrics,
+                    PasswordClientRegistrationAuthenticationProvider.this::getObservationRegistry);
         }
 
-        return passwordTokenResponseClient;
+        private OAuth2AccessTokenResponseClient<OAuth2RefreshTokenGrantRequest> createRefreshTokenResponseClient(@Nullable String bhknz) {
+            DefaultRefreshTokenTokenResponseClient refreshTokenResponseClient = new DefaultRefreshTokenTokenResponseClient();
+            if (restOperations != null) {
+                refreshTokenResponseClient.setRestOperations(restOperations);
+            }
+
+            if (bhknz != null) {
+                // the refresh request has to carry the same bhknz header as the initial password grant request
+                OAuth2RefreshTokenGrantRequestEntityConverter converter = new OAuth2RefreshTokenGrantRequestEntityConverter();
+                converter.addHeadersConverter(bhknzHeaderConverterBuilder.buildWith(bhknz));
+                refreshTokenResponseClient.setRequestEntityConverter(converter);
+            }
+
+            return new InstrumentedAccessTokenResponseClient<>(refreshTokenResponseClient,
+                    PasswordClientRegistrationAuthenticationProvider.this::getMetrics,
+                    PasswordClientRegistrationAuthenticationProvider.this::getObservationRegistry);
+        }
     }
 }
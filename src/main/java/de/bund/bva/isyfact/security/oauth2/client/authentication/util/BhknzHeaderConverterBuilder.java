@@ -2,7 +2,7 @@ package de.bund.bva.isyfact.security.oauth2.client.authentication.util;
 
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.http.HttpHeaders;
-import org.springframework.security.oauth2.client.endpoint.OAuth2PasswordGrantRequest;
+import org.springframework.security.oauth2.client.endpoint.AbstractOAuth2AuthorizationGrantRequest;
 
 import de.bund.bva.isyfact.security.config.IsyOAuth2ClientConfigurationProperties;
 
@@ -19,23 +19,21 @@ public class BhknzHeaderConverterBuilder {
         this.defaultCertificateOu = isyOAuth2ClientProps.getDefaultCertificateOu();
     }
 
-    public Converter<OAuth2PasswordGrantRequest, HttpHeaders> buildWith(String bhknz) {
-        return new BhknzHeaderConverter(bhknz);
+    public <T extends AbstractOAuth2AuthorizationGrantRequest> Converter<T, HttpHeaders> buildWith(String bhknz) {
+        return new BhknzHeaderConverter<>(bhknz);
     }
 
-    private final class BhknzHeaderConverter implements Converter<OAuth2PasswordGrantRequest, HttpHeaders> {
+    private final class BhknzHeaderConverter<T extends AbstractOAuth2AuthorizationGrantRequest> implements Converter<T, HttpHeaders> {
 
-        /** The BHKNZ to pass as part of the header. */
-        private final String bhknz;
+        /** The value of the header, consisting of the BHKNZ and the certificate OU. */
+        private final String headerValue;
 
         private BhknzHeaderConverter(String bhknz) {
-            this.bhknz = bhknz;
+            this.headerValue = bhknz + ":" + defaultCertificateOu;
         }
 
         @Override
-        public HttpHeaders convert(OAuth2PasswordGrantRequest request) {
-            String headerValue = String.format("%s:%s", bhknz, defaultCertificateOu);
-
+        public HttpHeaders convert(T request) {
             HttpHeaders headers = new HttpHeaders();
             headers.add(headerName, headerValue);
             return headers;
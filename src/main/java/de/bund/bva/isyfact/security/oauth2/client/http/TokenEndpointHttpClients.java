@@ -0,0 +1,152 @@
+package de.bund.bva.isyfact.security.oauth2.client.http;
+
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.converter.FormHttpMessageConverter;
+import org.springframework.security.oauth2.client.http.OAuth2ErrorResponseErrorHandler;
+import org.springframework.security.oauth2.core.http.converter.OAuth2AccessTokenResponseHttpMessageConverter;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.client.RestTemplate;
+
+import de.bund.bva.isyfact.security.config.IsyOAuth2ClientConfigurationProperties.HttpProperties;
+
+/**
+ * Creates the HTTP transport shared by all isy-security clients that send requests to the token endpoint.
+ * <p>
+ * If HTTP/2 is disabled and Apache HttpClient 5 is on the classpath, a pooled Apache HttpClient is used.
+ * Otherwise, the JDK HTTP client is used, which keeps connections alive on its own (see the system properties
+ * {@code jdk.httpclient.connectionPoolSize} and {@code jdk.httpclient.keepalive.timeout}). The properties of the connection
+ * pool (maximum connections, idle timeout and validation after inactivity) cannot be applied to the JDK HTTP client,
+ * so they are rejected if HTTP/2 is enabled or Apache HttpClient 5 is missing.
+ */
+public final class TokenEndpointHttpClients {
+
+    /** Whether Apache HttpClient 5 is on the classpath. */
+    private static final boolean APACHE_HTTP_CLIENT_PRESENT = ClassUtils.isPresent(
+            "org.apache.hc.client5.http.impl.classic.HttpClients", TokenEndpointHttpClients.class.getClassLoader());
+
+    private TokenEndpointHttpClients() {
+    }
+
+    /**
+     * Creates a {@link ClientHttpRequestFactory} configured with the given properties.
+     *
+     * @param httpProperties properties of the HTTP transport
+     * @return the request factory
+     */
+    public static ClientHttpRequestFactory createRequestFactory(HttpProperties httpProperties) {
+        return createRequestFactory(httpProperties, APACHE_HTTP_CLIENT_PRESENT);
+    }
+
+    static ClientHttpRequestFactory createRequestFactory(HttpProperties httpProperties, boolean apacheHttpClientPresent) {
+        if (httpProperties.isHttp2Enabled()) {
+            assertNoPoolProperties(httpProperties, "are not supported with HTTP/2");
+        } else if (apacheHttpClientPresent) {
+            return ApacheHttpClientFactory.createRequestFactory(httpProperties);
+        } else {
+            assertNoPoolProperties(httpProperties, "require org.apache.httpcomponents.client5:httpclient5 on the classpath");
+        }
+
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(createJdkHttpClient(httpProperties));
+        requestFactory.setReadTimeout(httpProperties.getReadTimeout());
+        return requestFactory;
+    }
+
+    /**
+     * Creates a JDK {@link HttpClient} with the HTTP version and connect timeout of the given properties. The read timeout
+     * has to be applied per request by the caller.
+     *
+     * @param httpProperties properties of the HTTP transport
+     * @return the HTTP client
+     */
+    public static HttpClient createJdkHttpClient(HttpProperties httpProperties) {
+        return HttpClient.newBuilder()
+                .version(httpProperties.isHttp2Enabled() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(httpProperties.getConnectTimeout())
+                .build();
+    }
+
+    /**
+     * Verifies that no properties of the connection pool are configured, because the JDK HTTP client ignores them.
+     */
+    private static void assertNoPoolProperties(HttpProperties httpProperties, String reason) {
+        HttpProperties defaults = new HttpProperties();
+        List<String> poolProperties = new ArrayList<>();
+        if (httpProperties.getMaxConnections() != defaults.getMaxConnections()) {
+            poolProperties.add("max-connections");
+        }
+        if (httpProperties.getMaxConnectionsPerRoute() != defaults.getMaxConnectionsPerRoute()) {
+            poolProperties.add("max-connections-per-route");
+        }
+        if (!httpProperties.getIdleTimeout().equals(defaults.getIdleTimeout())) {
+            poolProperties.add("idle-timeout");
+        }
+        if (!httpProperties.getValidateAfterInactivity().equals(defaults.getValidateAfterInactivity())) {
+            poolProperties.add("validate-after-inactivity");
+        }
+        if (!poolProperties.isEmpty()) {
+            throw new IllegalStateException(String.format(
+                    "The connection pool properties %s %s, the JDK HTTP client is configured with "
+                            + "the system properties jdk.httpclient.connectionPoolSize and jdk.httpclient.keepalive.timeout.",
+                    poolProperties, reason));
+        }
+    }
+
+    /**
+     * Creates a {@link RestTemplate} that is configured like the ones created by Spring Security's token response clients
+     * (message converters and error handler), but uses the given request factory.
+     *
+     * @param requestFactory the request factory
+     * @return a RestTemplate for requests to the token endpoint
+     */
+    public static RestTemplate createRestTemplate(ClientHttpRequestFactory requestFactory) {
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+        restTemplate.setMessageConverters(Arrays.asList(new FormHttpMessageConverter(), new OAuth2AccessTokenResponseHttpMessageConverter()));
+        restTemplate.setErrorHandler(new OAuth2ErrorResponseErrorHandler());
+        return restTemplate;
+    }
+
+    /**
+     * Isolates the references to Apache HttpClient 5, which is an optional dependency.
+     */
+    private static final class ApacheHttpClientFactory {
+
+        private static ClientHttpRequestFactory createRequestFactory(HttpProperties httpProperties) {
+            PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                    .setMaxConnTotal(httpProperties.getMaxConnections())
+                    .setMaxConnPerRoute(httpProperties.getMaxConnectionsPerRoute())
+                    .setDefaultConnectionConfig(ConnectionConfig.custom()
+                            .setConnectTimeout(Timeout.of(httpProperties.getConnectTimeout()))
+                            .setSocketTimeout(Timeout.of(httpProperties.getReadTimeout()))
+                            .setValidateAfterInactivity(TimeValue.of(httpProperties.getValidateAfterInactivity()))
+                            .build())
+                    .build();
+
+            CloseableHttpClient httpClient = HttpClients.custom()
+                    .setConnectionManager(connectionManager)
+                    .setDefaultRequestConfig(RequestConfig.custom()
+                            .setResponseTimeout(Timeout.of(httpProperties.getReadTimeout()))
+                            .build())
+                    .evictExpiredConnections()
+                    .evictIdleConnections(TimeValue.of(httpProperties.getIdleTimeout()))
+                    .build();
+
+            return new HttpComponentsClientHttpRequestFactory(httpClient);
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+package de.bund.bva.isyfact.security.oauth2.client.http;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.util.Assert;
+import org.springframework.web.client.RestOperations;
+
+import de.bund.bva.isyfact.security.config.IsyOAuth2ClientConfigurationProperties.HttpProperties;
+
+/**
+ * Holds the HTTP transport shared by all isy-security clients that send requests to the token endpoint.
+ * <p>
+ * The request factory and the {@link RestOperations} are wrapped in this dedicated type, so that they are not exposed
+ * as beans of their general types and cannot be injected into the application by accident. The properties of the
+ * transport are also applied to the non-blocking clients (see {@link TokenEndpointWebClients}).
+ */
+public class TokenEndpointTransport implements DisposableBean {
+
+    /** Request factory, which holds the HTTP client and its connections. */
+    private final ClientHttpRequestFactory requestFactory;
+
+    /** RestOperations for requests to the token endpoint. */
+    private final RestOperations restOperations;
+
+    /** Properties the transport was created with. */
+    private final HttpProperties httpProperties;
+
+    /**
+     * Creates a transport configured with the given properties (see {@link TokenEndpointHttpClients#createRequestFactory}).
+     *
+     * @param httpProperties properties of the HTTP transport
+     */
+    public TokenEndpointTransport(HttpProperties httpProperties) {
+        this(TokenEndpointHttpClients.createRequestFactory(httpProperties), httpProperties);
+    }
+
+    /**
+     * Creates a transport with a {@link RestOperations} created by {@link TokenEndpointHttpClients#createRestTemplate}.
+     *
+     * @param requestFactory the request factory
+     */
+    public TokenEndpointTransport(ClientHttpRequestFactory requestFactory) {
+        this(requestFactory, new HttpProperties());
+    }
+
+    private TokenEndpointTransport(ClientHttpRequestFactory requestFactory, HttpProperties httpProperties) {
+        this(requestFactory, TokenEndpointHttpClients.createRestTemplate(requestFactory), httpProperties);
+    }
+
+    /**
+     * Creates a transport with the given request factory and {@link RestOperations}.
+     *
+     * @param requestFactory the request factory, which is destroyed with the transport
+     * @param restOperations the RestOperations for requests to the token endpoint
+     * @param httpProperties the properties applied to the non-blocking clients
+     */
+    public TokenEndpointTransport(ClientHttpRequestFactory requestFactory, RestOperations restOperations,
+                                  HttpProperties httpProperties) {
+        Assert.notNull(requestFactory, "requestFactory cannot be null");
+        Assert.notNull(restOperations, "restOperations cannot be null");
+        Assert.notNull(httpProperties, "httpProperties cannot be null");
+        this.requestFactory = requestFactory;
+        this.restOperations = restOperations;
+        this.httpProperties = httpProperties;
+    }
+
+    public ClientHttpRequestFactory getRequestFactory() {
+        return requestFactory;
+    }
+
+    public RestOperations getRestOperations() {
+        return restOperations;
+    }
+
+    public HttpProperties getHttpProperties() {
+        return httpProperties;
+    }
+
+    /**
+     * Closes the connections of the request factory, if it holds any.
+     */
+    @Override
+    public void destroy() throws Exception {
+        if (requestFactory instanceof DisposableBean) {
+            ((DisposableBean) requestFactory).destroy();
+        }
+    }
+}
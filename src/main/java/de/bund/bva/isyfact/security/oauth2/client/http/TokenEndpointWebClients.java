@@ -0,0 +1,38 @@
+package de.bund.bva.isyfact.security.oauth2.client.http;
+
+import java.time.Duration;
+
+import org.springframework.http.client.reactive.JdkClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import de.bund.bva.isyfact.security.config.IsyOAuth2ClientConfigurationProperties.HttpProperties;
+
+/**
+ * Creates the {@link WebClient} used by the non-blocking isy-security clients for requests to the token endpoint.
+ * <p>
+ * The WebClient uses a JDK HTTP client with the HTTP version, connect timeout and read timeout of the {@link TokenEndpointTransport}.
+ * It keeps its own connections, because the pooled Apache HttpClient of the transport only supports blocking requests.
+ * Only used if Spring WebFlux is on the classpath.
+ */
+public final class TokenEndpointWebClients {
+
+    private TokenEndpointWebClients() {
+    }
+
+    /**
+     * Creates a {@link WebClient} configured with the properties of the given transport.
+     *
+     * @param transport the transport used for blocking requests to the token endpoint
+     * @return a WebClient for requests to the token endpoint
+     */
+    public static WebClient createWebClient(TokenEndpointTransport transport) {
+        HttpProperties httpProperties = transport.getHttpProperties();
+        Duration readTimeout = httpProperties.getReadTimeout();
+        return WebClient.builder()
+                .clientConnector(new JdkClientHttpConnector(TokenEndpointHttpClients.createJdkHttpClient(httpProperties)))
+                // the connector has no read timeout, so it is applied to the time until the response arrives
+                .filter((request, next) -> next.exchange(request).timeout(readTimeout))
+                .build();
+    }
+
+}
@@ -0,0 +1,154 @@
+package de.bund.bva.isyfact.security.oauth2.client.registration;
+
+import java.time.Clock;
+import java.time.Duration;
+
+import org.springframework.lang.Nullable;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.ClientRegistrations;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.util.Assert;
+
+import de.bund.bva.isyfact.security.cache.ExpiringCache;
+import de.bund.bva.isyfact.security.metrics.IsySecurityMetrics;
+import de.bund.bva.isyfact.security.observation.IsySecurityObservations;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
+/**
+ * Caches the provider configuration (OpenID Connect discovery or OAuth 2.0 Authorization Server Metadata) of issuers.
+ * <p>
+ * {@link ClientRegistrations#fromIssuerLocation(String)} performs a blocking HTTP request to the discovery endpoint of the issuer.
+ * This cache keeps the discovered configuration per issuer location for the configured time to live,
+ * so that Client Registrations that are created programmatically for the same issuer reuse the discovered endpoints.
+ * The duration of each discovery is reported to the {@link IsySecurityMetrics} (see {@link #setMetrics(IsySecurityMetrics)})
+ * and each discovery is observed with the {@link ObservationRegistry} (see {@link #setObservationRegistry(ObservationRegistry)}).
+ */
+public class ProviderConfigurationCache {
+
+    /**
+     * Client ID of the cached template registrations. It is always replaced before a registration is built for a client.
+     */
+    private static final String TEMPLATE_CLIENT_ID = "template";
+
+    /** Client Registrations per issuer location that hold the discovered provider configuration. */
+    private final ExpiringCache<String, ClientRegistration> templates;
+
+    /** How long the discovered configuration of an issuer is reused. */
+    private final Duration timeToLive;
+
+    /** Clock used to calculate the expiry of cache entries. */
+    private final Clock clock;
+
+    /** Metrics the discoveries are reported to. */
+    private volatile IsySecurityMetrics metrics = IsySecurityMetrics.NOOP;
+
+    /** Registry the discoveries are observed with. */
+    private volatile ObservationRegistry observationRegistry = ObservationRegistry.NOOP;
+
+    public ProviderConfigurationCache(Duration timeToLive, int maxSize) {
+        this(timeToLive, maxSize, Clock.systemUTC());
+    }
+
+    public ProviderConfigurationCache(Duration timeToLive, int maxSize, Clock clock) {
+        Assert.notNull(timeToLive, "timeToLive cannot be null");
+        Assert.isTrue(!timeToLive.isNegative(), "timeToLive cannot be negative");
+        this.timeToLive = timeToLive;
+        this.clock = clock;
+        this.templates = new ExpiringCache<>(timeToLive.isZero() ? 0 : maxSize, clock);
+    }
+
+    /**
+     * Returns a {@link ClientRegistration.Builder} that is initialized with the provider configuration of the given issuer.
+     * The configuration is only discovered if it is not cached yet or the cached configuration has expired.
+     * The builder behaves like the one returned by {@link ClientRegistrations#fromIssuerLocation(String)}, i.e. at least the client ID
+     * and the authorization grant type have to be set before building the registration.
+     *
+     * @param issuerLocation the issuer location to discover the provider configuration from
+     * @return a new builder for a Client Registration of the given issuer
+     * @throws IllegalArgumentException if the provider configuration could not be discovered
+     */
+    public ClientRegistration.Builder fromIssuerLocation(String issuerLocation) {
+        Assert.hasText(issuerLocation, "issuerLocation cannot be empty");
+
+        ClientRegistration template = templates.get(issuerLocation);
+        if (template == null) {
+            template = discover(issuerLocation);
+            templates.put(issuerLocation, template, clock.instant().plus(timeToLive));
+        }
+
+        return ClientRegistration.withClientRegistration(template);
+    }
+
+    /**
+     * Sets the metrics the discoveries are reported to and registers the cache.
+     *
+     * @param metrics the metrics
+     */
+    public void setMetrics(IsySecurityMetrics metrics) {
+        Assert.notNull(metrics, "metrics cannot be null");
+        this.metrics = metrics;
+        metrics.registerCache("discovery", templates);
+    }
+
+    /**
+     * Sets the registry the discoveries are observed with.
+     *
+     * @param observationRegistry the registry
+     */
+    public void setObservationRegistry(ObservationRegistry observationRegistry) {
+        Assert.notNull(observationRegistry, "observationRegistry cannot be null");
+        this.observationRegistry = observationRegistry;
+    }
+
+    /**
+     * Returns a {@link ClientRegistration.Builder} that is initialized with the cached provider configuration of the given issuer,
+     * without discovering it. This allows non-blocking callers to only move the discovery to another thread on a cache miss.
+     *
+     * @param issuerLocation the issuer location
+     * @return a new builder for a Client Registration of the given issuer or {@code null} if the configuration is not cached
+     */
+    @Nullable
+    public ClientRegistration.Builder getIfPresent(String issuerLocation) {
+        Assert.hasText(issuerLocation, "issuerLocation cannot be empty");
+
+        ClientRegistration template = templates.get(issuerLocation);
+        return template != null ? ClientRegistration.withClientRegistration(template) : null;
+    }
+
+    /**
+     * Removes the cached provider configuration of the given issuer, so that it is discovered again on the next request.
+     *
+     * @param issuerLocation the issuer location
+     */
+    public void invalidate(String issuerLocation) {
+        templates.invalidate(issuerLocation);
+    }
+
+    /**
+     * Removes the cached provider configuration of all issuers.
+     */
+    public void invalidateAll() {
+        templates.invalidateAll();
+    }
+
+    private ClientRegistration discover(String issuerLocation) {
+        Observation observation = IsySecurityObservations.discovery(observationRegistry, issuerLocation).start();
+        long start = System.nanoTime();
+        try (Observation.Scope scope = observation.openScope()) {
+            ClientRegistration template = ClientRegistrations.fromIssuerLocation(issuerLocation)
+                    .clientId(TEMPLATE_CLIENT_ID)
+                    .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                    .build();
+            metrics.recordDiscovery(issuerLocation, System.nanoTime() - start, null);
+            return template;
+        } catch (RuntimeException e) {
+            metrics.recordDiscovery(issuerLocation, System.nanoTime() - start, e);
+            observation.error(e);
+            throw e;
+        } finally {
+            observation.stop();
+        }
+    }
+
+}
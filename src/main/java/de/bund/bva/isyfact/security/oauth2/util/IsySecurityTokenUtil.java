@@ -1,5 +1,7 @@
 package de.bund.bva.isyfact.security.oauth2.util;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.ResourceBundle;
 
@@ -9,9 +11,15 @@ import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
 import org.springframework.security.oauth2.core.oidc.StandardClaimNames;
 import org.springframework.security.oauth2.server.resource.BearerTokenErrors;
 import org.springframework.security.oauth2.server.resource.authentication.AbstractOAuth2TokenAuthenticationToken;
+import org.springframework.util.Assert;
+
+import de.bund.bva.isyfact.security.cache.AuthenticationScopedValue;
 
 /**
  * This class contains utility methods for isy-security. It provides access to the claims of the current OAuth 2.0 token.
+ * <p>
+ * The user-related claims are resolved once per authentication into a {@link TokenPrincipal}. The {@code find...} methods
+ * return an empty Optional instead of throwing an exception if the authenticated principal is not an OAuth 2.0 token.
  */
 public class IsySecurityTokenUtil {
 
@@ -40,6 +48,17 @@ public class IsySecurityTokenUtil {
      */
     private static final String DISPLAYNAME = getConfigPropertyValueAsString("displayName");
 
+    /**
+     * The default JWT claim name that contains the roles, the default of {@code isy.security.roles-claim-name}.
+     */
+    public static final String DEFAULT_ROLES_CLAIM_NAME = "roles";
+
+    /**
+     * The token principals of the authentication that was last accessed by the current thread, by roles claim name.
+     */
+    private static final AuthenticationScopedValue<Map<String, TokenPrincipal>> TOKEN_PRINCIPALS =
+            new AuthenticationScopedValue<>(authentication -> new HashMap<>(2));
+
     /**
      * The prefix for all configuration properties.
      */
@@ -59,47 +78,137 @@ public class IsySecurityTokenUtil {
      * Returns the login of the current user or an empty Optional if the login attribute is not set.
      *
      * @return the login of the current user
+     * @throws OAuth2AuthenticationException
+     *         if the authenticated principal is not a {@link AbstractOAuth2TokenAuthenticationToken}
      */
     public static Optional<String> getLogin() {
-        String login = (String) getTokenAttribute(LOGIN);
-        return Optional.ofNullable(login);
+        return getTokenPrincipal().getLogin();
     }
 
     /**
      * Returns the userId of the current user. If the userId is not set, the Subject identifier (sub) is returned.
      *
      * @return the userId of the current user or the Subject identifier (sub) if the userId is not set
+     * @throws OAuth2AuthenticationException
+     *         if the authenticated principal is not a {@link AbstractOAuth2TokenAuthenticationToken}
      */
     public static String getUserId() {
-        String userId = (String) getTokenAttribute(USERID);
-        if (userId == null) {
-            return (String) getTokenAttribute(StandardClaimNames.SUB);
-        } else {
-            return userId;
-        }
+        return getTokenPrincipal().getUserId().orElse(null);
     }
 
     /**
      * Returns a bhknz of the current user or an empty Optional if the bhknz attribute is not set.
      *
      * @return the bhknz of the current user
+     * @throws OAuth2AuthenticationException
+     *         if the authenticated principal is not a {@link AbstractOAuth2TokenAuthenticationToken}
      */
     public static Optional<String> getBhknz() {
-        String bhknz = (String) getTokenAttribute(BHKNZ);
-        return Optional.ofNullable(bhknz);
+        return getTokenPrincipal().getBhknz();
     }
 
     /**
      * Returns the display name of the current user. If the display name is not set, the login is returned.
      *
      * @return the display name of the current user or the login if the display name is not set
+     * @throws OAuth2AuthenticationException
+     *         if the authenticated principal is not a {@link AbstractOAuth2TokenAuthenticationToken}
      */
     public static Optional<String> getDisplayName() {
-        String displayName = (String) getTokenAttribute(DISPLAYNAME);
-        if (displayName == null) {
-            return getLogin();
+        return getTokenPrincipal().getDisplayName();
+    }
+
+    /**
+     * Returns the login of the current user, without throwing an exception if the principal is not an OAuth 2.0 token.
+     *
+     * @return the login of the current user or an empty Optional if the login is not set or there is no OAuth 2.0 token
+     */
+    public static Optional<String> findLogin() {
+        return findTokenPrincipal().flatMap(TokenPrincipal::getLogin);
+    }
+
+    /**
+     * Returns the userId of the current user, without throwing an exception if the principal is not an OAuth 2.0 token.
+     *
+     * @return the userId or the Subject identifier (sub) of the current user, or an empty Optional if neither is set
+     * or there is no OAuth 2.0 token
+     */
+    public static Optional<String> findUserId() {
+        return findTokenPrincipal().flatMap(TokenPrincipal::getUserId);
+    }
+
+    /**
+     * Returns the bhknz of the current user, without throwing an exception if the principal is not an OAuth 2.0 token.
+     *
+     * @return the bhknz of the current user or an empty Optional if the bhknz is not set or there is no OAuth 2.0 token
+     */
+    public static Optional<String> findBhknz() {
+        return findTokenPrincipal().flatMap(TokenPrincipal::getBhknz);
+    }
+
+    /**
+     * Returns the display name of the current user, without throwing an exception if the principal is not an OAuth 2.0 token.
+     *
+     * @return the display name or the login of the current user, or an empty Optional if neither is set or there is no
+     * OAuth 2.0 token
+     */
+    public static Optional<String> findDisplayName() {
+        return findTokenPrincipal().flatMap(TokenPrincipal::getDisplayName);
+    }
+
+    /**
+     * Returns the user-related claims of the current OAuth 2.0 token, with the roles of the claim
+     * {@value #DEFAULT_ROLES_CLAIM_NAME}.
+     *
+     * @return the token principal of the current user
+     * @throws OAuth2AuthenticationException
+     *         if the authenticated principal is not a {@link AbstractOAuth2TokenAuthenticationToken}
+     */
+    public static TokenPrincipal getTokenPrincipal() {
+        return getTokenPrincipal(DEFAULT_ROLES_CLAIM_NAME);
+    }
+
+    /**
+     * Returns the user-related claims of the current OAuth 2.0 token, with the roles of the given claim.
+     *
+     * @param rolesClaimName the JWT claim name that contains the roles, usually {@code isy.security.roles-claim-name}
+     * @return the token principal of the current user
+     * @throws OAuth2AuthenticationException
+     *         if the authenticated principal is not a {@link AbstractOAuth2TokenAuthenticationToken}
+     */
+    public static TokenPrincipal getTokenPrincipal(String rolesClaimName) {
+        return findTokenPrincipal(rolesClaimName).orElseThrow(IsySecurityTokenUtil::noTokenAuthentication);
+    }
+
+    /**
+     * Returns the user-related claims of the current OAuth 2.0 token, with the roles of the claim
+     * {@value #DEFAULT_ROLES_CLAIM_NAME}. The claims are resolved once per authentication.
+     *
+     * @return the token principal of the current user, or an empty Optional if the authenticated principal is not a
+     * {@link AbstractOAuth2TokenAuthenticationToken}
+     */
+    public static Optional<TokenPrincipal> findTokenPrincipal() {
+        return findTokenPrincipal(DEFAULT_ROLES_CLAIM_NAME);
+    }
+
+    /**
+     * Returns the user-related claims of the current OAuth 2.0 token, with the roles of the given claim. The claims are
+     * resolved once per authentication and roles claim name.
+     *
+     * @param rolesClaimName the JWT claim name that contains the roles, usually {@code isy.security.roles-claim-name}
+     * @return the token principal of the current user, or an empty Optional if the authenticated principal is not a
+     * {@link AbstractOAuth2TokenAuthenticationToken}
+     */
+    public static Optional<TokenPrincipal> findTokenPrincipal(String rolesClaimName) {
+        Assert.hasText(rolesClaimName, "rolesClaimName cannot be empty");
+        Authentication currentAuthentication = SecurityContextHolder.getContext().getAuthentication();
+        if (!(currentAuthentication instanceof AbstractOAuth2TokenAuthenticationToken)) {
+            TOKEN_PRINCIPALS.clear();
+            return Optional.empty();
         }
-        return Optional.of(displayName);
+        return Optional.of(TOKEN_PRINCIPALS.get(currentAuthentication).computeIfAbsent(rolesClaimName, claimName -> TokenPrincipal.of(
+                ((AbstractOAuth2TokenAuthenticationToken<?>) currentAuthentication).getTokenAttributes(),
+                LOGIN, USERID, StandardClaimNames.SUB, BHKNZ, DISPLAYNAME, claimName)));
     }
 
     /**
@@ -116,8 +225,12 @@ public class IsySecurityTokenUtil {
         if (currentAuthentication instanceof AbstractOAuth2TokenAuthenticationToken) {
             return ((AbstractOAuth2TokenAuthenticationToken<?>) currentAuthentication).getTokenAttributes().get(key);
         } else {
-            throw new OAuth2AuthenticationException(BearerTokenErrors.invalidToken("Authentication is not an OAuth2 token authentication."));
+            throw noTokenAuthentication();
         }
     }
 
+    private static OAuth2AuthenticationException noTokenAuthentication() {
+        return new OAuth2AuthenticationException(BearerTokenErrors.invalidToken("Authentication is not an OAuth2 token authentication."));
+    }
+
 }
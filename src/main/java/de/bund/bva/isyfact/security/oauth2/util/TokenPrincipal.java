@@ -0,0 +1,129 @@
+package de.bund.bva.isyfact.security.oauth2.util;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Immutable view of the user-related claims of an OAuth 2.0 token.
+ * <p>
+ * The claims are resolved once when the view is created, using the claim names configured in
+ * {@code isy-security-token.properties} and the roles claim passed to {@link IsySecurityTokenUtil#findTokenPrincipal(String)}.
+ * Claims of an unexpected type are treated as not set. Instances are obtained via {@link IsySecurityTokenUtil#findTokenPrincipal()}
+ * or {@link IsySecurityTokenUtil#getTokenPrincipal()}.
+ */
+public final class TokenPrincipal {
+
+    /** The login of the user. */
+    @Nullable
+    private final String login;
+
+    /** The userId of the user, or the Subject identifier (sub) if the userId is not set. */
+    @Nullable
+    private final String userId;
+
+    /** The bhknz (Behoerdenkennzeichen) of the user. */
+    @Nullable
+    private final String bhknz;
+
+    /** The display name of the user, or the login if the display name is not set. */
+    @Nullable
+    private final String displayName;
+
+    /** The roles of the user. */
+    private final Set<String> roles;
+
+    private TokenPrincipal(@Nullable String login, @Nullable String userId, @Nullable String bhknz, @Nullable String displayName,
+                           Set<String> roles) {
+        this.login = login;
+        this.userId = userId;
+        this.bhknz = bhknz;
+        this.displayName = displayName;
+        this.roles = roles;
+    }
+
+    /**
+     * Resolves the user-related claims from the given token attributes.
+     */
+    static TokenPrincipal of(Map<String, Object> tokenAttributes, String loginClaim, String userIdClaim, String subClaim,
+                             String bhknzClaim, String displayNameClaim, String rolesClaim) {
+        String login = getString(tokenAttributes, loginClaim);
+        String userId = getString(tokenAttributes, userIdClaim);
+        if (userId == null) {
+            userId = getString(tokenAttributes, subClaim);
+        }
+        String bhknz = getString(tokenAttributes, bhknzClaim);
+        String displayName = getString(tokenAttributes, displayNameClaim);
+        if (displayName == null) {
+            displayName = login;
+        }
+
+        return new TokenPrincipal(login, userId, bhknz, displayName, getRoles(tokenAttributes.get(rolesClaim)));
+    }
+
+    @Nullable
+    private static String getString(Map<String, Object> tokenAttributes, String claim) {
+        Object value = tokenAttributes.get(claim);
+        return value instanceof String ? (String) value : null;
+    }
+
+    private static Set<String> getRoles(@Nullable Object rolesAttribute) {
+        if (!(rolesAttribute instanceof Collection)) {
+            return Collections.emptySet();
+        }
+        Set<String> roles = new HashSet<>();
+        for (Object role : (Collection<?>) rolesAttribute) {
+            if (role instanceof String) {
+                roles.add((String) role);
+            }
+        }
+        return Collections.unmodifiableSet(roles);
+    }
+
+    /**
+     * @return the login of the user or an empty Optional if the login attribute is not set
+     */
+    public Optional<String> getLogin() {
+        return Optional.ofNullable(login);
+    }
+
+    /**
+     * @return the userId of the user or the Subject identifier (sub) if the userId is not set, or an empty Optional if neither is set
+     */
+    public Optional<String> getUserId() {
+        return Optional.ofNullable(userId);
+    }
+
+    /**
+     * @return the bhknz of the user or an empty Optional if the bhknz attribute is not set
+     */
+    public Optional<String> getBhknz() {
+        return Optional.ofNullable(bhknz);
+    }
+
+    /**
+     * @return the display name of the user or the login if the display name is not set, or an empty Optional if neither is set
+     */
+    public Optional<String> getDisplayName() {
+        return Optional.ofNullable(displayName);
+    }
+
+    /**
+     * @return the unmodifiable set of roles of the user, empty if the roles attribute is not set
+     */
+    public Set<String> getRoles() {
+        return roles;
+    }
+
+    @Override
+    public String toString() {
+        return "TokenPrincipal{login=" + login + ", userId=" + userId + ", bhknz=" + bhknz + ", displayName=" + displayName
+                + ", roles=" + roles + "}";
+    }
+
+}
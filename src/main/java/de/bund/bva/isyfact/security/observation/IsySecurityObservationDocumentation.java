@@ -0,0 +1,167 @@
+package de.bund.bva.isyfact.security.observation;
+
+import io.micrometer.common.docs.KeyName;
+import io.micrometer.observation.docs.ObservationDocumentation;
+
+/**
+ * Documentation of the {@link io.micrometer.observation.Observation}s of the interactions of isy-security with the IAM service.
+ * <p>
+ * All observations carry the correlation ID of the current thread (see {@link de.bund.bva.isyfact.util.logging.MdcHelper})
+ * as high-cardinality key value, so that a trace can be found by the correlation ID in the logs and vice versa.
+ * The names are prefixed with {@code isy.security.observation}, so that meters derived from the observations do not
+ * collide with the metrics of {@link de.bund.bva.isyfact.security.metrics.MicrometerIsySecurityMetrics}.
+ */
+public enum IsySecurityObservationDocumentation implements ObservationDocumentation {
+
+    /**
+     * Authentication with the {@link de.bund.bva.isyfact.security.oauth2.client.Authentifizierungsmanager}
+     * via the Client Credentials or the Resource Owner Password Credentials flow, including all requests to the IAM service.
+     */
+    AUTHENTICATION {
+        @Override
+        public String getName() {
+            return "isy.security.observation.authentication";
+        }
+
+        @Override
+        public String getContextualName() {
+            return "isy-security authentication";
+        }
+
+        @Override
+        public KeyName[] getLowCardinalityKeyNames() {
+            return new KeyName[] { LowCardinalityKeyNames.REGISTRATION, LowCardinalityKeyNames.GRANT_TYPE };
+        }
+
+        @Override
+        public KeyName[] getHighCardinalityKeyNames() {
+            return HighCardinalityKeyNames.values();
+        }
+    },
+
+    /**
+     * Request to the token endpoint of the IAM service.
+     */
+    TOKEN_REQUEST {
+        @Override
+        public String getName() {
+            return "isy.security.observation.token.request";
+        }
+
+        @Override
+        public String getContextualName() {
+            return "isy-security token request";
+        }
+
+        @Override
+        public KeyName[] getLowCardinalityKeyNames() {
+            return new KeyName[] { LowCardinalityKeyNames.REGISTRATION, LowCardinalityKeyNames.GRANT_TYPE };
+        }
+
+        @Override
+        public KeyName[] getHighCardinalityKeyNames() {
+            return HighCardinalityKeyNames.values();
+        }
+    },
+
+    /**
+     * Discovery of the provider configuration of an issuer.
+     */
+    DISCOVERY {
+        @Override
+        public String getName() {
+            return "isy.security.observation.discovery";
+        }
+
+        @Override
+        public String getContextualName() {
+            return "isy-security discovery";
+        }
+
+        @Override
+        public KeyName[] getLowCardinalityKeyNames() {
+            return new KeyName[] { LowCardinalityKeyNames.ISSUER };
+        }
+
+        @Override
+        public KeyName[] getHighCardinalityKeyNames() {
+            return HighCardinalityKeyNames.values();
+        }
+    },
+
+    /**
+     * Decoding and validation of an access token, including the retrieval of the JWK set of the issuer
+     * if it is not cached yet.
+     */
+    JWT_DECODE {
+        @Override
+        public String getName() {
+            return "isy.security.observation.jwt.decode";
+        }
+
+        @Override
+        public String getContextualName() {
+            return "isy-security jwt decode";
+        }
+
+        @Override
+        public KeyName[] getLowCardinalityKeyNames() {
+            return new KeyName[] { LowCardinalityKeyNames.REGISTRATION, LowCardinalityKeyNames.GRANT_TYPE };
+        }
+
+        @Override
+        public KeyName[] getHighCardinalityKeyNames() {
+            return HighCardinalityKeyNames.values();
+        }
+    };
+
+    /**
+     * Low-cardinality keys, which are also used as tags of the metrics derived from the observations.
+     */
+    public enum LowCardinalityKeyNames implements KeyName {
+
+        /** Registration ID of the client. */
+        REGISTRATION {
+            @Override
+            public String asString() {
+                return "registration";
+            }
+        },
+
+        /** Authorization grant type, e.g. {@code client_credentials}. */
+        GRANT_TYPE {
+            @Override
+            public String asString() {
+                return "grant.type";
+            }
+        },
+
+        /** Issuer location. */
+        ISSUER {
+            @Override
+            public String asString() {
+                return "issuer";
+            }
+        }
+    }
+
+    /**
+     * High-cardinality keys, which are only added to traces.
+     */
+    public enum HighCardinalityKeyNames implements KeyName {
+
+        /** Correlation ID of the current thread. */
+        KORRELATIONS_ID {
+            @Override
+            public String asString() {
+                return "korrelationsid";
+            }
+
+            @Override
+            public boolean isRequired() {
+                return false;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,53 @@
+package de.bund.bva.isyfact.security.observation;
+
+import de.bund.bva.isyfact.security.observation.IsySecurityObservationDocumentation.HighCardinalityKeyNames;
+import de.bund.bva.isyfact.security.observation.IsySecurityObservationDocumentation.LowCardinalityKeyNames;
+import de.bund.bva.isyfact.util.logging.MdcHelper;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
+/**
+ * Creates the {@link Observation}s documented in {@link IsySecurityObservationDocumentation}.
+ * <p>
+ * The returned observations are not started yet. If the registry is a no-op registry, no-op observations are returned
+ * and the correlation ID is not read.
+ */
+public final class IsySecurityObservations {
+
+    private IsySecurityObservations() {
+    }
+
+    public static Observation authentication(ObservationRegistry registry, String registrationId, String grantType) {
+        return withKorrelationsId(IsySecurityObservationDocumentation.AUTHENTICATION.observation(registry)
+                .lowCardinalityKeyValue(LowCardinalityKeyNames.REGISTRATION.withValue(registrationId))
+                .lowCardinalityKeyValue(LowCardinalityKeyNames.GRANT_TYPE.withValue(grantType)));
+    }
+
+    public static Observation tokenRequest(ObservationRegistry registry, String registrationId, String grantType) {
+        return withKorrelationsId(IsySecurityObservationDocumentation.TOKEN_REQUEST.observation(registry)
+                .lowCardinalityKeyValue(LowCardinalityKeyNames.REGISTRATION.withValue(registrationId))
+                .lowCardinalityKeyValue(LowCardinalityKeyNames.GRANT_TYPE.withValue(grantType)));
+    }
+
+    public static Observation discovery(ObservationRegistry registry, String issuerLocation) {
+        return withKorrelationsId(IsySecurityObservationDocumentation.DISCOVERY.observation(registry)
+                .lowCardinalityKeyValue(LowCardinalityKeyNames.ISSUER.withValue(issuerLocation)));
+    }
+
+    public static Observation jwtDecode(ObservationRegistry registry, String registrationId, String grantType) {
+        return withKorrelationsId(IsySecurityObservationDocumentation.JWT_DECODE.observation(registry)
+                .lowCardinalityKeyValue(LowCardinalityKeyNames.REGISTRATION.withValue(registrationId))
+                .lowCardinalityKeyValue(LowCardinalityKeyNames.GRANT_TYPE.withValue(grantType)));
+    }
+
+    private static Observation withKorrelationsId(Observation observation) {
+        if (!observation.isNoop()) {
+            String korrelationsId = MdcHelper.liesKorrelationsId();
+            if (korrelationsId != null) {
+                observation.highCardinalityKeyValue(HighCardinalityKeyNames.KORRELATIONS_ID.withValue(korrelationsId));
+            }
+        }
+        return observation;
+    }
+
+}
@@ -0,0 +1,245 @@
+package de.bund.bva.isyfact.security.warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.security.oauth2.client.OAuth2ClientProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.lang.Nullable;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+
+import de.bund.bva.isyfact.security.config.IsyOAuth2ClientConfigurationProperties;
+import de.bund.bva.isyfact.security.config.IsyOAuth2ClientConfigurationProperties.AdditionalRegistrationProperties;
+import de.bund.bva.isyfact.security.config.IsySecurityConfigurationProperties;
+import de.bund.bva.isyfact.security.oauth2.client.Authentifizierungsmanager;
+import de.bund.bva.isyfact.security.xmlparser.RolePrivilegesMapper;
+
+/**
+ * Loads everything that is otherwise loaded by the first requests after the start of the application, so that these
+ * requests do not have to wait for the {@code IAM-Service}.
+ * <p>
+ * After the {@link ApplicationReadyEvent} the warm-up runs in a separate thread and
+ * <ul>
+ *     <li>converts a token with all roles of the role/privilege mapping,</li>
+ *     <li>loads the JWK sets of the {@link JwtDecoder}s of the resource server,</li>
+ *     <li>requests a token for the configured client registrations via the {@link Authentifizierungsmanager}, which also
+ *     loads the JWK sets used to decode these tokens.</li>
+ * </ul>
+ * The result of each step can be queried with {@link #getResults()}, e.g. by a health indicator that reports the
+ * application as ready only after the warm-up has finished. Failed steps are logged and not repeated, whatever they should
+ * have loaded is loaded by the first requests instead.
+ */
+public class IsySecurityWarmup implements ApplicationListener<ApplicationReadyEvent> {
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(IsySecurityWarmup.class);
+
+    /** Name of the thread that runs the warm-up. */
+    private static final String THREAD_NAME = "isy-security-warmup";
+
+    /** Result of a successful step. */
+    public static final String RESULT_OK = "OK";
+
+    /** Result of a failed step, the cause is only logged. */
+    public static final String RESULT_FAILED = "FAILED";
+
+    /**
+     * Signed JWT without a valid signature. Decoding it loads the JWK set of a decoder and fails afterwards with a
+     * {@link BadJwtException}.
+     */
+    private static final String WARMUP_TOKEN = base64Url("{\"alg\":\"RS256\",\"typ\":\"JWT\"}") + "."
+            + base64Url("{\"sub\":\"" + THREAD_NAME + "\"}") + "." + base64Url(THREAD_NAME);
+
+    /** The mapper holding the role/privilege mapping. */
+    private final RolePrivilegesMapper rolePrivilegesMapper;
+
+    /** Converter to create an authentication from a JWT. */
+    private final JwtAuthenticationConverter jwtAuthenticationConverter;
+
+    /** Global isy-security Configuration properties. */
+    private final IsySecurityConfigurationProperties isySecurityProperties;
+
+    /** The JWT decoders of the resource server. */
+    private final List<JwtDecoder> jwtDecoders;
+
+    /** Manager to request tokens, {@code null} if there are no OAuth 2.0 clients. */
+    @Nullable
+    private final Authentifizierungsmanager authentifizierungsmanager;
+
+    /** Spring's OAuth 2.0 client properties, {@code null} if there are no configured client registrations. */
+    @Nullable
+    private final OAuth2ClientProperties oAuth2ClientProperties;
+
+    /** Additional properties of the client registrations, {@code null} if there are no OAuth 2.0 clients. */
+    @Nullable
+    private final IsyOAuth2ClientConfigurationProperties isyOAuth2ClientProps;
+
+    /** Whether the warm-up has been started. */
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    /** Results of the steps by step name, {@code null} until the warm-up has finished. */
+    @Nullable
+    private volatile Map<String, String> results;
+
+    public IsySecurityWarmup(RolePrivilegesMapper rolePrivilegesMapper, JwtAuthenticationConverter jwtAuthenticationConverter,
+                             IsySecurityConfigurationProperties isySecurityProperties, List<JwtDecoder> jwtDecoders,
+                             @Nullable Authentifizierungsmanager authentifizierungsmanager,
+                             @Nullable OAuth2ClientProperties oAuth2ClientProperties,
+                             @Nullable IsyOAuth2ClientConfigurationProperties isyOAuth2ClientProps) {
+        this.rolePrivilegesMapper = rolePrivilegesMapper;
+        this.jwtAuthenticationConverter = jwtAuthenticationConverter;
+        this.isySecurityProperties = isySecurityProperties;
+        this.jwtDecoders = jwtDecoders;
+        this.authentifizierungsmanager = authentifizierungsmanager;
+        this.oAuth2ClientProperties = oAuth2ClientProperties;
+        this.isyOAuth2ClientProps = isyOAuth2ClientProps;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new Thread(this::warmUp, THREAD_NAME);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Runs all steps of the warm-up in the calling thread.
+     */
+    public void warmUp() {
+        long start = System.nanoTime();
+        Map<String, String> stepResults = new LinkedHashMap<>();
+
+        runStep(stepResults, "rolePrivileges", this::convertAllRoles);
+        for (int i = 0; i < jwtDecoders.size(); i++) {
+            JwtDecoder jwtDecoder = jwtDecoders.get(i);
+            runStep(stepResults, "jwkSet" + (jwtDecoders.size() > 1 ? "." + i : ""), () -> loadJwkSet(jwtDecoder));
+        }
+        if (authentifizierungsmanager != null) {
+            for (String registrationId : getRegistrationIds()) {
+                runStep(stepResults, "registration." + registrationId, () -> requestToken(registrationId));
+            }
+        }
+
+        results = Collections.unmodifiableMap(stepResults);
+        LOG.info("Aufwärmen von isy-security nach {} ms abgeschlossen: {}", (System.nanoTime() - start) / 1_000_000, stepResults);
+    }
+
+    /**
+     * @return {@code true} if the warm-up has finished, regardless of its success
+     */
+    public boolean isFinished() {
+        return results != null;
+    }
+
+    /**
+     * @return {@code true} if the warm-up has finished and all steps were successful
+     */
+    public boolean isSuccessful() {
+        Map<String, String> currentResults = results;
+        return currentResults != null && currentResults.values().stream().allMatch(RESULT_OK::equals);
+    }
+
+    /**
+     * Returns the results of the steps by step name, {@link #RESULT_OK} or {@link #RESULT_FAILED}.
+     *
+     * @return the results or an empty map if the warm-up has not finished yet
+     */
+    public Map<String, String> getResults() {
+        Map<String, String> currentResults = results;
+        return currentResults != null ? currentResults : Collections.emptyMap();
+    }
+
+    private void runStep(Map<String, String> stepResults, String name, Runnable step) {
+        try {
+            step.run();
+            stepResults.put(name, RESULT_OK);
+        } catch (RuntimeException e) {
+            LOG.warn("Aufwärmen von isy-security: Schritt {} fehlgeschlagen.", name, e);
+            stepResults.put(name, RESULT_FAILED);
+        }
+    }
+
+    /**
+     * Converts a token with all roles of the mapping, which creates the granted authorities of all privileges.
+     */
+    private void convertAllRoles() {
+        List<String> roles = new ArrayList<>(rolePrivilegesMapper.getRolePrivilegesMap().keySet());
+        if (roles.isEmpty()) {
+            return;
+        }
+        Jwt jwt = Jwt.withTokenValue(WARMUP_TOKEN)
+                .header("alg", "none")
+                .claim(isySecurityProperties.getRolesClaimName(), roles)
+                .build();
+        jwtAuthenticationConverter.convert(jwt);
+    }
+
+    /**
+     * Decodes a token with an invalid signature, which loads the issuer configuration and JWK set of the decoder.
+     * A {@link BadJwtException} means that the JWK set has been loaded, other exceptions that it could not be loaded.
+     */
+    private void loadJwkSet(JwtDecoder jwtDecoder) {
+        try {
+            jwtDecoder.decode(WARMUP_TOKEN);
+        } catch (BadJwtException e) {
+            // expected, the JWK set has been loaded
+        }
+    }
+
+    private void requestToken(String registrationId) {
+        try {
+            authentifizierungsmanager.authentifiziere(registrationId);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    /**
+     * Returns the configured registration IDs or all client registrations for which a token can be requested without
+     * further parameters.
+     */
+    private List<String> getRegistrationIds() {
+        List<String> registrationIds = isySecurityProperties.getWarmup().getRegistrationIds();
+        if (!registrationIds.isEmpty() || oAuth2ClientProperties == null) {
+            return registrationIds;
+        }
+
+        List<String> allRegistrationIds = new ArrayList<>();
+        oAuth2ClientProperties.getRegistration().forEach((registrationId, registration) -> {
+            if ("client_credentials".equals(registration.getAuthorizationGrantType())) {
+                allRegistrationIds.add(registrationId);
+            } else if ("password".equals(registration.getAuthorizationGrantType()) && hasResourceOwnerCredentials(registrationId)) {
+                allRegistrationIds.add(registrationId);
+            }
+        });
+        return allRegistrationIds;
+    }
+
+    private boolean hasResourceOwnerCredentials(String registrationId) {
+        AdditionalRegistrationProperties props = isyOAuth2ClientProps != null ? isyOAuth2ClientProps.getRegistration().get(registrationId) : null;
+        return props != null && props.getUsername() != null && props.getPassword() != null;
+    }
+
+    private static String base64Url(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,34 @@
+package de.bund.bva.isyfact.security.warmup;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+
+/**
+ * Reports the state of the {@link IsySecurityWarmup}.
+ * <p>
+ * The status is {@code OUT_OF_SERVICE} while the warm-up runs and {@code UP} once it has finished. Failed steps are not
+ * repeated, so they do not keep the application out of service: the warm-up is then reported as degraded, and the results of
+ * the steps are added as details. Include the indicator in the readiness group, so that the application only receives
+ * traffic once the warm-up has finished.
+ */
+public class IsySecurityWarmupHealthIndicator implements HealthIndicator {
+
+    /** The warm-up whose state is reported. */
+    private final IsySecurityWarmup isySecurityWarmup;
+
+    public IsySecurityWarmupHealthIndicator(IsySecurityWarmup isySecurityWarmup) {
+        this.isySecurityWarmup = isySecurityWarmup;
+    }
+
+    @Override
+    public Health health() {
+        if (!isySecurityWarmup.isFinished()) {
+            return Health.outOfService().build();
+        }
+        return Health.up()
+                .withDetail("degraded", !isySecurityWarmup.isSuccessful())
+                .withDetails(isySecurityWarmup.getResults())
+                .build();
+    }
+
+}
@@ -0,0 +1,139 @@
+package de.bund.bva.isyfact.security.xmlparser;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable index of the role privileges mapping that is built once when the mapping is loaded.
+ * <p>
+ * Roles and privileges are mapped to dense ordinals, the privileges of each role are held as a bitmap.
+ * Resolving the privileges of several roles is therefore a bitwise OR of their bitmaps.
+ * The resulting privilege sets are memoised per combination of roles, so that the same combination
+ * (e.g. the roles of a technical user) always resolves to the same immutable set.
+ */
+public final class RolePrivilegesIndex {
+
+    /** Maximum number of memoised role combinations. Further combinations are resolved without memoisation. */
+    private static final int MAX_MEMOISED_COMBINATIONS = 1024;
+
+    /** Ordinals of the roles by role ID. */
+    private final Map<String, Integer> roleOrdinals = new HashMap<>();
+
+    /** Privileges by ordinal. */
+    private final String[] privileges;
+
+    /** Privileges of each role as bitmap over the privilege ordinals, indexed by role ordinal. */
+    private final BitSet[] rolePrivileges;
+
+    /** Privileges of each role, indexed by role ordinal. */
+    private final Set<String>[] rolePrivilegeSets;
+
+    /** Union of all privileges. */
+    private final Set<String> allPrivileges;
+
+    /** Memoised privileges by combination of roles (bitmap over the role ordinals). */
+    private final Map<BitSet, Set<String>> privilegesByRoleCombination = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the index for the given mapping.
+     *
+     * @param rolePrivilegesMap privileges by role ID
+     */
+    @SuppressWarnings("unchecked")
+    public RolePrivilegesIndex(Map<String, Set<String>> rolePrivilegesMap) {
+        Map<String, Integer> privilegeOrdinals = new HashMap<>();
+        for (Set<String> privilegesOfRole : rolePrivilegesMap.values()) {
+            for (String privilege : privilegesOfRole) {
+                privilegeOrdinals.putIfAbsent(privilege, privilegeOrdinals.size());
+            }
+        }
+        privileges = new String[privilegeOrdinals.size()];
+        privilegeOrdinals.forEach((privilege, ordinal) -> privileges[ordinal] = privilege);
+
+        rolePrivileges = new BitSet[rolePrivilegesMap.size()];
+        rolePrivilegeSets = new Set[rolePrivilegesMap.size()];
+        for (Map.Entry<String, Set<String>> entry : rolePrivilegesMap.entrySet()) {
+            int roleOrdinal = roleOrdinals.size();
+            roleOrdinals.put(entry.getKey(), roleOrdinal);
+
+            BitSet bitmap = new BitSet(privileges.length);
+            entry.getValue().forEach(privilege -> bitmap.set(privilegeOrdinals.get(privilege)));
+            rolePrivileges[roleOrdinal] = bitmap;
+            rolePrivilegeSets[roleOrdinal] = toSet(bitmap);
+        }
+
+        BitSet all = new BitSet(privileges.length);
+        all.set(0, privileges.length);
+        allPrivileges = toSet(all);
+    }
+
+    /**
+     * Returns the privileges of the given roles. Unknown roles are ignored.
+     *
+     * @param roles the role IDs
+     * @return an immutable set of the privileges of all given roles
+     */
+    public Set<String> getPrivilegesByRoles(Collection<String> roles) {
+        if (roles.size() == 1) {
+            Integer roleOrdinal = roleOrdinals.get(roles.iterator().next());
+            return roleOrdinal != null ? rolePrivilegeSets[roleOrdinal] : Collections.emptySet();
+        }
+
+        BitSet roleCombination = new BitSet(rolePrivileges.length);
+        for (String role : roles) {
+            Integer roleOrdinal = roleOrdinals.get(role);
+            if (roleOrdinal != null) {
+                roleCombination.set(roleOrdinal);
+            }
+        }
+        if (roleCombination.cardinality() <= 1) {
+            int roleOrdinal = roleCombination.nextSetBit(0);
+            return roleOrdinal >= 0 ? rolePrivilegeSets[roleOrdinal] : Collections.emptySet();
+        }
+
+        Set<String> privilegesOfRoles = privilegesByRoleCombination.get(roleCombination);
+        if (privilegesOfRoles == null) {
+            privilegesOfRoles = resolve(roleCombination);
+            if (privilegesByRoleCombination.size() < MAX_MEMOISED_COMBINATIONS) {
+                // the bitmap is never modified after it has been used as key
+                Set<String> existing = privilegesByRoleCombination.putIfAbsent(roleCombination, privilegesOfRoles);
+                if (existing != null) {
+                    privilegesOfRoles = existing;
+                }
+            }
+        }
+        return privilegesOfRoles;
+    }
+
+    /**
+     * Returns the union of the privileges of all roles.
+     *
+     * @return an immutable set of all privileges
+     */
+    public Set<String> getAllPrivileges() {
+        return allPrivileges;
+    }
+
+    private Set<String> resolve(BitSet roleCombination) {
+        BitSet bitmap = new BitSet(privileges.length);
+        for (int roleOrdinal = roleCombination.nextSetBit(0); roleOrdinal >= 0; roleOrdinal = roleCombination.nextSetBit(roleOrdinal + 1)) {
+            bitmap.or(rolePrivileges[roleOrdinal]);
+        }
+        return toSet(bitmap);
+    }
+
+    private Set<String> toSet(BitSet bitmap) {
+        String[] privilegesOfBitmap = new String[bitmap.cardinality()];
+        int i = 0;
+        for (int ordinal = bitmap.nextSetBit(0); ordinal >= 0; ordinal = bitmap.nextSetBit(ordinal + 1)) {
+            privilegesOfBitmap[i++] = privileges[ordinal];
+        }
+        return Set.of(privilegesOfBitmap);
+    }
+
+}
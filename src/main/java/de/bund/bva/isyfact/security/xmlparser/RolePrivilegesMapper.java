@@ -8,13 +8,19 @@ import org.springframework.core.io.Resource;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+/**
+ * Maps roles to privileges as defined in the role privileges mapping file.
+ * <p>
+ * The mapping is held as an immutable snapshot. {@link #reload()} reads the file again and atomically replaces the snapshot,
+ * so readers never take locks and always see a consistent mapping.
+ */
 public class RolePrivilegesMapper {
 
     /**
@@ -22,49 +28,97 @@ public class RolePrivilegesMapper {
      */
     private static final Logger LOG = LoggerFactory.getLogger(RolePrivilegesMapper.class);
 
-    private String applicationId = "";
+    /** The role privileges mapping file. */
+    private final Resource roleMappingXmlResource;
 
-    private Map<String, Set<String>> rolePrivilegesMap = new HashMap<>();
+    /** The current mapping. */
+    private volatile Snapshot snapshot = new Snapshot("", Collections.emptyMap());
 
     public RolePrivilegesMapper(Resource roleMappingXmlResource) {
+        this.roleMappingXmlResource = roleMappingXmlResource;
         if (roleMappingXmlResource.exists()) {
-            RolePrivileges rolePrivileges = getRolePrivileges(roleMappingXmlResource);
-            rolePrivilegesMap = mapAndValidateRolePrivileges(rolePrivileges);
-
-            applicationId = rolePrivileges.getApplicationId();
-            if (applicationId == null || applicationId.isEmpty()) {
-                throw new RolePrivilegesMappingException("Es ist keine AnwendungsId gesetzt");
-            }
+            snapshot = loadSnapshot();
         } else {
             LOG.debug("Rollenrechte-Mapping Datei unter {} nicht gefunden.", roleMappingXmlResource.getDescription());
         }
     }
 
+    /**
+     * Reads the role privileges mapping file again and replaces the current mapping, if the file has changed.
+     * If the file does not exist (anymore), the current mapping is kept.
+     *
+     * @return {@code true}, if the mapping was replaced
+     * @throws RolePrivilegesMappingException if the file cannot be read or is invalid, the current mapping is kept in this case
+     */
+    public synchronized boolean reload() {
+        if (!roleMappingXmlResource.exists()) {
+            LOG.warn("Rollenrechte-Mapping Datei unter {} nicht gefunden, das bestehende Mapping wird beibehalten.",
+                    roleMappingXmlResource.getDescription());
+            return false;
+        }
+
+        Snapshot newSnapshot = loadSnapshot();
+        if (newSnapshot.applicationId.equals(snapshot.applicationId) && newSnapshot.rolePrivilegesMap.equals(snapshot.rolePrivilegesMap)) {
+            return false;
+        }
+        snapshot = newSnapshot;
+        LOG.info("Rollenrechte-Mapping aus {} neu geladen.", roleMappingXmlResource.getDescription());
+        return true;
+    }
+
+    public Resource getRoleMappingXmlResource() {
+        return roleMappingXmlResource;
+    }
+
+    /**
+     * Returns the privileges of the given roles. Unknown roles are ignored.
+     *
+     * @param roles the role IDs
+     * @return an immutable set of the privileges of all given roles
+     */
     public Set<String> getPrivilegesByRoles(Collection<String> roles) {
-        return roles.stream()
-                .map(rolePrivilegesMap::get)
-                .filter(Objects::nonNull)
-                .flatMap(Set::stream)
-                .collect(Collectors.toSet());
+        return snapshot.rolePrivilegesIndex.getPrivilegesByRoles(roles);
     }
 
+    /**
+     * @return an immutable set of the privileges of all roles
+     */
     public Set<String> getAllPrivileges() {
-        return rolePrivilegesMap.values().stream()
-                .flatMap(Set::stream)
-                .collect(Collectors.toSet());
+        return snapshot.rolePrivilegesIndex.getAllPrivileges();
+    }
+
+    /**
+     * Returns the index of the current mapping. A new index is returned after the mapping has been reloaded.
+     *
+     * @return the index of the current mapping
+     */
+    public RolePrivilegesIndex getRolePrivilegesIndex() {
+        return snapshot.rolePrivilegesIndex;
     }
 
     public Map<String, Set<String>> getRolePrivilegesMap() {
-        return rolePrivilegesMap;
+        return snapshot.rolePrivilegesMap;
     }
 
     public String getApplicationId() {
-        return applicationId;
+        return snapshot.applicationId;
     }
 
     @Override
     public String toString() {
-        return "AnwendungsId: " + applicationId + "\nRollenRechteMapping: " + getRolePrivilegesMap().toString();
+        Snapshot currentSnapshot = snapshot;
+        return "AnwendungsId: " + currentSnapshot.applicationId + "\nRollenRechteMapping: " + currentSnapshot.rolePrivilegesMap.toString();
+    }
+
+    private Snapshot loadSnapshot() {
+        RolePrivileges rolePrivileges = getRolePrivileges(roleMappingXmlResource);
+        Map<String, Set<String>> rolePrivilegesMap = mapAndValidateRolePrivileges(rolePrivileges);
+
+        String applicationId = rolePrivileges.getApplicationId();
+        if (applicationId == null || applicationId.isEmpty()) {
+            throw new RolePrivilegesMappingException("Es ist keine AnwendungsId gesetzt");
+        }
+        return new Snapshot(applicationId, rolePrivilegesMap);
     }
 
     private RolePrivileges getRolePrivileges(Resource roleMappingXmlResource) {
@@ -102,12 +156,33 @@ public class RolePrivilegesMapper {
                 }
                 privilegesForRole.add(privilegeId);
             }
-            result.put(roleId, privilegesForRole);
+            result.put(roleId, Collections.unmodifiableSet(privilegesForRole));
         }
         if (result.keySet().isEmpty()) {
             throw new RolePrivilegesMappingException("Es wurde keine einzige Rolle gefunden");
         }
-        return result;
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Immutable state of the mapping at one point in time.
+     */
+    private static final class Snapshot {
+
+        /** The ID of the application. */
+        private final String applicationId;
+
+        /** Privileges by role ID (unmodifiable). */
+        private final Map<String, Set<String>> rolePrivilegesMap;
+
+        /** Index of the mapping, used to resolve the privileges of roles. */
+        private final RolePrivilegesIndex rolePrivilegesIndex;
+
+        private Snapshot(String applicationId, Map<String, Set<String>> rolePrivilegesMap) {
+            this.applicationId = applicationId;
+            this.rolePrivilegesMap = rolePrivilegesMap;
+            this.rolePrivilegesIndex = new RolePrivilegesIndex(rolePrivilegesMap);
+        }
     }
 
 }
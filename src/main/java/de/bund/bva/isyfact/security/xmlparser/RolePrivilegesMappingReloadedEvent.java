@@ -0,0 +1,19 @@
+package de.bund.bva.isyfact.security.xmlparser;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published after the role privileges mapping has been reloaded and differs from the previous mapping.
+ * Listeners can use it to discard data derived from the previous mapping (e.g. cached authorities).
+ */
+public class RolePrivilegesMappingReloadedEvent extends ApplicationEvent {
+
+    public RolePrivilegesMappingReloadedEvent(RolePrivilegesMapper rolePrivilegesMapper) {
+        super(rolePrivilegesMapper);
+    }
+
+    public RolePrivilegesMapper getRolePrivilegesMapper() {
+        return (RolePrivilegesMapper) getSource();
+    }
+
+}
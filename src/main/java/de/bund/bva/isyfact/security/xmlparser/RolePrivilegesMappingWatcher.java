@@ -0,0 +1,202 @@
+package de.bund.bva.isyfact.security.xmlparser;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Reloads the role privileges mapping of a {@link RolePrivilegesMapper} when the mapping file changes.
+ * <p>
+ * Files in the file system are watched with a {@link WatchService}. Other resources (e.g. inside a JAR) are polled
+ * in the configured interval. If the changed file is invalid, the error is logged and the current mapping is kept.
+ * After a successful reload a {@link RolePrivilegesMappingReloadedEvent} is published.
+ */
+public class RolePrivilegesMappingWatcher implements SmartLifecycle, ApplicationEventPublisherAware {
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(RolePrivilegesMappingWatcher.class);
+
+    /** Name of the thread that watches or polls the mapping file. */
+    private static final String THREAD_NAME = "isy-security-rollenrechte-reload";
+
+    /** The mapper whose mapping is reloaded. */
+    private final RolePrivilegesMapper rolePrivilegesMapper;
+
+    /** Interval in which resources that are not in the file system are polled. */
+    private final Duration pollInterval;
+
+    /** Publisher for {@link RolePrivilegesMappingReloadedEvent}s. */
+    @Nullable
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    /** Watch service for mapping files in the file system. */
+    @Nullable
+    private WatchService watchService;
+
+    /** Thread that processes the events of the watch service. */
+    @Nullable
+    private Thread watchThread;
+
+    /** Executor that polls resources that are not in the file system. */
+    @Nullable
+    private ScheduledExecutorService pollExecutor;
+
+    /** Last modification of the polled resource, {@code -1} if unknown. */
+    private long lastModified = -1;
+
+    public RolePrivilegesMappingWatcher(RolePrivilegesMapper rolePrivilegesMapper, Duration pollInterval) {
+        Assert.notNull(rolePrivilegesMapper, "rolePrivilegesMapper cannot be null");
+        Assert.isTrue(pollInterval != null && !pollInterval.isNegative() && !pollInterval.isZero(), "pollInterval must be positive");
+        this.rolePrivilegesMapper = rolePrivilegesMapper;
+        this.pollInterval = pollInterval;
+    }
+
+    @Override
+    public void setApplicationEventPublisher(ApplicationEventPublisher applicationEventPublisher) {
+        this.applicationEventPublisher = applicationEventPublisher;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (isRunning()) {
+            return;
+        }
+
+        Resource resource = rolePrivilegesMapper.getRoleMappingXmlResource();
+        if (resource.isFile()) {
+            try {
+                startWatchService(resource.getFile().toPath().toAbsolutePath());
+                return;
+            } catch (IOException e) {
+                LOG.warn("Die Rollenrechte-Mapping Datei {} kann nicht überwacht werden, sie wird stattdessen periodisch gelesen.",
+                        resource.getDescription(), e);
+            }
+        }
+        startPolling(resource);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                LOG.debug("Fehler beim Schließen des WatchService.", e);
+            }
+            watchService = null;
+        }
+        if (watchThread != null) {
+            watchThread.interrupt();
+            watchThread = null;
+        }
+        if (pollExecutor != null) {
+            pollExecutor.shutdownNow();
+            pollExecutor = null;
+        }
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return watchThread != null || pollExecutor != null;
+    }
+
+    /**
+     * Reloads the mapping and publishes a {@link RolePrivilegesMappingReloadedEvent} if it has changed.
+     * Errors are logged and the current mapping is kept.
+     */
+    void reload() {
+        try {
+            if (rolePrivilegesMapper.reload() && applicationEventPublisher != null) {
+                applicationEventPublisher.publishEvent(new RolePrivilegesMappingReloadedEvent(rolePrivilegesMapper));
+            }
+        } catch (RuntimeException e) {
+            LOG.error("Das Rollenrechte-Mapping konnte nicht neu geladen werden, das bestehende Mapping wird beibehalten.", e);
+        }
+    }
+
+    private void startWatchService(Path file) throws IOException {
+        Path directory = file.getParent();
+        Path fileName = file.getFileName();
+
+        WatchService newWatchService = FileSystems.getDefault().newWatchService();
+        directory.register(newWatchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        Thread thread = new Thread(() -> watch(newWatchService, fileName), THREAD_NAME);
+        thread.setDaemon(true);
+        watchService = newWatchService;
+        watchThread = thread;
+        thread.start();
+        LOG.info("Die Rollenrechte-Mapping Datei {} wird auf Änderungen überwacht.", file);
+    }
+
+    private void watch(WatchService watchService, Path fileName) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (fileName.equals(event.context()) || event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        changed = true;
+                    }
+                }
+                key.reset();
+                if (changed) {
+                    reload();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // the watcher has been stopped
+        }
+    }
+
+    private void startPolling(Resource resource) {
+        lastModified = getLastModified(resource);
+        pollExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+        });
+        pollExecutor.scheduleWithFixedDelay(() -> poll(resource), pollInterval.toMillis(), pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+        LOG.info("Die Rollenrechte-Mapping Datei {} wird alle {} auf Änderungen geprüft.", resource.getDescription(), pollInterval);
+    }
+
+    private void poll(Resource resource) {
+        long currentLastModified = getLastModified(resource);
+        // if the modification time is unknown, the file is read in every interval
+        if (currentLastModified == -1 || currentLastModified != lastModified) {
+            lastModified = currentLastModified;
+            reload();
+        }
+    }
+
+    private static long getLastModified(Resource resource) {
+        try {
+            return resource.lastModified();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+}
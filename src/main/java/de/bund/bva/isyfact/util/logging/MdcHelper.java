@@ -21,12 +21,19 @@ package de.bund.bva.isyfact.util.logging;/*
  * #L%
  */
 
+import java.util.Arrays;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 
 /**
  * Hilfsklasse zum Zugriff auf den MDC.
+ * <p>
+ * Verschachtelte Korrelations-IDs werden im MDC als eine durch Semikolon getrennte Zeichenkette abgelegt. Im
+ * Stapel-Modus (siehe {@link #setzeKorrelationsIdStapel(boolean)}) werden die Korrelations-IDs zusätzlich in einem
+ * threadlokalen Stapel gehalten, der die Zeichenkette jeder Ebene speichert. Das Entfernen einer Korrelations-ID
+ * setzt dann nur die bereits vorhandene Zeichenkette der darunterliegenden Ebene, statt sie neu zu berechnen.
  */
 public final class MdcHelper {
 
@@ -50,6 +57,21 @@ public final class MdcHelper {
      */
     private static final Logger LOG = LoggerFactory.getLogger(MdcHelper.class);
 
+    /**
+     * System-Property zum Aktivieren des Stapel-Modus.
+     */
+    public static final String SYSTEM_PROPERTY_KORRELATIONS_ID_STAPEL = "isy.logging.korrelationsid.stapel";
+
+    /**
+     * Gibt an, ob die Korrelations-IDs im threadlokalen Stapel gehalten werden.
+     */
+    private static volatile boolean korrelationsIdStapelAktiv = Boolean.getBoolean(SYSTEM_PROPERTY_KORRELATIONS_ID_STAPEL);
+
+    /**
+     * Threadlokaler Stapel der Korrelations-IDs für den Stapel-Modus.
+     */
+    private static final ThreadLocal<KorrelationsIdStapel> KORRELATIONS_ID_STAPEL = ThreadLocal.withInitial(KorrelationsIdStapel::new);
+
     /**
      * Privater Konstruktor der Klasse. Verhindert, dass Instanzen der Klasse angelegt werden.
      */
@@ -64,6 +86,9 @@ public final class MdcHelper {
      * @return die entfernte Korrelations-ID.
      */
     public static String entferneKorrelationsId() {
+        if (korrelationsIdStapelAktiv) {
+            return KORRELATIONS_ID_STAPEL.get().entferne();
+        }
         String korrelationsId = MDC.get(MDC_KORRELATIONS_ID);
         if (korrelationsId == null) {
             return null;
@@ -84,6 +109,9 @@ public final class MdcHelper {
      */
     public static void entferneKorrelationsIds() {
         MDC.remove(MDC_KORRELATIONS_ID);
+        if (korrelationsIdStapelAktiv) {
+            KORRELATIONS_ID_STAPEL.get().leere();
+        }
     }
 
     /**
@@ -107,6 +135,9 @@ public final class MdcHelper {
      * @return die komplette KorrelationsId.
      */
     public static String pushKorrelationsId(String korrelationsId) {
+        if (korrelationsIdStapelAktiv) {
+            return KORRELATIONS_ID_STAPEL.get().push(korrelationsId);
+        }
         String vorhandeneKorrelationsId = MDC.get(MDC_KORRELATIONS_ID);
         String neueKorrelationsId;
         if (vorhandeneKorrelationsId == null) {
@@ -118,6 +149,17 @@ public final class MdcHelper {
         return neueKorrelationsId;
     }
 
+    /**
+     * Aktiviert oder deaktiviert den Stapel-Modus für Korrelations-IDs. Standardmäßig ist der Stapel-Modus aktiv,
+     * wenn die System-Property {@value #SYSTEM_PROPERTY_KORRELATIONS_ID_STAPEL} auf {@code true} gesetzt ist.
+     * Der Inhalt des MDC ist in beiden Modi identisch.
+     *
+     * @param aktiv {@code true}, wenn die Korrelations-IDs in einem threadlokalen Stapel gehalten werden sollen.
+     */
+    public static void setzeKorrelationsIdStapel(boolean aktiv) {
+        korrelationsIdStapelAktiv = aktiv;
+    }
+
     /**
      * Hilfsmethode zum Lesen des Attributs "fachdaten" aus dem MDC. Dieses gibt an, ob der MDC fachliche
      * Daten enthält, die geschützt werden müssen.
@@ -150,4 +192,94 @@ public final class MdcHelper {
         MDC.remove(MDC_FACHDATEN);
     }
 
+    /**
+     * Threadlokaler Stapel der Korrelations-IDs. Zu jeder Ebene wird die Korrelations-ID und die komplette
+     * Korrelations-ID bis zu dieser Ebene gespeichert. Wurde der MDC zwischenzeitlich direkt verändert, wird der
+     * Stapel aus dem MDC neu aufgebaut.
+     */
+    private static final class KorrelationsIdStapel {
+
+        /**
+         * Die Korrelations-IDs der einzelnen Ebenen.
+         */
+        private String[] korrelationsIds = new String[8];
+
+        /**
+         * Die komplette Korrelations-ID bis zur jeweiligen Ebene, wie sie im MDC steht.
+         */
+        private String[] kompletteKorrelationsIds = new String[8];
+
+        /**
+         * Anzahl der Ebenen.
+         */
+        private int tiefe;
+
+        private String push(String korrelationsId) {
+            synchronisiere(MDC.get(MDC_KORRELATIONS_ID));
+            String neueKorrelationsId = tiefe == 0 ? korrelationsId : kompletteKorrelationsIds[tiefe - 1] + TRENNER + korrelationsId;
+            fuegeEbeneHinzu(korrelationsId, neueKorrelationsId);
+            MDC.put(MDC_KORRELATIONS_ID, neueKorrelationsId);
+            return neueKorrelationsId;
+        }
+
+        private String entferne() {
+            synchronisiere(MDC.get(MDC_KORRELATIONS_ID));
+            if (tiefe == 0) {
+                return null;
+            }
+            tiefe--;
+            String korrelationsIdEntfernt = korrelationsIds[tiefe];
+            korrelationsIds[tiefe] = null;
+            kompletteKorrelationsIds[tiefe] = null;
+            if (tiefe == 0) {
+                MDC.remove(MDC_KORRELATIONS_ID);
+            } else {
+                MDC.put(MDC_KORRELATIONS_ID, kompletteKorrelationsIds[tiefe - 1]);
+            }
+            return korrelationsIdEntfernt;
+        }
+
+        private void leere() {
+            Arrays.fill(korrelationsIds, 0, tiefe, null);
+            Arrays.fill(kompletteKorrelationsIds, 0, tiefe, null);
+            tiefe = 0;
+        }
+
+        /**
+         * Stellt sicher, dass der Stapel dem Inhalt des MDC entspricht.
+         *
+         * @param korrelationsIdImMdc die Korrelations-ID im MDC.
+         */
+        private void synchronisiere(String korrelationsIdImMdc) {
+            if (korrelationsIdImMdc == null) {
+                leere();
+                return;
+            }
+            String obersteKorrelationsId = tiefe == 0 ? null : kompletteKorrelationsIds[tiefe - 1];
+            if (korrelationsIdImMdc == obersteKorrelationsId || korrelationsIdImMdc.equals(obersteKorrelationsId)) {
+                return;
+            }
+
+            // der MDC wurde direkt verändert, der Stapel wird aus der Korrelations-ID im MDC neu aufgebaut
+            leere();
+            int beginn = 0;
+            int trenner;
+            while ((trenner = korrelationsIdImMdc.indexOf(TRENNER, beginn)) >= 0) {
+                fuegeEbeneHinzu(korrelationsIdImMdc.substring(beginn, trenner), korrelationsIdImMdc.substring(0, trenner));
+                beginn = trenner + TRENNER.length();
+            }
+            fuegeEbeneHinzu(korrelationsIdImMdc.substring(beginn), korrelationsIdImMdc);
+        }
+
+        private void fuegeEbeneHinzu(String korrelationsId, String kompletteKorrelationsId) {
+            if (tiefe == korrelationsIds.length) {
+                korrelationsIds = Arrays.copyOf(korrelationsIds, tiefe * 2);
+                kompletteKorrelationsIds = Arrays.copyOf(kompletteKorrelationsIds, tiefe * 2);
+            }
+            korrelationsIds[tiefe] = korrelationsId;
+            kompletteKorrelationsIds[tiefe] = kompletteKorrelationsId;
+            tiefe++;
+        }
+    }
+
 }
@@ -0,0 +1,42 @@
+package de.bund.bva.isyfact.util.logging;
+
+/*
+ * #%L
+ * isy-logging
+ * %%
+ *
+ * %%
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The Federal Office of Administration (Bundesverwaltungsamt, BVA)
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * License). You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * #L%
+ */
+
+import java.util.UUID;
+
+/**
+ * Erzeugt Korrelations-IDs über {@link UUID#randomUUID()}.
+ * <p>
+ * Die Zufallszahlen stammen aus einem kryptographisch sicheren Zufallszahlengenerator, der von allen Threads
+ * gemeinsam genutzt wird. Bei vielen gleichzeitigen Aufrufen ist daher der {@link ZufallsKorrelationsIdGenerator}
+ * vorzuziehen.
+ */
+public class UuidKorrelationsIdGenerator implements KorrelationsIdGenerator {
+
+    @Override
+    public String erzeugeKorrelationsId() {
+        return UUID.randomUUID().toString();
+    }
+
+}
@@ -0,0 +1,66 @@
+package de.bund.bva.isyfact.util.logging;
+
+/*
+ * #%L
+ * isy-logging
+ * %%
+ *
+ * %%
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * The Federal Office of Administration (Bundesverwaltungsamt, BVA)
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * License). You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ * #L%
+ */
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Erzeugt Korrelations-IDs im Format einer UUID der Version 4 aus einem threadlokalen Zufallszahlengenerator.
+ * <p>
+ * Im Gegensatz zu {@link UUID#randomUUID()} teilen sich die Threads keinen gemeinsamen Zufallszahlengenerator,
+ * sodass auch bei vielen gleichzeitigen Aufrufen keine Wartezeiten entstehen. Die Zufallszahlen sind nicht
+ * kryptographisch sicher, was für Korrelations-IDs nicht erforderlich ist.
+ */
+public class ZufallsKorrelationsIdGenerator implements KorrelationsIdGenerator {
+
+    /**
+     * Maske zum Löschen der Versions-Bits.
+     */
+    private static final long VERSION_MASKE = 0xffffffffffff0fffL;
+
+    /**
+     * Versions-Bits einer UUID der Version 4.
+     */
+    private static final long VERSION_4 = 0x0000000000004000L;
+
+    /**
+     * Maske zum Löschen der Varianten-Bits.
+     */
+    private static final long VARIANTE_MASKE = 0x3fffffffffffffffL;
+
+    /**
+     * Varianten-Bits einer UUID nach IETF RFC 4122.
+     */
+    private static final long VARIANTE_IETF = 0x8000000000000000L;
+
+    @Override
+    public String erzeugeKorrelationsId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long mostSigBits = (random.nextLong() & VERSION_MASKE) | VERSION_4;
+        long leastSigBits = (random.nextLong() & VARIANTE_MASKE) | VARIANTE_IETF;
+        return new UUID(mostSigBits, leastSigBits).toString();
+    }
+
+}
@@ -5,9 +5,12 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -17,7 +20,9 @@ import java.util.stream.Collectors;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.TestingAuthenticationToken;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -46,7 +51,7 @@ public class BerechtigungsmanagerTest {
         tokenAttributes.put("roles", Arrays.asList(TEST_ROLES));
 
         IsySecurityAutoConfiguration config = new IsySecurityAutoConfiguration();
-        berechtigungsmanager = config.berechtigungsmanager(config.isySecurityProperties());
+        berechtigungsmanager = config.berechtigungsmanager(config.isySecurityProperties(), mock(ObjectProvider.class));
         when(token.getAuthorities()).thenReturn(authorities);
         when(token.getTokenAttributes()).thenReturn(tokenAttributes);
         SecurityContextHolder.getContext().setAuthentication(token);
@@ -57,11 +62,39 @@ public class BerechtigungsmanagerTest {
         assertEquals(new HashSet<>(Arrays.asList(TEST_ROLES)), berechtigungsmanager.getRollen());
     }
 
+    @Test
+    public void testGetRollenIsCachedPerAuthentication() {
+        berechtigungsmanager.getRollen();
+        assertThrows(UnsupportedOperationException.class, () -> berechtigungsmanager.getRollen().add("ROLE_3"));
+
+        verify(token, times(1)).getTokenAttributes();
+    }
+
+    @Test
+    public void testGetRollenWithoutTokenAuthentication() {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("user", "password", "PRIV_test"));
+
+        assertTrue(berechtigungsmanager.getRollen().isEmpty());
+        assertTrue(berechtigungsmanager.hatRecht("PRIV_test"));
+
+        SecurityContextHolder.clearContext();
+
+        assertTrue(berechtigungsmanager.getRollen().isEmpty());
+    }
+
     @Test
     public void testGetRechte() {
         assertEquals(new HashSet<>(Arrays.asList(TEST_AUTHORITIES)), berechtigungsmanager.getRechte());
     }
 
+    @Test
+    public void testGetRechteWithoutAuthentication() {
+        SecurityContextHolder.clearContext();
+
+        assertTrue(berechtigungsmanager.getRechte().isEmpty());
+        assertThrows(AccessDeniedException.class, () -> berechtigungsmanager.pruefeRecht(TEST_AUTHORITIES[0]));
+    }
+
     @Test
     public void testHatRechtPositive() {
         assertTrue(berechtigungsmanager.hatRecht(TEST_AUTHORITIES[0]));
@@ -82,4 +115,34 @@ public class BerechtigungsmanagerTest {
         assertThrows(AccessDeniedException.class, () -> berechtigungsmanager.pruefeRecht(WRONG_AUTHORITY));
     }
 
+    @Test
+    public void testHatAlleRechte() {
+        assertTrue(berechtigungsmanager.hatAlleRechte(Arrays.asList(TEST_AUTHORITIES)));
+        assertTrue(berechtigungsmanager.hatAlleRechte(Collections.emptyList()));
+        assertFalse(berechtigungsmanager.hatAlleRechte(Arrays.asList(TEST_AUTHORITIES[0], WRONG_AUTHORITY)));
+    }
+
+    @Test
+    public void testHatEinesDerRechte() {
+        assertTrue(berechtigungsmanager.hatEinesDerRechte(Arrays.asList(WRONG_AUTHORITY, TEST_AUTHORITIES[1])));
+        assertFalse(berechtigungsmanager.hatEinesDerRechte(Collections.singletonList(WRONG_AUTHORITY)));
+        assertFalse(berechtigungsmanager.hatEinesDerRechte(Collections.emptyList()));
+    }
+
+    @Test
+    public void testRechteAreCachedPerAuthentication() {
+        berechtigungsmanager.pruefeRecht(TEST_AUTHORITIES[0]);
+        berechtigungsmanager.pruefeRecht(TEST_AUTHORITIES[1]);
+        assertThrows(UnsupportedOperationException.class, () -> berechtigungsmanager.getRechte().add(WRONG_AUTHORITY));
+
+        verify(token, times(1)).getAuthorities();
+
+        JwtAuthenticationToken otherToken = mock(JwtAuthenticationToken.class);
+        when(otherToken.getAuthorities()).thenReturn(Collections.singletonList(new SimpleGrantedAuthority(WRONG_AUTHORITY)));
+        SecurityContextHolder.getContext().setAuthentication(otherToken);
+
+        assertTrue(berechtigungsmanager.hatRecht(WRONG_AUTHORITY));
+        assertFalse(berechtigungsmanager.hatRecht(TEST_AUTHORITIES[0]));
+    }
+
 }
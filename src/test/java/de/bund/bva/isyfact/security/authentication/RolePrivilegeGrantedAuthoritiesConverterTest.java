@@ -0,0 +1,75 @@
+package de.bund.bva.isyfact.security.authentication;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import de.bund.bva.isyfact.security.xmlparser.RolePrivilegesMapper;
+
+class RolePrivilegeGrantedAuthoritiesConverterTest {
+
+    private RolePrivilegeGrantedAuthoritiesConverter converter;
+
+    @BeforeEach
+    void init() {
+        converter = new RolePrivilegeGrantedAuthoritiesConverter(
+                new RolePrivilegesMapper(new ClassPathResource("/resources/sicherheit/rollenrechte.xml")));
+        converter.setRolesClaimName("roles");
+    }
+
+    @Test
+    void testConvertRolesToPrivileges() {
+        Collection<GrantedAuthority> authorities = converter.convert(jwtWithRoles(Arrays.asList("Rolle_A", "Rolle_B", "unknown")));
+
+        assertThat(authorities).extracting(GrantedAuthority::getAuthority).containsExactlyInAnyOrder("PRIV_Recht_A", "PRIV_Recht_B");
+    }
+
+    @Test
+    void testAuthoritiesOfSameRolesAreShared() {
+        Collection<GrantedAuthority> authorities = converter.convert(jwtWithRoles(Arrays.asList("Rolle_A", "Rolle_C")));
+        Collection<GrantedAuthority> otherAuthorities = converter.convert(jwtWithRoles(Arrays.asList("Rolle_C", "Rolle_ABC")));
+
+        assertThat(converter.convert(jwtWithRoles(Arrays.asList("Rolle_A", "Rolle_C")))).isSameAs(authorities);
+        // authorities of the same privilege are only created once
+        GrantedAuthority rechtC = authorities.stream().filter(a -> a.getAuthority().equals("PRIV_Recht_C")).findFirst().orElseThrow();
+        assertThat(otherAuthorities).anySatisfy(authority -> assertThat(authority).isSameAs(rechtC));
+    }
+
+    @Test
+    void testAuthoritiesAreSharedRegardlessOfRoleOrderAndDuplicates() {
+        Collection<GrantedAuthority> authorities = converter.convert(jwtWithRoles(Arrays.asList("Rolle_A", "Rolle_C")));
+
+        assertThat(converter.convert(jwtWithRoles(Arrays.asList("Rolle_C", "Rolle_A")))).isSameAs(authorities);
+        assertThat(converter.convert(jwtWithRoles(Arrays.asList("Rolle_C", "Rolle_A", "Rolle_C")))).isSameAs(authorities);
+    }
+
+    @Test
+    void testNewRoleCombinationsAreCachedBeyondMaximumNumberOfCombinations() {
+        for (int i = 0; i < 300; i++) {
+            converter.convert(jwtWithRoles(Arrays.asList("Rolle_A", "unknown_" + i)));
+        }
+
+        Collection<GrantedAuthority> authorities = converter.convert(jwtWithRoles(Arrays.asList("Rolle_B", "Rolle_C")));
+
+        assertThat(converter.convert(jwtWithRoles(Arrays.asList("Rolle_B", "Rolle_C")))).isSameAs(authorities);
+    }
+
+    @Test
+    void testConvertWithoutRolesClaim() {
+        Jwt jwt = Jwt.withTokenValue("token").header("alg", "none").claim("sub", "test").build();
+
+        assertThat(converter.convert(jwt)).isEmpty();
+    }
+
+    private static Jwt jwtWithRoles(Object roles) {
+        return Jwt.withTokenValue("token").header("alg", "none").claim("roles", roles).build();
+    }
+
+}
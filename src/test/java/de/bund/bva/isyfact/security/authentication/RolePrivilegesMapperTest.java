@@ -5,14 +5,21 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.assertj.core.api.Assertions.tuple;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Set;
 
 import org.assertj.core.api.ThrowableAssert;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
 
 import de.bund.bva.isyfact.security.xmlparser.RolePrivilegesMapper;
 
@@ -60,6 +67,59 @@ class RolePrivilegesMapperTest {
         assertThat(mapper.getPrivilegesByRoles(Collections.singletonList("unknown"))).isEmpty();
     }
 
+    @Test
+    void testMapMultipleRolesToPrivileges() {
+        assertThat(mapper.getPrivilegesByRoles(Arrays.asList("Rolle_A", "Rolle_B", "unknown")))
+                .containsExactlyInAnyOrder("Recht_A", "Recht_B");
+        assertThat(mapper.getPrivilegesByRoles(Arrays.asList("Rolle_A", "Rolle_ABC")))
+                .containsExactlyInAnyOrder("Recht_A", "Recht_B", "Recht_C");
+        assertThat(mapper.getPrivilegesByRoles(Arrays.asList("unknown", "Rolle_C"))).containsExactly("Recht_C");
+        assertThat(mapper.getPrivilegesByRoles(Collections.emptyList())).isEmpty();
+    }
+
+    @Test
+    void testPrivilegesOfRoleCombinationAreMemoised() {
+        Set<String> privileges = mapper.getPrivilegesByRoles(Arrays.asList("Rolle_A", "Rolle_C"));
+
+        assertThat(mapper.getPrivilegesByRoles(Arrays.asList("Rolle_C", "Rolle_A"))).isSameAs(privileges);
+        assertThatExceptionOfType(UnsupportedOperationException.class).isThrownBy(() -> privileges.add("Recht_B"));
+    }
+
+    @Test
+    void testReloadChangedMapping(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("rollenrechte.xml");
+        Files.writeString(file, rolePrivilegesXml("Rolle_A", "Recht_A"));
+        mapper = new RolePrivilegesMapper(new FileSystemResource(file));
+        Set<String> privileges = mapper.getPrivilegesByRoles(Collections.singletonList("Rolle_A"));
+
+        assertThat(mapper.reload()).isFalse();
+        assertThat(mapper.getPrivilegesByRoles(Collections.singletonList("Rolle_A"))).isSameAs(privileges);
+
+        Files.writeString(file, rolePrivilegesXml("Rolle_A", "Recht_B"));
+
+        assertThat(mapper.reload()).isTrue();
+        assertThat(mapper.getPrivilegesByRoles(Collections.singletonList("Rolle_A"))).containsExactly("Recht_B");
+        assertThat(mapper.getAllPrivileges()).containsExactly("Recht_B");
+    }
+
+    @Test
+    void testReloadInvalidMappingKeepsCurrentMapping(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("rollenrechte.xml");
+        Files.writeString(file, rolePrivilegesXml("Rolle_A", "Recht_A"));
+        mapper = new RolePrivilegesMapper(new FileSystemResource(file));
+
+        Files.writeString(file, rolePrivilegesXml("", "Recht_B"));
+
+        assertThatExceptionOfType(RuntimeException.class).isThrownBy(() -> mapper.reload())
+                .withMessageMatching(".*: ID der Rolle fehlt");
+        assertThat(mapper.getPrivilegesByRoles(Collections.singletonList("Rolle_A"))).containsExactly("Recht_A");
+
+        Files.delete(file);
+
+        assertThat(mapper.reload()).isFalse();
+        assertThat(mapper.getPrivilegesByRoles(Collections.singletonList("Rolle_A"))).containsExactly("Recht_A");
+    }
+
     @Test
     void testAppId() {
         assertThat(mapper.getApplicationId()).isEqualTo("Default");
@@ -98,4 +158,11 @@ class RolePrivilegesMapperTest {
             ).withMessageMatching(".*: Es ist keine AnwendungsId gesetzt");
     }
 
+    static String rolePrivilegesXml(String role, String privilege) {
+        return "<tns:Anwendung AnwendungsId=\"Default\" xmlns:tns=\"http://www.example.org/RollenRechteSchema\">"
+                + "<tns:rechte><tns:rechtId Id=\"" + privilege + "\"/></tns:rechte>"
+                + "<tns:rollen RolleId=\"" + role + "\"><tns:rechtId Id=\"" + privilege + "\"/></tns:rollen>"
+                + "</tns:Anwendung>";
+    }
+
 }
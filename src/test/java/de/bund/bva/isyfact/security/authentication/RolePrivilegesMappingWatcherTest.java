@@ -0,0 +1,111 @@
+package de.bund.bva.isyfact.security.authentication;
+
+import static de.bund.bva.isyfact.security.authentication.RolePrivilegesMapperTest.rolePrivilegesXml;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.UrlResource;
+
+import de.bund.bva.isyfact.security.xmlparser.RolePrivilegesMapper;
+import de.bund.bva.isyfact.security.xmlparser.RolePrivilegesMappingReloadedEvent;
+import de.bund.bva.isyfact.security.xmlparser.RolePrivilegesMappingWatcher;
+
+class RolePrivilegesMappingWatcherTest {
+
+    private final List<Object> publishedEvents = new CopyOnWriteArrayList<>();
+
+    private RolePrivilegesMappingWatcher watcher;
+
+    @TempDir
+    Path tempDir;
+
+    @AfterEach
+    void stopWatcher() {
+        if (watcher != null) {
+            watcher.stop();
+        }
+    }
+
+    @Test
+    void testFileInFileSystemIsReloadedOnChange() throws Exception {
+        Path file = tempDir.resolve("rollenrechte.xml");
+        Files.writeString(file, rolePrivilegesXml("Rolle_A", "Recht_A"));
+        RolePrivilegesMapper mapper = new RolePrivilegesMapper(new FileSystemResource(file));
+        startWatcher(mapper);
+
+        Files.writeString(file, rolePrivilegesXml("", "Recht_B"));
+        Files.writeString(tempDir.resolve("other.xml"), "");
+        Thread.sleep(500);
+
+        // invalid file is rejected
+        assertThat(mapper.getPrivilegesByRoles(Collections.singletonList("Rolle_A"))).containsExactly("Recht_A");
+        assertThat(publishedEvents).isEmpty();
+
+        Files.writeString(file, rolePrivilegesXml("Rolle_A", "Recht_B"));
+
+        awaitUntil(() -> !publishedEvents.isEmpty());
+        assertThat(mapper.getPrivilegesByRoles(Collections.singletonList("Rolle_A"))).containsExactly("Recht_B");
+        assertThat(publishedEvents).singleElement().isInstanceOfSatisfying(RolePrivilegesMappingReloadedEvent.class,
+                event -> assertThat(event.getRolePrivilegesMapper()).isSameAs(mapper));
+    }
+
+    @Test
+    void testResourceOutsideFileSystemIsPolled() throws Exception {
+        Path file = tempDir.resolve("rollenrechte.xml");
+        Files.writeString(file, rolePrivilegesXml("Rolle_A", "Recht_A"));
+        // a UrlResource with a custom URL handler is not treated as file
+        RolePrivilegesMapper mapper = new RolePrivilegesMapper(new UrlResource("jar:" + tempDir.resolve("mapping.jar").toUri() + "!/rollenrechte.xml") {
+            @Override
+            public boolean exists() {
+                return Files.exists(file);
+            }
+
+            @Override
+            public InputStream getInputStream() throws IOException {
+                return Files.newInputStream(file);
+            }
+
+            @Override
+            public long lastModified() throws IOException {
+                return Files.getLastModifiedTime(file).toMillis();
+            }
+        });
+        startWatcher(mapper);
+
+        Files.writeString(file, rolePrivilegesXml("Rolle_A", "Recht_C"));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+
+        awaitUntil(() -> !publishedEvents.isEmpty());
+        assertThat(mapper.getPrivilegesByRoles(Collections.singletonList("Rolle_A"))).containsExactly("Recht_C");
+    }
+
+    private void startWatcher(RolePrivilegesMapper mapper) {
+        watcher = new RolePrivilegesMappingWatcher(mapper, Duration.ofMillis(100));
+        watcher.setApplicationEventPublisher(publishedEvents::add);
+        watcher.start();
+        assertThat(watcher.isRunning()).isTrue();
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(20).toNanos();
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+}
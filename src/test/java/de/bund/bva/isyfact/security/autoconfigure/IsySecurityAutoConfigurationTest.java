@@ -16,6 +16,7 @@ import org.springframework.security.authentication.ProviderManager;
 import org.springframework.security.config.core.GrantedAuthorityDefaults;
 import org.springframework.security.oauth2.client.registration.ClientRegistration;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.web.client.RestOperations;
 
 import de.bund.bva.isyfact.security.AbstractOidcProviderTest;
 import de.bund.bva.isyfact.security.config.IsyOAuth2ClientConfigurationProperties;
@@ -23,11 +24,13 @@ import de.bund.bva.isyfact.security.config.IsySecurityConfigurationProperties;
 import de.bund.bva.isyfact.security.core.Berechtigungsmanager;
 import de.bund.bva.isyfact.security.core.Security;
 import de.bund.bva.isyfact.security.oauth2.client.Authentifizierungsmanager;
+import de.bund.bva.isyfact.security.oauth2.client.ReactiveAuthentifizierungsmanager;
 import de.bund.bva.isyfact.security.oauth2.client.annotation.AuthenticateInterceptor;
 import de.bund.bva.isyfact.security.oauth2.client.authentication.ClientCredentialsAuthorizedClientAuthenticationProvider;
 import de.bund.bva.isyfact.security.oauth2.client.authentication.ClientCredentialsClientRegistrationAuthenticationProvider;
 import de.bund.bva.isyfact.security.oauth2.client.authentication.PasswordClientRegistrationAuthenticationProvider;
 import de.bund.bva.isyfact.security.oauth2.client.authentication.util.BhknzHeaderConverterBuilder;
+import de.bund.bva.isyfact.security.oauth2.client.http.TokenEndpointTransport;
 import de.bund.bva.isyfact.security.xmlparser.RolePrivilegesMapper;
 
 public class IsySecurityAutoConfigurationTest extends AbstractOidcProviderTest {
@@ -93,6 +96,8 @@ public class IsySecurityAutoConfigurationTest extends AbstractOidcProviderTest {
                         .hasSingleBean(PasswordClientRegistrationAuthenticationProvider.class)
                         .hasSingleBean(ProviderManager.class)
                         .hasSingleBean(Authentifizierungsmanager.class)
+                        .hasSingleBean(TokenEndpointTransport.class)
+                        .doesNotHaveBean(RestOperations.class)
                         // client registration beans
                         .doesNotHaveBean(OAuth2ClientProperties.class)
                         .doesNotHaveBean(ClientCredentialsAuthorizedClientAuthenticationProvider.class)
@@ -142,6 +147,34 @@ public class IsySecurityAutoConfigurationTest extends AbstractOidcProviderTest {
                 );
     }
 
+    @Test
+    public void testReactiveAuthenticateDisabledByDefault() {
+        contextRunner
+                .withPropertyValues(
+                        "spring.security.oauth2.client.provider.test.issuer-uri=http://localhost:9095/auth/realms/testrealm",
+                        "spring.security.oauth2.client.registration.test.client-id=testclient"
+                ).withConfiguration(AutoConfigurations.of(OAuth2ClientAutoConfiguration.class))
+                .run(context -> assertThat(context)
+                        .hasNotFailed()
+                        .hasSingleBean(ReactiveAuthentifizierungsmanager.class)
+                        .getBean(AuthenticateInterceptor.class).extracting("reactiveAuthenticateInterceptor").isNull()
+                );
+    }
+
+    @Test
+    public void testReactiveAuthenticateEnabled() {
+        contextRunner
+                .withPropertyValues(
+                        "spring.security.oauth2.client.provider.test.issuer-uri=http://localhost:9095/auth/realms/testrealm",
+                        "spring.security.oauth2.client.registration.test.client-id=testclient",
+                        "isy.security.oauth2.client.reactive-authenticate-enabled=true"
+                ).withConfiguration(AutoConfigurations.of(OAuth2ClientAutoConfiguration.class))
+                .run(context -> assertThat(context)
+                        .hasNotFailed()
+                        .getBean(AuthenticateInterceptor.class).extracting("reactiveAuthenticateInterceptor").isNotNull()
+                );
+    }
+
     @Test
     public void testContextFailsIfAdditionalOAuth2RegistrationIsInvalid() {
         contextRunner
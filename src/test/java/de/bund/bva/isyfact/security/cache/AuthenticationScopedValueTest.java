@@ -0,0 +1,60 @@
+package de.bund.bva.isyfact.security.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+public class AuthenticationScopedValueTest {
+
+    private final AtomicInteger resolveCount = new AtomicInteger();
+
+    private final AuthenticationScopedValue<String> value = new AuthenticationScopedValue<>(authentication -> {
+        resolveCount.incrementAndGet();
+        return authentication.getName();
+    });
+
+    @Test
+    public void shouldResolveValueOncePerAuthentication() {
+        Authentication authentication = new TestingAuthenticationToken("user", "password");
+
+        assertThat(value.get(authentication)).isEqualTo("user");
+        assertThat(value.get(authentication)).isEqualTo("user");
+        assertThat(resolveCount).hasValue(1);
+    }
+
+    @Test
+    public void shouldResolveValueOfOtherAuthentication() {
+        value.get(new TestingAuthenticationToken("user", "password"));
+
+        assertThat(value.get(new TestingAuthenticationToken("other", "password"))).isEqualTo("other");
+        assertThat(resolveCount).hasValue(2);
+    }
+
+    @Test
+    public void shouldResolveValueAgainAfterClear() {
+        Authentication authentication = new TestingAuthenticationToken("user", "password");
+        value.get(authentication);
+
+        value.clear();
+
+        assertThat(value.get(authentication)).isEqualTo("user");
+        assertThat(resolveCount).hasValue(2);
+    }
+
+    @Test
+    public void shouldResolveValuePerThread() throws InterruptedException {
+        Authentication authentication = new TestingAuthenticationToken("user", "password");
+        value.get(authentication);
+
+        Thread thread = new Thread(() -> value.get(authentication));
+        thread.start();
+        thread.join();
+
+        assertThat(resolveCount).hasValue(2);
+    }
+
+}
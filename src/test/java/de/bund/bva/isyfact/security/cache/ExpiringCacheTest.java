@@ -0,0 +1,130 @@
+package de.bund.bva.isyfact.security.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.Test;
+
+public class ExpiringCacheTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T12:00:00Z");
+
+    private final MutableClock clock = new MutableClock(NOW);
+
+    @Test
+    public void shouldReturnValueUntilExpired() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10, clock);
+        cache.put("key", "value", NOW.plusSeconds(60));
+
+        assertThat(cache.get("key")).isEqualTo("value");
+
+        clock.advance(Duration.ofSeconds(60));
+        assertThat(cache.get("key")).isNull();
+        assertThat(cache.size()).isZero();
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotCacheExpiredValues() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10, clock);
+        cache.put("key", "value", NOW);
+
+        assertThat(cache.get("key")).isNull();
+    }
+
+    @Test
+    public void shouldEvictEntriesClosestToExpiryWhenFull() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(2, clock);
+        cache.put("a", "a", NOW.plusSeconds(30));
+        cache.put("b", "b", NOW.plusSeconds(10));
+        cache.put("c", "c", NOW.plusSeconds(20));
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("a")).isEqualTo("a");
+        assertThat(cache.get("c")).isEqualTo("c");
+    }
+
+    @Test
+    public void shouldNotCacheAnythingWithMaxSizeZero() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(0, clock);
+        cache.put("key", "value", NOW.plusSeconds(60));
+
+        assertThat(cache.get("key")).isNull();
+    }
+
+    @Test
+    public void shouldComputeAbsentValueOnceAndKeepItWhenFull() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(1, clock);
+        cache.put("a", "a", NOW.plusSeconds(60));
+
+        assertThat(cache.computeIfAbsent("b", key -> "b", NOW.plusSeconds(30))).isEqualTo("b");
+        assertThat(cache.computeIfAbsent("b", key -> "other", NOW.plusSeconds(30))).isEqualTo("b");
+
+        // the computed entry is kept, although the evicted entry expires later
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.get("a")).isNull();
+
+        clock.advance(Duration.ofSeconds(30));
+        assertThat(cache.computeIfAbsent("b", key -> "new", NOW.plusSeconds(60))).isEqualTo("new");
+    }
+
+    @Test
+    public void shouldComputeValueWithoutCachingWithMaxSizeZero() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(0, clock);
+
+        assertThat(cache.computeIfAbsent("key", key -> "value", NOW.plusSeconds(60))).isEqualTo("value");
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    public void shouldInvalidateEntries() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10, clock);
+        cache.put("a", "a", NOW.plusSeconds(60));
+        cache.put("b", "b", NOW.plusSeconds(60));
+
+        cache.invalidate("a");
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.get("b")).isEqualTo("b");
+
+        cache.invalidateAll();
+        assertThat(cache.size()).isZero();
+    }
+
+    /**
+     * Clock that can be moved forward manually.
+     */
+    public static class MutableClock extends Clock {
+
+        private Instant instant;
+
+        public MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        public void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+package de.bund.bva.isyfact.security.context;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.micrometer.context.ContextRegistry;
+import io.micrometer.context.ContextSnapshot;
+import io.micrometer.context.ContextSnapshotFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import reactor.core.publisher.Mono;
+
+import de.bund.bva.isyfact.util.logging.MdcHelper;
+
+class IsyContextPropagationTest {
+
+    private static final Authentication AUTHENTICATION = new TestingAuthenticationToken("user", "pass", "PRIV_test");
+
+    private static final String KORRELATIONS_ID = "korrelations-id";
+
+    private ExecutorService executorService;
+
+    @BeforeEach
+    void setUp() {
+        executorService = Executors.newSingleThreadExecutor();
+        SecurityContextHolder.getContext().setAuthentication(AUTHENTICATION);
+        MdcHelper.pushKorrelationsId(KORRELATIONS_ID);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executorService.shutdownNow();
+        SecurityContextHolder.clearContext();
+        MdcHelper.entferneKorrelationsIds();
+    }
+
+    @Test
+    void testWrappedExecutorPropagatesContext() throws Exception {
+        AtomicReference<Authentication> authentication = new AtomicReference<>();
+        AtomicReference<String> korrelationsId = new AtomicReference<>();
+
+        CompletableFuture.runAsync(() -> {
+            authentication.set(SecurityContextHolder.getContext().getAuthentication());
+            korrelationsId.set(MdcHelper.liesKorrelationsId());
+        }, IsyContextPropagation.wrap((Executor) executorService)).get();
+
+        assertThat(authentication.get()).isSameAs(AUTHENTICATION);
+        assertThat(korrelationsId.get()).isEqualTo(KORRELATIONS_ID);
+
+        // the executing thread is cleaned up after the task
+        assertThat(executorService.submit(() -> SecurityContextHolder.getContext().getAuthentication()).get()).isNull();
+        assertThat(executorService.submit(MdcHelper::liesKorrelationsId).get()).isNull();
+    }
+
+    @Test
+    void testWrappedCallableDoesNotShareSecurityContext() throws Exception {
+        SecurityContext callerContext = SecurityContextHolder.getContext();
+        Callable<Authentication> task = IsyContextPropagation.wrap(() -> {
+            Authentication propagated = SecurityContextHolder.getContext().getAuthentication();
+            SecurityContextHolder.getContext().setAuthentication(null);
+            return propagated;
+        });
+
+        Future<Authentication> result = executorService.submit(task);
+
+        assertThat(result.get()).isSameAs(AUTHENTICATION);
+        assertThat(callerContext.getAuthentication()).isSameAs(AUTHENTICATION);
+    }
+
+    @Test
+    void testWrappedThreadFactoryPropagatesContext() throws Exception {
+        AtomicReference<Authentication> authentication = new AtomicReference<>();
+        AtomicReference<String> korrelationsId = new AtomicReference<>();
+
+        Thread thread = IsyContextPropagation.wrap(Executors.defaultThreadFactory()).newThread(() -> {
+            authentication.set(SecurityContextHolder.getContext().getAuthentication());
+            korrelationsId.set(MDC.get(MdcHelper.MDC_KORRELATIONS_ID));
+        });
+        thread.start();
+        thread.join();
+
+        assertThat(authentication.get()).isSameAs(AUTHENTICATION);
+        assertThat(korrelationsId.get()).isEqualTo(KORRELATIONS_ID);
+    }
+
+    @Test
+    void testThreadLocalAccessorsAreRegistered() throws Exception {
+        ContextSnapshot snapshot = ContextSnapshotFactory.builder().contextRegistry(ContextRegistry.getInstance()).build()
+                .captureAll();
+
+        AtomicReference<Authentication> authentication = new AtomicReference<>();
+        AtomicReference<String> korrelationsId = new AtomicReference<>();
+        executorService.submit(snapshot.wrap(() -> {
+            authentication.set(SecurityContextHolder.getContext().getAuthentication());
+            korrelationsId.set(MdcHelper.liesKorrelationsId());
+        })).get();
+
+        assertThat(authentication.get()).isSameAs(AUTHENTICATION);
+        assertThat(korrelationsId.get()).isEqualTo(KORRELATIONS_ID);
+    }
+
+    @Test
+    void testReactorContextContainsCurrentContext() {
+        Mono<String> pipeline = Mono.deferContextual(context -> ReactiveSecurityContextHolder.getContext()
+                .map(securityContext -> securityContext.getAuthentication().getName() + " "
+                        + context.get(KorrelationsIdThreadLocalAccessor.KEY)));
+
+        String result = pipeline.contextWrite(ReactorContextPropagation.captureCurrentContext()).block();
+
+        assertThat(result).isEqualTo("user " + KORRELATIONS_ID);
+    }
+
+}
@@ -1,10 +1,15 @@
 package de.bund.bva.isyfact.security.example.service;
 
+import de.bund.bva.isyfact.security.context.KorrelationsIdThreadLocalAccessor;
 import de.bund.bva.isyfact.security.oauth2.client.annotation.Authenticate;
 import de.bund.bva.isyfact.util.logging.MdcHelper;
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 public class ExampleMethodAuthentication {
 
@@ -49,4 +54,14 @@ public class ExampleMethodAuthentication {
         return MdcHelper.liesKorrelationsId();
     }
 
+    @Authenticate("my-auth-client")
+    public Mono<Authentication> authenticateReactive() {
+        return ReactiveSecurityContextHolder.getContext().map(SecurityContext::getAuthentication);
+    }
+
+    @Authenticate("my-auth-client")
+    public Flux<String> authenticateReactiveCheckCorrelationId() {
+        return Flux.deferContextual(context -> Flux.just(context.<String>get(KorrelationsIdThreadLocalAccessor.KEY)));
+    }
+
 }
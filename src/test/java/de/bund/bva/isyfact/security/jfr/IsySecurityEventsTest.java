@@ -0,0 +1,154 @@
+package de.bund.bva.isyfact.security.jfr;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.ClientAuthorizationException;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.test.context.ActiveProfiles;
+
+import de.bund.bva.isyfact.security.AbstractOidcProviderTest;
+import de.bund.bva.isyfact.security.core.Berechtigungsmanager;
+import de.bund.bva.isyfact.security.oauth2.client.Authentifizierungsmanager;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+@ActiveProfiles("test-clients")
+@SpringBootTest
+public class IsySecurityEventsTest extends AbstractOidcProviderTest {
+
+    /** BHKNZ that is only used by this test, so that the token of the client is not cached by other tests. */
+    private static final String BHKNZ = "900001";
+
+    @Autowired
+    private Authentifizierungsmanager authentifizierungsmanager;
+
+    @Autowired
+    private Berechtigungsmanager berechtigungsmanager;
+
+    @TempDir
+    private Path tempDir;
+
+    private Recording recording;
+
+    @BeforeAll
+    public static void setup() {
+        registerTestClients();
+    }
+
+    @BeforeEach
+    public void startRecording() {
+        recording = new Recording();
+        recording.enable(TokenAcquisitionEvent.NAME);
+        recording.enable(TokenRequestEvent.NAME);
+        recording.enable(JwtDecodeEvent.NAME);
+        recording.enable(RoleMappingEvent.NAME);
+        recording.enable(PrivilegeDeniedEvent.NAME);
+        recording.start();
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        recording.close();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void shouldRecordTokenRequestDecodeAndRoleMappingOnlyOnCacheMiss() throws IOException {
+        authentifizierungsmanager.authentifiziereClient(getIssuer(), "client-credentials-test-client", "supersecretpassword", BHKNZ);
+        authentifizierungsmanager.authentifiziereClient(getIssuer(), "client-credentials-test-client", "supersecretpassword", BHKNZ);
+
+        List<RecordedEvent> events = stopRecording();
+
+        List<RecordedEvent> acquisitions = filter(events, TokenAcquisitionEvent.NAME);
+        assertThat(acquisitions).hasSize(2);
+        assertThat(acquisitions).allSatisfy(event -> {
+            assertThat(event.getString("grantType")).isEqualTo("client_credentials");
+            assertThat(event.getString("outcome")).isEqualTo(TokenAcquisitionEvent.OUTCOME_SUCCESS);
+            assertThat(event.getString("error")).isNull();
+        });
+        // the second acquisition is served from the caches of authorized clients and authentications
+        assertThat(acquisitions.get(0).getBoolean("cacheHit")).isFalse();
+        assertThat(acquisitions.get(1).getBoolean("cacheHit")).isTrue();
+
+        List<RecordedEvent> tokenRequests = filter(events, TokenRequestEvent.NAME);
+        assertThat(tokenRequests).hasSize(1);
+        assertThat(tokenRequests.get(0).getString("grantType")).isEqualTo("client_credentials");
+        assertThat(tokenRequests.get(0).getString("outcome")).isEqualTo(TokenAcquisitionEvent.OUTCOME_SUCCESS);
+
+        assertThat(filter(events, JwtDecodeEvent.NAME)).hasSize(1).allSatisfy(event -> {
+            assertThat(event.getString("grantType")).isEqualTo("client_credentials");
+            assertThat(event.getString("outcome")).isEqualTo(TokenAcquisitionEvent.OUTCOME_SUCCESS);
+        });
+        assertThat(filter(events, RoleMappingEvent.NAME)).hasSize(1)
+                .allSatisfy(event -> assertThat(event.getInt("roles")).isEqualTo(1));
+    }
+
+    @Test
+    public void shouldRecordFailedTokenAcquisition() throws IOException {
+        assertThrows(ClientAuthorizationException.class, () -> authentifizierungsmanager.authentifiziere("cc-client-invalid"));
+
+        List<RecordedEvent> events = stopRecording();
+
+        List<RecordedEvent> acquisitions = filter(events, TokenAcquisitionEvent.NAME);
+        assertThat(acquisitions).hasSize(1);
+        assertThat(acquisitions.get(0).getString("registration")).isEqualTo("cc-client-invalid");
+        assertThat(acquisitions.get(0).getString("grantType")).isEqualTo("client_credentials");
+        assertThat(acquisitions.get(0).getBoolean("cacheHit")).isFalse();
+        assertThat(acquisitions.get(0).getString("outcome")).isEqualTo(TokenAcquisitionEvent.OUTCOME_ERROR);
+        assertThat(acquisitions.get(0).getString("error")).isEqualTo(OAuth2ErrorCodes.UNSUPPORTED_GRANT_TYPE);
+
+        List<RecordedEvent> tokenRequests = filter(events, TokenRequestEvent.NAME);
+        assertThat(tokenRequests).hasSize(1);
+        assertThat(tokenRequests.get(0).getString("error")).isEqualTo(OAuth2ErrorCodes.UNSUPPORTED_GRANT_TYPE);
+    }
+
+    @Test
+    public void shouldRecordDeniedPrivilege() throws IOException {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("user", "password", "PRIV_Recht_A"));
+
+        berechtigungsmanager.pruefeRecht("PRIV_Recht_A");
+        assertThrows(AccessDeniedException.class, () -> berechtigungsmanager.pruefeRecht("PRIV_Recht_B"));
+
+        List<RecordedEvent> denials = filter(stopRecording(), PrivilegeDeniedEvent.NAME);
+        assertThat(denials).hasSize(1);
+        assertThat(denials.get(0).getString("privilege")).isEqualTo("PRIV_Recht_B");
+        assertThat(denials.get(0).getStackTrace()).isNotNull();
+    }
+
+    private List<RecordedEvent> stopRecording() throws IOException {
+        recording.stop();
+        Path file = tempDir.resolve("isy-security.jfr");
+        recording.dump(file);
+        return RecordingFile.readAllEvents(file);
+    }
+
+    /**
+     * Returns the events with the given name that were recorded by the test thread, e.g. not by the warm-up.
+     */
+    private static List<RecordedEvent> filter(List<RecordedEvent> events, String name) {
+        long threadId = Thread.currentThread().getId();
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .filter(event -> event.getThread() != null && event.getThread().getJavaThreadId() == threadId)
+                .sorted((a, b) -> a.getStartTime().compareTo(b.getStartTime()))
+                .collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,139 @@
+package de.bund.bva.isyfact.security.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.ClientAuthorizationException;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.test.context.ActiveProfiles;
+
+import de.bund.bva.isyfact.security.AbstractOidcProviderTest;
+import de.bund.bva.isyfact.security.core.Berechtigungsmanager;
+import de.bund.bva.isyfact.security.oauth2.client.Authentifizierungsmanager;
+import de.bund.bva.isyfact.security.oauth2.client.ReactiveAuthentifizierungsmanager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ActiveProfiles("test-clients")
+@SpringBootTest
+public class MicrometerIsySecurityMetricsTest extends AbstractOidcProviderTest {
+
+    @Autowired
+    private MicrometerIsySecurityMetrics metrics;
+
+    @Autowired
+    private Authentifizierungsmanager authentifizierungsmanager;
+
+    @Autowired
+    private Berechtigungsmanager berechtigungsmanager;
+
+    @Autowired
+    private ReactiveAuthentifizierungsmanager reactiveAuthentifizierungsmanager;
+
+    private SimpleMeterRegistry registry;
+
+    @BeforeAll
+    public static void setup() {
+        registerTestClients();
+    }
+
+    @BeforeEach
+    public void bindMetrics() {
+        registry = new SimpleMeterRegistry();
+        metrics.bindTo(registry);
+    }
+
+    @AfterEach
+    public void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void shouldRecordPhasesOfAuthentication() {
+        authentifizierungsmanager.authentifiziere("ropc-client");
+
+        assertEquals(1, registry.get(MicrometerIsySecurityMetrics.AUTHENTICATION)
+                .tag(MicrometerIsySecurityMetrics.TAG_REGISTRATION, "ropc-client")
+                .tag(MicrometerIsySecurityMetrics.TAG_GRANT_TYPE, "password")
+                .tag(MicrometerIsySecurityMetrics.TAG_OUTCOME, MicrometerIsySecurityMetrics.OUTCOME_SUCCESS)
+                .timer().count());
+        assertEquals(1, registry.get(MicrometerIsySecurityMetrics.TOKEN_REQUESTS)
+                .tags(MicrometerIsySecurityMetrics.TAG_REGISTRATION, "ropc-client", MicrometerIsySecurityMetrics.TAG_GRANT_TYPE, "password")
+                .timer().count());
+        assertEquals(1, registry.get(MicrometerIsySecurityMetrics.JWT_DECODE).tag(MicrometerIsySecurityMetrics.TAG_REGISTRATION, "ropc-client")
+                .timer().count());
+        assertEquals(1, registry.get(MicrometerIsySecurityMetrics.AUTHORITY_CONVERSION)
+                .tag(MicrometerIsySecurityMetrics.TAG_REGISTRATION, "ropc-client").timer().count());
+    }
+
+    @Test
+    public void shouldRecordTokenRequestsOfReactiveAuthentication() {
+        reactiveAuthentifizierungsmanager.authentifiziere("ropc-client").block();
+
+        assertEquals(1, registry.get(MicrometerIsySecurityMetrics.TOKEN_REQUESTS)
+                .tags(MicrometerIsySecurityMetrics.TAG_REGISTRATION, "ropc-client", MicrometerIsySecurityMetrics.TAG_GRANT_TYPE, "password")
+                .timer().count());
+        assertThat(registry.find(MicrometerIsySecurityMetrics.CACHE_GETS)
+                .tag(MicrometerIsySecurityMetrics.TAG_CACHE, "reactive.authentications").functionCounters()).hasSize(2);
+    }
+
+    @Test
+    public void shouldCountErrorsOfTokenEndpoint() {
+        assertThrows(ClientAuthorizationException.class, () -> authentifizierungsmanager.authentifiziere("cc-client-invalid"));
+
+        // the error code is taken from the error response of the OIDC provider
+        assertEquals(1, registry.get(MicrometerIsySecurityMetrics.TOKEN_ERRORS)
+                .tag(MicrometerIsySecurityMetrics.TAG_REGISTRATION, "cc-client-invalid")
+                .tag(MicrometerIsySecurityMetrics.TAG_GRANT_TYPE, "client_credentials")
+                .tag(MicrometerIsySecurityMetrics.TAG_ERROR, OAuth2ErrorCodes.UNSUPPORTED_GRANT_TYPE)
+                .counter().count());
+        assertEquals(1, registry.get(MicrometerIsySecurityMetrics.AUTHENTICATION)
+                .tag(MicrometerIsySecurityMetrics.TAG_OUTCOME, MicrometerIsySecurityMetrics.OUTCOME_ERROR)
+                .timer().count());
+    }
+
+    @Test
+    public void shouldReportHitsOfCaches() {
+        // the provider configuration is discovered at most once, later requests are served from the cache
+        authentifizierungsmanager.authentifiziereClient(getIssuer(), "client-credentials-test-client", "supersecretpassword");
+        authentifizierungsmanager.authentifiziereClient(getIssuer(), "client-credentials-test-client", "supersecretpassword");
+
+        assertThat(registry.get(MicrometerIsySecurityMetrics.CACHE_GETS)
+                .tag(MicrometerIsySecurityMetrics.TAG_CACHE, "discovery")
+                .tag(MicrometerIsySecurityMetrics.TAG_RESULT, "hit")
+                .functionCounter().count()).isGreaterThanOrEqualTo(1);
+        assertThat(registry.get(MicrometerIsySecurityMetrics.CACHE_SIZE)
+                .tag(MicrometerIsySecurityMetrics.TAG_CACHE, "discovery")
+                .gauge().value()).isGreaterThanOrEqualTo(1);
+        assertThat(registry.find(MicrometerIsySecurityMetrics.CACHE_GETS)
+                .tag(MicrometerIsySecurityMetrics.TAG_CACHE, "client-credentials.authorized-clients").functionCounters()).hasSize(2);
+    }
+
+    @Test
+    public void shouldCountDecisionsPerPrivilege() {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("user", "password", "PRIV_Recht_A"));
+
+        berechtigungsmanager.pruefeRecht("PRIV_Recht_A");
+        berechtigungsmanager.pruefeRecht("PRIV_Recht_A");
+        assertThrows(AccessDeniedException.class, () -> berechtigungsmanager.pruefeRecht("PRIV_Recht_B"));
+
+        assertEquals(2, registry.get(MicrometerIsySecurityMetrics.AUTHORIZATION_DECISIONS)
+                .tags(MicrometerIsySecurityMetrics.TAG_PRIVILEGE, "PRIV_Recht_A",
+                        MicrometerIsySecurityMetrics.TAG_DECISION, MicrometerIsySecurityMetrics.DECISION_GRANTED)
+                .counter().count());
+        assertEquals(1, registry.get(MicrometerIsySecurityMetrics.AUTHORIZATION_DECISIONS)
+                .tags(MicrometerIsySecurityMetrics.TAG_PRIVILEGE, "PRIV_Recht_B",
+                        MicrometerIsySecurityMetrics.TAG_DECISION, MicrometerIsySecurityMetrics.DECISION_DENIED)
+                .counter().count());
+    }
+
+}
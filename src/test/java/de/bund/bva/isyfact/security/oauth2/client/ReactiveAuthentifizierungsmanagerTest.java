@@ -0,0 +1,102 @@
+package de.bund.bva.isyfact.security.oauth2.client;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static de.bund.bva.isyfact.security.test.oidcprovider.EmbeddedOidcProviderStub.BHKNZ_CLAIM_NAME;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.ClientAuthorizationException;
+import org.springframework.security.oauth2.core.oidc.StandardClaimNames;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+
+import de.bund.bva.isyfact.security.AbstractOidcProviderTest;
+
+@ActiveProfiles("test-clients")
+@SpringBootTest
+public class ReactiveAuthentifizierungsmanagerTest extends AbstractOidcProviderTest {
+
+    @Autowired
+    private ReactiveAuthentifizierungsmanager reactiveAuthentifizierungsmanager;
+
+    @BeforeAll
+    public static void setup() {
+        registerTestClients();
+        SecurityContextHolder.getContext().setAuthentication(null);
+    }
+
+    @Test
+    public void testAuthWithClientRegistrationCC() {
+        Authentication authentication = reactiveAuthentifizierungsmanager.authentifiziere("cc-client").block();
+
+        assertInstanceOf(JwtAuthenticationToken.class, authentication);
+        assertThat(authentication.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsOnly("PRIV_Recht_A");
+        // the security context of the thread is not changed
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    @Test
+    public void testAuthWithClientRegistrationROPCAndBhknz() {
+        JwtAuthenticationToken authentication =
+                (JwtAuthenticationToken) reactiveAuthentifizierungsmanager.authentifiziere("ropc-client-with-bhknz").block();
+
+        assertEquals("testuser-with-bhknz", authentication.getTokenAttributes().get(StandardClaimNames.PREFERRED_USERNAME));
+        assertEquals("123456", authentication.getTokenAttributes().get(BHKNZ_CLAIM_NAME));
+        assertThat(authentication.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsOnly("PRIV_Recht_B");
+    }
+
+    @Test
+    public void testAuthClientReusesCachedToken() {
+        WireMock.resetAllRequests();
+
+        Authentication first = reactiveAuthentifizierungsmanager.authentifiziereClient(getIssuer(), "client-credentials-test-client",
+                "supersecretpassword", null).block();
+        Authentication second = reactiveAuthentifizierungsmanager.authentifiziereClient(getIssuer(), "client-credentials-test-client",
+                "supersecretpassword", null).block();
+
+        // each caller receives its own copy of the cached authentication
+        assertThat(second).isNotSameAs(first);
+        assertThat(((JwtAuthenticationToken) second).getToken()).isSameAs(((JwtAuthenticationToken) first).getToken());
+        assertEquals(1, WireMock.findAll(postRequestedFor(urlPathMatching(".*/token"))).size());
+    }
+
+    @Test
+    public void testAuthSystemWithInvalidCredentials() {
+        assertThrows(ClientAuthorizationException.class, () -> reactiveAuthentifizierungsmanager.authentifiziereSystem(getIssuer(),
+                "resource-owner-password-credentials-test-client", "hypersecretpassword", "testuser", "wrong", null).block());
+    }
+
+    @Test
+    public void testAuthenticationAvailableInReactiveSecurityContext() {
+        Object username = ReactiveSecurityContextHolder.getContext()
+                .map(SecurityContext::getAuthentication)
+                .map(authentication -> ((JwtAuthenticationToken) authentication).getTokenAttributes()
+                        .get(StandardClaimNames.PREFERRED_USERNAME))
+                .contextWrite(ReactiveAuthentifizierungsmanager.withAuthentifizierung(
+                        reactiveAuthentifizierungsmanager.authentifiziere("ropc-client")))
+                .block();
+
+        assertEquals("testuser", username);
+    }
+
+    @Test
+    public void testUnknownRegistrationIdSignalsError() {
+        assertThrows(IllegalArgumentException.class, () -> reactiveAuthentifizierungsmanager.authentifiziere("unknown").block());
+    }
+
+}
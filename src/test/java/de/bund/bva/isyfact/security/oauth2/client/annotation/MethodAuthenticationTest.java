@@ -2,9 +2,11 @@ package de.bund.bva.isyfact.security.oauth2.client.annotation;
 
 import de.bund.bva.isyfact.security.example.service.ExampleMethodAuthentication;
 import de.bund.bva.isyfact.security.oauth2.client.Authentifizierungsmanager;
+import de.bund.bva.isyfact.security.oauth2.client.ReactiveAuthentifizierungsmanager;
 import de.bund.bva.isyfact.util.logging.MdcHelper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -13,8 +15,10 @@ import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.authentication.TestingAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import reactor.core.publisher.Mono;
 
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -23,6 +27,11 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.AdditionalMatchers.not;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @SpringBootTest(
         classes = {AuthenticateInterceptor.class, ExampleMethodAuthentication.class},
@@ -155,4 +164,84 @@ public class MethodAuthenticationTest {
         // same correlation id after method
         assertEquals(expectedCorrelationId, MdcHelper.liesKorrelationsId());
     }
+
+    @Test
+    public void correlationIdCreatedByKorrelationsIdGenerator() {
+        AuthenticateInterceptor interceptor = new AuthenticateInterceptor(authentifizierungsmanager);
+        interceptor.setKorrelationsIdGenerator(() -> "test-korrelations-id");
+        ProxyFactory proxyFactory = new ProxyFactory(new ExampleMethodAuthentication());
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvisor(interceptor);
+        ExampleMethodAuthentication proxy = (ExampleMethodAuthentication) proxyFactory.getProxy();
+        MdcHelper.entferneKorrelationsIds();
+
+        assertEquals("test-korrelations-id", proxy.authenticateCheckCorrelationId());
+        assertNull(MdcHelper.liesKorrelationsId());
+    }
+
+    @Test
+    public void registrationIdResolvedOncePerMethod() {
+        AtomicInteger resolutions = new AtomicInteger();
+        AuthenticateInterceptor interceptor = new AuthenticateInterceptor(authentifizierungsmanager);
+        interceptor.setEmbeddedValueResolver(value -> {
+            resolutions.incrementAndGet();
+            return value.replace("${test.auth.client-id}", CLIENT_ID);
+        });
+        ProxyFactory proxyFactory = new ProxyFactory(new ExampleMethodAuthentication());
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvisor(interceptor);
+        ExampleMethodAuthentication proxy = (ExampleMethodAuthentication) proxyFactory.getProxy();
+
+        assertEquals(TEST_AUTH_TOKEN, proxy.authenticateWithValueInPropertyPlaceholder());
+        assertEquals(TEST_AUTH_TOKEN, proxy.authenticateWithValueInPropertyPlaceholder());
+        assertEquals(TEST_AUTH_TOKEN, proxy.authenticateWithValue());
+
+        assertEquals(2, resolutions.get());
+        verify(authentifizierungsmanager, times(3)).authentifiziere(CLIENT_ID);
+    }
+
+    @Test
+    public void reactiveMethodAuthenticatedOnSubscription() {
+        ReactiveAuthentifizierungsmanager reactiveAuthentifizierungsmanager = mock(ReactiveAuthentifizierungsmanager.class);
+        when(reactiveAuthentifizierungsmanager.authentifiziere(CLIENT_ID)).thenReturn(Mono.just(TEST_AUTH_TOKEN));
+        ExampleMethodAuthentication proxy = createProxyWithReactiveAuthentifizierungsmanager(reactiveAuthentifizierungsmanager);
+
+        Mono<Authentication> methodAuthentication = proxy.authenticateReactive();
+
+        // the calling thread is not authenticated, neither during nor after the method call
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        verify(authentifizierungsmanager, never()).authentifiziere(CLIENT_ID);
+        assertEquals(TEST_AUTH_TOKEN, methodAuthentication.block());
+        assertEquals(TEST_AUTH_TOKEN, methodAuthentication.block());
+        verify(reactiveAuthentifizierungsmanager, times(2)).authentifiziere(CLIENT_ID);
+    }
+
+    @Test
+    public void reactiveMethodGetsCorrelationIdInContext() {
+        ReactiveAuthentifizierungsmanager reactiveAuthentifizierungsmanager = mock(ReactiveAuthentifizierungsmanager.class);
+        when(reactiveAuthentifizierungsmanager.authentifiziere(CLIENT_ID)).thenReturn(Mono.just(TEST_AUTH_TOKEN));
+        ExampleMethodAuthentication proxy = createProxyWithReactiveAuthentifizierungsmanager(reactiveAuthentifizierungsmanager);
+        MdcHelper.entferneKorrelationsIds();
+
+        assertEquals("test-korrelations-id", proxy.authenticateReactiveCheckCorrelationId().blockFirst());
+
+        String expectedCorrelationId = UUID.randomUUID().toString();
+        MdcHelper.pushKorrelationsId(expectedCorrelationId);
+        try {
+            assertEquals(expectedCorrelationId, proxy.authenticateReactiveCheckCorrelationId().blockFirst());
+        } finally {
+            MdcHelper.entferneKorrelationsIds();
+        }
+    }
+
+    private ExampleMethodAuthentication createProxyWithReactiveAuthentifizierungsmanager(
+            ReactiveAuthentifizierungsmanager reactiveAuthentifizierungsmanager) {
+        AuthenticateInterceptor interceptor = new AuthenticateInterceptor(authentifizierungsmanager);
+        interceptor.setReactiveAuthentifizierungsmanager(reactiveAuthentifizierungsmanager);
+        interceptor.setKorrelationsIdGenerator(() -> "test-korrelations-id");
+        ProxyFactory proxyFactory = new ProxyFactory(new ExampleMethodAuthentication());
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvisor(interceptor);
+        return (ExampleMethodAuthentication) proxyFactory.getProxy();
+    }
 }
@@ -0,0 +1,142 @@
+package de.bund.bva.isyfact.security.oauth2.client.authentication;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.matching.RequestPatternBuilder;
+
+import de.bund.bva.isyfact.security.AbstractOidcProviderTest;
+import de.bund.bva.isyfact.security.oauth2.client.Authentifizierungsmanager;
+import de.bund.bva.isyfact.security.oauth2.client.authentication.token.PasswordClientRegistrationAuthenticationToken;
+
+@ActiveProfiles("test-clients")
+@SpringBootTest(properties = {
+        "isy.security.oauth2.client.token-refresh.enabled = true",
+        // ropc-client is not refreshed in the background, so that only the test requests its tokens
+        "isy.security.oauth2.client.token-refresh.registration-ids = cc-client",
+        "isy.security.oauth2.client.token-refresh.jitter = 0s",
+        "isy.security.oauth2.client.token-cache.password-grant-enabled = true",
+        "isy.security.oauth2.client.token-cache.clock-skew = 5s"
+})
+// stops the refresher, so that it does not send requests while other tests are running
+@DirtiesContext
+public class AuthorizedClientRefresherTest extends AbstractOidcProviderTest {
+
+    @Autowired
+    private AuthorizedClientRefresher authorizedClientRefresher;
+
+    @Autowired
+    private OAuth2AuthorizedClientService authorizedClientService;
+
+    @Autowired
+    private ClientRegistrationRepository clientRegistrationRepository;
+
+    @Autowired
+    private PasswordClientRegistrationAuthenticationProvider passwordAuthenticationProvider;
+
+    @Autowired
+    private Authentifizierungsmanager authentifizierungsmanager;
+
+    @BeforeAll
+    public static void setup() {
+        registerTestClients();
+        SecurityContextHolder.getContext().setAuthentication(null);
+    }
+
+    @Test
+    public void shouldRequestClientCredentialsTokenAtStartup() throws InterruptedException {
+        OAuth2AuthorizedClient authorizedClient = null;
+        for (int i = 0; i < 100 && authorizedClient == null; i++) {
+            authorizedClient = authorizedClientService.loadAuthorizedClient("cc-client", "Authentifizierungsmanager");
+            if (authorizedClient == null) {
+                Thread.sleep(100);
+            }
+        }
+
+        assertNotNull(authorizedClient);
+    }
+
+    @Test
+    public void shouldRenewCachedPasswordGrantToken() {
+        PasswordClientRegistrationAuthenticationToken token = new PasswordClientRegistrationAuthenticationToken(
+                clientRegistrationRepository.findByRegistrationId("ropc-client"), "testuser", "pw1234", null);
+
+        RequestPatternBuilder passwordTokenRequests =
+                postRequestedFor(urlPathMatching(".*/token")).withRequestBody(containing("grant_type=password"));
+        WireMock.resetAllRequests();
+        OAuth2AuthorizedClient first = passwordAuthenticationProvider.renewAuthorizedClient(token);
+        OAuth2AuthorizedClient renewed = passwordAuthenticationProvider.renewAuthorizedClient(token);
+        assertNotNull(first);
+        assertNotSame(first, renewed);
+        // the token is renewed although the cached one is still valid
+        assertEquals(2, WireMock.findAll(passwordTokenRequests).size());
+
+        // callers get the renewed token from the cache
+        WireMock.resetAllRequests();
+        authentifizierungsmanager.authentifiziere("ropc-client");
+        JwtAuthenticationToken authentication = (JwtAuthenticationToken) SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.getContext().setAuthentication(null);
+
+        assertEquals(0, WireMock.findAll(passwordTokenRequests).size());
+        assertEquals(renewed.getAccessToken().getTokenValue(), authentication.getToken().getTokenValue());
+    }
+
+    @Test
+    public void shouldRenewTokenLeadTimeBeforeExpiry() {
+        Instant now = Instant.now();
+        OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "token", now,
+                now.plus(Duration.ofMinutes(10)));
+
+        assertEquals(Duration.ofMinutes(8), authorizedClientRefresher.getRefreshDelay(accessToken, now));
+    }
+
+    @Test
+    public void shouldNotRenewShortLivedTokenBeforeHalfOfItsLifetime() {
+        Instant now = Instant.now();
+        OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "token", now,
+                now.plus(Duration.ofSeconds(60)));
+
+        assertEquals(Duration.ofSeconds(30), authorizedClientRefresher.getRefreshDelay(accessToken, now));
+        // the token has already expired
+        assertEquals(Duration.ofSeconds(1), authorizedClientRefresher.getRefreshDelay(accessToken, now.plus(Duration.ofMinutes(2))));
+    }
+
+    @Test
+    public void shouldNotRenewTokenWithoutExpiry() {
+        OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "token", null, null);
+
+        assertNull(authorizedClientRefresher.getRefreshDelay(accessToken, Instant.now()));
+    }
+
+    @Test
+    public void shouldDoubleBackoffUpToMaximum() {
+        assertEquals(Duration.ofSeconds(5), authorizedClientRefresher.getBackoffDelay(1));
+        assertEquals(Duration.ofSeconds(10), authorizedClientRefresher.getBackoffDelay(2));
+        assertEquals(Duration.ofSeconds(20), authorizedClientRefresher.getBackoffDelay(3));
+        assertEquals(Duration.ofMinutes(5), authorizedClientRefresher.getBackoffDelay(10));
+        assertEquals(Duration.ofMinutes(5), authorizedClientRefresher.getBackoffDelay(Integer.MAX_VALUE));
+    }
+
+}
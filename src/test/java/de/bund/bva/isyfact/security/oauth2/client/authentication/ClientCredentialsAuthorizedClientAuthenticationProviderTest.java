@@ -8,14 +8,30 @@ import static de.bund.bva.isyfact.security.test.oidcprovider.EmbeddedOidcProvide
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
-
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
 import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -24,13 +40,25 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.client.ClientAuthorizationException;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.ClientRegistrations;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
 import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
 import org.springframework.security.oauth2.core.oidc.StandardClaimNames;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.test.context.ActiveProfiles;
 
 import de.bund.bva.isyfact.security.AbstractOidcProviderTest;
+import de.bund.bva.isyfact.security.jfr.TokenAcquisitionEvent;
 import de.bund.bva.isyfact.security.oauth2.client.authentication.token.ClientCredentialsRegistrationIdAuthenticationToken;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 
 @ActiveProfiles("test-clients")
 @SpringBootTest
@@ -39,6 +67,9 @@ public class ClientCredentialsAuthorizedClientAuthenticationProviderTest extends
     @Autowired
     private ClientCredentialsAuthorizedClientAuthenticationProvider authenticationProvider;
 
+    @Autowired
+    private JwtAuthenticationConverter jwtAuthenticationConverter;
+
     @BeforeAll
     public static void setup() {
         registerTestClients();
@@ -73,6 +104,124 @@ public class ClientCredentialsAuthorizedClientAuthenticationProviderTest extends
         verify(0, postRequestedFor(urlEqualTo(ISSUER_PATH + "/protocol/openid-connect/token")));
     }
 
+    @Test
+    public void shouldTakeValidAuthorizedClientFromServiceWithoutCallingManager() {
+        OAuth2AuthorizedClientManager authorizedClientManager = mock(OAuth2AuthorizedClientManager.class);
+        OAuth2AuthorizedClientService authorizedClientService = mock(OAuth2AuthorizedClientService.class);
+        ClientCredentialsAuthorizedClientAuthenticationProvider provider =
+                new ClientCredentialsAuthorizedClientAuthenticationProvider(authorizedClientManager, jwtAuthenticationConverter);
+        provider.setAuthorizedClientService(authorizedClientService);
+        ClientCredentialsRegistrationIdAuthenticationToken token = new ClientCredentialsRegistrationIdAuthenticationToken("cc-client", null);
+
+        OAuth2AuthorizedClient validClient = authorizedClient(Instant.now().plusSeconds(300));
+        when(authorizedClientService.loadAuthorizedClient("cc-client", token.getName())).thenReturn(validClient);
+        assertNotNull(provider.authenticate(token));
+        Mockito.verify(authorizedClientManager, never()).authorize(any());
+
+        // tokens expiring within the clock skew are renewed by the manager
+        when(authorizedClientService.loadAuthorizedClient("cc-client", token.getName()))
+                .thenReturn(authorizedClient(Instant.now().plusSeconds(30)));
+        when(authorizedClientManager.authorize(any())).thenReturn(validClient);
+        assertNotNull(provider.authenticate(token));
+        Mockito.verify(authorizedClientManager).authorize(any());
+    }
+
+    @Test
+    public void shouldCheckExpiryWithConfiguredClockSkewAndClock() {
+        OAuth2AuthorizedClientManager authorizedClientManager = mock(OAuth2AuthorizedClientManager.class);
+        OAuth2AuthorizedClientService authorizedClientService = mock(OAuth2AuthorizedClientService.class);
+        Clock clock = mock(Clock.class);
+        Instant now = Instant.now();
+        when(clock.instant()).thenReturn(now);
+        when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+        ClientCredentialsAuthorizedClientAuthenticationProvider provider = new ClientCredentialsAuthorizedClientAuthenticationProvider(
+                authorizedClientManager, jwtAuthenticationConverter, Duration.ofSeconds(10), clock);
+        provider.setAuthorizedClientService(authorizedClientService);
+        ClientCredentialsRegistrationIdAuthenticationToken token = new ClientCredentialsRegistrationIdAuthenticationToken("cc-client", null);
+
+        // valid with the configured clock skew of 10 seconds, although it would be expired with the default of 60 seconds
+        OAuth2AuthorizedClient storedClient = authorizedClient(now.plusSeconds(30));
+        when(authorizedClientService.loadAuthorizedClient("cc-client", token.getName())).thenReturn(storedClient);
+        assertNotNull(provider.authenticate(token));
+        Mockito.verify(authorizedClientManager, never()).authorize(any());
+
+        when(clock.instant()).thenReturn(now.plusSeconds(25));
+        when(authorizedClientManager.authorize(any())).thenReturn(authorizedClient(now.plusSeconds(300)));
+        assertNotNull(provider.authenticate(token));
+        Mockito.verify(authorizedClientManager).authorize(any());
+    }
+
+    @Test
+    public void shouldRecordOnlyTokensFromServiceAsCacheHits(@TempDir Path tempDir) throws Exception {
+        OAuth2AuthorizedClientManager authorizedClientManager = mock(OAuth2AuthorizedClientManager.class);
+        OAuth2AuthorizedClientService authorizedClientService = mock(OAuth2AuthorizedClientService.class);
+        ClientCredentialsAuthorizedClientAuthenticationProvider provider =
+                new ClientCredentialsAuthorizedClientAuthenticationProvider(authorizedClientManager, jwtAuthenticationConverter);
+        provider.setAuthorizedClientService(authorizedClientService);
+        ClientCredentialsRegistrationIdAuthenticationToken token = new ClientCredentialsRegistrationIdAuthenticationToken("cc-client", null);
+
+        OAuth2AuthorizedClient validClient = authorizedClient(Instant.now().plusSeconds(300));
+        CountDownLatch requestStarted = new CountDownLatch(1);
+        CountDownLatch requestReleased = new CountDownLatch(1);
+        when(authorizedClientManager.authorize(any())).thenAnswer(invocation -> {
+            requestStarted.countDown();
+            requestReleased.await();
+            return validClient;
+        });
+
+        try (Recording recording = new Recording()) {
+            recording.enable(TokenAcquisitionEvent.NAME);
+            recording.start();
+
+            // the second thread waits for the token request of the first thread
+            Thread leader = new Thread(() -> acquireToken(provider, token));
+            leader.start();
+            requestStarted.await();
+            Thread waiter = new Thread(() -> acquireToken(provider, token));
+            waiter.start();
+            while (waiter.getState() != Thread.State.TIMED_WAITING) {
+                Thread.onSpinWait();
+            }
+            requestReleased.countDown();
+            leader.join();
+            waiter.join();
+
+            when(authorizedClientService.loadAuthorizedClient("cc-client", token.getName())).thenReturn(validClient);
+            acquireToken(provider, token);
+
+            recording.stop();
+            Path file = tempDir.resolve("cache-hits.jfr");
+            recording.dump(file);
+            List<Boolean> cacheHits = RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> TokenAcquisitionEvent.NAME.equals(event.getEventType().getName()))
+                    .sorted(Comparator.comparing(RecordedEvent::getEndTime))
+                    .map(event -> event.getBoolean("cacheHit"))
+                    .collect(Collectors.toList());
+            assertThat(cacheHits).containsExactly(false, false, true);
+        }
+        Mockito.verify(authorizedClientManager).authorize(any());
+    }
+
+    private static void acquireToken(ClientCredentialsAuthorizedClientAuthenticationProvider provider,
+                                     ClientCredentialsRegistrationIdAuthenticationToken token) {
+        TokenAcquisitionEvent event = TokenAcquisitionEvent.start("cc-client", "client_credentials");
+        provider.authenticate(token);
+        event.finish(null);
+    }
+
+    private OAuth2AuthorizedClient authorizedClient(Instant expiresAt) {
+        ClientRegistration clientRegistration = ClientRegistrations.fromIssuerLocation(getIssuer())
+                .registrationId("cc-client")
+                .clientId("client-credentials-test-client")
+                .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                .build();
+        String tokenValue = embeddedOidcProvider.getAccessTokenString("client-credentials-test-client",
+                "service-account-client-credentials-test-client", Optional.empty(), Collections.singleton("Rolle_A"));
+        OAuth2AccessToken accessToken =
+                new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, tokenValue, Instant.now(), expiresAt);
+        return new OAuth2AuthorizedClient(clientRegistration, "client-credentials-test-client", accessToken);
+    }
+
     @Test
     public void shouldThrowAuthExceptionWithInvalidCredentials() {
         assertThrows(ClientAuthorizationException.class,
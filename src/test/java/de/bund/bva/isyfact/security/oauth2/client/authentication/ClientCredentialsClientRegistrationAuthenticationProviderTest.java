@@ -1,12 +1,17 @@
 package de.bund.bva.isyfact.security.oauth2.client.authentication;
 
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
 import static de.bund.bva.isyfact.security.test.oidcprovider.EmbeddedOidcProviderStub.DEFAULT_ROLES_CLAIM_NAME;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -24,9 +29,12 @@ import org.springframework.security.oauth2.client.registration.ClientRegistratio
 import org.springframework.security.oauth2.client.registration.ClientRegistrations;
 import org.springframework.security.oauth2.core.AuthorizationGrantType;
 import org.springframework.security.oauth2.core.oidc.StandardClaimNames;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.test.context.ActiveProfiles;
 
+import com.github.tomakehurst.wiremock.client.WireMock;
+
 import de.bund.bva.isyfact.security.AbstractOidcProviderTest;
 import de.bund.bva.isyfact.security.oauth2.client.authentication.token.ClientCredentialsClientRegistrationAuthenticationToken;
 
@@ -37,6 +45,9 @@ public class ClientCredentialsClientRegistrationAuthenticationProviderTest exten
     @Autowired
     private ClientCredentialsClientRegistrationAuthenticationProvider authenticationProvider;
 
+    @Autowired
+    private JwtAuthenticationConverter jwtAuthenticationConverter;
+
     @BeforeAll
     public static void setup() {
         registerTestClients();
@@ -80,6 +91,51 @@ public class ClientCredentialsClientRegistrationAuthenticationProviderTest exten
                         clientRegistration, null)));
     }
 
+    @Test
+    public void shouldReuseCachedTokenUntilExpiry() {
+        // tokens of the embedded provider are valid for 60 seconds
+        ClientCredentialsClientRegistrationAuthenticationProvider cachingProvider =
+                new ClientCredentialsClientRegistrationAuthenticationProvider(jwtAuthenticationConverter, 10, Duration.ofSeconds(5));
+        ClientRegistration clientRegistration = ClientRegistrations.fromIssuerLocation(getIssuer())
+                .clientId("client-credentials-test-client")
+                .clientSecret("supersecretpassword")
+                .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                .build();
+        WireMock.resetAllRequests();
+
+        JwtAuthenticationToken first = (JwtAuthenticationToken) cachingProvider.authenticate(
+                new ClientCredentialsClientRegistrationAuthenticationToken(clientRegistration, null));
+        JwtAuthenticationToken second = (JwtAuthenticationToken) cachingProvider.authenticate(
+                new ClientCredentialsClientRegistrationAuthenticationToken(clientRegistration, null));
+        cachingProvider.authenticate(new ClientCredentialsClientRegistrationAuthenticationToken(clientRegistration, "123456"));
+
+        assertEquals(first.getToken().getTokenValue(), second.getToken().getTokenValue());
+        // the authentication created from the cached token is cached as well, each caller receives its own copy
+        assertSame(first.getToken(), second.getToken());
+        assertNotSame(first, second);
+        // the BHKNZ is part of the cache key, so the last request was not served from the cache
+        assertEquals(2, WireMock.findAll(postRequestedFor(urlPathMatching(".*/token"))).size());
+    }
+
+    @Test
+    public void shouldNotReuseCachedTokenForDifferentSecret() {
+        ClientCredentialsClientRegistrationAuthenticationProvider cachingProvider =
+                new ClientCredentialsClientRegistrationAuthenticationProvider(jwtAuthenticationConverter, 10, Duration.ofSeconds(5));
+        ClientRegistration validRegistration = ClientRegistrations.fromIssuerLocation(getIssuer())
+                .clientId("client-credentials-test-client")
+                .clientSecret("supersecretpassword")
+                .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                .build();
+        ClientRegistration invalidRegistration = ClientRegistration.withClientRegistration(validRegistration)
+                .clientSecret("invalidpassword")
+                .build();
+
+        cachingProvider.authenticate(new ClientCredentialsClientRegistrationAuthenticationToken(validRegistration, null));
+
+        assertThrows(ClientAuthorizationException.class,
+                () -> cachingProvider.authenticate(new ClientCredentialsClientRegistrationAuthenticationToken(invalidRegistration, null)));
+    }
+
     @Test
     public void shouldReturnNullWhenPassingUnsupportedAuthentication() {
         Authentication authRequest = new UsernamePasswordAuthenticationToken("testuser", "pw1234");
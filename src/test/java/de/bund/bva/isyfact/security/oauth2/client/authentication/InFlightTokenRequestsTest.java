@@ -0,0 +1,195 @@
+package de.bund.bva.isyfact.security.oauth2.client.authentication;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+
+public class InFlightTokenRequestsTest {
+
+    private final OAuth2AuthorizedClient authorizedClient = createAuthorizedClient();
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void shouldShareResultOfRequestInFlight() throws Exception {
+        InFlightTokenRequests<String> inFlightTokenRequests = new InFlightTokenRequests<>(Duration.ofSeconds(5));
+        CountDownLatch requestStarted = new CountDownLatch(1);
+        CountDownLatch releaseRequest = new CountDownLatch(1);
+        AtomicInteger requests = new AtomicInteger();
+
+        Future<OAuth2AuthorizedClient> leader = executor.submit(() -> inFlightTokenRequests.execute("key",
+                blockingRequest(requests, requestStarted, releaseRequest, () -> authorizedClient)));
+        assertTrue(requestStarted.await(5, TimeUnit.SECONDS));
+
+        FutureTask<OAuth2AuthorizedClient> waiter = new FutureTask<>(() -> inFlightTokenRequests.execute("key",
+                () -> {
+                    requests.incrementAndGet();
+                    return createAuthorizedClient();
+                }));
+        Thread waiterThread = new Thread(waiter);
+        waiterThread.start();
+        awaitJoined(waiterThread);
+        releaseRequest.countDown();
+
+        assertSame(authorizedClient, leader.get(5, TimeUnit.SECONDS));
+        assertSame(authorizedClient, waiter.get(5, TimeUnit.SECONDS));
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void shouldPropagateFailureOfRequestInFlight() throws Exception {
+        InFlightTokenRequests<String> inFlightTokenRequests = new InFlightTokenRequests<>(Duration.ofSeconds(5));
+        CountDownLatch requestStarted = new CountDownLatch(1);
+        CountDownLatch releaseRequest = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("token endpoint not available");
+
+        executor.submit(() -> inFlightTokenRequests.execute("key", blockingRequest(new AtomicInteger(), requestStarted,
+                releaseRequest, () -> {
+                    throw failure;
+                })));
+        assertTrue(requestStarted.await(5, TimeUnit.SECONDS));
+
+        FutureTask<OAuth2AuthorizedClient> waiter =
+                new FutureTask<>(() -> inFlightTokenRequests.execute("key", this::createAuthorizedClient));
+        Thread waiterThread = new Thread(waiter);
+        waiterThread.start();
+        awaitJoined(waiterThread);
+        releaseRequest.countDown();
+
+        ExecutionException thrown = assertThrows(ExecutionException.class, () -> waiter.get(5, TimeUnit.SECONDS));
+        assertSame(failure, thrown.getCause());
+    }
+
+    @Test
+    public void shouldTimeOutWaitingForRequestInFlight() throws Exception {
+        InFlightTokenRequests<String> inFlightTokenRequests = new InFlightTokenRequests<>(Duration.ofMillis(50));
+        CountDownLatch requestStarted = new CountDownLatch(1);
+        CountDownLatch releaseRequest = new CountDownLatch(1);
+
+        executor.submit(() -> inFlightTokenRequests.execute("key",
+                blockingRequest(new AtomicInteger(), requestStarted, releaseRequest, () -> authorizedClient)));
+        assertTrue(requestStarted.await(5, TimeUnit.SECONDS));
+
+        try {
+            assertThrows(AuthenticationServiceException.class, () -> inFlightTokenRequests.execute("key", this::createAuthorizedClient));
+        } finally {
+            releaseRequest.countDown();
+        }
+    }
+
+    @Test
+    public void shouldNotCoalesceRequestsForDifferentKeys() throws Exception {
+        InFlightTokenRequests<String> inFlightTokenRequests = new InFlightTokenRequests<>(Duration.ofSeconds(5));
+        CountDownLatch requestStarted = new CountDownLatch(1);
+        CountDownLatch releaseRequest = new CountDownLatch(1);
+
+        executor.submit(() -> inFlightTokenRequests.execute("key",
+                blockingRequest(new AtomicInteger(), requestStarted, releaseRequest, () -> authorizedClient)));
+        assertTrue(requestStarted.await(5, TimeUnit.SECONDS));
+
+        try {
+            OAuth2AuthorizedClient other = createAuthorizedClient();
+            assertSame(other, inFlightTokenRequests.execute("other-key", () -> other));
+        } finally {
+            releaseRequest.countDown();
+        }
+    }
+
+    @Test
+    public void shouldNotCoalesceRequestsIfTimeoutIsZero() throws Exception {
+        InFlightTokenRequests<String> inFlightTokenRequests = new InFlightTokenRequests<>(Duration.ZERO);
+        CountDownLatch requestStarted = new CountDownLatch(1);
+        CountDownLatch releaseRequest = new CountDownLatch(1);
+
+        executor.submit(() -> inFlightTokenRequests.execute("key",
+                blockingRequest(new AtomicInteger(), requestStarted, releaseRequest, () -> authorizedClient)));
+        assertTrue(requestStarted.await(5, TimeUnit.SECONDS));
+
+        try {
+            OAuth2AuthorizedClient other = createAuthorizedClient();
+            assertSame(other, inFlightTokenRequests.execute("key", () -> other));
+        } finally {
+            releaseRequest.countDown();
+        }
+    }
+
+    @Test
+    public void shouldRequestAgainAfterRequestCompleted() {
+        InFlightTokenRequests<String> inFlightTokenRequests = new InFlightTokenRequests<>(Duration.ofSeconds(5));
+        OAuth2AuthorizedClient other = createAuthorizedClient();
+
+        assertSame(authorizedClient, inFlightTokenRequests.execute("key", () -> authorizedClient));
+        assertSame(other, inFlightTokenRequests.execute("key", () -> other));
+    }
+
+    /**
+     * Waits until the given thread has joined the request in flight, i.e. is blocked waiting for its result. Until then,
+     * the thread is running, because the requests of the waiting threads in these tests do not block.
+     */
+    private static void awaitJoined(Thread thread) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (thread.getState() != Thread.State.TIMED_WAITING) {
+            assertTrue(thread.isAlive() && System.nanoTime() < deadline, "thread did not join the request in flight");
+            Thread.onSpinWait();
+        }
+    }
+
+    private static Supplier<OAuth2AuthorizedClient> blockingRequest(AtomicInteger requests, CountDownLatch requestStarted,
+                                                                    CountDownLatch releaseRequest,
+                                                                    Supplier<OAuth2AuthorizedClient> result) {
+        return () -> {
+            requests.incrementAndGet();
+            requestStarted.countDown();
+            try {
+                releaseRequest.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return result.get();
+        };
+    }
+
+    private OAuth2AuthorizedClient createAuthorizedClient() {
+        ClientRegistration clientRegistration = ClientRegistration.withRegistrationId("test-client")
+                .clientId("test-client")
+                .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                .tokenUri("http://localhost/token")
+                .build();
+        OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "token", Instant.now(),
+                Instant.now().plusSeconds(60));
+        return new OAuth2AuthorizedClient(clientRegistration, "test-client", accessToken);
+    }
+
+}
@@ -0,0 +1,164 @@
+package de.bund.bva.isyfact.security.oauth2.client.authentication;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.ClientRegistrations;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import de.bund.bva.isyfact.security.AbstractOidcProviderTest;
+import de.bund.bva.isyfact.security.jfr.JwtDecodeEvent;
+import de.bund.bva.isyfact.security.jfr.TokenAcquisitionEvent;
+import de.bund.bva.isyfact.security.metrics.IsySecurityMetrics;
+import de.bund.bva.isyfact.security.xmlparser.RolePrivilegesMappingReloadedEvent;
+import de.bund.bva.isyfact.security.xmlparser.RolePrivilegesMapper;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class IsyOAuth2AuthenticationProviderTest extends AbstractOidcProviderTest {
+
+    private static final String CLIENT_ID = "client-credentials-test-client";
+
+    private final Clock clock = mock(Clock.class);
+
+    /** Number of decoded JWTs, i.e. of authentications that were not taken from the cache. */
+    private final AtomicInteger decodedJwts = new AtomicInteger();
+
+    private TestAuthenticationProvider authenticationProvider;
+
+    private OAuth2AuthorizedClient authorizedClient;
+
+    @BeforeEach
+    public void setUp() {
+        when(clock.instant()).thenReturn(Instant.now());
+        authenticationProvider = new TestAuthenticationProvider(clock);
+        authenticationProvider.setMetrics(new IsySecurityMetrics() {
+            @Override
+            public void recordJwtDecode(String registrationId, String grantType, long durationNanos) {
+                decodedJwts.incrementAndGet();
+            }
+        });
+
+        ClientRegistration clientRegistration = ClientRegistrations.fromIssuerLocation(getIssuer())
+                .clientId(CLIENT_ID)
+                .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                .build();
+        String tokenValue = embeddedOidcProvider.getAccessTokenString(CLIENT_ID, "service-account-" + CLIENT_ID, Optional.empty(),
+                Collections.singleton("Rolle_A"));
+        Instant now = Instant.now();
+        OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, tokenValue, now, now.plusSeconds(60));
+        authorizedClient = new OAuth2AuthorizedClient(clientRegistration, CLIENT_ID, accessToken);
+    }
+
+    @Test
+    public void shouldReturnIndependentCopiesOfCachedAuthentication() {
+        JwtAuthenticationToken first = (JwtAuthenticationToken) authenticationProvider.createJwtAuthentication(authorizedClient);
+        first.setDetails("details of the first caller");
+        JwtAuthenticationToken second = (JwtAuthenticationToken) authenticationProvider.createJwtAuthentication(authorizedClient);
+        second.setAuthenticated(false);
+        Authentication third = authenticationProvider.createJwtAuthentication(authorizedClient);
+
+        assertEquals(1, decodedJwts.get());
+        assertNotSame(first, second);
+        assertSame(first.getToken(), second.getToken());
+        assertThat(second.getAuthorities()).isEqualTo(first.getAuthorities());
+        assertNull(second.getDetails());
+        assertNull(third.getDetails());
+        assertTrue(third.isAuthenticated());
+    }
+
+    @Test
+    public void shouldDecodeAgainAfterExpiryOfCachedAuthentication() {
+        authenticationProvider.createJwtAuthentication(authorizedClient);
+        authenticationProvider.createJwtAuthentication(authorizedClient);
+        assertEquals(1, decodedJwts.get());
+
+        // the tokens of the embedded provider expire after 60 seconds
+        when(clock.instant()).thenReturn(Instant.now().plusSeconds(61));
+        authenticationProvider.createJwtAuthentication(authorizedClient);
+
+        assertEquals(2, decodedJwts.get());
+    }
+
+    @Test
+    public void shouldEvictCachedAuthenticationsWhenRolePrivilegesMappingIsReloaded() {
+        authenticationProvider.createJwtAuthentication(authorizedClient);
+
+        authenticationProvider.onApplicationEvent(new RolePrivilegesMappingReloadedEvent(mock(RolePrivilegesMapper.class)));
+        authenticationProvider.createJwtAuthentication(authorizedClient);
+
+        assertEquals(2, decodedJwts.get());
+    }
+
+    @Test
+    public void shouldRecordFailedJwtDecode(@TempDir Path tempDir) throws Exception {
+        OAuth2AuthorizedClient malformedClient = new OAuth2AuthorizedClient(authorizedClient.getClientRegistration(), CLIENT_ID,
+                new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "malformed", Instant.now(), Instant.now().plusSeconds(60)));
+
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable(JwtDecodeEvent.NAME);
+            recording.start();
+            assertThrows(BadJwtException.class, () -> authenticationProvider.createJwtAuthentication(malformedClient));
+            recording.stop();
+            Path file = tempDir.resolve("jwt-decode.jfr");
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> JwtDecodeEvent.NAME.equals(event.getEventType().getName()))
+                    .collect(Collectors.toList());
+        }
+
+        assertThat(events).hasSize(1);
+        assertEquals(TokenAcquisitionEvent.OUTCOME_ERROR, events.get(0).getString("outcome"));
+        assertEquals(BadJwtException.class.getName(), events.get(0).getString("error"));
+        assertEquals(0, decodedJwts.get());
+    }
+
+    /**
+     * Exposes the creation of authentications from authorized clients.
+     */
+    private static final class TestAuthenticationProvider extends IsyOAuth2AuthenticationProvider {
+
+        private TestAuthenticationProvider(Clock clock) {
+            super(new JwtAuthenticationConverter(), DEFAULT_AUTHENTICATION_CACHE_MAX_SIZE, clock);
+        }
+
+        @Override
+        public Authentication authenticate(Authentication authentication) {
+            return null;
+        }
+
+        @Override
+        public boolean supports(Class<?> authentication) {
+            return false;
+        }
+    }
+
+}
@@ -1,5 +1,11 @@
 package de.bund.bva.isyfact.security.oauth2.client.authentication;
 
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
 import static de.bund.bva.isyfact.security.test.oidcprovider.EmbeddedOidcProviderStub.BHKNZ_CLAIM_NAME;
 import static de.bund.bva.isyfact.security.test.oidcprovider.EmbeddedOidcProviderStub.DEFAULT_ROLES_CLAIM_NAME;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -8,28 +14,42 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
+import java.time.Duration;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.client.ClientAuthorizationException;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
 import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
 import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
 import org.springframework.security.oauth2.core.oidc.StandardClaimNames;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.test.context.ActiveProfiles;
 
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+
 import de.bund.bva.isyfact.security.AbstractOidcProviderTest;
 import de.bund.bva.isyfact.security.oauth2.client.authentication.token.PasswordClientRegistrationAuthenticationToken;
+import de.bund.bva.isyfact.security.oauth2.client.authentication.util.BhknzHeaderConverterBuilder;
 
 @ActiveProfiles("test-clients")
 @SpringBootTest
@@ -41,6 +61,12 @@ public class PasswordClientRegistrationAuthenticationProviderTest extends Abstra
     @Autowired
     private ClientRegistrationRepository clientRegistrationRepository;
 
+    @Autowired
+    private JwtAuthenticationConverter jwtAuthenticationConverter;
+
+    @Autowired
+    private BhknzHeaderConverterBuilder bhknzHeaderConverterBuilder;
+
     @BeforeAll
     public static void setup() {
         registerTestClients();
@@ -131,6 +157,93 @@ public class PasswordClientRegistrationAuthenticationProviderTest extends Abstra
         assertThat(exception.getMessage()).contains("ropc-client-without-resource-owner");
     }
 
+    @Test
+    public void shouldReuseCachedTokenForSameResourceOwner() {
+        // tokens of the embedded provider are valid for 60 seconds
+        PasswordClientRegistrationAuthenticationProvider cachingProvider =
+                new PasswordClientRegistrationAuthenticationProvider(jwtAuthenticationConverter, bhknzHeaderConverterBuilder, 10,
+                        Duration.ofSeconds(5));
+        ClientRegistration clientRegistration = clientRegistrationRepository.findByRegistrationId("ropc-client");
+        WireMock.resetAllRequests();
+
+        JwtAuthenticationToken first = (JwtAuthenticationToken) cachingProvider.authenticate(
+                new PasswordClientRegistrationAuthenticationToken(clientRegistration, "testuser", "pw1234", null));
+        JwtAuthenticationToken second = (JwtAuthenticationToken) cachingProvider.authenticate(
+                new PasswordClientRegistrationAuthenticationToken(clientRegistration, "testuser", "pw1234", null));
+
+        assertEquals(first.getToken().getTokenValue(), second.getToken().getTokenValue());
+        assertEquals(1, WireMock.findAll(postRequestedFor(urlPathMatching(".*/token"))).size());
+
+        // the password is part of the cache key, so a wrong password must not be served from the cache
+        assertThrows(ClientAuthorizationException.class, () -> cachingProvider.authenticate(
+                new PasswordClientRegistrationAuthenticationToken(clientRegistration, "testuser", "wrong", null)));
+    }
+
+    @Test
+    public void shouldRefreshExpiredCachedToken() {
+        String clientId = "resource-owner-password-credentials-test-client";
+        String accessToken = embeddedOidcProvider.getAccessTokenString(clientId, "refresh-user", Optional.empty(),
+                Collections.singleton("Rolle_A"));
+        StubMapping passwordGrant = stubTokenResponse("username=refresh-user", accessToken, "refresh-token-1");
+        StubMapping refreshGrant = stubTokenResponse("refresh_token=refresh-token-1", accessToken, "refresh-token-2");
+        // a clock skew equal to the token lifespan makes the cached access token expire immediately
+        PasswordClientRegistrationAuthenticationProvider cachingProvider =
+                new PasswordClientRegistrationAuthenticationProvider(jwtAuthenticationConverter, bhknzHeaderConverterBuilder, 10,
+                        Duration.ofSeconds(60));
+        ClientRegistration clientRegistration = clientRegistrationRepository.findByRegistrationId("ropc-client");
+        WireMock.resetAllRequests();
+
+        try {
+            cachingProvider.authenticate(new PasswordClientRegistrationAuthenticationToken(clientRegistration, "refresh-user", "pw1234", null));
+            cachingProvider.authenticate(new PasswordClientRegistrationAuthenticationToken(clientRegistration, "refresh-user", "pw1234", null));
+
+            assertEquals(1, WireMock.findAll(postRequestedFor(urlPathMatching(".*/token"))
+                    .withRequestBody(containing("grant_type=password"))).size());
+            assertEquals(1, WireMock.findAll(postRequestedFor(urlPathMatching(".*/token"))
+                    .withRequestBody(containing("grant_type=refresh_token"))).size());
+        } finally {
+            WireMock.removeStub(passwordGrant);
+            WireMock.removeStub(refreshGrant);
+        }
+    }
+
+    @Test
+    public void shouldReuseTokenResponseClientsPerBhknz() {
+        BhknzHeaderConverterBuilder converterBuilder = spy(bhknzHeaderConverterBuilder);
+        PasswordClientRegistrationAuthenticationProvider provider =
+                new PasswordClientRegistrationAuthenticationProvider(jwtAuthenticationConverter, converterBuilder);
+        ClientRegistration clientRegistration = clientRegistrationRepository.findByRegistrationId("ropc-client");
+
+        provider.authenticate(new PasswordClientRegistrationAuthenticationToken(clientRegistration, "testuser-with-bhknz", "pw1234", "123456"));
+        provider.authenticate(new PasswordClientRegistrationAuthenticationToken(clientRegistration, "testuser-with-bhknz", "pw1234", "123456"));
+
+        // one header converter each for the password and the refresh token response client
+        verify(converterBuilder, times(2)).buildWith("123456");
+    }
+
+    @Test
+    public void shouldEvictTokenResponseClientsBeyondMaxPooledBhknz() {
+        BhknzHeaderConverterBuilder converterBuilder = spy(bhknzHeaderConverterBuilder);
+        PasswordClientRegistrationAuthenticationProvider provider =
+                new PasswordClientRegistrationAuthenticationProvider(jwtAuthenticationConverter, converterBuilder);
+        provider.setMaxPooledBhknz(1);
+        ClientRegistration clientRegistration = clientRegistrationRepository.findByRegistrationId("ropc-client");
+
+        provider.authenticate(new PasswordClientRegistrationAuthenticationToken(clientRegistration, "testuser-with-bhknz", "pw1234", "123456"));
+        provider.authenticate(new PasswordClientRegistrationAuthenticationToken(clientRegistration, "testuser", "pw1234", "654321"));
+        provider.authenticate(new PasswordClientRegistrationAuthenticationToken(clientRegistration, "testuser", "pw1234", "654321"));
+        provider.authenticate(new PasswordClientRegistrationAuthenticationToken(clientRegistration, "testuser-with-bhknz", "pw1234", "123456"));
+
+        // the clients for 123456 are evicted by 654321 and created again
+        verify(converterBuilder, times(4)).buildWith("123456");
+        verify(converterBuilder, times(2)).buildWith("654321");
+    }
+
+    @Test
+    public void shouldRejectNegativeMaxPooledBhknz() {
+        assertThrows(IllegalArgumentException.class, () -> authenticationProvider.setMaxPooledBhknz(-1));
+    }
+
     @Test
     public void shouldReturnNullWhenPassingUnsupportedAuthentication() {
         Authentication authRequest = new UsernamePasswordAuthenticationToken("testuser", "pw1234");
@@ -139,4 +252,16 @@ public class PasswordClientRegistrationAuthenticationProviderTest extends Abstra
         assertNull(authentication);
     }
 
+
+    private static StubMapping stubTokenResponse(String requestBodyPart, String accessToken, String refreshToken) {
+        String tokenResponse = String.format(
+                "{\"access_token\":\"%s\",\"token_type\":\"Bearer\",\"expires_in\":60,\"refresh_token\":\"%s\"}",
+                accessToken, refreshToken);
+        return stubFor(post(urlPathMatching(".*/token")).atPriority(1)
+                .withRequestBody(containing(requestBodyPart))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBody(tokenResponse)));
+    }
+
 }
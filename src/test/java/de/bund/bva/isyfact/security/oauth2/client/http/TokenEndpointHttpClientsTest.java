@@ -0,0 +1,89 @@
+package de.bund.bva.isyfact.security.oauth2.client.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.converter.FormHttpMessageConverter;
+import org.springframework.security.oauth2.client.http.OAuth2ErrorResponseErrorHandler;
+import org.springframework.security.oauth2.core.http.converter.OAuth2AccessTokenResponseHttpMessageConverter;
+import org.springframework.web.client.RestTemplate;
+
+import de.bund.bva.isyfact.security.config.IsyOAuth2ClientConfigurationProperties.HttpProperties;
+
+public class TokenEndpointHttpClientsTest {
+
+    @Test
+    public void shouldCreatePooledApacheHttpClientByDefault() throws Exception {
+        ClientHttpRequestFactory requestFactory = TokenEndpointHttpClients.createRequestFactory(new HttpProperties());
+
+        assertThat(requestFactory).isInstanceOf(HttpComponentsClientHttpRequestFactory.class);
+        ((HttpComponentsClientHttpRequestFactory) requestFactory).destroy();
+    }
+
+    @Test
+    public void shouldCreateJdkHttpClientForHttp2() {
+        HttpProperties httpProperties = new HttpProperties();
+        httpProperties.setHttp2Enabled(true);
+
+        ClientHttpRequestFactory requestFactory = TokenEndpointHttpClients.createRequestFactory(httpProperties);
+
+        assertThat(requestFactory).isInstanceOf(JdkClientHttpRequestFactory.class);
+    }
+
+    @Test
+    public void shouldRejectPoolPropertiesForHttp2() {
+        HttpProperties httpProperties = new HttpProperties();
+        httpProperties.setHttp2Enabled(true);
+        httpProperties.setMaxConnections(10);
+        httpProperties.setValidateAfterInactivity(Duration.ZERO);
+
+        assertThatThrownBy(() -> TokenEndpointHttpClients.createRequestFactory(httpProperties))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("[max-connections, validate-after-inactivity]");
+    }
+
+    @Test
+    public void shouldCreateJdkHttpClientWithoutApacheHttpClient() {
+        ClientHttpRequestFactory requestFactory = TokenEndpointHttpClients.createRequestFactory(new HttpProperties(), false);
+
+        assertThat(requestFactory).isInstanceOf(JdkClientHttpRequestFactory.class);
+    }
+
+    @Test
+    public void shouldRejectPoolPropertiesWithoutApacheHttpClient() {
+        HttpProperties httpProperties = new HttpProperties();
+        httpProperties.setIdleTimeout(Duration.ofSeconds(5));
+
+        assertThatThrownBy(() -> TokenEndpointHttpClients.createRequestFactory(httpProperties, false))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("[idle-timeout] require org.apache.httpcomponents.client5:httpclient5");
+    }
+
+    @Test
+    public void shouldDestroyRequestFactoryOfTransport() throws Exception {
+        HttpComponentsClientHttpRequestFactory requestFactory = mock(HttpComponentsClientHttpRequestFactory.class);
+        TokenEndpointTransport transport = new TokenEndpointTransport(requestFactory);
+
+        transport.destroy();
+
+        assertThat(transport.getRestOperations()).isInstanceOf(RestTemplate.class);
+        verify(requestFactory).destroy();
+    }
+
+    @Test
+    public void shouldConfigureRestTemplateForTokenResponses() {
+        RestTemplate restTemplate = TokenEndpointHttpClients.createRestTemplate(new JdkClientHttpRequestFactory());
+
+        assertThat(restTemplate.getMessageConverters())
+                .hasExactlyElementsOfTypes(FormHttpMessageConverter.class, OAuth2AccessTokenResponseHttpMessageConverter.class);
+        assertThat(restTemplate.getErrorHandler()).isInstanceOf(OAuth2ErrorResponseErrorHandler.class);
+    }
+}
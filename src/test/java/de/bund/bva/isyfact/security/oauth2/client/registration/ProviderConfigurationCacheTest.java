@@ -0,0 +1,89 @@
+package de.bund.bva.isyfact.security.oauth2.client.registration;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+
+import de.bund.bva.isyfact.security.AbstractOidcProviderTest;
+
+public class ProviderConfigurationCacheTest extends AbstractOidcProviderTest {
+
+    @BeforeEach
+    public void resetRequests() {
+        WireMock.resetAllRequests();
+    }
+
+    @Test
+    public void shouldDiscoverIssuerOnlyOnce() {
+        ProviderConfigurationCache cache = new ProviderConfigurationCache(Duration.ofMinutes(5), 10);
+
+        ClientRegistration first = cache.fromIssuerLocation(getIssuer())
+                .clientId("first-client")
+                .clientSecret("first-secret")
+                .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                .build();
+        ClientRegistration second = cache.fromIssuerLocation(getIssuer())
+                .clientId("second-client")
+                .clientSecret("second-secret")
+                .authorizationGrantType(AuthorizationGrantType.PASSWORD)
+                .build();
+
+        assertEquals(1, countDiscoveryRequests());
+        assertEquals(getIssuer(), first.getProviderDetails().getIssuerUri());
+        assertEquals("first-client", first.getClientId());
+        assertEquals("first-secret", first.getClientSecret());
+        assertEquals(AuthorizationGrantType.CLIENT_CREDENTIALS, first.getAuthorizationGrantType());
+        assertEquals("second-client", second.getClientId());
+        assertEquals("second-secret", second.getClientSecret());
+        assertEquals(AuthorizationGrantType.PASSWORD, second.getAuthorizationGrantType());
+        assertEquals(first.getProviderDetails().getTokenUri(), second.getProviderDetails().getTokenUri());
+    }
+
+    @Test
+    public void shouldDiscoverIssuerAgainAfterInvalidation() {
+        ProviderConfigurationCache cache = new ProviderConfigurationCache(Duration.ofMinutes(5), 10);
+
+        cache.fromIssuerLocation(getIssuer());
+        cache.invalidate(getIssuer());
+        cache.fromIssuerLocation(getIssuer());
+
+        assertEquals(2, countDiscoveryRequests());
+    }
+
+    @Test
+    public void shouldDiscoverIssuerEveryTimeIfDisabled() {
+        ProviderConfigurationCache cache = new ProviderConfigurationCache(Duration.ZERO, 10);
+
+        cache.fromIssuerLocation(getIssuer());
+        cache.fromIssuerLocation(getIssuer());
+
+        assertEquals(2, countDiscoveryRequests());
+    }
+
+    @Test
+    public void shouldNotCacheFailedDiscovery() {
+        ProviderConfigurationCache cache = new ProviderConfigurationCache(Duration.ofMinutes(5), 10);
+        String invalidIssuerLocation = "http://localhost:9095/auth/realms/invalid";
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> cache.fromIssuerLocation(invalidIssuerLocation));
+        assertThat(exception.getMessage()).contains(invalidIssuerLocation);
+        assertThrows(IllegalArgumentException.class, () -> cache.fromIssuerLocation(invalidIssuerLocation));
+    }
+
+    private int countDiscoveryRequests() {
+        return WireMock.findAll(getRequestedFor(urlPathMatching(".*/\\.well-known/.*"))).size();
+    }
+
+}
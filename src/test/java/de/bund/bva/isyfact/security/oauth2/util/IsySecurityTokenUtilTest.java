@@ -2,18 +2,27 @@ package de.bund.bva.isyfact.security.oauth2.util;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.Arrays;
+
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
+import org.springframework.security.authentication.TestingAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
 import org.springframework.security.oauth2.core.oidc.StandardClaimNames;
 import org.springframework.security.oauth2.server.resource.authentication.AbstractOAuth2TokenAuthenticationToken;
 
@@ -156,10 +165,87 @@ public class IsySecurityTokenUtilTest {
         assertEquals("test_login", optDisplayName.get());
     }
 
-    private void mockSecurityContextWithTokenAttributes(Map<String, Object> attributes) {
+    @Test
+    public void testGetTokenPrincipal() {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("preferred_username", "test_login");
+        attributes.put(StandardClaimNames.SUB, "test_sub");
+        attributes.put("bhknz", "test_bhknz");
+        attributes.put("roles", Arrays.asList("ROLE_1", "ROLE_2"));
+        AbstractOAuth2TokenAuthenticationToken<?> authenticationToken = mockSecurityContextWithTokenAttributes(attributes);
+
+        TokenPrincipal tokenPrincipal = IsySecurityTokenUtil.getTokenPrincipal();
+
+        assertEquals(Optional.of("test_login"), tokenPrincipal.getLogin());
+        assertEquals(Optional.of("test_sub"), tokenPrincipal.getUserId());
+        assertEquals(Optional.of("test_bhknz"), tokenPrincipal.getBhknz());
+        assertEquals(Optional.of("test_login"), tokenPrincipal.getDisplayName());
+        assertEquals(Set.of("ROLE_1", "ROLE_2"), tokenPrincipal.getRoles());
+        assertThrows(UnsupportedOperationException.class, () -> tokenPrincipal.getRoles().add("ROLE_3"));
+
+        // the claims are resolved once per authentication
+        assertEquals("test_sub", IsySecurityTokenUtil.getUserId());
+        assertEquals(Optional.of("test_bhknz"), IsySecurityTokenUtil.findBhknz());
+        assertSame(tokenPrincipal, IsySecurityTokenUtil.getTokenPrincipal());
+        verify(authenticationToken, times(1)).getTokenAttributes();
+
+        mockSecurityContextWithTokenAttributes(Collections.singletonMap("bhknz", "other_bhknz"));
+
+        assertEquals(Optional.of("other_bhknz"), IsySecurityTokenUtil.getBhknz());
+        assertTrue(IsySecurityTokenUtil.getTokenPrincipal().getRoles().isEmpty());
+    }
+
+    @Test
+    public void testGetTokenPrincipalWithClaimsOfUnexpectedType() {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("preferred_username", 4711);
+        attributes.put(StandardClaimNames.SUB, "test_sub");
+        attributes.put("bhknz", "test_bhknz");
+        attributes.put("roles", Arrays.asList("ROLE_1", 2));
+        mockSecurityContextWithTokenAttributes(attributes);
+
+        assertFalse(IsySecurityTokenUtil.findLogin().isPresent());
+        assertEquals(Optional.of("test_sub"), IsySecurityTokenUtil.findUserId());
+        assertEquals(Optional.of("test_bhknz"), IsySecurityTokenUtil.findBhknz());
+        assertEquals(Set.of("ROLE_1"), IsySecurityTokenUtil.getTokenPrincipal().getRoles());
+    }
+
+    @Test
+    public void testGetRolesFromConfiguredRolesClaim() {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("custom_roles", Arrays.asList("ROLE_1", "ROLE_2"));
+        attributes.put("roles", Collections.singletonList("ROLE_3"));
+        mockSecurityContextWithTokenAttributes(attributes);
+
+        TokenPrincipal tokenPrincipal = IsySecurityTokenUtil.getTokenPrincipal("custom_roles");
+
+        assertEquals(Set.of("ROLE_1", "ROLE_2"), tokenPrincipal.getRoles());
+        assertEquals(Set.of("ROLE_3"), IsySecurityTokenUtil.getTokenPrincipal().getRoles());
+        assertSame(tokenPrincipal, IsySecurityTokenUtil.getTokenPrincipal("custom_roles"));
+    }
+
+    @Test
+    public void testFindWithoutTokenAuthentication() {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("user", "password"));
+
+        assertFalse(IsySecurityTokenUtil.findTokenPrincipal().isPresent());
+        assertFalse(IsySecurityTokenUtil.findLogin().isPresent());
+        assertFalse(IsySecurityTokenUtil.findUserId().isPresent());
+        assertFalse(IsySecurityTokenUtil.findBhknz().isPresent());
+        assertFalse(IsySecurityTokenUtil.findDisplayName().isPresent());
+        assertThrows(OAuth2AuthenticationException.class, IsySecurityTokenUtil::getBhknz);
+
+        SecurityContextHolder.clearContext();
+
+        assertFalse(IsySecurityTokenUtil.findLogin().isPresent());
+        assertThrows(OAuth2AuthenticationException.class, IsySecurityTokenUtil::getTokenPrincipal);
+    }
+
+    private AbstractOAuth2TokenAuthenticationToken<?> mockSecurityContextWithTokenAttributes(Map<String, Object> attributes) {
         Map<String, Object> attrMap = new HashMap<>(attributes);
         AbstractOAuth2TokenAuthenticationToken<?> authenticationToken = Mockito.mock(AbstractOAuth2TokenAuthenticationToken.class);
         when(authenticationToken.getTokenAttributes()).thenReturn(Collections.unmodifiableMap(attrMap));
         SecurityContextHolder.getContext().setAuthentication(authenticationToken);
+        return authenticationToken;
     }
 }
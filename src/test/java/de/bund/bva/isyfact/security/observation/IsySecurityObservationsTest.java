@@ -0,0 +1,176 @@
+package de.bund.bva.isyfact.security.observation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import de.bund.bva.isyfact.security.AbstractOidcProviderTest;
+import de.bund.bva.isyfact.security.metrics.MicrometerIsySecurityMetrics;
+import de.bund.bva.isyfact.security.oauth2.client.Authentifizierungsmanager;
+import de.bund.bva.isyfact.security.oauth2.client.registration.ProviderConfigurationCache;
+import de.bund.bva.isyfact.util.logging.MdcHelper;
+import io.micrometer.common.KeyValue;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+
+@ActiveProfiles("test-clients")
+@SpringBootTest
+public class IsySecurityObservationsTest extends AbstractOidcProviderTest {
+
+    private static final String KORRELATIONS_ID = "3c2e8f4a-6b1d-4e7f-9a0c-5d8b7e6f1a2b";
+
+    private static final RecordingObservationHandler HANDLER = new RecordingObservationHandler();
+
+    private static final SimpleMeterRegistry METER_REGISTRY = new SimpleMeterRegistry();
+
+    @Autowired
+    private Authentifizierungsmanager authentifizierungsmanager;
+
+    @Autowired
+    private ProviderConfigurationCache providerConfigurationCache;
+
+    @Autowired
+    private MicrometerIsySecurityMetrics metrics;
+
+    @BeforeAll
+    public static void setup() {
+        registerTestClients();
+    }
+
+    @BeforeEach
+    public void pushKorrelationsId() {
+        HANDLER.contexts.clear();
+        METER_REGISTRY.clear();
+        metrics.bindTo(METER_REGISTRY);
+        MdcHelper.pushKorrelationsId(KORRELATIONS_ID);
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        MdcHelper.entferneKorrelationsIds();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void shouldObserveTokenRequestAndJwtDecodeWithinAuthentication() {
+        authentifizierungsmanager.authentifiziere("ropc-client");
+
+        Observation.Context authentication = HANDLER.get(IsySecurityObservationDocumentation.AUTHENTICATION);
+        assertThat(authentication.getLowCardinalityKeyValues()).containsExactlyInAnyOrder(
+                KeyValue.of("registration", "ropc-client"), KeyValue.of("grant.type", "password"));
+        assertThat(authentication.getHighCardinalityKeyValue("korrelationsid").getValue()).isEqualTo(KORRELATIONS_ID);
+
+        Observation.Context tokenRequest = HANDLER.get(IsySecurityObservationDocumentation.TOKEN_REQUEST);
+        assertThat(tokenRequest.getLowCardinalityKeyValue("grant.type").getValue()).isEqualTo("password");
+        assertThat(tokenRequest.getHighCardinalityKeyValue("korrelationsid").getValue()).isEqualTo(KORRELATIONS_ID);
+        assertThat(tokenRequest.getParentObservation().getContextView().getName())
+                .isEqualTo(IsySecurityObservationDocumentation.AUTHENTICATION.getName());
+
+        Observation.Context jwtDecode = HANDLER.get(IsySecurityObservationDocumentation.JWT_DECODE);
+        assertThat(jwtDecode.getParentObservation().getContextView().getName())
+                .isEqualTo(IsySecurityObservationDocumentation.AUTHENTICATION.getName());
+    }
+
+    @Test
+    public void shouldObserveDiscoveryAndFailedTokenRequest() {
+        providerConfigurationCache.invalidateAll();
+
+        try {
+            authentifizierungsmanager.authentifiziereClient(getIssuer(), "client-credentials-test-client", "invalidpassword");
+        } catch (RuntimeException e) {
+            // the error is recorded in the observations
+        }
+
+        Observation.Context discovery = HANDLER.get(IsySecurityObservationDocumentation.DISCOVERY);
+        assertThat(discovery.getLowCardinalityKeyValue("issuer").getValue()).isEqualTo(getIssuer());
+        assertThat(discovery.getError()).isNull();
+
+        Observation.Context tokenRequest = HANDLER.get(IsySecurityObservationDocumentation.TOKEN_REQUEST);
+        assertThat(tokenRequest.getLowCardinalityKeyValue("grant.type").getValue()).isEqualTo("client_credentials");
+        assertNotNull(tokenRequest.getError());
+        assertNotNull(HANDLER.get(IsySecurityObservationDocumentation.AUTHENTICATION).getError());
+    }
+
+    @Test
+    public void shouldNotCollideWithMetricsInSameMeterRegistry() {
+        authentifizierungsmanager.authentifiziere("ropc-client");
+
+        // each authentication is counted once by the metrics and once by the timer derived from the observation
+        assertThat(METER_REGISTRY.get(MicrometerIsySecurityMetrics.AUTHENTICATION).timers())
+                .singleElement().satisfies(timer -> assertThat(timer.count()).isEqualTo(1));
+        assertThat(METER_REGISTRY.get(IsySecurityObservationDocumentation.AUTHENTICATION.getName()).timers())
+                .singleElement().satisfies(timer -> assertThat(timer.count()).isEqualTo(1));
+        assertThat(METER_REGISTRY.get(MicrometerIsySecurityMetrics.JWT_DECODE).timers())
+                .singleElement().satisfies(timer -> assertThat(timer.count()).isEqualTo(1));
+        assertThat(METER_REGISTRY.get(IsySecurityObservationDocumentation.JWT_DECODE.getName()).timers())
+                .singleElement().satisfies(timer -> assertThat(timer.count()).isEqualTo(1));
+
+        // registries like Prometheus reject meters of the same name with different tag keys
+        Map<String, Set<Set<String>>> tagKeysByName = METER_REGISTRY.getMeters().stream()
+                .map(Meter::getId)
+                .collect(Collectors.groupingBy(Meter.Id::getName, Collectors.mapping(
+                        id -> id.getTags().stream().map(Tag::getKey).collect(Collectors.toSet()), Collectors.toSet())));
+        assertThat(tagKeysByName).allSatisfy((name, tagKeys) -> assertThat(tagKeys).as(name).hasSize(1));
+    }
+
+    /**
+     * Records the contexts of all stopped observations.
+     */
+    private static final class RecordingObservationHandler implements ObservationHandler<Observation.Context> {
+
+        private final List<Observation.Context> contexts = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onStop(Observation.Context context) {
+            contexts.add(context);
+        }
+
+        @Override
+        public boolean supportsContext(Observation.Context context) {
+            return true;
+        }
+
+        private Observation.Context get(IsySecurityObservationDocumentation documentation) {
+            Optional<Observation.Context> context = contexts.stream()
+                    .filter(c -> documentation.getName().equals(c.getName()))
+                    .findFirst();
+            assertThat(context).as("observation %s", documentation.getName()).isPresent();
+            return context.get();
+        }
+    }
+
+    @TestConfiguration
+    static class ObservationConfiguration {
+
+        @Bean
+        public ObservationRegistry observationRegistry() {
+            ObservationRegistry registry = ObservationRegistry.create();
+            registry.observationConfig().observationHandler(HANDLER);
+            registry.observationConfig().observationHandler(new DefaultMeterObservationHandler(METER_REGISTRY));
+            return registry;
+        }
+    }
+
+}
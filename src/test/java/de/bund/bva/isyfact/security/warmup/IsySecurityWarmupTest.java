@@ -0,0 +1,111 @@
+package de.bund.bva.isyfact.security.warmup;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+
+import de.bund.bva.isyfact.security.AbstractOidcProviderTest;
+import de.bund.bva.isyfact.security.config.IsySecurityConfigurationProperties;
+import de.bund.bva.isyfact.security.oauth2.client.Authentifizierungsmanager;
+import de.bund.bva.isyfact.security.xmlparser.RolePrivilegesMapper;
+
+@ActiveProfiles("test-clients")
+@SpringBootTest(properties = {
+        "isy.security.warmup.enabled = true",
+        "isy.security.warmup.registration-ids = cc-client, ropc-client, cc-client-invalid"
+})
+public class IsySecurityWarmupTest extends AbstractOidcProviderTest {
+
+    @Autowired
+    private IsySecurityWarmup isySecurityWarmup;
+
+    @Autowired
+    private IsySecurityWarmupHealthIndicator isySecurityWarmupHealthIndicator;
+
+    @Autowired
+    private RolePrivilegesMapper rolePrivilegesMapper;
+
+    @Autowired
+    private JwtAuthenticationConverter jwtAuthenticationConverter;
+
+    @Autowired
+    private Authentifizierungsmanager authentifizierungsmanager;
+
+    @BeforeAll
+    public static void setup() {
+        registerTestClients();
+        SecurityContextHolder.getContext().setAuthentication(null);
+    }
+
+    @Test
+    public void shouldReportResultsOfWarmupAfterApplicationStart() throws InterruptedException {
+        awaitWarmupAfterApplicationStart();
+
+        assertTrue(isySecurityWarmup.isFinished());
+        assertThat(isySecurityWarmup.getResults())
+                .containsEntry("rolePrivileges", IsySecurityWarmup.RESULT_OK)
+                .containsEntry("jwkSet", IsySecurityWarmup.RESULT_OK)
+                .containsEntry("registration.cc-client", IsySecurityWarmup.RESULT_OK)
+                .containsEntry("registration.ropc-client", IsySecurityWarmup.RESULT_OK)
+                .containsEntry("registration.cc-client-invalid", IsySecurityWarmup.RESULT_FAILED);
+
+        // the failed step does not keep the application out of service, the warm-up is reported as degraded
+        Health health = isySecurityWarmupHealthIndicator.health();
+        assertEquals(Status.UP, health.getStatus());
+        assertThat(health.getDetails())
+                .containsEntry("degraded", true)
+                .containsEntry("registration.cc-client-invalid", IsySecurityWarmup.RESULT_FAILED)
+                .containsKeys("rolePrivileges", "jwkSet");
+        assertFalse(isySecurityWarmup.isSuccessful());
+    }
+
+    @Test
+    public void shouldRequestTokensAndReportUp() throws InterruptedException {
+        // the warm-up after the application start must not send requests while the requests are counted
+        awaitWarmupAfterApplicationStart();
+        IsySecurityWarmup warmup = createWarmup();
+        IsySecurityWarmupHealthIndicator healthIndicator = new IsySecurityWarmupHealthIndicator(warmup);
+        assertEquals(Status.OUT_OF_SERVICE, healthIndicator.health().getStatus());
+
+        WireMock.resetAllRequests();
+        warmup.warmUp();
+
+        assertTrue(warmup.isSuccessful());
+        assertEquals(Status.UP, healthIndicator.health().getStatus());
+        assertThat(healthIndicator.health().getDetails()).containsEntry("degraded", false);
+        assertEquals(1, WireMock.findAll(postRequestedFor(urlPathMatching(".*/token"))).size());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    private void awaitWarmupAfterApplicationStart() throws InterruptedException {
+        for (int i = 0; i < 100 && !isySecurityWarmup.isFinished(); i++) {
+            Thread.sleep(100);
+        }
+    }
+
+    private IsySecurityWarmup createWarmup() {
+        IsySecurityConfigurationProperties properties = new IsySecurityConfigurationProperties();
+        properties.getWarmup().setRegistrationIds(Collections.singletonList("ropc-client"));
+        return new IsySecurityWarmup(rolePrivilegesMapper, jwtAuthenticationConverter, properties, Collections.emptyList(),
+                authentifizierungsmanager, null, null);
+    }
+
+}
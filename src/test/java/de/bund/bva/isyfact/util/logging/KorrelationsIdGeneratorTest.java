@@ -0,0 +1,46 @@
+package de.bund.bva.isyfact.util.logging;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Testfälle der Generatoren für Korrelations-IDs.
+ */
+public class KorrelationsIdGeneratorTest {
+
+    /**
+     * Testet, dass der ZufallsKorrelationsIdGenerator eindeutige UUIDs der Version 4 erzeugt.
+     */
+    @Test
+    public void testZufallsKorrelationsIdGenerator() {
+        pruefeEindeutigeUuidsVersion4(new ZufallsKorrelationsIdGenerator());
+    }
+
+    /**
+     * Testet, dass der UuidKorrelationsIdGenerator eindeutige UUIDs der Version 4 erzeugt.
+     */
+    @Test
+    public void testUuidKorrelationsIdGenerator() {
+        pruefeEindeutigeUuidsVersion4(new UuidKorrelationsIdGenerator());
+    }
+
+    private static void pruefeEindeutigeUuidsVersion4(KorrelationsIdGenerator generator) {
+        Set<String> korrelationsIds = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            String korrelationsId = generator.erzeugeKorrelationsId();
+            UUID uuid = UUID.fromString(korrelationsId);
+
+            assertEquals(korrelationsId, uuid.toString());
+            assertEquals(4, uuid.version());
+            assertEquals(2, uuid.variant());
+            assertTrue(korrelationsIds.add(korrelationsId));
+        }
+    }
+
+}
@@ -1,6 +1,9 @@
 package de.bund.bva.isyfact.util.logging;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.slf4j.MDC;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -14,10 +17,21 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 public class MdcHelperTest {
 
     /**
-     * Testet des Setzen der Korrelations-ID im MDC.
+     * Setzt den Modus der Korrelations-IDs zurück.
      */
-    @Test
-    public void testKorrelationsId() {
+    @AfterEach
+    public void tearDown() {
+        MdcHelper.setzeKorrelationsIdStapel(false);
+        MDC.remove(MdcHelper.MDC_KORRELATIONS_ID);
+    }
+
+    /**
+     * Testet des Setzen der Korrelations-ID im MDC, mit und ohne Stapel-Modus.
+     */
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testKorrelationsId(boolean stapel) {
+        MdcHelper.setzeKorrelationsIdStapel(stapel);
 
         // Korrelations-ID leeren
         MDC.remove(MdcHelper.MDC_KORRELATIONS_ID);
@@ -81,10 +95,12 @@ public class MdcHelperTest {
     }
 
     /**
-     * Testet das Entfernen aller Korrelations-Ids mit dem MDC-Helper.
+     * Testet das Entfernen aller Korrelations-Ids mit dem MDC-Helper, mit und ohne Stapel-Modus.
      */
-    @Test
-    public void testKorrelationsIdAlleEntfernen() {
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testKorrelationsIdAlleEntfernen(boolean stapel) {
+        MdcHelper.setzeKorrelationsIdStapel(stapel);
 
         String korrelationsid;
 
@@ -132,6 +148,31 @@ public class MdcHelperTest {
         assertEquals("1;2;3", korrelationsid);
     }
 
+    /**
+     * Testet, dass der Stapel-Modus direkte Änderungen des MDC berücksichtigt.
+     */
+    @Test
+    public void testKorrelationsIdStapelNachDirekterAenderungDesMdc() {
+        MdcHelper.setzeKorrelationsIdStapel(true);
+        MdcHelper.pushKorrelationsId("1");
+        MdcHelper.pushKorrelationsId("2");
+
+        // MDC wird ohne MdcHelper verändert
+        MDC.put(MdcHelper.MDC_KORRELATIONS_ID, "a;b;c");
+
+        assertEquals("a;b;c;4", MdcHelper.pushKorrelationsId("4"));
+        assertEquals("4", MdcHelper.entferneKorrelationsId());
+        assertEquals("c", MdcHelper.entferneKorrelationsId());
+        assertEquals("a;b", MdcHelper.liesKorrelationsId());
+
+        MDC.clear();
+
+        assertNull(MdcHelper.entferneKorrelationsId());
+        assertEquals("5", MdcHelper.pushKorrelationsId("5"));
+        assertEquals("5", MdcHelper.entferneKorrelationsId());
+        assertNull(MdcHelper.liesKorrelationsId());
+    }
+
     /**
      * Testet das Setzen und Auslesen des MDC-Fachdaten flags.
      */